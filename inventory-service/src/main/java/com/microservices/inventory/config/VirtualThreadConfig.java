@@ -0,0 +1,94 @@
+package com.microservices.inventory.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.apache.coyote.ProtocolHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Opt-in virtual-thread mode, enabled with spring.threads.virtual.enabled=true.
+ *
+ * Tomcat then runs every request on its own virtual thread, so blocking calls
+ * (RestTemplate, WebClient.block(), JPA) park the virtual thread instead of
+ * holding one of the platform worker threads. Virtual threads need a Java 21
+ * runtime while the build targets 17, so they are created reflectively and
+ * the service keeps platform threads on older runtimes.
+ *
+ * Guardrails against pinning: request-path code uses java.util.concurrent
+ * locks rather than synchronized, and JDBC, where drivers synchronize
+ * internally, is bounded by the Hikari pool. At startup the pool size is
+ * checked against the number of carrier threads so JDBC alone cannot pin all
+ * of them. Run with -Djdk.tracePinnedThreads=short to log any pinning.
+ */
+@Configuration
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadConfig.class);
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadProtocolHandlerCustomizer() {
+        return protocolHandler -> newVirtualThreadPerTaskExecutor("http-vt-")
+                .ifPresentOrElse(protocolHandler::setExecutor,
+                        () -> logger.warn("Virtual threads requested but not supported on Java {}; using platform threads",
+                                Runtime.version().feature()));
+    }
+
+    @Bean
+    public ApplicationRunner virtualThreadPinningCheck(ObjectProvider<DataSource> dataSource) {
+        return args -> {
+            if (!(dataSource.getIfAvailable() instanceof HikariDataSource hikari)) {
+                return;
+            }
+            int carriers = Integer.getInteger("jdk.virtualThreadScheduler.parallelism",
+                    Runtime.getRuntime().availableProcessors());
+            if (hikari.getMaximumPoolSize() >= carriers) {
+                logger.warn("JDBC pool size {} is not below the {} virtual thread carriers; JDBC calls pin their "
+                                + "carrier, so lower spring.datasource.hikari.maximum-pool-size or raise "
+                                + "-Djdk.virtualThreadScheduler.parallelism",
+                        hikari.getMaximumPoolSize(), carriers);
+            }
+        };
+    }
+
+    /**
+     * Returns a factory for named virtual threads, or empty before Java 21.
+     */
+    public static Optional<ThreadFactory> virtualThreadFactory(String namePrefix) {
+        try {
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 0L);
+            return Optional.of((ThreadFactory) builderType.getMethod("factory").invoke(builder));
+        } catch (ReflectiveOperationException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Returns an executor starting a new virtual thread per task, or empty before Java 21.
+     */
+    public static Optional<ExecutorService> newVirtualThreadPerTaskExecutor(String namePrefix) {
+        return virtualThreadFactory(namePrefix).map(factory -> {
+            try {
+                return (ExecutorService) Executors.class
+                        .getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                        .invoke(null, factory);
+            } catch (ReflectiveOperationException e) {
+                return null;
+            }
+        });
+    }
+}
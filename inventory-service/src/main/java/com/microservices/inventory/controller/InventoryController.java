@@ -5,7 +5,9 @@ import com.microservices.inventory.dto.InventoryItemResponse;
 import com.microservices.inventory.dto.LowStockAlertResponse;
 import com.microservices.inventory.event.LowStockEvent;
 import com.microservices.inventory.service.InventoryService;
+import com.microservices.inventory.service.InventoryService.InsufficientStockException;
 import com.microservices.inventory.service.LowStockAlertService;
+import org.springframework.dao.TransientDataAccessException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -16,6 +18,8 @@ import java.util.List;
 @RequestMapping("/inventory")
 public class InventoryController {
 
+    static final String RESERVATION_HEADER = "X-Reservation-Id";
+
     private final InventoryService inventoryService;
     private final LowStockAlertService alertService;
 
@@ -56,6 +60,41 @@ public class InventoryController {
         }
     }
 
+    /**
+     * Deducts stock. Answers 409 only when there is not enough stock; a lock
+     * timeout or other transient database failure is 503, anything else 500,
+     * so callers do not mistake a hiccup for an empty shelf.
+     */
+    @PutMapping("/{sku}/deduct")
+    public ResponseEntity<?> deductStock(
+            @PathVariable String sku,
+            @RequestParam int quantity,
+            @RequestHeader(value = RESERVATION_HEADER, required = false) String reservationId) {
+        try {
+            inventoryService.deductStock(sku, quantity, reservationId);
+            return ResponseEntity.ok().build();
+        } catch (InsufficientStockException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        } catch (TransientDataAccessException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        } catch (RuntimeException e) {
+            return ResponseEntity.internalServerError().body(e.getMessage());
+        }
+    }
+
+    @PutMapping("/{sku}/release")
+    public ResponseEntity<?> releaseStock(
+            @PathVariable String sku,
+            @RequestParam int quantity,
+            @RequestHeader(value = RESERVATION_HEADER, required = false) String reservationId) {
+        try {
+            inventoryService.releaseStock(sku, quantity, reservationId);
+            return ResponseEntity.ok().build();
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        }
+    }
+
     @GetMapping("/low-stock")
     public ResponseEntity<List<InventoryItemResponse>> getLowStockItems() {
         List<InventoryItemResponse> lowStockItems = inventoryService.getLowStockItems();
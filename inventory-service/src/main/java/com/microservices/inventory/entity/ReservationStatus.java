@@ -0,0 +1,6 @@
+package com.microservices.inventory.entity;
+
+public enum ReservationStatus {
+    DEDUCTED,
+    RELEASED
+}
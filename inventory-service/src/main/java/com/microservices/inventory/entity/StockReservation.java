@@ -0,0 +1,100 @@
+package com.microservices.inventory.entity;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+/**
+ * Records a stock deduction made on behalf of a caller-supplied reservation
+ * reference, so repeated deduct/release calls for the same reference are
+ * applied at most once.
+ */
+@Entity
+@Table(name = "stock_reservations")
+public class StockReservation {
+
+    @Id
+    private String reference;
+
+    @Column(nullable = false)
+    private String productSku;
+
+    @Column(nullable = false)
+    private Integer quantity;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private ReservationStatus status;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+
+    @Column(nullable = false)
+    private Instant updatedAt;
+
+    public StockReservation() {
+        this.createdAt = Instant.now();
+        this.updatedAt = Instant.now();
+    }
+
+    public StockReservation(String reference, String productSku, Integer quantity, ReservationStatus status) {
+        this();
+        this.reference = reference;
+        this.productSku = productSku;
+        this.quantity = quantity;
+        this.status = status;
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        this.updatedAt = Instant.now();
+    }
+
+    // Getters and Setters
+    public String getReference() {
+        return reference;
+    }
+
+    public void setReference(String reference) {
+        this.reference = reference;
+    }
+
+    public String getProductSku() {
+        return productSku;
+    }
+
+    public void setProductSku(String productSku) {
+        this.productSku = productSku;
+    }
+
+    public Integer getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(Integer quantity) {
+        this.quantity = quantity;
+    }
+
+    public ReservationStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(ReservationStatus status) {
+        this.status = status;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -1,8 +1,11 @@
 package com.microservices.inventory.repository;
 
 import com.microservices.inventory.entity.InventoryItem;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -13,6 +16,10 @@ public interface InventoryRepository extends JpaRepository<InventoryItem, Long>
 
     Optional<InventoryItem> findByProductSku(String productSku);
 
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT i FROM InventoryItem i WHERE i.productSku = :productSku")
+    Optional<InventoryItem> findByProductSkuForUpdate(@Param("productSku") String productSku);
+
     @Query("SELECT i FROM InventoryItem i WHERE i.available <= i.threshold")
     List<InventoryItem> findLowStockItems();
 }
@@ -0,0 +1,9 @@
+package com.microservices.inventory.repository;
+
+import com.microservices.inventory.entity.StockReservation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface StockReservationRepository extends JpaRepository<StockReservation, String> {
+}
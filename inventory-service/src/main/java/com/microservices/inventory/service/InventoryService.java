@@ -3,13 +3,17 @@ package com.microservices.inventory.service;
 import com.microservices.inventory.dto.InventoryItemRequest;
 import com.microservices.inventory.dto.InventoryItemResponse;
 import com.microservices.inventory.entity.InventoryItem;
+import com.microservices.inventory.entity.ReservationStatus;
+import com.microservices.inventory.entity.StockReservation;
 import com.microservices.inventory.event.EventLogger;
 import com.microservices.inventory.event.LowStockEvent;
 import com.microservices.inventory.repository.InventoryRepository;
+import com.microservices.inventory.repository.StockReservationRepository;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 @Service
@@ -17,10 +21,13 @@ public class InventoryService {
 
     private final InventoryRepository inventoryRepository;
     private final EventLogger eventLogger;
+    private final StockReservationRepository reservationRepository;
 
-    public InventoryService(InventoryRepository inventoryRepository, EventLogger eventLogger) {
+    public InventoryService(InventoryRepository inventoryRepository, EventLogger eventLogger,
+                            StockReservationRepository reservationRepository) {
         this.inventoryRepository = inventoryRepository;
         this.eventLogger = eventLogger;
+        this.reservationRepository = reservationRepository;
     }
 
     @Transactional(readOnly = true)
@@ -77,23 +84,73 @@ public class InventoryService {
 
     @Transactional
     public void deductStock(String sku, int quantity) {
-        InventoryItem item = inventoryRepository.findByProductSku(sku)
+        deductStock(sku, quantity, null);
+    }
+
+    /**
+     * Deducts stock while holding a row lock on the item, so concurrent orders
+     * cannot oversell. With a reservation reference the call is idempotent: a
+     * retried deduct, or one arriving after its release, leaves stock untouched.
+     *
+     * @throws InsufficientStockException if less than quantity is available
+     */
+    @Transactional
+    public void deductStock(String sku, int quantity, String reservationId) {
+        InventoryItem item = inventoryRepository.findByProductSkuForUpdate(sku)
                 .orElseThrow(() -> new RuntimeException("Inventory item not found for SKU: " + sku));
 
+        if (reservationId != null && reservationRepository.existsById(reservationId)) {
+            return;
+        }
+
         if (item.getAvailable() < quantity) {
-            throw new RuntimeException("Insufficient stock for SKU: " + sku + 
+            throw new InsufficientStockException("Insufficient stock for SKU: " + sku +
                     ". Available: " + item.getAvailable() + ", Requested: " + quantity);
         }
 
         item.setAvailable(item.getAvailable() - quantity);
         InventoryItem updatedItem = inventoryRepository.save(item);
 
+        if (reservationId != null) {
+            reservationRepository.save(new StockReservation(reservationId, sku, quantity, ReservationStatus.DEDUCTED));
+        }
+
         // Check for low stock after deduction
         if (updatedItem.isLowStock()) {
             logLowStockEvent(updatedItem);
         }
     }
 
+    /**
+     * Returns stock taken by a deduction. With a reservation reference only the
+     * quantity actually deducted under that reference is returned, at most once;
+     * releasing an unknown reference records it so a late deduct is ignored.
+     */
+    @Transactional
+    public void releaseStock(String sku, int quantity, String reservationId) {
+        InventoryItem item = inventoryRepository.findByProductSkuForUpdate(sku)
+                .orElseThrow(() -> new RuntimeException("Inventory item not found for SKU: " + sku));
+
+        int releasedQuantity = quantity;
+        if (reservationId != null) {
+            Optional<StockReservation> existing = reservationRepository.findById(reservationId);
+            if (existing.isEmpty()) {
+                reservationRepository.save(new StockReservation(reservationId, sku, 0, ReservationStatus.RELEASED));
+                return;
+            }
+            StockReservation reservation = existing.get();
+            if (reservation.getStatus() == ReservationStatus.RELEASED) {
+                return;
+            }
+            reservation.setStatus(ReservationStatus.RELEASED);
+            reservationRepository.save(reservation);
+            releasedQuantity = reservation.getQuantity();
+        }
+
+        item.setAvailable(item.getAvailable() + releasedQuantity);
+        inventoryRepository.save(item);
+    }
+
     @Transactional(readOnly = true)
     public List<InventoryItemResponse> getLowStockItems() {
         return inventoryRepository.findLowStockItems().stream()
@@ -113,4 +170,14 @@ public class InventoryService {
     public List<LowStockEvent> getEventLog() {
         return eventLogger.getEventLog();
     }
+
+    /**
+     * Not enough stock for a deduction. The only deduct failure that says
+     * anything about stock; every other one may succeed when retried.
+     */
+    public static class InsufficientStockException extends RuntimeException {
+        public InsufficientStockException(String message) {
+            super(message);
+        }
+    }
 }
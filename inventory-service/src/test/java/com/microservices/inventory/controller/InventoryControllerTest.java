@@ -6,11 +6,13 @@ import com.microservices.inventory.dto.InventoryItemResponse;
 import com.microservices.inventory.dto.LowStockAlertResponse;
 import com.microservices.inventory.event.LowStockEvent;
 import com.microservices.inventory.service.InventoryService;
+import com.microservices.inventory.service.InventoryService.InsufficientStockException;
 import com.microservices.inventory.service.LowStockAlertService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.PessimisticLockingFailureException;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
@@ -21,6 +23,8 @@ import java.util.List;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -273,4 +277,53 @@ class InventoryControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.length()").value(0));
     }
+
+    @Test
+    void testDeductStock_WithReservation() throws Exception {
+        mockMvc.perform(put("/inventory/TEST-SKU-001/deduct")
+                        .param("quantity", "5")
+                        .header("X-Reservation-Id", "order-1:0"))
+                .andExpect(status().isOk());
+
+        verify(inventoryService).deductStock("TEST-SKU-001", 5, "order-1:0");
+    }
+
+    @Test
+    void testDeductStock_InsufficientStock() throws Exception {
+        doThrow(new InsufficientStockException("Insufficient stock for SKU: TEST-SKU-001"))
+                .when(inventoryService).deductStock("TEST-SKU-001", 500, null);
+
+        mockMvc.perform(put("/inventory/TEST-SKU-001/deduct").param("quantity", "500"))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    void testDeductStock_LockTimeout_ServiceUnavailable() throws Exception {
+        doThrow(new PessimisticLockingFailureException("Timeout trying to lock table"))
+                .when(inventoryService).deductStock("TEST-SKU-001", 5, "order-1:0");
+
+        mockMvc.perform(put("/inventory/TEST-SKU-001/deduct")
+                        .param("quantity", "5")
+                        .header("X-Reservation-Id", "order-1:0"))
+                .andExpect(status().isServiceUnavailable());
+    }
+
+    @Test
+    void testDeductStock_UnknownSku_ServerError() throws Exception {
+        doThrow(new RuntimeException("Inventory item not found for SKU: TEST-SKU-404"))
+                .when(inventoryService).deductStock("TEST-SKU-404", 5, null);
+
+        mockMvc.perform(put("/inventory/TEST-SKU-404/deduct").param("quantity", "5"))
+                .andExpect(status().isInternalServerError());
+    }
+
+    @Test
+    void testReleaseStock_WithReservation() throws Exception {
+        mockMvc.perform(put("/inventory/TEST-SKU-001/release")
+                        .param("quantity", "5")
+                        .header("X-Reservation-Id", "order-1:0"))
+                .andExpect(status().isOk());
+
+        verify(inventoryService).releaseStock("TEST-SKU-001", 5, "order-1:0");
+    }
 }
@@ -3,9 +3,12 @@ package com.microservices.inventory.service;
 import com.microservices.inventory.dto.InventoryItemRequest;
 import com.microservices.inventory.dto.InventoryItemResponse;
 import com.microservices.inventory.entity.InventoryItem;
+import com.microservices.inventory.entity.ReservationStatus;
+import com.microservices.inventory.entity.StockReservation;
 import com.microservices.inventory.event.EventLogger;
 import com.microservices.inventory.event.LowStockEvent;
 import com.microservices.inventory.repository.InventoryRepository;
+import com.microservices.inventory.repository.StockReservationRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -30,6 +33,9 @@ class InventoryServiceTest {
     @Mock
     private EventLogger eventLogger;
 
+    @Mock
+    private StockReservationRepository reservationRepository;
+
     @InjectMocks
     private InventoryService inventoryService;
 
@@ -143,7 +149,7 @@ class InventoryServiceTest {
 
     @Test
     void testDeductStock_Success() {
-        when(inventoryRepository.findByProductSku("TEST-SKU-001"))
+        when(inventoryRepository.findByProductSkuForUpdate("TEST-SKU-001"))
                 .thenReturn(Optional.of(testItem));
 
         InventoryItem updatedItem = new InventoryItem("TEST-SKU-001", 70, 20);
@@ -154,17 +160,17 @@ class InventoryServiceTest {
 
         inventoryService.deductStock("TEST-SKU-001", 30);
 
-        verify(inventoryRepository, times(1)).findByProductSku("TEST-SKU-001");
+        verify(inventoryRepository, times(1)).findByProductSkuForUpdate("TEST-SKU-001");
         verify(inventoryRepository, times(1)).save(any(InventoryItem.class));
         verify(eventLogger, never()).logLowStockEvent(any(LowStockEvent.class));
     }
 
     @Test
     void testDeductStock_InsufficientStock() {
-        when(inventoryRepository.findByProductSku("TEST-SKU-001"))
+        when(inventoryRepository.findByProductSkuForUpdate("TEST-SKU-001"))
                 .thenReturn(Optional.of(testItem));
 
-        RuntimeException exception = assertThrows(RuntimeException.class, () -> {
+        RuntimeException exception = assertThrows(InventoryService.InsufficientStockException.class, () -> {
             inventoryService.deductStock("TEST-SKU-001", 150);
         });
 
@@ -174,7 +180,7 @@ class InventoryServiceTest {
 
     @Test
     void testDeductStock_TriggersLowStockEvent() {
-        when(inventoryRepository.findByProductSku("TEST-SKU-001"))
+        when(inventoryRepository.findByProductSkuForUpdate("TEST-SKU-001"))
                 .thenReturn(Optional.of(testItem));
 
         // After deducting 85, available will be 15 which is <= threshold (20)
@@ -193,7 +199,7 @@ class InventoryServiceTest {
 
     @Test
     void testDeductStock_ExactlyAtThreshold() {
-        when(inventoryRepository.findByProductSku("TEST-SKU-001"))
+        when(inventoryRepository.findByProductSkuForUpdate("TEST-SKU-001"))
                 .thenReturn(Optional.of(testItem));
 
         // After deducting 80, available will be 20 which equals threshold (20)
@@ -212,7 +218,7 @@ class InventoryServiceTest {
 
     @Test
     void testDeductStock_ItemNotFound() {
-        when(inventoryRepository.findByProductSku("NON-EXISTENT"))
+        when(inventoryRepository.findByProductSkuForUpdate("NON-EXISTENT"))
                 .thenReturn(Optional.empty());
 
         assertThrows(RuntimeException.class, () -> {
@@ -221,6 +227,60 @@ class InventoryServiceTest {
         verify(inventoryRepository, never()).save(any(InventoryItem.class));
     }
 
+    @Test
+    void testDeductStock_WithReservation_RecordsReservation() {
+        when(inventoryRepository.findByProductSkuForUpdate("TEST-SKU-001"))
+                .thenReturn(Optional.of(testItem));
+        when(reservationRepository.existsById("order-1:0")).thenReturn(false);
+        when(inventoryRepository.save(any(InventoryItem.class))).thenReturn(testItem);
+
+        inventoryService.deductStock("TEST-SKU-001", 30, "order-1:0");
+
+        assertEquals(70, testItem.getAvailable());
+        verify(reservationRepository, times(1)).save(any(StockReservation.class));
+    }
+
+    @Test
+    void testDeductStock_WithKnownReservation_IsNoOp() {
+        when(inventoryRepository.findByProductSkuForUpdate("TEST-SKU-001"))
+                .thenReturn(Optional.of(testItem));
+        when(reservationRepository.existsById("order-1:0")).thenReturn(true);
+
+        inventoryService.deductStock("TEST-SKU-001", 30, "order-1:0");
+
+        assertEquals(100, testItem.getAvailable());
+        verify(inventoryRepository, never()).save(any(InventoryItem.class));
+    }
+
+    @Test
+    void testReleaseStock_ReturnsReservedQuantityOnce() {
+        StockReservation reservation = new StockReservation("order-1:0", "TEST-SKU-001", 30, ReservationStatus.DEDUCTED);
+        when(inventoryRepository.findByProductSkuForUpdate("TEST-SKU-001"))
+                .thenReturn(Optional.of(testItem));
+        when(reservationRepository.findById("order-1:0")).thenReturn(Optional.of(reservation));
+
+        // Quantity from the reservation wins over the requested one
+        inventoryService.releaseStock("TEST-SKU-001", 999, "order-1:0");
+        inventoryService.releaseStock("TEST-SKU-001", 999, "order-1:0");
+
+        assertEquals(130, testItem.getAvailable());
+        assertEquals(ReservationStatus.RELEASED, reservation.getStatus());
+        verify(inventoryRepository, times(1)).save(any(InventoryItem.class));
+    }
+
+    @Test
+    void testReleaseStock_UnknownReservation_RecordsTombstone() {
+        when(inventoryRepository.findByProductSkuForUpdate("TEST-SKU-001"))
+                .thenReturn(Optional.of(testItem));
+        when(reservationRepository.findById("order-1:0")).thenReturn(Optional.empty());
+
+        inventoryService.releaseStock("TEST-SKU-001", 30, "order-1:0");
+
+        assertEquals(100, testItem.getAvailable());
+        verify(reservationRepository, times(1)).save(any(StockReservation.class));
+        verify(inventoryRepository, never()).save(any(InventoryItem.class));
+    }
+
     @Test
     void testGetLowStockItems() {
         InventoryItem lowStock1 = new InventoryItem("LOW-001", 5, 10);
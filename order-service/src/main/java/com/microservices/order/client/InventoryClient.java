@@ -1,56 +1,79 @@
 package com.microservices.order.client;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import com.microservices.order.config.DownstreamWebClients;
+import com.microservices.order.dto.LowStockItem;
+import com.microservices.order.resilience.DependencyGuard;
+import com.microservices.order.resilience.DependencyGuards;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
 import reactor.core.publisher.Mono;
-import reactor.util.retry.Retry;
 
-import java.time.Duration;
+import java.util.List;
 
 @Component
 public class InventoryClient {
 
-    private static final Logger logger = LoggerFactory.getLogger(InventoryClient.class);
-    private static final String INVENTORY_SERVICE_URL = "http://inventory-service";
-    
+    /**
+     * Identifies a stock movement so inventory-service applies it only once.
+     */
+    public static final String RESERVATION_HEADER = "X-Reservation-Id";
+
     private final WebClient webClient;
+    private final DependencyGuard guard;
 
-    public InventoryClient(WebClient.Builder webClientBuilder) {
-        this.webClient = webClientBuilder.baseUrl(INVENTORY_SERVICE_URL).build();
+    public InventoryClient(DownstreamWebClients webClients, DependencyGuards dependencyGuards,
+                           @Value("${inventory-service.url:http://inventory-service}") String inventoryServiceUrl) {
+        this.webClient = webClients.create(inventoryServiceUrl);
+        this.guard = dependencyGuards.inventory();
     }
 
     /**
-     * Check inventory availability for a product SKU
-     * @param sku Product SKU
-     * @return InventoryResponse or null if not found or error occurs
+     * Reads stock levels for a SKU. Completes empty if the SKU is not stocked.
      */
-    public InventoryResponse checkInventory(String sku) {
-        try {
-            return webClient.get()
-                    .uri("/api/inventory/sku/{sku}", sku)
-                    .retrieve()
-                    .bodyToMono(InventoryResponse.class)
-                    .retryWhen(Retry.backoff(3, Duration.ofMillis(500))
-                            .filter(throwable -> throwable instanceof WebClientResponseException.ServiceUnavailable)
-                            .onRetryExhaustedThrow((retryBackoffSpec, retrySignal) -> {
-                                logger.error("Retry exhausted for inventory check: {}", sku);
-                                return new RuntimeException("Inventory service unavailable after retries");
-                            }))
-                    .doOnError(error -> logger.error("Error checking inventory for SKU {}: {}", 
-                            sku, error.getMessage()))
-                    .onErrorResume(throwable -> {
-                        logger.warn("Returning null for inventory SKU {} due to: {}", 
-                                sku, throwable.getMessage());
-                        return Mono.empty();
-                    })
-                    .block();
-        } catch (Exception e) {
-            logger.error("Unexpected error calling inventory service for SKU {}: {}", 
-                    sku, e.getMessage());
-            return null;
-        }
+    public Mono<InventoryResponse> getInventory(String sku) {
+        return guard.protectRead(webClient.get()
+                .uri("/inventory/{sku}", sku)
+                .retrieve()
+                .bodyToMono(InventoryResponse.class)
+                .onErrorResume(WebClientResponseException.NotFound.class, e -> Mono.empty()));
+    }
+
+    /**
+     * Reads the items whose stock is at or below their alert threshold.
+     */
+    public Mono<List<LowStockItem>> getLowStockItems() {
+        return guard.protectRead(webClient.get()
+                .uri("/inventory/low-stock")
+                .retrieve()
+                .bodyToMono(new ParameterizedTypeReference<List<LowStockItem>>() {}));
+    }
+
+    /**
+     * Deducts stock under a reservation id; repeating it with the same id has
+     * no further effect, so it is retried like a read.
+     */
+    public Mono<Void> deduct(String sku, int quantity, String reservationId) {
+        return moveStock("deduct", sku, quantity, reservationId);
+    }
+
+    /**
+     * Returns stock taken under a reservation id. Releasing a reservation that
+     * was never made is a no-op.
+     */
+    public Mono<Void> release(String sku, int quantity, String reservationId) {
+        return moveStock("release", sku, quantity, reservationId);
+    }
+
+    private Mono<Void> moveStock(String movement, String sku, int quantity, String reservationId) {
+        return guard.protectWithRetries(webClient.put()
+                .uri(uri -> uri.path("/inventory/{sku}/" + movement)
+                        .queryParam("quantity", quantity)
+                        .build(sku))
+                .header(RESERVATION_HEADER, reservationId)
+                .retrieve()
+                .bodyToMono(Void.class));
     }
 }
@@ -1,89 +1,89 @@
 package com.microservices.order.client;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import com.microservices.order.config.DownstreamWebClients;
+import com.microservices.order.resilience.DependencyGuard;
+import com.microservices.order.resilience.DependencyGuards;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
 import reactor.core.publisher.Mono;
-import reactor.util.retry.Retry;
 
 import java.time.Duration;
 
 @Component
 public class PaymentClient {
 
-    private static final Logger logger = LoggerFactory.getLogger(PaymentClient.class);
-    private static final String PAYMENT_SERVICE_URL = "http://payment-service";
-    
+    private static final String PENDING = "PENDING";
+
     private final WebClient webClient;
+    private final DependencyGuard guard;
+    private final Duration settlePollInterval;
+    private final Duration settleTimeout;
+
+    public PaymentClient(DownstreamWebClients webClients, DependencyGuards dependencyGuards,
+                         @Value("${payment-service.url:http://payment-service}") String paymentServiceUrl,
+                         @Value("${payment-service.settle-poll-ms:250}") long settlePollMs,
+                         @Value("${payment-service.settle-timeout-ms:5000}") long settleTimeoutMs) {
+        this.webClient = webClients.create(paymentServiceUrl);
+        this.guard = dependencyGuards.payment();
+        this.settlePollInterval = Duration.ofMillis(settlePollMs);
+        this.settleTimeout = Duration.ofMillis(settleTimeoutMs);
+    }
 
-    public PaymentClient(WebClient.Builder webClientBuilder) {
-        this.webClient = webClientBuilder.baseUrl(PAYMENT_SERVICE_URL).build();
+    /**
+     * Charges an order. payment-service returns the existing payment when
+     * the request's order and attempt were already charged, so the call is
+     * retried.
+     */
+    public Mono<PaymentResponse> processPayment(PaymentRequest request) {
+        return guard.protectWithRetries(webClient.post()
+                .uri("/payments/process")
+                .bodyValue(request)
+                .retrieve()
+                .bodyToMono(PaymentResponse.class));
+    }
+
+    public Mono<PaymentResponse> getPayment(Long id) {
+        return guard.protectRead(webClient.get()
+                .uri("/payments/{id}", id)
+                .retrieve()
+                .bodyToMono(PaymentResponse.class));
+    }
+
+    /**
+     * Waits for a PENDING payment to be settled by the gateway, polling every
+     * payment-service.settle-poll-ms on a timer rather than holding a thread.
+     * Emits the payment as last seen, still PENDING, if the gateway has not
+     * answered within payment-service.settle-timeout-ms.
+     */
+    public Mono<PaymentResponse> awaitSettled(PaymentResponse pending) {
+        return Mono.delay(settlePollInterval)
+                .then(getPayment(pending.getId()))
+                .filter(payment -> !PENDING.equals(payment.getStatus()))
+                .repeatWhenEmpty(polls -> polls)
+                .timeout(settleTimeout, Mono.just(pending));
     }
 
     /**
-     * Process payment for an order
-     * @param request Payment request
-     * @return PaymentResponse or null if error occurs
+     * Finds the payment made for an order. Completes empty if there is none.
      */
-    public PaymentResponse processPayment(PaymentRequest request) {
-        try {
-            return webClient.post()
-                    .uri("/api/payments")
-                    .bodyValue(request)
-                    .retrieve()
-                    .bodyToMono(PaymentResponse.class)
-                    .retryWhen(Retry.backoff(3, Duration.ofMillis(500))
-                            .filter(throwable -> throwable instanceof WebClientResponseException.ServiceUnavailable)
-                            .onRetryExhaustedThrow((retryBackoffSpec, retrySignal) -> {
-                                logger.error("Retry exhausted for payment processing: {}", request.getOrderId());
-                                return new RuntimeException("Payment service unavailable after retries");
-                            }))
-                    .doOnError(error -> logger.error("Error processing payment for order {}: {}", 
-                            request.getOrderId(), error.getMessage()))
-                    .onErrorResume(throwable -> {
-                        logger.warn("Failed to process payment for order {} due to: {}", 
-                                request.getOrderId(), throwable.getMessage());
-                        return Mono.empty();
-                    })
-                    .block();
-        } catch (Exception e) {
-            logger.error("Unexpected error processing payment for order {}: {}", 
-                    request.getOrderId(), e.getMessage());
-            return null;
-        }
+    public Mono<PaymentResponse> getPaymentByOrderId(String orderId) {
+        return guard.protectRead(webClient.get()
+                .uri("/payments/order/{orderId}", orderId)
+                .retrieve()
+                .bodyToMono(PaymentResponse.class)
+                .onErrorResume(WebClientResponseException.NotFound.class, e -> Mono.empty()));
     }
 
     /**
-     * Get payment status for an order
-     * @param orderId Order ID
-     * @return PaymentResponse or null if not found or error occurs
+     * Refunds a payment. Refunding an already refunded payment is a no-op on
+     * the payment-service side, so the call is retried.
      */
-    public PaymentResponse getPaymentByOrderId(String orderId) {
-        try {
-            return webClient.get()
-                    .uri("/api/payments/order/{orderId}", orderId)
-                    .retrieve()
-                    .bodyToMono(PaymentResponse.class)
-                    .retryWhen(Retry.backoff(3, Duration.ofMillis(500))
-                            .filter(throwable -> throwable instanceof WebClientResponseException.ServiceUnavailable)
-                            .onRetryExhaustedThrow((retryBackoffSpec, retrySignal) -> {
-                                logger.error("Retry exhausted for payment lookup: {}", orderId);
-                                return new RuntimeException("Payment service unavailable after retries");
-                            }))
-                    .doOnError(error -> logger.error("Error fetching payment for order {}: {}", 
-                            orderId, error.getMessage()))
-                    .onErrorResume(throwable -> {
-                        logger.warn("Returning null for payment order {} due to: {}", 
-                                orderId, throwable.getMessage());
-                        return Mono.empty();
-                    })
-                    .block();
-        } catch (Exception e) {
-            logger.error("Unexpected error calling payment service for order {}: {}", 
-                    orderId, e.getMessage());
-            return null;
-        }
+    public Mono<PaymentResponse> refund(String paymentId) {
+        return guard.protectWithRetries(webClient.post()
+                .uri("/payments/{id}/refund", paymentId)
+                .retrieve()
+                .bodyToMono(PaymentResponse.class));
     }
 }
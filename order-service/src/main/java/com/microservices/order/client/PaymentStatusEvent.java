@@ -0,0 +1,78 @@
+package com.microservices.order.client;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * A payment status change pushed by payment-service's outbox relay.
+ */
+public class PaymentStatusEvent {
+
+    private Long eventId;
+    private Long paymentId;
+    private String orderId;
+    private int attempt;
+    private BigDecimal amount;
+    private String status;
+    private Instant occurredAt;
+
+    public PaymentStatusEvent() {
+    }
+
+    // Getters and Setters
+    public Long getEventId() {
+        return eventId;
+    }
+
+    public void setEventId(Long eventId) {
+        this.eventId = eventId;
+    }
+
+    public Long getPaymentId() {
+        return paymentId;
+    }
+
+    public void setPaymentId(Long paymentId) {
+        this.paymentId = paymentId;
+    }
+
+    public String getOrderId() {
+        return orderId;
+    }
+
+    public void setOrderId(String orderId) {
+        this.orderId = orderId;
+    }
+
+    public int getAttempt() {
+        return attempt;
+    }
+
+    public void setAttempt(int attempt) {
+        this.attempt = attempt;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public void setAmount(BigDecimal amount) {
+        this.amount = amount;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public Instant getOccurredAt() {
+        return occurredAt;
+    }
+
+    public void setOccurredAt(Instant occurredAt) {
+        this.occurredAt = occurredAt;
+    }
+}
@@ -1,56 +1,34 @@
 package com.microservices.order.client;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import com.microservices.order.config.DownstreamWebClients;
+import com.microservices.order.resilience.DependencyGuard;
+import com.microservices.order.resilience.DependencyGuards;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
 import reactor.core.publisher.Mono;
-import reactor.util.retry.Retry;
-
-import java.time.Duration;
 
 @Component
 public class ProductClient {
 
-    private static final Logger logger = LoggerFactory.getLogger(ProductClient.class);
-    private static final String PRODUCT_SERVICE_URL = "http://product-service";
-    
     private final WebClient webClient;
+    private final DependencyGuard guard;
 
-    public ProductClient(WebClient.Builder webClientBuilder) {
-        this.webClient = webClientBuilder.baseUrl(PRODUCT_SERVICE_URL).build();
+    public ProductClient(DownstreamWebClients webClients, DependencyGuards dependencyGuards,
+                         @Value("${product-service.url:http://product-service}") String productServiceUrl) {
+        this.webClient = webClients.create(productServiceUrl);
+        this.guard = dependencyGuards.product();
     }
 
     /**
-     * Get product information by ID
-     * @param productId Product ID
-     * @return ProductResponse or null if not found or error occurs
+     * Looks up a product by SKU. Completes empty if the product does not exist.
      */
-    public ProductResponse getProductById(Long productId) {
-        try {
-            return webClient.get()
-                    .uri("/api/products/{id}", productId)
-                    .retrieve()
-                    .bodyToMono(ProductResponse.class)
-                    .retryWhen(Retry.backoff(3, Duration.ofMillis(500))
-                            .filter(throwable -> throwable instanceof WebClientResponseException.ServiceUnavailable)
-                            .onRetryExhaustedThrow((retryBackoffSpec, retrySignal) -> {
-                                logger.error("Retry exhausted for product lookup: {}", productId);
-                                return new RuntimeException("Product service unavailable after retries");
-                            }))
-                    .doOnError(error -> logger.error("Error fetching product {}: {}", 
-                            productId, error.getMessage()))
-                    .onErrorResume(throwable -> {
-                        logger.warn("Returning null for product {} due to: {}", 
-                                productId, throwable.getMessage());
-                        return Mono.empty();
-                    })
-                    .block();
-        } catch (Exception e) {
-            logger.error("Unexpected error calling product service for product {}: {}", 
-                    productId, e.getMessage());
-            return null;
-        }
+    public Mono<ProductResponse> getProductBySku(String sku) {
+        return guard.protectRead(webClient.get()
+                .uri("/products/sku/{sku}", sku)
+                .retrieve()
+                .bodyToMono(ProductResponse.class)
+                .onErrorResume(WebClientResponseException.NotFound.class, e -> Mono.empty()));
     }
 }
@@ -0,0 +1,63 @@
+package com.microservices.order.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class AsyncConfig {
+
+    // In virtual-thread mode the pool keeps its bounds, which cap concurrent
+    // checkouts, but runs tasks on virtual threads
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    /**
+     * Bounded pool that drives asynchronous order payments. It rejects work
+     * when full, so callers get a 503 instead of tying up request threads
+     * behind slow downstream services.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor orderPaymentExecutor(
+            @Value("${order.payment-worker.pool-size:8}") int poolSize,
+            @Value("${order.payment-worker.queue-capacity:200}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("order-payment-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        useVirtualThreadsIfEnabled(executor, "order-payment-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Writes dashboard events to viewers, so a slow connection holds up one
+     * of these threads rather than the scheduler. Rejects when full; the
+     * publisher then defers the event to a later round.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor dashboardPushExecutor(
+            @Value("${order.dashboard.push-pool-size:4}") int poolSize,
+            @Value("${order.dashboard.push-queue-capacity:1000}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("dashboard-push-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        useVirtualThreadsIfEnabled(executor, "dashboard-push-");
+        executor.initialize();
+        return executor;
+    }
+
+    private void useVirtualThreadsIfEnabled(ThreadPoolTaskExecutor executor, String namePrefix) {
+        if (virtualThreads) {
+            VirtualThreadConfig.virtualThreadFactory(namePrefix).ifPresent(executor::setThreadFactory);
+        }
+    }
+}
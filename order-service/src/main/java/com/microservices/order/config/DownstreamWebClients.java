@@ -0,0 +1,65 @@
+package com.microservices.order.config;
+
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Creates the WebClient for each downstream service: load-balanced, on the
+ * service's own keep-alive connection pool and with the timeouts configured
+ * under order.http-client. Pool usage is published as
+ * reactor.netty.connection.provider.* metrics named after the service.
+ */
+@Component
+public class DownstreamWebClients implements DisposableBean {
+
+    private final WebClient.Builder webClientBuilder;
+    private final HttpClientProperties properties;
+    private final Map<String, ConnectionProvider> connectionProviders = new ConcurrentHashMap<>();
+
+    public DownstreamWebClients(WebClient.Builder webClientBuilder, HttpClientProperties properties) {
+        this.webClientBuilder = webClientBuilder;
+        this.properties = properties;
+    }
+
+    public WebClient create(String baseUrl) {
+        String service = URI.create(baseUrl).getHost();
+        HttpClientProperties.Pool pool = properties.getServices().getOrDefault(service, properties.getDefaults());
+
+        HttpClient httpClient = HttpClient.create(connectionProvider(service, pool))
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) pool.getConnectTimeoutMs())
+                .responseTimeout(Duration.ofMillis(pool.getReadTimeoutMs()));
+
+        // Clone so the shared builder, which carries the load balancer filter, is not mutated
+        return webClientBuilder.clone()
+                .baseUrl(baseUrl)
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
+    }
+
+    private ConnectionProvider connectionProvider(String service, HttpClientProperties.Pool pool) {
+        return connectionProviders.computeIfAbsent(service, name -> ConnectionProvider.builder("order-" + name)
+                .maxConnections(pool.getMaxConnections())
+                .pendingAcquireMaxCount(pool.getMaxPendingAcquires())
+                .pendingAcquireTimeout(Duration.ofMillis(pool.getPoolAcquireTimeoutMs()))
+                .maxIdleTime(Duration.ofMillis(pool.getIdleEvictionMs()))
+                .maxLifeTime(Duration.ofMillis(pool.getTimeToLiveMs()))
+                .evictInBackground(Duration.ofMillis(pool.getIdleEvictionMs()))
+                .metrics(true)
+                .build());
+    }
+
+    @Override
+    public void destroy() {
+        connectionProviders.values().forEach(ConnectionProvider::dispose);
+    }
+}
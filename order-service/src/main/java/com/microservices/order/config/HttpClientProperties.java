@@ -0,0 +1,107 @@
+package com.microservices.order.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Connection pool and timeout settings for outbound HTTP calls, under
+ * order.http-client. The defaults apply to every downstream service; an
+ * entry under services (keyed by the service host, e.g. payment-service)
+ * replaces them for that service.
+ *
+ * Each service gets its own Reactor Netty connection pool, which keeps
+ * separate connections per instance.
+ */
+@ConfigurationProperties(prefix = "order.http-client")
+public class HttpClientProperties {
+
+    private Pool defaults = new Pool();
+    private Map<String, Pool> services = new HashMap<>();
+
+    public Pool getDefaults() {
+        return defaults;
+    }
+
+    public void setDefaults(Pool defaults) {
+        this.defaults = defaults;
+    }
+
+    public Map<String, Pool> getServices() {
+        return services;
+    }
+
+    public void setServices(Map<String, Pool> services) {
+        this.services = services;
+    }
+
+    public static class Pool {
+        // Connections to a single instance
+        private int maxConnections = 20;
+        // Calls allowed to wait for a connection once all are in use
+        private int maxPendingAcquires = 200;
+        private long connectTimeoutMs = 2000;
+        private long readTimeoutMs = 5000;
+        // How long a call waits for a free pooled connection
+        private long poolAcquireTimeoutMs = 1000;
+        private long idleEvictionMs = 30000;
+        private long timeToLiveMs = 300000;
+
+        public int getMaxConnections() {
+            return maxConnections;
+        }
+
+        public void setMaxConnections(int maxConnections) {
+            this.maxConnections = maxConnections;
+        }
+
+        public int getMaxPendingAcquires() {
+            return maxPendingAcquires;
+        }
+
+        public void setMaxPendingAcquires(int maxPendingAcquires) {
+            this.maxPendingAcquires = maxPendingAcquires;
+        }
+
+        public long getConnectTimeoutMs() {
+            return connectTimeoutMs;
+        }
+
+        public void setConnectTimeoutMs(long connectTimeoutMs) {
+            this.connectTimeoutMs = connectTimeoutMs;
+        }
+
+        public long getReadTimeoutMs() {
+            return readTimeoutMs;
+        }
+
+        public void setReadTimeoutMs(long readTimeoutMs) {
+            this.readTimeoutMs = readTimeoutMs;
+        }
+
+        public long getPoolAcquireTimeoutMs() {
+            return poolAcquireTimeoutMs;
+        }
+
+        public void setPoolAcquireTimeoutMs(long poolAcquireTimeoutMs) {
+            this.poolAcquireTimeoutMs = poolAcquireTimeoutMs;
+        }
+
+        public long getIdleEvictionMs() {
+            return idleEvictionMs;
+        }
+
+        public void setIdleEvictionMs(long idleEvictionMs) {
+            this.idleEvictionMs = idleEvictionMs;
+        }
+
+        public long getTimeToLiveMs() {
+            return timeToLiveMs;
+        }
+
+        public void setTimeToLiveMs(long timeToLiveMs) {
+            this.timeToLiveMs = timeToLiveMs;
+        }
+    }
+}
@@ -1,24 +1,50 @@
 package com.microservices.order.controller;
 
-import com.microservices.order.dto.DashboardData;
+import com.microservices.order.service.DashboardPublisher;
 import com.microservices.order.service.DashboardService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
-import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.concurrent.CompletableFuture;
 
 @Controller
 public class DashboardController {
 
     private final DashboardService dashboardService;
+    private final DashboardPublisher dashboardPublisher;
 
-    public DashboardController(DashboardService dashboardService) {
+    public DashboardController(DashboardService dashboardService, DashboardPublisher dashboardPublisher) {
         this.dashboardService = dashboardService;
+        this.dashboardPublisher = dashboardPublisher;
     }
 
+    /**
+     * Renders the dashboard once its data is available, without holding the
+     * request thread while it is being fetched.
+     */
     @GetMapping("/dashboard")
-    public String dashboard(Model model) {
-        DashboardData data = dashboardService.getDashboardData();
-        model.addAttribute("data", data);
-        return "dashboard";
+    public CompletableFuture<ModelAndView> dashboard() {
+        return dashboardService.getDashboardData()
+                .thenApply(data -> new ModelAndView("dashboard", "data", data));
+    }
+
+    /**
+     * Live updates for an open dashboard: a snapshot, then deltas.
+     */
+    @GetMapping(path = "/dashboard/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> stream() {
+        try {
+            return ResponseEntity.ok(dashboardPublisher.subscribe());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "30")
+                    .build();
+        }
     }
 }
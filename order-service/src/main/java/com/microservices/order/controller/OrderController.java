@@ -1,44 +1,148 @@
 package com.microservices.order.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.microservices.order.dto.CreateOrderRequest;
+import com.microservices.order.dto.OrderFilter;
+import com.microservices.order.dto.OrderPage;
 import com.microservices.order.dto.OrderResponse;
+import com.microservices.order.dto.OrderSummary;
+import com.microservices.order.entity.OrderStatus;
+import com.microservices.order.resilience.DependencyUnavailableException;
+import com.microservices.order.service.IdempotencyStore;
+import com.microservices.order.service.IdempotencyStore.IdempotencyConflictException;
+import com.microservices.order.service.IdempotencyStore.IdempotencyKeyReusedException;
+import com.microservices.order.service.InvalidOrderException;
+import com.microservices.order.service.OrderPaymentDispatcher;
 import com.microservices.order.service.OrderService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
-import java.util.List;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/orders")
 public class OrderController {
 
+    static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    private static final long MAX_AWAIT_MS = 60000;
+
     private final OrderService orderService;
+    private final OrderPaymentDispatcher paymentDispatcher;
+    private final IdempotencyStore idempotencyStore;
+    private final ObjectMapper objectMapper;
 
-    public OrderController(OrderService orderService) {
+    public OrderController(OrderService orderService, OrderPaymentDispatcher paymentDispatcher,
+                           IdempotencyStore idempotencyStore, ObjectMapper objectMapper) {
         this.orderService = orderService;
+        this.paymentDispatcher = paymentDispatcher;
+        this.idempotencyStore = idempotencyStore;
+        this.objectMapper = objectMapper;
     }
 
+    /**
+     * Creates an order. A retry carrying the same Idempotency-Key gets the
+     * original response back instead of creating another order; reusing the
+     * key for a different order is answered with 422.
+     */
     @PostMapping
-    public ResponseEntity<OrderResponse> createOrder(@RequestBody CreateOrderRequest request) {
+    public ResponseEntity<OrderResponse> createOrder(@RequestBody CreateOrderRequest request,
+                                                     @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        return idempotent("create:" + idempotencyKey, idempotencyKey, () -> fingerprint(request),
+                () -> doCreateOrder(request));
+    }
+
+    private ResponseEntity<OrderResponse> doCreateOrder(CreateOrderRequest request) {
         try {
             OrderResponse response = orderService.createOrder(request);
             return ResponseEntity.status(HttpStatus.CREATED).body(response);
-        } catch (Exception e) {
+        } catch (DependencyUnavailableException e) {
+            return serviceUnavailable();
+        } catch (InvalidOrderException e) {
             return ResponseEntity.badRequest().build();
+        } catch (RuntimeException e) {
+            // Timeouts and downstream errors; the same request may well succeed when retried
+            return ResponseEntity.internalServerError().build();
         }
     }
 
+    /**
+     * Pays for an order. With async=true the payment is queued and 202 is
+     * returned straight away with the order URL in the Location header; poll
+     * it, or wait on GET /orders/{id}/payment, to see the outcome. Retries
+     * carrying the same Idempotency-Key replay the original response. Paying
+     * an order whose payment is already under way, such as a retry after a
+     * checkout failed midway and was left for recovery, answers 202 the same
+     * way; that answer is not replayed, so a later retry sees the outcome.
+     */
     @PostMapping("/{id}/pay")
-    public ResponseEntity<OrderResponse> payOrder(@PathVariable String id) {
+    public ResponseEntity<OrderResponse> payOrder(@PathVariable String id,
+                                                  @RequestParam(defaultValue = "false") boolean async,
+                                                  @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        return idempotent("pay:" + id + ":" + idempotencyKey, idempotencyKey, () -> "async=" + async,
+                () -> doPayOrder(id, async));
+    }
+
+    private ResponseEntity<OrderResponse> doPayOrder(String id, boolean async) {
+        if (async) {
+            return payOrderAsync(id);
+        }
         try {
             OrderResponse response = orderService.payOrder(id);
             return ResponseEntity.ok(response);
-        } catch (Exception e) {
-            return ResponseEntity.badRequest().build();
+        } catch (DependencyUnavailableException e) {
+            return serviceUnavailable();
+        } catch (InvalidOrderException e) {
+            return paymentUnderWay(id);
+        } catch (RuntimeException e) {
+            // The saga is left for recovery, which finishes or compensates it
+            return ResponseEntity.internalServerError().build();
         }
     }
 
+    /**
+     * Waits up to timeoutMs for the order's in-flight payment to finish and
+     * returns the order. Answers immediately if no payment is in flight, and
+     * with 202 if the payment is still running when the wait times out.
+     */
+    @GetMapping("/{id}/payment")
+    public DeferredResult<ResponseEntity<OrderResponse>> awaitPayment(@PathVariable String id,
+                                                                      @RequestParam(defaultValue = "30000") long timeoutMs) {
+        DeferredResult<ResponseEntity<OrderResponse>> result =
+                new DeferredResult<>(Math.min(Math.max(timeoutMs, 0), MAX_AWAIT_MS));
+
+        CompletableFuture<OrderResponse> job = paymentDispatcher.inFlight(id);
+        if (job == null) {
+            result.setResult(currentOrder(id));
+            return result;
+        }
+
+        result.onTimeout(() -> result.setResult(accepted(id)));
+        // Re-read the order either way so a failed job reports the state it left behind
+        job.whenComplete((response, failure) -> result.setResult(currentOrder(id)));
+        return result;
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<OrderResponse> getOrder(@PathVariable String id) {
         try {
@@ -49,9 +153,144 @@ public class OrderController {
         }
     }
 
+    /**
+     * Lists orders newest first, one page at a time, optionally filtered by
+     * status and creation time (from inclusive, to exclusive). The body is a
+     * JSON array of order summaries (item count and total instead of the
+     * lines; GET /orders/{id} has those), written as the orders are read.
+     * When more orders follow, a
+     * Link header with rel="next" carries the URL of the next page.
+     */
     @GetMapping
-    public ResponseEntity<List<OrderResponse>> getAllOrders() {
-        List<OrderResponse> orders = orderService.getAllOrders();
-        return ResponseEntity.ok(orders);
+    public ResponseEntity<StreamingResponseBody> getAllOrders(
+            @RequestParam(required = false) OrderStatus status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        OrderPage page;
+        try {
+            page = orderService.findOrders(new OrderFilter(status, from, to), cursor, limit);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON);
+        if (page.getNextCursor() != null) {
+            String next = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("cursor", page.getNextCursor().encode())
+                    .toUriString();
+            response.header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+        }
+        return response.body(out -> writeOrders(page, out));
+    }
+
+    private void writeOrders(OrderPage page, OutputStream out) throws IOException {
+        ObjectWriter writer = objectMapper.writerFor(OrderSummary.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        try (JsonGenerator json = objectMapper.getFactory().createGenerator(out)) {
+            json.writeStartArray();
+            orderService.forEachOrder(page, order -> {
+                try {
+                    writer.writeValue(json, order);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            json.writeEndArray();
+        }
+    }
+
+    private ResponseEntity<OrderResponse> payOrderAsync(String id) {
+        OrderResponse order;
+        try {
+            order = orderService.getOrder(id);
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
+        }
+
+        if (order.getStatus() == OrderStatus.PAYMENT_PENDING) {
+            // Already being paid, by a queued job or a checkout being recovered
+            return accepted(id, order);
+        }
+        if (order.getStatus() != OrderStatus.CREATED) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        try {
+            paymentDispatcher.submit(id);
+        } catch (RejectedExecutionException e) {
+            return serviceUnavailable();
+        }
+        return accepted(id, order);
+    }
+
+    private ResponseEntity<OrderResponse> paymentUnderWay(String id) {
+        OrderResponse order;
+        try {
+            order = orderService.getOrder(id);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (order != null && order.getStatus() == OrderStatus.PAYMENT_PENDING) {
+            return accepted(id, order);
+        }
+        return ResponseEntity.badRequest().build();
+    }
+
+    private static ResponseEntity<OrderResponse> serviceUnavailable() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .build();
+    }
+
+    private ResponseEntity<OrderResponse> accepted(String id) {
+        try {
+            return accepted(id, orderService.getOrder(id));
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    private static ResponseEntity<OrderResponse> accepted(String id, OrderResponse order) {
+        return ResponseEntity.accepted()
+                .location(URI.create("/orders/" + id))
+                .body(order);
+    }
+
+    private ResponseEntity<OrderResponse> currentOrder(String id) {
+        try {
+            return ResponseEntity.ok(orderService.getOrder(id));
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    private ResponseEntity<OrderResponse> idempotent(String scopedKey, String idempotencyKey,
+                                                     Supplier<String> fingerprint,
+                                                     Supplier<ResponseEntity<OrderResponse>> action) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return action.get();
+        }
+        try {
+            // Server-side failures and payments still under way are not replayed,
+            // so a retry gets the current answer
+            return idempotencyStore.execute(scopedKey, fingerprint.get(), action,
+                    response -> !response.getStatusCode().is5xxServerError()
+                            && response.getStatusCode() != HttpStatus.ACCEPTED);
+        } catch (IdempotencyConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        } catch (IdempotencyKeyReusedException e) {
+            return ResponseEntity.unprocessableEntity().build();
+        }
+    }
+
+    private String fingerprint(CreateOrderRequest request) {
+        try {
+            byte[] body = objectMapper.writeValueAsBytes(request);
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(body));
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Could not fingerprint order request", e);
+        }
     }
 }
@@ -0,0 +1,33 @@
+package com.microservices.order.controller;
+
+import com.microservices.order.client.PaymentStatusEvent;
+import com.microservices.order.service.PaymentEventHandler;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * Receives payment status changes from payment-service. Anything but a 2xx
+ * makes payment-service deliver the batch again, so work the events trigger
+ * runs after the response.
+ */
+@RestController
+@RequestMapping("/payment-events")
+public class PaymentEventController {
+
+    private final PaymentEventHandler paymentEventHandler;
+
+    public PaymentEventController(PaymentEventHandler paymentEventHandler) {
+        this.paymentEventHandler = paymentEventHandler;
+    }
+
+    @PostMapping
+    public ResponseEntity<Void> receive(@RequestBody List<PaymentStatusEvent> events) {
+        paymentEventHandler.handle(events);
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -4,6 +4,7 @@ public class DashboardData {
     private java.util.List<OrderStatusCount> ordersByStatus;
     private java.util.List<ProductOrderCount> topProducts;
     private java.util.List<LowStockItem> lowStockItems;
+    private java.util.List<ThroughputMetrics> throughput;
 
     public DashboardData() {
     }
@@ -32,4 +33,12 @@ public class DashboardData {
     public void setLowStockItems(java.util.List<LowStockItem> lowStockItems) {
         this.lowStockItems = lowStockItems;
     }
+
+    public java.util.List<ThroughputMetrics> getThroughput() {
+        return throughput;
+    }
+
+    public void setThroughput(java.util.List<ThroughputMetrics> throughput) {
+        this.throughput = throughput;
+    }
 }
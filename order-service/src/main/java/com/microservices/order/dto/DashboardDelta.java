@@ -0,0 +1,116 @@
+package com.microservices.order.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * What changed on the dashboard since the data a viewer last received.
+ * Status counts and low-stock items are keyed by status and SKU; the top
+ * products are sent as the ranks whose occupant or figures changed, plus
+ * the new length of the list when it changed. Throughput is small and
+ * sent whole whenever any window moved.
+ */
+public class DashboardDelta {
+    private List<OrderStatusCount> statusChanges = new ArrayList<>();
+    private List<String> statusRemovals = new ArrayList<>();
+    private List<RankChange> rankChanges = new ArrayList<>();
+    private Integer topProductCount;
+    private List<LowStockItem> lowStockUpserts = new ArrayList<>();
+    private List<String> lowStockRemovals = new ArrayList<>();
+    private List<ThroughputMetrics> throughput;
+
+    public DashboardDelta() {
+    }
+
+    public boolean hasChanges() {
+        return !statusChanges.isEmpty() || !statusRemovals.isEmpty()
+                || !rankChanges.isEmpty() || topProductCount != null
+                || !lowStockUpserts.isEmpty() || !lowStockRemovals.isEmpty()
+                || throughput != null;
+    }
+
+    public List<OrderStatusCount> getStatusChanges() {
+        return statusChanges;
+    }
+
+    public void setStatusChanges(List<OrderStatusCount> statusChanges) {
+        this.statusChanges = statusChanges;
+    }
+
+    public List<String> getStatusRemovals() {
+        return statusRemovals;
+    }
+
+    public void setStatusRemovals(List<String> statusRemovals) {
+        this.statusRemovals = statusRemovals;
+    }
+
+    public List<RankChange> getRankChanges() {
+        return rankChanges;
+    }
+
+    public void setRankChanges(List<RankChange> rankChanges) {
+        this.rankChanges = rankChanges;
+    }
+
+    public Integer getTopProductCount() {
+        return topProductCount;
+    }
+
+    public void setTopProductCount(Integer topProductCount) {
+        this.topProductCount = topProductCount;
+    }
+
+    public List<LowStockItem> getLowStockUpserts() {
+        return lowStockUpserts;
+    }
+
+    public void setLowStockUpserts(List<LowStockItem> lowStockUpserts) {
+        this.lowStockUpserts = lowStockUpserts;
+    }
+
+    public List<String> getLowStockRemovals() {
+        return lowStockRemovals;
+    }
+
+    public void setLowStockRemovals(List<String> lowStockRemovals) {
+        this.lowStockRemovals = lowStockRemovals;
+    }
+
+    public List<ThroughputMetrics> getThroughput() {
+        return throughput;
+    }
+
+    public void setThroughput(List<ThroughputMetrics> throughput) {
+        this.throughput = throughput;
+    }
+
+    public static class RankChange {
+        private int rank;
+        private ProductOrderCount product;
+
+        public RankChange() {
+        }
+
+        public RankChange(int rank, ProductOrderCount product) {
+            this.rank = rank;
+            this.product = product;
+        }
+
+        public int getRank() {
+            return rank;
+        }
+
+        public void setRank(int rank) {
+            this.rank = rank;
+        }
+
+        public ProductOrderCount getProduct() {
+            return product;
+        }
+
+        public void setProduct(ProductOrderCount product) {
+            this.product = product;
+        }
+    }
+}
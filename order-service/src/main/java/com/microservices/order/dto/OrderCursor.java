@@ -0,0 +1,81 @@
+package com.microservices.order.dto;
+
+import com.microservices.order.entity.Order;
+import com.microservices.order.entity.OrderIds;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.Objects;
+
+/**
+ * Position in the order listing, which is sorted newest first by
+ * (createdAt, id). The next page starts strictly after it, so orders created
+ * while a client pages through the list never shift later pages.
+ *
+ * Clients see it as an opaque URL-safe token.
+ */
+public final class OrderCursor {
+
+    private static final char SEPARATOR = '|';
+
+    private final Instant createdAt;
+    private final String id;
+
+    public OrderCursor(Instant createdAt, String id) {
+        this.createdAt = Objects.requireNonNull(createdAt);
+        this.id = Objects.requireNonNull(id);
+    }
+
+    public static OrderCursor of(Order order) {
+        return new OrderCursor(order.getCreatedAt(), order.getId());
+    }
+
+    public String encode() {
+        String raw = createdAt.toString() + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the token was not produced by {@link #encode()}
+     */
+    public static OrderCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(SEPARATOR);
+            String id = raw.substring(separator + 1);
+            if (separator < 0 || OrderIds.parse(id).isEmpty()) {
+                throw new IllegalArgumentException("Invalid cursor: " + token);
+            }
+            return new OrderCursor(Instant.parse(raw.substring(0, separator)), id);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + token);
+        }
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof OrderCursor)) {
+            return false;
+        }
+        OrderCursor other = (OrderCursor) o;
+        return createdAt.equals(other.createdAt) && id.equals(other.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(createdAt, id);
+    }
+}
@@ -0,0 +1,38 @@
+package com.microservices.order.dto;
+
+import com.microservices.order.entity.OrderStatus;
+
+import java.time.Instant;
+
+/**
+ * Optional criteria for listing orders. Any field left null matches every
+ * order; the creation time range includes from and excludes to.
+ */
+public class OrderFilter {
+
+    private final OrderStatus status;
+    private final Instant from;
+    private final Instant to;
+
+    public OrderFilter(OrderStatus status, Instant from, Instant to) {
+        this.status = status;
+        this.from = from;
+        this.to = to;
+    }
+
+    public static OrderFilter none() {
+        return new OrderFilter(null, null, null);
+    }
+
+    public OrderStatus getStatus() {
+        return status;
+    }
+
+    public Instant getFrom() {
+        return from;
+    }
+
+    public Instant getTo() {
+        return to;
+    }
+}
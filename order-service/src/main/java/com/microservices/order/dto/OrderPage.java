@@ -0,0 +1,42 @@
+package com.microservices.order.dto;
+
+/**
+ * One page of the order listing: the rows after the requested cursor, up to
+ * and including the next cursor when there is a further page.
+ */
+public class OrderPage {
+
+    private final OrderFilter filter;
+    private final OrderCursor after;
+    private final int size;
+    private final OrderCursor nextCursor;
+
+    public OrderPage(OrderFilter filter, OrderCursor after, int size, OrderCursor nextCursor) {
+        this.filter = filter;
+        this.after = after;
+        this.size = size;
+        this.nextCursor = nextCursor;
+    }
+
+    public OrderFilter getFilter() {
+        return filter;
+    }
+
+    /**
+     * Where the page starts (exclusive), or null for the first page.
+     */
+    public OrderCursor getAfter() {
+        return after;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Where the page ends (inclusive) and the next one starts, or null on the last page.
+     */
+    public OrderCursor getNextCursor() {
+        return nextCursor;
+    }
+}
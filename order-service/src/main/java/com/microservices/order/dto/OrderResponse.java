@@ -6,6 +6,7 @@ import com.microservices.order.entity.OrderStatus;
 
 import java.math.BigDecimal;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 
 public class OrderResponse {
@@ -24,7 +25,8 @@ public class OrderResponse {
 
     public OrderResponse(Order order) {
         this.id = order.getId();
-        this.items = order.getItems();
+        // Copied so the response never reaches back into a lazy collection
+        this.items = new ArrayList<>(order.getItems());
         this.status = order.getStatus();
         this.totalAmount = order.getTotalAmount();
         this.paymentId = order.getPaymentId();
@@ -1,15 +1,23 @@
 package com.microservices.order.dto;
 
+import java.math.BigDecimal;
+
 public class OrderStatusCount {
     private String status;
     private Long count;
+    private BigDecimal revenue;
 
     public OrderStatusCount() {
     }
 
     public OrderStatusCount(String status, Long count) {
+        this(status, count, BigDecimal.ZERO);
+    }
+
+    public OrderStatusCount(String status, Long count, BigDecimal revenue) {
         this.status = status;
         this.count = count;
+        this.revenue = revenue;
     }
 
     // Getters and Setters
@@ -28,4 +36,12 @@ public class OrderStatusCount {
     public void setCount(Long count) {
         this.count = count;
     }
+
+    public BigDecimal getRevenue() {
+        return revenue;
+    }
+
+    public void setRevenue(BigDecimal revenue) {
+        this.revenue = revenue;
+    }
 }
@@ -0,0 +1,111 @@
+package com.microservices.order.dto;
+
+import com.microservices.order.entity.MinorUnits;
+import com.microservices.order.entity.OrderStatus;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Order as shown in listings: everything but the individual lines, which
+ * are summed up in the query instead of being loaded.
+ */
+public class OrderSummary {
+
+    private String id;
+    private OrderStatus status;
+    private long itemCount;
+    private BigDecimal totalAmount;
+    private String paymentId;
+    private String cancellationReason;
+    private Instant createdAt;
+    private Instant updatedAt;
+
+    public OrderSummary() {
+    }
+
+    // Used by the listing query's constructor expression, which selects the native uuid id
+    public OrderSummary(UUID id, OrderStatus status, String paymentId, String cancellationReason,
+                        Instant createdAt, Instant updatedAt, Long itemCount, Long totalAmountMinor) {
+        this(id.toString(), status, paymentId, cancellationReason, createdAt, updatedAt, itemCount,
+                totalAmountMinor);
+    }
+
+    public OrderSummary(String id, OrderStatus status, String paymentId, String cancellationReason,
+                        Instant createdAt, Instant updatedAt, Long itemCount, Long totalAmountMinor) {
+        this.id = id;
+        this.status = status;
+        this.paymentId = paymentId;
+        this.cancellationReason = cancellationReason;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+        this.itemCount = itemCount;
+        this.totalAmount = MinorUnits.toAmount(totalAmountMinor);
+    }
+
+    // Getters and Setters
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public OrderStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(OrderStatus status) {
+        this.status = status;
+    }
+
+    public long getItemCount() {
+        return itemCount;
+    }
+
+    public void setItemCount(long itemCount) {
+        this.itemCount = itemCount;
+    }
+
+    public BigDecimal getTotalAmount() {
+        return totalAmount;
+    }
+
+    public void setTotalAmount(BigDecimal totalAmount) {
+        this.totalAmount = totalAmount;
+    }
+
+    public String getPaymentId() {
+        return paymentId;
+    }
+
+    public void setPaymentId(String paymentId) {
+        this.paymentId = paymentId;
+    }
+
+    public String getCancellationReason() {
+        return cancellationReason;
+    }
+
+    public void setCancellationReason(String cancellationReason) {
+        this.cancellationReason = cancellationReason;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
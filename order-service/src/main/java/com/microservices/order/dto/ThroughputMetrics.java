@@ -0,0 +1,84 @@
+package com.microservices.order.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Order and payment activity over one recent time window, e.g. "5m".
+ */
+public class ThroughputMetrics {
+    private String window;
+    private long orders;
+    private double ordersPerSecond;
+    private BigDecimal revenue;
+    private BigDecimal revenuePerMinute;
+    private long paymentsSucceeded;
+    private long paymentsFailed;
+    private double paymentFailureRate;
+
+    public ThroughputMetrics() {
+    }
+
+    public String getWindow() {
+        return window;
+    }
+
+    public void setWindow(String window) {
+        this.window = window;
+    }
+
+    public long getOrders() {
+        return orders;
+    }
+
+    public void setOrders(long orders) {
+        this.orders = orders;
+    }
+
+    public double getOrdersPerSecond() {
+        return ordersPerSecond;
+    }
+
+    public void setOrdersPerSecond(double ordersPerSecond) {
+        this.ordersPerSecond = ordersPerSecond;
+    }
+
+    public BigDecimal getRevenue() {
+        return revenue;
+    }
+
+    public void setRevenue(BigDecimal revenue) {
+        this.revenue = revenue;
+    }
+
+    public BigDecimal getRevenuePerMinute() {
+        return revenuePerMinute;
+    }
+
+    public void setRevenuePerMinute(BigDecimal revenuePerMinute) {
+        this.revenuePerMinute = revenuePerMinute;
+    }
+
+    public long getPaymentsSucceeded() {
+        return paymentsSucceeded;
+    }
+
+    public void setPaymentsSucceeded(long paymentsSucceeded) {
+        this.paymentsSucceeded = paymentsSucceeded;
+    }
+
+    public long getPaymentsFailed() {
+        return paymentsFailed;
+    }
+
+    public void setPaymentsFailed(long paymentsFailed) {
+        this.paymentsFailed = paymentsFailed;
+    }
+
+    public double getPaymentFailureRate() {
+        return paymentFailureRate;
+    }
+
+    public void setPaymentFailureRate(double paymentFailureRate) {
+        this.paymentFailureRate = paymentFailureRate;
+    }
+}
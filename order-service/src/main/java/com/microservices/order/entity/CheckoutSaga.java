@@ -0,0 +1,142 @@
+package com.microservices.order.entity;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+/**
+ * Persisted progress of an order checkout: reserve stock, charge payment,
+ * confirm the order, or undo those steps when a later one fails. One saga
+ * exists per order and survives restarts so checkouts can be resumed.
+ */
+@Entity
+@Table(name = "checkout_sagas", indexes = @Index(name = "idx_checkout_sagas_state_updated", columnList = "state, updated_at"))
+public class CheckoutSaga {
+
+    @Id
+    private String orderId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private SagaState state;
+
+    @Column
+    private String paymentId;
+
+    @Column
+    private String paymentStatus;
+
+    @Column
+    private String failureReason;
+
+    @Column
+    private String lastError;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+
+    @Version
+    private Long version;
+
+    public CheckoutSaga() {
+        this.createdAt = Instant.now();
+        this.updatedAt = Instant.now();
+    }
+
+    public CheckoutSaga(String orderId) {
+        this();
+        this.orderId = orderId;
+        this.state = SagaState.STARTED;
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        this.updatedAt = Instant.now();
+    }
+
+    // Getters and Setters
+    public String getOrderId() {
+        return orderId;
+    }
+
+    public void setOrderId(String orderId) {
+        this.orderId = orderId;
+    }
+
+    public SagaState getState() {
+        return state;
+    }
+
+    public void setState(SagaState state) {
+        this.state = state;
+    }
+
+    public String getPaymentId() {
+        return paymentId;
+    }
+
+    public void setPaymentId(String paymentId) {
+        this.paymentId = paymentId;
+    }
+
+    public String getPaymentStatus() {
+        return paymentStatus;
+    }
+
+    public void setPaymentStatus(String paymentStatus) {
+        this.paymentStatus = paymentStatus;
+    }
+
+    public String getFailureReason() {
+        return failureReason;
+    }
+
+    public void setFailureReason(String failureReason) {
+        this.failureReason = failureReason;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+}
@@ -0,0 +1,42 @@
+package com.microservices.order.entity;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Conversions between amounts and the whole number of cents they are
+ * stored as, so totals can be added up as longs and summed in SQL.
+ */
+public final class MinorUnits {
+
+    public static final int SCALE = 2;
+
+    private MinorUnits() {
+    }
+
+    /**
+     * Returns the amount in cents, rounding half-even any finer fraction.
+     *
+     * @throws ArithmeticException if the amount does not fit in a long
+     */
+    public static long of(BigDecimal amount) {
+        return amount.setScale(SCALE, RoundingMode.HALF_EVEN).unscaledValue().longValueExact();
+    }
+
+    /**
+     * Returns the amount in cents.
+     *
+     * @throws IllegalArgumentException if the amount has a fraction of a cent
+     * @throws ArithmeticException if the amount does not fit in a long
+     */
+    public static long ofExact(BigDecimal amount) {
+        if (amount.stripTrailingZeros().scale() > SCALE) {
+            throw new IllegalArgumentException("Amount is not a whole number of cents: " + amount);
+        }
+        return of(amount);
+    }
+
+    public static BigDecimal toAmount(long minorUnits) {
+        return BigDecimal.valueOf(minorUnits, SCALE);
+    }
+}
@@ -1,23 +1,43 @@
 package com.microservices.order.entity;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
 import java.math.BigDecimal;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        // Keyset pagination of the listing, unfiltered and by status
+        @Index(name = "idx_orders_created_at_id", columnList = "created_at, id"),
+        @Index(name = "idx_orders_status_created_at_id", columnList = "status, created_at, id")
+})
 public class Order {
 
+    // Native 16-byte uuid column (also the order_items foreign key); the API
+    // only ever sees the string form through getId/setId
     @Id
-    private String id;
+    @JdbcTypeCode(SqlTypes.UUID)
+    private UUID id;
 
-    @ElementCollection(fetch = FetchType.EAGER)
+    // Loaded on first access, for up to 50 orders of the session at once; reads
+    // that always need the lines use OrderRepository.findWithItemsById instead
+    @ElementCollection
+    @BatchSize(size = 50)
     @CollectionTable(name = "order_items", joinColumns = @JoinColumn(name = "order_id"))
     private List<OrderItem> items = new ArrayList<>();
 
+    // Sum of the line totals in cents, maintained by addItem/setItems so reads
+    // and aggregate queries never have to go through the items
+    @Column(nullable = false)
+    private long totalAmountMinor;
+
     @Enumerated(EnumType.STRING)
     @Column(nullable = false)
     private OrderStatus status;
@@ -28,14 +48,17 @@ public class Order {
     @Column
     private String cancellationReason;
 
-    @Column(nullable = false)
+    @Column(name = "created_at", nullable = false)
     private Instant createdAt;
 
     @Column(nullable = false)
     private Instant updatedAt;
 
+    @Version
+    private Long version;
+
     public Order() {
-        this.id = UUID.randomUUID().toString();
+        this.id = OrderIds.next();
         this.status = OrderStatus.CREATED;
         this.createdAt = Instant.now();
         this.updatedAt = Instant.now();
@@ -43,7 +66,7 @@ public class Order {
 
     public Order(List<OrderItem> items) {
         this();
-        this.items = items;
+        setItems(items);
     }
 
     @PreUpdate
@@ -51,27 +74,44 @@ public class Order {
         this.updatedAt = Instant.now();
     }
 
+    public void addItem(OrderItem item) {
+        items.add(item);
+        totalAmountMinor = Math.addExact(totalAmountMinor, item.getLineTotalMinor());
+    }
+
     public BigDecimal getTotalAmount() {
-        return items.stream()
-                .map(OrderItem::getTotalPrice)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        return MinorUnits.toAmount(totalAmountMinor);
+    }
+
+    public long getTotalAmountMinor() {
+        return totalAmountMinor;
     }
 
     // Getters and Setters
     public String getId() {
-        return id;
+        return id.toString();
     }
 
+    /**
+     * @throws IllegalArgumentException if id is not a UUID
+     */
     public void setId(String id) {
-        this.id = id;
+        this.id = UUID.fromString(id);
     }
 
+    /**
+     * Returns a read-only view of the items; change them through addItem or
+     * setItems so the stored total follows.
+     */
     public List<OrderItem> getItems() {
-        return items;
+        return Collections.unmodifiableList(items);
     }
 
     public void setItems(List<OrderItem> items) {
-        this.items = items;
+        List<OrderItem> replacement = new ArrayList<>(items);
+        this.items.clear();
+        this.totalAmountMinor = 0;
+        replacement.forEach(this::addItem);
     }
 
     public OrderStatus getStatus() {
@@ -113,4 +153,12 @@ public class Order {
     public void setUpdatedAt(Instant updatedAt) {
         this.updatedAt = updatedAt;
     }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
 }
@@ -3,6 +3,11 @@ package com.microservices.order.entity;
 import jakarta.persistence.*;
 import java.math.BigDecimal;
 
+/**
+ * One line of an order. Lines are immutable once created, so the line total
+ * and the order total summed from it can never fall out of step with the
+ * quantity and price; to change a line, replace the order's items.
+ */
 @Embeddable
 public class OrderItem {
 
@@ -15,41 +20,43 @@ public class OrderItem {
     @Column(nullable = false)
     private BigDecimal price;
 
-    public OrderItem() {
+    // price x quantity in cents
+    @Column(nullable = false)
+    private long lineTotalMinor;
+
+    protected OrderItem() {
     }
 
+    /**
+     * @throws IllegalArgumentException if price has a fraction of a cent
+     */
     public OrderItem(String productSku, Integer quantity, BigDecimal price) {
         this.productSku = productSku;
         this.quantity = quantity;
         this.price = price;
+        if (price != null && quantity != null) {
+            lineTotalMinor = Math.multiplyExact(MinorUnits.ofExact(price), quantity.longValue());
+        }
     }
 
-    // Getters and Setters
+    // Getters
     public String getProductSku() {
         return productSku;
     }
 
-    public void setProductSku(String productSku) {
-        this.productSku = productSku;
-    }
-
     public Integer getQuantity() {
         return quantity;
     }
 
-    public void setQuantity(Integer quantity) {
-        this.quantity = quantity;
-    }
-
     public BigDecimal getPrice() {
         return price;
     }
 
-    public void setPrice(BigDecimal price) {
-        this.price = price;
+    public long getLineTotalMinor() {
+        return lineTotalMinor;
     }
 
     public BigDecimal getTotalPrice() {
-        return price.multiply(new BigDecimal(quantity));
+        return MinorUnits.toAmount(lineTotalMinor);
     }
 }
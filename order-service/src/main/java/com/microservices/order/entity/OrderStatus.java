@@ -2,6 +2,7 @@ package com.microservices.order.entity;
 
 public enum OrderStatus {
     CREATED,
+    PAYMENT_PENDING,
     PAID,
     FULFILLED,
     CANCELLED
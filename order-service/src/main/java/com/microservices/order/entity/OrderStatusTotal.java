@@ -0,0 +1,109 @@
+package com.microservices.order.entity;
+
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * Running count and revenue of the orders currently in one status, kept
+ * up to date as orders are created and change status.
+ *
+ * Each status is split over several stripes, and an order is always counted
+ * in the stripe its id maps to, so concurrent checkouts of different orders
+ * rarely update the same row. The totals of a status are the sums over its
+ * stripes.
+ */
+@Entity
+@Table(name = "order_status_totals")
+@IdClass(OrderStatusTotal.Key.class)
+public class OrderStatusTotal {
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", length = 32)
+    private OrderStatus status;
+
+    @Id
+    @Column(name = "stripe")
+    private int stripe;
+
+    @Column(name = "order_count", nullable = false)
+    private long orderCount;
+
+    @Column(name = "revenue_minor", nullable = false)
+    private long revenueMinor;
+
+    public OrderStatusTotal() {
+    }
+
+    public OrderStatusTotal(OrderStatus status, long orderCount, long revenueMinor) {
+        this.status = status;
+        this.orderCount = orderCount;
+        this.revenueMinor = revenueMinor;
+    }
+
+    // Getters and Setters
+    public OrderStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(OrderStatus status) {
+        this.status = status;
+    }
+
+    public int getStripe() {
+        return stripe;
+    }
+
+    public void setStripe(int stripe) {
+        this.stripe = stripe;
+    }
+
+    public long getOrderCount() {
+        return orderCount;
+    }
+
+    public void setOrderCount(long orderCount) {
+        this.orderCount = orderCount;
+    }
+
+    public long getRevenueMinor() {
+        return revenueMinor;
+    }
+
+    public void setRevenueMinor(long revenueMinor) {
+        this.revenueMinor = revenueMinor;
+    }
+
+    public static class Key implements Serializable {
+
+        private OrderStatus status;
+        private int stripe;
+
+        public Key() {
+        }
+
+        public Key(OrderStatus status, int stripe) {
+            this.status = status;
+            this.stripe = stripe;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return stripe == key.stripe && status == key.status;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(status, stripe);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.microservices.order.entity;
+
+import jakarta.persistence.*;
+
+/**
+ * Running number of orders containing a product and the quantity ordered
+ * across them, kept up to date as orders are created.
+ */
+@Entity
+@Table(name = "product_order_totals", indexes = {
+        // Top products without sorting the whole table
+        @Index(name = "idx_product_order_totals_order_count", columnList = "order_count DESC, product_sku"),
+        @Index(name = "idx_product_order_totals_quantity", columnList = "total_quantity DESC, product_sku")
+})
+public class ProductOrderTotal {
+
+    @Id
+    @Column(name = "product_sku")
+    private String productSku;
+
+    @Column(name = "order_count", nullable = false)
+    private long orderCount;
+
+    @Column(name = "total_quantity", nullable = false)
+    private long totalQuantity;
+
+    public ProductOrderTotal() {
+    }
+
+    public ProductOrderTotal(String productSku, long orderCount, long totalQuantity) {
+        this.productSku = productSku;
+        this.orderCount = orderCount;
+        this.totalQuantity = totalQuantity;
+    }
+
+    // Getters and Setters
+    public String getProductSku() {
+        return productSku;
+    }
+
+    public void setProductSku(String productSku) {
+        this.productSku = productSku;
+    }
+
+    public long getOrderCount() {
+        return orderCount;
+    }
+
+    public void setOrderCount(long orderCount) {
+        this.orderCount = orderCount;
+    }
+
+    public long getTotalQuantity() {
+        return totalQuantity;
+    }
+
+    public void setTotalQuantity(long totalQuantity) {
+        this.totalQuantity = totalQuantity;
+    }
+}
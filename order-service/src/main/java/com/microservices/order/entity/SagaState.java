@@ -0,0 +1,13 @@
+package com.microservices.order.entity;
+
+public enum SagaState {
+    STARTED,
+    CHARGING,
+    COMPLETED,
+    COMPENSATING,
+    COMPENSATED;
+
+    public boolean isTerminal() {
+        return this == COMPLETED || this == COMPENSATED;
+    }
+}
@@ -0,0 +1,88 @@
+package com.microservices.order.metrics;
+
+import com.microservices.order.dto.ThroughputMetrics;
+import com.microservices.order.entity.MinorUnits;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+/**
+ * Orders created, revenue paid and payment outcomes over the last minute,
+ * five minutes and hour, kept in memory since startup.
+ *
+ * Each event is added to one per-second bucket and one per-minute bucket;
+ * the 1m and 5m figures are summed from the seconds, the 1h figure from the
+ * minutes, so it moves in one-minute steps. A payment counts once its
+ * checkout has finished: as succeeded when the order was confirmed PAID, as
+ * failed when it was cancelled instead, whatever the reason. A checkout
+ * left for recovery is counted when recovery finishes it.
+ */
+@Component
+public class OrderMetrics {
+
+    private static final int SECONDS_KEPT = 300;
+    private static final int MINUTES_KEPT = 60;
+
+    private final SlidingWindow seconds = new SlidingWindow(1000, SECONDS_KEPT);
+    private final SlidingWindow minutes = new SlidingWindow(60_000, MINUTES_KEPT);
+    private final LongSupplier clock;
+
+    public OrderMetrics() {
+        this(System::currentTimeMillis);
+    }
+
+    OrderMetrics(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    public void orderCreated() {
+        add(SlidingWindow.ORDERS, 1);
+    }
+
+    public void paymentSucceeded(long revenueMinor) {
+        add(SlidingWindow.PAYMENTS_SUCCEEDED, 1);
+        add(SlidingWindow.REVENUE_MINOR, revenueMinor);
+    }
+
+    public void paymentFailed() {
+        add(SlidingWindow.PAYMENTS_FAILED, 1);
+    }
+
+    /**
+     * The 1m, 5m and 1h windows, in that order.
+     */
+    public List<ThroughputMetrics> snapshot() {
+        long now = clock.getAsLong();
+        return List.of(
+                toMetrics("1m", 60, seconds.sum(now, 60)),
+                toMetrics("5m", 300, seconds.sum(now, SECONDS_KEPT)),
+                toMetrics("1h", 3600, minutes.sum(now, MINUTES_KEPT)));
+    }
+
+    private void add(int counter, long amount) {
+        long now = clock.getAsLong();
+        seconds.add(now, counter, amount);
+        minutes.add(now, counter, amount);
+    }
+
+    private static ThroughputMetrics toMetrics(String window, int windowSeconds, long[] totals) {
+        long succeeded = totals[SlidingWindow.PAYMENTS_SUCCEEDED];
+        long failed = totals[SlidingWindow.PAYMENTS_FAILED];
+        BigDecimal revenue = MinorUnits.toAmount(totals[SlidingWindow.REVENUE_MINOR]);
+
+        ThroughputMetrics metrics = new ThroughputMetrics();
+        metrics.setWindow(window);
+        metrics.setOrders(totals[SlidingWindow.ORDERS]);
+        metrics.setOrdersPerSecond((double) totals[SlidingWindow.ORDERS] / windowSeconds);
+        metrics.setRevenue(revenue);
+        metrics.setRevenuePerMinute(revenue.multiply(BigDecimal.valueOf(60))
+                .divide(BigDecimal.valueOf(windowSeconds), MinorUnits.SCALE, RoundingMode.HALF_EVEN));
+        metrics.setPaymentsSucceeded(succeeded);
+        metrics.setPaymentsFailed(failed);
+        metrics.setPaymentFailureRate(succeeded + failed == 0 ? 0 : (double) failed / (succeeded + failed));
+        return metrics;
+    }
+}
@@ -0,0 +1,32 @@
+package com.microservices.order.metrics;
+
+import com.microservices.order.dto.ThroughputMetrics;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Exposes {@link OrderMetrics} at /actuator/throughput, keyed by window.
+ */
+@Component
+@Endpoint(id = "throughput")
+public class OrderMetricsEndpoint {
+
+    private final OrderMetrics orderMetrics;
+
+    public OrderMetricsEndpoint(OrderMetrics orderMetrics) {
+        this.orderMetrics = orderMetrics;
+    }
+
+    @ReadOperation
+    public Map<String, ThroughputMetrics> throughput() {
+        Map<String, ThroughputMetrics> windows = new LinkedHashMap<>();
+        for (ThroughputMetrics metrics : orderMetrics.snapshot()) {
+            windows.put(metrics.getWindow(), metrics);
+        }
+        return windows;
+    }
+}
@@ -0,0 +1,78 @@
+package com.microservices.order.metrics;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A ring of fixed-width time buckets. Recording finds the bucket for the
+ * current time by index and adds to it, so it costs the same however busy
+ * the window is. A bucket left over from an earlier lap of the ring is
+ * swapped for a fresh one with a compare-and-set, never cleared in place,
+ * so a concurrent writer cannot lose its update to a reset.
+ */
+class SlidingWindow {
+
+    static final int ORDERS = 0;
+    static final int REVENUE_MINOR = 1;
+    static final int PAYMENTS_SUCCEEDED = 2;
+    static final int PAYMENTS_FAILED = 3;
+    private static final int COUNTERS = 4;
+
+    private final long bucketMillis;
+    private final AtomicReferenceArray<Bucket> buckets;
+
+    SlidingWindow(long bucketMillis, int bucketCount) {
+        this.bucketMillis = bucketMillis;
+        this.buckets = new AtomicReferenceArray<>(bucketCount);
+    }
+
+    void add(long nowMillis, int counter, long amount) {
+        bucket(nowMillis / bucketMillis).counters[counter].add(amount);
+    }
+
+    /**
+     * Sums each counter over the most recent bucketsBack buckets, the
+     * current (partial) one included.
+     */
+    long[] sum(long nowMillis, int bucketsBack) {
+        long current = nowMillis / bucketMillis;
+        long oldest = current - Math.min(bucketsBack, buckets.length()) + 1;
+        long[] totals = new long[COUNTERS];
+        for (int i = 0; i < buckets.length(); i++) {
+            Bucket bucket = buckets.get(i);
+            if (bucket != null && bucket.epoch >= oldest && bucket.epoch <= current) {
+                for (int c = 0; c < COUNTERS; c++) {
+                    totals[c] += bucket.counters[c].sum();
+                }
+            }
+        }
+        return totals;
+    }
+
+    private Bucket bucket(long epoch) {
+        int index = (int) (epoch % buckets.length());
+        while (true) {
+            Bucket bucket = buckets.get(index);
+            // A writer stalled across a bucket boundary adds to the newer bucket
+            if (bucket != null && bucket.epoch >= epoch) {
+                return bucket;
+            }
+            Bucket fresh = new Bucket(epoch);
+            if (buckets.compareAndSet(index, bucket, fresh)) {
+                return fresh;
+            }
+        }
+    }
+
+    private static final class Bucket {
+        private final long epoch;
+        private final LongAdder[] counters = new LongAdder[COUNTERS];
+
+        private Bucket(long epoch) {
+            this.epoch = epoch;
+            for (int c = 0; c < COUNTERS; c++) {
+                counters[c] = new LongAdder();
+            }
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.microservices.order.metrics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Space-Saving heavy-hitter summary (Metwally et al.): tracks the keys with
+ * the largest total weight in a stream using at most capacity counters.
+ *
+ * When a new key arrives and every counter is taken, the key with the
+ * smallest count is evicted and the newcomer inherits that count as its
+ * error. Hence, with N the total weight seen:
+ * <ul>
+ *   <li>a reported count never underestimates, and overestimates the true
+ *       weight by at most the entry's error, which is at most N / capacity;</li>
+ *   <li>every key whose true weight exceeds N / capacity is tracked.</li>
+ * </ul>
+ * On skewed streams, where the top keys lie far above N / capacity, the
+ * top-K is therefore exact in practice. Counters sit in a min-heap, so an
+ * update costs O(log capacity).
+ */
+public class SpaceSaving<K extends Comparable<? super K>> {
+
+    private final int capacity;
+    private final Map<K, Counter<K>> counters;
+    private final List<Counter<K>> heap;
+    private final ReentrantLock lock = new ReentrantLock();
+    private long total;
+
+    public SpaceSaving(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.counters = new HashMap<>(capacity * 2);
+        this.heap = new ArrayList<>(capacity);
+    }
+
+    public void add(K key, long weight) {
+        lock.lock();
+        try {
+            total += weight;
+            Counter<K> counter = counters.get(key);
+            if (counter != null) {
+                counter.count += weight;
+                siftDown(counter.index);
+            } else if (heap.size() < capacity) {
+                counter = new Counter<>(key, weight, 0, heap.size());
+                heap.add(counter);
+                counters.put(key, counter);
+                siftUp(counter.index);
+            } else {
+                // Take over the smallest counter
+                Counter<K> smallest = heap.get(0);
+                counters.remove(smallest.key);
+                smallest.key = key;
+                smallest.error = smallest.count;
+                smallest.count += weight;
+                counters.put(key, smallest);
+                siftDown(0);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The k tracked keys with the highest counts, highest first and ties by
+     * key.
+     */
+    public List<Entry<K>> top(int k) {
+        List<Entry<K>> entries = new ArrayList<>();
+        lock.lock();
+        try {
+            for (Counter<K> counter : heap) {
+                entries.add(new Entry<>(counter.key, counter.count, counter.error));
+            }
+        } finally {
+            lock.unlock();
+        }
+        entries.sort(Comparator.comparingLong((Entry<K> entry) -> entry.count).reversed()
+                .thenComparing(entry -> entry.key));
+        return entries.size() > k ? new ArrayList<>(entries.subList(0, k)) : entries;
+    }
+
+    /**
+     * The entry for a key, or null if it is not tracked.
+     */
+    public Entry<K> get(K key) {
+        lock.lock();
+        try {
+            Counter<K> counter = counters.get(key);
+            return counter == null ? null : new Entry<>(counter.key, counter.count, counter.error);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The most any reported count can exceed the true weight by.
+     */
+    public long maxError() {
+        lock.lock();
+        try {
+            return total / capacity;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) / 2;
+            if (heap.get(parent).count <= heap.get(index).count) {
+                return;
+            }
+            swap(index, parent);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index) {
+        int size = heap.size();
+        while (true) {
+            int smallest = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < size && heap.get(left).count < heap.get(smallest).count) {
+                smallest = left;
+            }
+            if (right < size && heap.get(right).count < heap.get(smallest).count) {
+                smallest = right;
+            }
+            if (smallest == index) {
+                return;
+            }
+            swap(index, smallest);
+            index = smallest;
+        }
+    }
+
+    private void swap(int i, int j) {
+        Counter<K> a = heap.get(i);
+        Counter<K> b = heap.get(j);
+        heap.set(i, b);
+        heap.set(j, a);
+        a.index = j;
+        b.index = i;
+    }
+
+    private static final class Counter<K> {
+        private K key;
+        private long count;
+        private long error;
+        private int index;
+
+        private Counter(K key, long count, long error, int index) {
+            this.key = key;
+            this.count = count;
+            this.error = error;
+            this.index = index;
+        }
+    }
+
+    public static final class Entry<K> {
+        private final K key;
+        private final long count;
+        private final long error;
+
+        Entry(K key, long count, long error) {
+            this.key = key;
+            this.count = count;
+            this.error = error;
+        }
+
+        public K getKey() {
+            return key;
+        }
+
+        /**
+         * Upper bound on the key's true weight.
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * How far the count may overstate the true weight.
+         */
+        public long getError() {
+            return error;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.microservices.order.metrics;
+
+import com.microservices.order.service.TopProducts;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Exposes {@link TopProducts} at /actuator/topproducts, with the error
+ * bounds that apply when the approximate summaries are in use.
+ */
+@Component
+@Endpoint(id = "topproducts")
+public class TopProductsEndpoint {
+
+    private final TopProducts topProducts;
+
+    public TopProductsEndpoint(TopProducts topProducts) {
+        this.topProducts = topProducts;
+    }
+
+    @ReadOperation
+    public Map<String, Object> topProducts() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("approximate", topProducts.isApproximate());
+        result.put("byOrderCount", topProducts.byOrderCount());
+        result.put("maxOrderCountError", topProducts.maxOrderCountError());
+        result.put("byQuantity", topProducts.byQuantity());
+        result.put("maxQuantityError", topProducts.maxQuantityError());
+        return result;
+    }
+}
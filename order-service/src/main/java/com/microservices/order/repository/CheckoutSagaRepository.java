@@ -0,0 +1,16 @@
+package com.microservices.order.repository;
+
+import com.microservices.order.entity.CheckoutSaga;
+import com.microservices.order.entity.SagaState;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface CheckoutSagaRepository extends JpaRepository<CheckoutSaga, String> {
+
+    List<CheckoutSaga> findTop50ByStateInAndUpdatedAtBeforeOrderByUpdatedAtAsc(Collection<SagaState> states, Instant cutoff);
+}
@@ -2,23 +2,42 @@ package com.microservices.order.repository;
 
 import com.microservices.order.entity.Order;
 import com.microservices.order.entity.OrderStatus;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
 
 @Repository
-public interface OrderRepository extends JpaRepository<Order, String> {
+public interface OrderRepository extends JpaRepository<Order, UUID>, OrderRepositoryCustom {
 
     List<Order> findByStatus(OrderStatus status);
 
-    @Query("SELECT o.status as status, COUNT(o) as count FROM Order o GROUP BY o.status")
-    List<Object[]> countOrdersByStatus();
+    /**
+     * Loads an order together with its items in a single join query, for
+     * reads that use every line of the order.
+     */
+    @EntityGraph(attributePaths = "items")
+    Optional<Order> findWithItemsById(UUID id);
 
+    /**
+     * Order count and revenue in cents per status, as [status, count, revenue]
+     * rows, summed from the stored order totals without reading any items.
+     */
+    @Query("SELECT o.status as status, COUNT(o) as count, SUM(o.totalAmountMinor) as revenue " +
+           "FROM Order o GROUP BY o.status")
+    List<Object[]> summarizeOrdersByStatus();
+
+    /**
+     * Number of orders containing each product and the quantity ordered, as
+     * [productSku, orderCount, totalQuantity] rows. Scans every order item,
+     * so it only backs the reconciliation of the product totals.
+     */
     @Query("SELECT item.productSku as productSku, COUNT(DISTINCT o.id) as orderCount, SUM(item.quantity) as totalQuantity " +
            "FROM Order o JOIN o.items item " +
-           "GROUP BY item.productSku " +
-           "ORDER BY COUNT(DISTINCT o.id) DESC")
-    List<Object[]> findTopProductsByOrderCount();
+           "GROUP BY item.productSku")
+    List<Object[]> countOrdersByProduct();
 }
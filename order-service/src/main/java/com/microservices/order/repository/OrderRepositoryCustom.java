@@ -0,0 +1,29 @@
+package com.microservices.order.repository;
+
+import com.microservices.order.dto.OrderCursor;
+import com.microservices.order.dto.OrderFilter;
+import com.microservices.order.dto.OrderSummary;
+
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Keyset-paginated order listing, newest first by (createdAt, id).
+ */
+public interface OrderRepositoryCustom {
+
+    /**
+     * Returns the position of the last order on the page of pageSize orders
+     * after the given cursor, or empty if no orders follow that page.
+     */
+    Optional<OrderCursor> findPageEnd(OrderFilter filter, OrderCursor after, int pageSize);
+
+    /**
+     * Streams summaries of the orders after the given cursor, up to and
+     * including until (or to the end when until is null). Item counts are
+     * aggregated in the same query, so a page costs one statement
+     * however many orders it holds. The stream must be consumed inside a
+     * transaction and closed.
+     */
+    Stream<OrderSummary> streamPage(OrderFilter filter, OrderCursor after, OrderCursor until);
+}
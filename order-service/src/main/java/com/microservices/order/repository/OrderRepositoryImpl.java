@@ -0,0 +1,105 @@
+package com.microservices.order.repository;
+
+import com.microservices.order.dto.OrderCursor;
+import com.microservices.order.dto.OrderFilter;
+import com.microservices.order.dto.OrderSummary;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.hibernate.jpa.HibernateHints;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Builds the listing queries with only the conditions that apply, so each
+ * one can be served from the (created_at, id) or (status, created_at, id)
+ * index rather than a scan behind "param IS NULL OR ..." predicates.
+ */
+class OrderRepositoryImpl implements OrderRepositoryCustom {
+
+    private static final int FETCH_SIZE = 100;
+
+    private static final String SUMMARY_SELECT = "SELECT new com.microservices.order.dto.OrderSummary("
+            + "o.id, o.status, o.paymentId, o.cancellationReason, o.createdAt, o.updatedAt, "
+            + "COUNT(i), o.totalAmountMinor)";
+
+    private static final String SUMMARY_GROUP_BY =
+            " GROUP BY o.id, o.status, o.paymentId, o.cancellationReason, o.createdAt, o.updatedAt, o.totalAmountMinor";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Optional<OrderCursor> findPageEnd(OrderFilter filter, OrderCursor after, int pageSize) {
+        // Reads only the index columns of the page's last row and the one after it
+        List<Object[]> rows = listingQuery("SELECT o.createdAt, o.id", Object[].class, filter, after, null, false)
+                .setFirstResult(pageSize - 1)
+                .setMaxResults(2)
+                .getResultList();
+        if (rows.size() < 2) {
+            return Optional.empty();
+        }
+        return Optional.of(new OrderCursor((Instant) rows.get(0)[0], rows.get(0)[1].toString()));
+    }
+
+    @Override
+    public Stream<OrderSummary> streamPage(OrderFilter filter, OrderCursor after, OrderCursor until) {
+        // Projections are not managed entities, so nothing accumulates in the
+        // persistence context while the page is written out
+        return listingQuery(SUMMARY_SELECT, OrderSummary.class, filter, after, until, true)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, FETCH_SIZE)
+                .getResultStream();
+    }
+
+    private <T> TypedQuery<T> listingQuery(String select, Class<T> type, OrderFilter filter,
+                                           OrderCursor after, OrderCursor until, boolean withItems) {
+        List<String> conditions = new ArrayList<>();
+        Map<String, Object> parameters = new HashMap<>();
+
+        if (filter.getStatus() != null) {
+            conditions.add("o.status = :status");
+            parameters.put("status", filter.getStatus());
+        }
+        if (filter.getFrom() != null) {
+            conditions.add("o.createdAt >= :from");
+            parameters.put("from", filter.getFrom());
+        }
+        if (filter.getTo() != null) {
+            conditions.add("o.createdAt < :to");
+            parameters.put("to", filter.getTo());
+        }
+        if (after != null) {
+            conditions.add("(o.createdAt < :afterCreatedAt OR (o.createdAt = :afterCreatedAt AND o.id < :afterId))");
+            parameters.put("afterCreatedAt", after.getCreatedAt());
+            parameters.put("afterId", UUID.fromString(after.getId()));
+        }
+        if (until != null) {
+            conditions.add("(o.createdAt > :untilCreatedAt OR (o.createdAt = :untilCreatedAt AND o.id >= :untilId))");
+            parameters.put("untilCreatedAt", until.getCreatedAt());
+            parameters.put("untilId", UUID.fromString(until.getId()));
+        }
+
+        StringBuilder jpql = new StringBuilder(select).append(" FROM Order o");
+        if (withItems) {
+            jpql.append(" LEFT JOIN o.items i");
+        }
+        if (!conditions.isEmpty()) {
+            jpql.append(" WHERE ").append(String.join(" AND ", conditions));
+        }
+        if (withItems) {
+            jpql.append(SUMMARY_GROUP_BY);
+        }
+        jpql.append(" ORDER BY o.createdAt DESC, o.id DESC");
+
+        TypedQuery<T> query = entityManager.createQuery(jpql.toString(), type);
+        parameters.forEach(query::setParameter);
+        return query;
+    }
+}
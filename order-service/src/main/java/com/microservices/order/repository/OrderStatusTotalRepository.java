@@ -0,0 +1,38 @@
+package com.microservices.order.repository;
+
+import com.microservices.order.entity.OrderStatusTotal;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface OrderStatusTotalRepository extends JpaRepository<OrderStatusTotal, OrderStatusTotal.Key> {
+
+    /**
+     * Adds to the totals of one stripe of a status in place, creating its row
+     * if needed.
+     */
+    @Modifying
+    @Query(value = "MERGE INTO order_status_totals t " +
+                   "USING (VALUES (CAST(:status AS VARCHAR(32)), CAST(:stripe AS INT), " +
+                   "CAST(:orders AS BIGINT), CAST(:revenue AS BIGINT))) " +
+                   "AS d (status, stripe, orders, revenue) ON t.status = d.status AND t.stripe = d.stripe " +
+                   "WHEN MATCHED THEN UPDATE SET order_count = t.order_count + d.orders, " +
+                   "revenue_minor = t.revenue_minor + d.revenue " +
+                   "WHEN NOT MATCHED THEN INSERT (status, stripe, order_count, revenue_minor) " +
+                   "VALUES (d.status, d.stripe, d.orders, d.revenue)",
+           nativeQuery = true)
+    void add(@Param("status") String status, @Param("stripe") int stripe, @Param("orders") long orders,
+             @Param("revenue") long revenueMinor);
+
+    /**
+     * Status, order count and revenue, summed over the stripes of each status.
+     */
+    @Query("SELECT t.status, SUM(t.orderCount), SUM(t.revenueMinor) FROM OrderStatusTotal t " +
+           "GROUP BY t.status ORDER BY t.status")
+    List<Object[]> sumByStatus();
+}
@@ -0,0 +1,39 @@
+package com.microservices.order.repository;
+
+import com.microservices.order.entity.ProductOrderTotal;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ProductOrderTotalRepository extends JpaRepository<ProductOrderTotal, String> {
+
+    /**
+     * Adds to the totals of a product in place, creating its row if needed.
+     */
+    @Modifying
+    @Query(value = "MERGE INTO product_order_totals t " +
+                   "USING (VALUES (CAST(:sku AS VARCHAR(255)), CAST(:orders AS BIGINT), CAST(:quantity AS BIGINT))) " +
+                   "AS d (sku, orders, quantity) ON t.product_sku = d.sku " +
+                   "WHEN MATCHED THEN UPDATE SET order_count = t.order_count + d.orders, " +
+                   "total_quantity = t.total_quantity + d.quantity " +
+                   "WHEN NOT MATCHED THEN INSERT (product_sku, order_count, total_quantity) " +
+                   "VALUES (d.sku, d.orders, d.quantity)",
+           nativeQuery = true)
+    void add(@Param("sku") String productSku, @Param("orders") long orders, @Param("quantity") long quantity);
+
+    /**
+     * Removes the rows of products no order contains any more.
+     */
+    @Modifying
+    @Query("DELETE FROM ProductOrderTotal t WHERE t.orderCount = 0 AND t.totalQuantity = 0")
+    int deleteEmpty();
+
+    List<ProductOrderTotal> findTop10ByOrderByOrderCountDescProductSkuAsc();
+
+    List<ProductOrderTotal> findTop10ByOrderByTotalQuantityDescProductSkuAsc();
+}
@@ -0,0 +1,36 @@
+package com.microservices.order.resilience;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * Caps the number of concurrent calls to a dependency. Acquiring never
+ * blocks: calls are started on event loop threads, which must never wait
+ * for a permit. {@link DependencyGuard} retries on a timer instead when a
+ * call may wait.
+ */
+public class Bulkhead {
+
+    private final int maxConcurrentCalls;
+    private final Semaphore permits;
+
+    public Bulkhead(int maxConcurrentCalls) {
+        this.maxConcurrentCalls = maxConcurrentCalls;
+        this.permits = new Semaphore(maxConcurrentCalls);
+    }
+
+    public boolean tryAcquire() {
+        return permits.tryAcquire();
+    }
+
+    public void release() {
+        permits.release();
+    }
+
+    public int getAvailableCalls() {
+        return permits.availablePermits();
+    }
+
+    public int getMaxConcurrentCalls() {
+        return maxConcurrentCalls;
+    }
+}
@@ -0,0 +1,203 @@
+package com.microservices.order.resilience;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Count-based circuit breaker.
+ *
+ * CLOSED: calls flow and their outcomes fill a sliding window of the last
+ * windowSize calls; once at least minimumCalls are recorded and the failure
+ * rate reaches the threshold, the breaker opens.
+ * OPEN: calls are rejected until openDuration has passed, then the breaker
+ * goes HALF_OPEN.
+ * HALF_OPEN: up to halfOpenProbes calls are let through; if they all succeed
+ * the breaker closes, and any failure opens it again.
+ *
+ * Every permission carries the generation of the state it was granted in,
+ * bumped on each transition. Only outcomes of calls granted in the current
+ * generation count: a slow call let through while CLOSED that returns after
+ * the breaker opened and went HALF_OPEN is not mistaken for a probe.
+ */
+public class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    /** Returned by tryAcquirePermission when the call must not go ahead. */
+    public static final long NO_PERMISSION = -1;
+
+    public interface TransitionListener {
+        void onTransition(State from, State to);
+    }
+
+    private final int minimumCalls;
+    private final float failureRateThreshold;
+    private final long openDurationNanos;
+    private final int halfOpenProbes;
+    private final LongSupplier clock;
+    private final TransitionListener listener;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final boolean[] window;
+    private int windowIndex;
+    private int recordedCalls;
+    private int failedCalls;
+
+    private State state = State.CLOSED;
+    private long generation;
+    private long openedAt;
+    private int probesInFlight;
+    private int probeSuccesses;
+
+    public CircuitBreaker(int windowSize, int minimumCalls, float failureRateThreshold, long openDurationMs,
+                          int halfOpenProbes, TransitionListener listener) {
+        this(windowSize, minimumCalls, failureRateThreshold, openDurationMs, halfOpenProbes, listener, System::nanoTime);
+    }
+
+    CircuitBreaker(int windowSize, int minimumCalls, float failureRateThreshold, long openDurationMs,
+                   int halfOpenProbes, TransitionListener listener, LongSupplier clock) {
+        this.window = new boolean[windowSize];
+        this.minimumCalls = Math.min(minimumCalls, windowSize);
+        this.failureRateThreshold = failureRateThreshold;
+        this.openDurationNanos = TimeUnit.MILLISECONDS.toNanos(openDurationMs);
+        this.halfOpenProbes = halfOpenProbes;
+        this.listener = listener;
+        this.clock = clock;
+    }
+
+    /**
+     * Returns a permission if a call may go ahead, NO_PERMISSION otherwise. A
+     * permission must be passed to exactly one of onSuccess, onFailure or
+     * onIgnored.
+     */
+    public long tryAcquirePermission() {
+        lock.lock();
+        try {
+            if (state == State.OPEN) {
+                if (clock.getAsLong() - openedAt < openDurationNanos) {
+                    return NO_PERMISSION;
+                }
+                transitionTo(State.HALF_OPEN);
+            }
+            if (state == State.HALF_OPEN) {
+                if (probesInFlight >= halfOpenProbes) {
+                    return NO_PERMISSION;
+                }
+                probesInFlight++;
+            }
+            return generation;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void onSuccess(long permission) {
+        lock.lock();
+        try {
+            if (permission != generation) {
+                return;
+            }
+            if (state == State.HALF_OPEN) {
+                probeSuccesses++;
+                if (probeSuccesses >= halfOpenProbes) {
+                    transitionTo(State.CLOSED);
+                }
+            } else if (state == State.CLOSED) {
+                record(false);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void onFailure(long permission) {
+        lock.lock();
+        try {
+            if (permission != generation) {
+                return;
+            }
+            if (state == State.HALF_OPEN) {
+                transitionTo(State.OPEN);
+            } else if (state == State.CLOSED) {
+                record(true);
+                if (recordedCalls >= minimumCalls && failedCalls * 100f / recordedCalls >= failureRateThreshold) {
+                    transitionTo(State.OPEN);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gives back a permission without recording an outcome, e.g. when the
+     * call never reached the dependency.
+     */
+    public void onIgnored(long permission) {
+        lock.lock();
+        try {
+            if (permission == generation && state == State.HALF_OPEN && probesInFlight > 0) {
+                probesInFlight--;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * True while calls are being rejected, without claiming a half-open probe.
+     */
+    public boolean isOpen() {
+        lock.lock();
+        try {
+            return state == State.OPEN && clock.getAsLong() - openedAt < openDurationNanos;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public State getState() {
+        lock.lock();
+        try {
+            return state;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void record(boolean failed) {
+        if (recordedCalls == window.length) {
+            // Window is full; the oldest outcome drops out
+            if (window[windowIndex]) {
+                failedCalls--;
+            }
+        } else {
+            recordedCalls++;
+        }
+        window[windowIndex] = failed;
+        if (failed) {
+            failedCalls++;
+        }
+        windowIndex = (windowIndex + 1) % window.length;
+    }
+
+    private void transitionTo(State next) {
+        State previous = state;
+        state = next;
+        generation++;
+        switch (next) {
+            case OPEN -> openedAt = clock.getAsLong();
+            case HALF_OPEN -> {
+                probesInFlight = 0;
+                probeSuccesses = 0;
+            }
+            case CLOSED -> {
+                windowIndex = 0;
+                recordedCalls = 0;
+                failedCalls = 0;
+            }
+        }
+        listener.onTransition(previous, next);
+    }
+}
@@ -0,0 +1,281 @@
+package com.microservices.order.resilience;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bulkhead plus circuit breaker in front of one downstream service, with
+ * budgeted retries and optional hedging for calls that are safe to repeat.
+ *
+ * Only signs that the service itself is unhealthy count as failures: I/O
+ * errors (WebClientRequestException), timeouts and 5xx responses. A 4xx
+ * answer such as "product not found" is a healthy response.
+ *
+ * Retries and hedged requests both draw on one {@link RetryBudget}, so
+ * during an outage every caller together adds only a bounded share of extra
+ * load instead of multiplying it.
+ *
+ * Metrics: resilience.circuit.state (0 closed, 1 open, 2 half-open),
+ * resilience.circuit.transitions, resilience.calls.rejected,
+ * resilience.bulkhead.available, resilience.retries,
+ * resilience.hedged.requests and resilience.retry.budget.tokens, all tagged
+ * with the dependency.
+ */
+public class DependencyGuard {
+
+    private static final Logger logger = LoggerFactory.getLogger(DependencyGuard.class);
+    private static final long PERMIT_POLL_MS = 5;
+
+    private final String name;
+    private final Bulkhead bulkhead;
+    private final CircuitBreaker circuitBreaker;
+    private final Counter rejectedByCircuit;
+    private final Counter rejectedByBulkhead;
+    private final RetryBudget retryBudget;
+    private final LatencyTracker latency = new LatencyTracker(256, 20);
+    private final int maxRetries;
+    private final long retryBackoffMs;
+    private final boolean hedgeReads;
+    private final long hedgeMinDelayMs;
+    private final int permitPolls;
+    private final Counter retried;
+    private final Counter retriesOverBudget;
+    private final Counter hedgesSent;
+    private final Counter hedgesOverBudget;
+
+    public DependencyGuard(String name, ResilienceProperties.Dependency settings, MeterRegistry registry) {
+        this.name = name;
+        this.bulkhead = new Bulkhead(settings.getMaxConcurrentCalls());
+        this.circuitBreaker = new CircuitBreaker(settings.getSlidingWindowSize(), settings.getMinimumCalls(),
+                settings.getFailureRateThreshold(), settings.getOpenDurationMs(), settings.getHalfOpenProbes(),
+                (from, to) -> onTransition(registry, from, to));
+
+        this.retryBudget = new RetryBudget(settings.getRetryBudgetRatio(), settings.getRetryBudgetMaxTokens());
+        this.maxRetries = settings.getMaxRetries();
+        this.retryBackoffMs = settings.getRetryBackoffMs();
+        this.hedgeReads = settings.isHedgeReads();
+        this.hedgeMinDelayMs = settings.getHedgeMinDelayMs();
+        this.permitPolls = (int) Math.min(Integer.MAX_VALUE,
+                (Math.max(settings.getMaxWaitMs(), 0) + PERMIT_POLL_MS - 1) / PERMIT_POLL_MS);
+
+        this.rejectedByCircuit = rejectedCounter(registry, "circuit_open");
+        this.rejectedByBulkhead = rejectedCounter(registry, "bulkhead_full");
+        this.retried = outcomeCounter(registry, "resilience.retries", "retried");
+        this.retriesOverBudget = outcomeCounter(registry, "resilience.retries", "budget_exhausted");
+        this.hedgesSent = outcomeCounter(registry, "resilience.hedged.requests", "sent");
+        this.hedgesOverBudget = outcomeCounter(registry, "resilience.hedged.requests", "budget_exhausted");
+        Gauge.builder("resilience.circuit.state", circuitBreaker, breaker -> breaker.getState().ordinal())
+                .tag("dependency", name)
+                .register(registry);
+        Gauge.builder("resilience.bulkhead.available", bulkhead, Bulkhead::getAvailableCalls)
+                .tag("dependency", name)
+                .register(registry);
+        Gauge.builder("resilience.retry.budget.tokens", retryBudget, RetryBudget::getAvailableTokens)
+                .tag("dependency", name)
+                .register(registry);
+    }
+
+    /**
+     * Runs the call, on subscription, if the circuit and bulkhead allow it.
+     * Each subscription is a separate attempt, so a retried call goes through
+     * the guard again. A cancelled call is not counted either way.
+     *
+     * The returned Mono fails with {@link DependencyUnavailableException} if
+     * the call was not attempted.
+     */
+    public <T> Mono<T> protect(Mono<T> call) {
+        return withPermit(attempt(call));
+    }
+
+    /**
+     * Holds one bulkhead permit for as long as the calls run; a hedged read
+     * and its hedge share it. With max-wait-ms set, a full bulkhead is asked
+     * again every few milliseconds on a timer until that time is up.
+     */
+    private <T> Mono<T> withPermit(Mono<T> calls) {
+        return withPermit(calls, permitPolls);
+    }
+
+    private <T> Mono<T> withPermit(Mono<T> calls, int pollsLeft) {
+        return Mono.defer(() -> {
+            if (bulkhead.tryAcquire()) {
+                return calls.doFinally(signal -> bulkhead.release());
+            }
+            if (pollsLeft > 0) {
+                return Mono.delay(Duration.ofMillis(PERMIT_POLL_MS)).then(withPermit(calls, pollsLeft - 1));
+            }
+            rejectedByBulkhead.increment();
+            return Mono.error(new DependencyUnavailableException(name,
+                    name + " is saturated (too many concurrent calls)"));
+        });
+    }
+
+    private <T> Mono<T> attempt(Mono<T> call) {
+        return Mono.defer(() -> {
+            long permission = circuitBreaker.tryAcquirePermission();
+            if (permission == CircuitBreaker.NO_PERMISSION) {
+                rejectedByCircuit.increment();
+                return Mono.error(new DependencyUnavailableException(name, name + " is unavailable (circuit open)"));
+            }
+
+            long start = System.nanoTime();
+            return call
+                    .doOnSuccess(result -> {
+                        circuitBreaker.onSuccess(permission);
+                        latency.record(Duration.ofNanos(System.nanoTime() - start).toMillis());
+                    })
+                    .doOnError(e -> {
+                        if (isDependencyFailure(e)) {
+                            circuitBreaker.onFailure(permission);
+                        } else {
+                            circuitBreaker.onSuccess(permission);
+                        }
+                    })
+                    .doOnCancel(() -> circuitBreaker.onIgnored(permission));
+        });
+    }
+
+    /**
+     * Like {@link #protect}, and retries transient failures (connection
+     * errors, 502/503/504) with exponential backoff while the retry budget
+     * allows. Only for calls that are safe to repeat.
+     */
+    public <T> Mono<T> protectWithRetries(Mono<T> call) {
+        return Mono.defer(() -> {
+            retryBudget.onCall();
+            return protect(call).retryWhen(budgetedRetries());
+        });
+    }
+
+    /**
+     * Like {@link #protectWithRetries}, for reads. If hedging is enabled and
+     * the first attempt is still running after the dependency's p95 latency,
+     * a second one is sent and whichever answers first wins; the other is
+     * cancelled. An attempt that fails while the other is still running
+     * leaves the outcome to it. Both attempts share one bulkhead permit, and
+     * a hedge costs a retry token, so hedging stops by itself when the
+     * service is struggling.
+     */
+    public <T> Mono<T> protectRead(Mono<T> call) {
+        if (!hedgeReads) {
+            return protectWithRetries(call);
+        }
+        return Mono.defer(() -> {
+            retryBudget.onCall();
+            return hedged(call).retryWhen(budgetedRetries());
+        });
+    }
+
+    private <T> Mono<T> hedged(Mono<T> call) {
+        return Mono.defer(() -> {
+            long p95Ms = latency.p95Ms();
+            if (p95Ms < 0) {
+                // No latency picture yet
+                return protect(call);
+            }
+
+            // A failed attempt only decides the outcome once no other is still running
+            AtomicInteger running = new AtomicInteger(1);
+            Mono<T> first = attempt(call).onErrorResume(e -> yieldOrFail(running, e));
+            Mono<T> hedge = Mono.delay(Duration.ofMillis(Math.max(p95Ms, hedgeMinDelayMs)))
+                    .then(Mono.defer(() -> {
+                        if (!retryBudget.tryWithdraw()) {
+                            hedgesOverBudget.increment();
+                            return Mono.<T>never();
+                        }
+                        hedgesSent.increment();
+                        running.incrementAndGet();
+                        return attempt(call).onErrorResume(e -> yieldOrFail(running, e));
+                    }));
+            return withPermit(Mono.firstWithSignal(first, hedge));
+        });
+    }
+
+    private static <T> Mono<T> yieldOrFail(AtomicInteger running, Throwable failure) {
+        return running.decrementAndGet() > 0 ? Mono.never() : Mono.error(failure);
+    }
+
+    private Retry budgetedRetries() {
+        return Retry.from(signals -> signals.concatMap(signal -> {
+            Throwable failure = signal.failure();
+            if (signal.totalRetries() >= maxRetries || !isTransient(failure)) {
+                return Mono.<Long>error(failure);
+            }
+            if (!retryBudget.tryWithdraw()) {
+                retriesOverBudget.increment();
+                return Mono.<Long>error(failure);
+            }
+            retried.increment();
+            return Mono.delay(Duration.ofMillis(retryBackoffMs << signal.totalRetries()));
+        }));
+    }
+
+    /**
+     * True while the circuit is open; lets callers refuse work up front
+     * instead of starting something they cannot finish.
+     */
+    public boolean isOpen() {
+        return circuitBreaker.isOpen();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    CircuitBreaker.State getState() {
+        return circuitBreaker.getState();
+    }
+
+    private static boolean isTransient(Throwable e) {
+        if (e instanceof WebClientRequestException) {
+            return true;
+        }
+        if (e instanceof WebClientResponseException) {
+            int status = ((WebClientResponseException) e).getStatusCode().value();
+            return status == 502 || status == 503 || status == 504;
+        }
+        return false;
+    }
+
+    private static boolean isDependencyFailure(Throwable e) {
+        return e instanceof WebClientRequestException
+                || e instanceof TimeoutException
+                || (e instanceof WebClientResponseException
+                        && ((WebClientResponseException) e).getStatusCode().is5xxServerError());
+    }
+
+    private void onTransition(MeterRegistry registry, CircuitBreaker.State from, CircuitBreaker.State to) {
+        logger.warn("Circuit for {} moved from {} to {}", name, from, to);
+        Counter.builder("resilience.circuit.transitions")
+                .tag("dependency", name)
+                .tag("from", from.name())
+                .tag("to", to.name())
+                .register(registry)
+                .increment();
+    }
+
+    private Counter outcomeCounter(MeterRegistry registry, String meter, String outcome) {
+        return Counter.builder(meter)
+                .tag("dependency", name)
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    private Counter rejectedCounter(MeterRegistry registry, String reason) {
+        return Counter.builder("resilience.calls.rejected")
+                .tag("dependency", name)
+                .tag("reason", reason)
+                .register(registry);
+    }
+}
@@ -0,0 +1,40 @@
+package com.microservices.order.resilience;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * One {@link DependencyGuard} per downstream service, so a slow or failing
+ * service only exhausts its own call budget.
+ */
+@Component
+@EnableConfigurationProperties(ResilienceProperties.class)
+public class DependencyGuards {
+
+    public static final String PRODUCT_SERVICE = "product-service";
+    public static final String INVENTORY_SERVICE = "inventory-service";
+    public static final String PAYMENT_SERVICE = "payment-service";
+
+    private final DependencyGuard product;
+    private final DependencyGuard inventory;
+    private final DependencyGuard payment;
+
+    public DependencyGuards(ResilienceProperties properties, MeterRegistry registry) {
+        this.product = new DependencyGuard(PRODUCT_SERVICE, properties.forDependency(PRODUCT_SERVICE), registry);
+        this.inventory = new DependencyGuard(INVENTORY_SERVICE, properties.forDependency(INVENTORY_SERVICE), registry);
+        this.payment = new DependencyGuard(PAYMENT_SERVICE, properties.forDependency(PAYMENT_SERVICE), registry);
+    }
+
+    public DependencyGuard product() {
+        return product;
+    }
+
+    public DependencyGuard inventory() {
+        return inventory;
+    }
+
+    public DependencyGuard payment() {
+        return payment;
+    }
+}
@@ -0,0 +1,19 @@
+package com.microservices.order.resilience;
+
+/**
+ * Thrown instead of calling a dependency whose circuit is open or whose
+ * bulkhead is full.
+ */
+public class DependencyUnavailableException extends RuntimeException {
+
+    private final String dependency;
+
+    public DependencyUnavailableException(String dependency, String message) {
+        super(message);
+        this.dependency = dependency;
+    }
+
+    public String getDependency() {
+        return dependency;
+    }
+}
@@ -0,0 +1,52 @@
+package com.microservices.order.resilience;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * p95 latency over the most recent successful calls to a dependency. Samples
+ * go into a fixed ring without locking; the percentile is recomputed every
+ * few samples rather than on every read, since it only steers when a hedged
+ * request is sent.
+ */
+class LatencyTracker {
+
+    private static final int RECOMPUTE_EVERY = 16;
+
+    private final AtomicLongArray samples;
+    private final AtomicLong recorded = new AtomicLong();
+    private final int minSamples;
+    private volatile long p95Ms = -1;
+
+    LatencyTracker(int windowSize, int minSamples) {
+        this.samples = new AtomicLongArray(windowSize);
+        this.minSamples = minSamples;
+    }
+
+    void record(long latencyMs) {
+        long n = recorded.getAndIncrement();
+        samples.set((int) (n % samples.length()), latencyMs);
+        long count = n + 1;
+        if (count == minSamples || (count > minSamples && count % RECOMPUTE_EVERY == 0)) {
+            p95Ms = computeP95(count);
+        }
+    }
+
+    /**
+     * Returns the p95 latency, or -1 until enough calls have been seen.
+     */
+    long p95Ms() {
+        return p95Ms;
+    }
+
+    private long computeP95(long count) {
+        int size = (int) Math.min(count, samples.length());
+        long[] sorted = new long[size];
+        for (int i = 0; i < size; i++) {
+            sorted[i] = samples.get(i);
+        }
+        Arrays.sort(sorted);
+        return sorted[(int) Math.ceil(size * 0.95) - 1];
+    }
+}
@@ -0,0 +1,163 @@
+package com.microservices.order.resilience;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Bulkhead, circuit breaker, retry and hedging settings under
+ * order.resilience. The defaults apply to every dependency; an entry under
+ * dependencies replaces them for that dependency.
+ */
+@ConfigurationProperties(prefix = "order.resilience")
+public class ResilienceProperties {
+
+    private Dependency defaults = new Dependency();
+    private Map<String, Dependency> dependencies = new HashMap<>();
+
+    public Dependency getDefaults() {
+        return defaults;
+    }
+
+    public void setDefaults(Dependency defaults) {
+        this.defaults = defaults;
+    }
+
+    public Map<String, Dependency> getDependencies() {
+        return dependencies;
+    }
+
+    public void setDependencies(Map<String, Dependency> dependencies) {
+        this.dependencies = dependencies;
+    }
+
+    public Dependency forDependency(String name) {
+        return dependencies.getOrDefault(name, defaults);
+    }
+
+    public static class Dependency {
+        private int maxConcurrentCalls = 20;
+        // How long a call over the limit waits for a permit, on a timer rather
+        // than a blocked thread; 0 rejects it immediately
+        private long maxWaitMs = 0;
+        private int slidingWindowSize = 20;
+        private int minimumCalls = 10;
+        private float failureRateThreshold = 50;
+        private long openDurationMs = 30000;
+        private int halfOpenProbes = 3;
+        // Retries of idempotent calls, each also paid for from the retry budget
+        private int maxRetries = 2;
+        private long retryBackoffMs = 100;
+        // Tokens deposited per call; 0.1 lets retries add at most ~10% load
+        private double retryBudgetRatio = 0.1;
+        private int retryBudgetMaxTokens = 10;
+        // Send a second read once the first has taken longer than the p95
+        private boolean hedgeReads = false;
+        private long hedgeMinDelayMs = 20;
+
+        public int getMaxConcurrentCalls() {
+            return maxConcurrentCalls;
+        }
+
+        public void setMaxConcurrentCalls(int maxConcurrentCalls) {
+            this.maxConcurrentCalls = maxConcurrentCalls;
+        }
+
+        public long getMaxWaitMs() {
+            return maxWaitMs;
+        }
+
+        public void setMaxWaitMs(long maxWaitMs) {
+            this.maxWaitMs = maxWaitMs;
+        }
+
+        public int getSlidingWindowSize() {
+            return slidingWindowSize;
+        }
+
+        public void setSlidingWindowSize(int slidingWindowSize) {
+            this.slidingWindowSize = slidingWindowSize;
+        }
+
+        public int getMinimumCalls() {
+            return minimumCalls;
+        }
+
+        public void setMinimumCalls(int minimumCalls) {
+            this.minimumCalls = minimumCalls;
+        }
+
+        public float getFailureRateThreshold() {
+            return failureRateThreshold;
+        }
+
+        public void setFailureRateThreshold(float failureRateThreshold) {
+            this.failureRateThreshold = failureRateThreshold;
+        }
+
+        public long getOpenDurationMs() {
+            return openDurationMs;
+        }
+
+        public void setOpenDurationMs(long openDurationMs) {
+            this.openDurationMs = openDurationMs;
+        }
+
+        public int getHalfOpenProbes() {
+            return halfOpenProbes;
+        }
+
+        public void setHalfOpenProbes(int halfOpenProbes) {
+            this.halfOpenProbes = halfOpenProbes;
+        }
+
+        public int getMaxRetries() {
+            return maxRetries;
+        }
+
+        public void setMaxRetries(int maxRetries) {
+            this.maxRetries = maxRetries;
+        }
+
+        public long getRetryBackoffMs() {
+            return retryBackoffMs;
+        }
+
+        public void setRetryBackoffMs(long retryBackoffMs) {
+            this.retryBackoffMs = retryBackoffMs;
+        }
+
+        public double getRetryBudgetRatio() {
+            return retryBudgetRatio;
+        }
+
+        public void setRetryBudgetRatio(double retryBudgetRatio) {
+            this.retryBudgetRatio = retryBudgetRatio;
+        }
+
+        public int getRetryBudgetMaxTokens() {
+            return retryBudgetMaxTokens;
+        }
+
+        public void setRetryBudgetMaxTokens(int retryBudgetMaxTokens) {
+            this.retryBudgetMaxTokens = retryBudgetMaxTokens;
+        }
+
+        public boolean isHedgeReads() {
+            return hedgeReads;
+        }
+
+        public void setHedgeReads(boolean hedgeReads) {
+            this.hedgeReads = hedgeReads;
+        }
+
+        public long getHedgeMinDelayMs() {
+            return hedgeMinDelayMs;
+        }
+
+        public void setHedgeMinDelayMs(long hedgeMinDelayMs) {
+            this.hedgeMinDelayMs = hedgeMinDelayMs;
+        }
+    }
+}
@@ -0,0 +1,352 @@
+package com.microservices.order.service;
+
+import com.microservices.order.client.InventoryClient;
+import com.microservices.order.client.PaymentClient;
+import com.microservices.order.client.PaymentRequest;
+import com.microservices.order.client.PaymentResponse;
+import com.microservices.order.dto.OrderResponse;
+import com.microservices.order.entity.CheckoutSaga;
+import com.microservices.order.entity.Order;
+import com.microservices.order.entity.OrderIds;
+import com.microservices.order.entity.OrderItem;
+import com.microservices.order.entity.OrderStatus;
+import com.microservices.order.entity.SagaState;
+import com.microservices.order.metrics.OrderMetrics;
+import com.microservices.order.repository.CheckoutSagaRepository;
+import com.microservices.order.repository.OrderRepository;
+import com.microservices.order.resilience.DependencyGuard;
+import com.microservices.order.resilience.DependencyGuards;
+import com.microservices.order.resilience.DependencyUnavailableException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Drives order checkout as a saga: reserve stock, charge payment, confirm the
+ * order. If a step fails the completed ones are compensated (stock released,
+ * payment refunded) and the order is cancelled.
+ *
+ * Saga state is persisted between steps in short transactions, and every
+ * remote call is safe to repeat (stock movements carry a per-line reservation
+ * id, a charge is keyed by order and attempt), so a saga interrupted by a
+ * crash or a downstream outage can be resumed by {@link CheckoutSagaRecoveryWorker}.
+ *
+ * Payment outcomes are counted in {@link OrderMetrics} when the order is
+ * confirmed or cancelled, however the saga got there: a live checkout, a
+ * resume by the recovery worker or one triggered by a payment event.
+ */
+@Service
+public class CheckoutSagaOrchestrator {
+
+    private static final Logger logger = LoggerFactory.getLogger(CheckoutSagaOrchestrator.class);
+
+    // A checkout charges once; every retry or resume repeats the same attempt
+    private static final int CHARGE_ATTEMPT = 1;
+
+    private final OrderRepository orderRepository;
+    private final CheckoutSagaRepository sagaRepository;
+    private final InventoryClient inventoryClient;
+    private final PaymentClient paymentClient;
+    private final TransactionTemplate transactionTemplate;
+    private final DependencyGuards dependencyGuards;
+    private final DashboardTotals dashboardTotals;
+    private final OrderMetrics orderMetrics;
+
+    @Value("${order.checkout-saga.max-attempts:5}")
+    private int maxAttempts = 5;
+
+    public CheckoutSagaOrchestrator(OrderRepository orderRepository, CheckoutSagaRepository sagaRepository,
+                                    InventoryClient inventoryClient, PaymentClient paymentClient,
+                                    TransactionTemplate transactionTemplate, DependencyGuards dependencyGuards,
+                                    DashboardTotals dashboardTotals, OrderMetrics orderMetrics) {
+        this.orderRepository = orderRepository;
+        this.sagaRepository = sagaRepository;
+        this.inventoryClient = inventoryClient;
+        this.paymentClient = paymentClient;
+        this.transactionTemplate = transactionTemplate;
+        this.dependencyGuards = dependencyGuards;
+        this.dashboardTotals = dashboardTotals;
+        this.orderMetrics = orderMetrics;
+    }
+
+    /**
+     * Claims a CREATED order for checkout and runs the saga to completion or
+     * compensation. If a downstream call fails unexpectedly the saga is left
+     * in flight for the recovery worker and the error is rethrown.
+     *
+     * @throws DependencyUnavailableException without touching the order if
+     *         inventory or payment is known to be down
+     */
+    public OrderResponse checkout(String orderId) {
+        for (DependencyGuard guard : List.of(dependencyGuards.inventory(), dependencyGuards.payment())) {
+            if (guard.isOpen()) {
+                throw new DependencyUnavailableException(guard.getName(), guard.getName() + " is unavailable (circuit open)");
+            }
+        }
+        CheckoutSaga saga = transactionTemplate.execute(status -> begin(orderId));
+        return drive(saga, false);
+    }
+
+    /**
+     * Resumes a stalled saga. The saga is claimed by bumping its attempt count
+     * under optimistic locking, and only if it has not moved since it was
+     * observed, so concurrent recoverers and live checkouts never drive the
+     * same saga twice.
+     *
+     * @return true if this call claimed and drove the saga
+     */
+    public boolean resume(CheckoutSaga stalled) {
+        CheckoutSaga saga = transactionTemplate.execute(status -> {
+            CheckoutSaga current = sagaRepository.findById(stalled.getOrderId()).orElse(null);
+            if (current == null || current.getState().isTerminal()
+                    || !Objects.equals(current.getVersion(), stalled.getVersion())) {
+                return null;
+            }
+            current.setAttempts(current.getAttempts() + 1);
+            return sagaRepository.save(current);
+        });
+        if (saga == null) {
+            return false;
+        }
+        drive(saga, true);
+        return true;
+    }
+
+    private CheckoutSaga begin(String orderId) {
+        Order order = findOrder(orderId);
+
+        if (order.getStatus() != OrderStatus.CREATED) {
+            throw new InvalidOrderException("Order cannot be paid. Current status: " + order.getStatus());
+        }
+
+        // Claiming the order guards against concurrent checkouts: a second one either
+        // sees PAYMENT_PENDING or loses the version check / saga primary key on commit
+        order.setStatus(OrderStatus.PAYMENT_PENDING);
+        orderRepository.save(order);
+        dashboardTotals.statusChanged(order, OrderStatus.CREATED);
+        return sagaRepository.save(new CheckoutSaga(order.getId()));
+    }
+
+    private OrderResponse drive(CheckoutSaga saga, boolean resumed) {
+        String orderId = saga.getOrderId();
+        // The items are walked outside any transaction, so load them with the order
+        Order order = transactionTemplate.execute(status -> OrderIds.parse(orderId)
+                .flatMap(orderRepository::findWithItemsById)
+                .orElseThrow(() -> new RuntimeException("Order not found: " + orderId)));
+        CheckoutSaga current = saga;
+
+        try {
+            if (current.getState() == SagaState.COMPENSATING) {
+                return compensate(current, order, current.getFailureReason());
+            }
+
+            // A resumed saga in CHARGING may have reached payment-service already
+            boolean chargeMayHaveHappened = resumed && current.getState() == SagaState.CHARGING;
+
+            if (current.getState() == SagaState.STARTED) {
+                if (resumed && current.getAttempts() > maxAttempts) {
+                    return compensate(current, order, "Checkout could not be completed");
+                }
+                if (!reserveStock(order, resumed)) {
+                    return compensate(current, order, "Insufficient inventory to fulfill order");
+                }
+                current.setState(SagaState.CHARGING);
+                current = save(current);
+            }
+
+            PaymentResponse payment = null;
+            if (chargeMayHaveHappened) {
+                payment = findPaymentForOrder(orderId);
+                if (payment == null && current.getAttempts() > maxAttempts) {
+                    return compensate(current, order, "Payment could not be processed");
+                }
+            }
+            if (payment == null) {
+                payment = paymentClient.processPayment(
+                        new PaymentRequest(orderId, CHARGE_ATTEMPT, order.getTotalAmount(), "CREDIT_CARD")).block();
+                if (payment == null) {
+                    throw new RuntimeException("Payment processing failed");
+                }
+            }
+
+            if ("PENDING".equals(payment.getStatus())) {
+                // The gateway answers asynchronously; recovery resumes the saga if it takes too long
+                PaymentResponse pending = payment;
+                payment = paymentClient.awaitSettled(pending).block();
+                if (payment == null || "PENDING".equals(payment.getStatus())) {
+                    if (current.getAttempts() > maxAttempts) {
+                        // Given up on: compensation voids the charge, whatever the gateway answers
+                        current.setPaymentId(pending.getId().toString());
+                        current.setPaymentStatus("PENDING");
+                        return compensate(current, order, "Payment was not confirmed in time");
+                    }
+                    throw new RuntimeException("Payment is still being processed by the gateway");
+                }
+            }
+
+            current.setPaymentId(payment.getId().toString());
+            current.setPaymentStatus(payment.getStatus());
+
+            if (!"SUCCESS".equals(payment.getStatus())) {
+                return compensate(current, order, "Payment failed");
+            }
+            return confirm(current, order);
+        } catch (DependencyUnavailableException e) {
+            recordFailure(orderId, e);
+            throw e;
+        } catch (RuntimeException e) {
+            recordFailure(orderId, e);
+            throw new RuntimeException("Payment processing error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Deducts stock for all lines concurrently. Each deduction carries a
+     * reservation id so a retried saga never deducts the same line twice.
+     * Returns false only if a line is short of stock; any other failure
+     * (a missing SKU, a timeout, a 5xx) is thrown, leaving the saga for the
+     * recovery worker rather than cancelling the order.
+     */
+    private boolean reserveStock(Order order, boolean resumed) {
+        List<OrderItem> items = order.getItems();
+        Boolean reserved = Flux.range(0, items.size())
+                .flatMap(line -> reserveLine(order.getId(), line, items.get(line), resumed))
+                .all(Boolean::booleanValue)
+                .block();
+        return Boolean.TRUE.equals(reserved);
+    }
+
+    private Mono<Boolean> reserveLine(String orderId, int line, OrderItem item, boolean resumed) {
+        // Deferred: only a line with enough stock may be deducted. inventory-service
+        // answers 409 only when the stock has run out since the pre-check
+        Mono<Boolean> deduct = Mono.defer(() ->
+                        inventoryClient.deduct(item.getProductSku(), item.getQuantity(), reservationId(orderId, line)))
+                .thenReturn(true)
+                .onErrorReturn(WebClientResponseException.Conflict.class, false);
+        if (resumed) {
+            // Skip the availability pre-check on resume, where our own earlier
+            // deductions would make it fail
+            return deduct;
+        }
+        return inventoryClient.getInventory(item.getProductSku())
+                .switchIfEmpty(Mono.error(() -> new RuntimeException("Inventory not found for SKU: " + item.getProductSku())))
+                .flatMap(inventory -> inventory.getAvailable() < item.getQuantity()
+                        ? Mono.just(false) // Insufficient stock
+                        : deduct);
+    }
+
+    private OrderResponse confirm(CheckoutSaga saga, Order order) {
+        OrderResponse response = transactionTemplate.execute(status -> {
+            Order latest = findOrder(saga.getOrderId());
+            if (latest.getStatus() != OrderStatus.PAYMENT_PENDING) {
+                return null;
+            }
+
+            latest.setStatus(OrderStatus.PAID);
+            latest.setPaymentId(saga.getPaymentId());
+            Order updatedOrder = orderRepository.save(latest);
+            dashboardTotals.statusChanged(updatedOrder, OrderStatus.PAYMENT_PENDING);
+            long revenueMinor = updatedOrder.getTotalAmountMinor();
+            AfterCommit.run(() -> orderMetrics.paymentSucceeded(revenueMinor));
+
+            saga.setState(SagaState.COMPLETED);
+            sagaRepository.save(saga);
+            return new OrderResponse(updatedOrder);
+        });
+
+        if (response == null) {
+            // The order was moved on while we were charging; undo the charge
+            return compensate(saga, order, "Order changed during checkout");
+        }
+        return response;
+    }
+
+    /**
+     * Releases reserved stock, refunds a successful charge (or voids one the
+     * gateway has not answered yet) and cancels the order.
+     * The COMPENSATING state is persisted first so a crash mid-way is finished
+     * by the recovery worker; both remote calls are idempotent.
+     */
+    private OrderResponse compensate(CheckoutSaga saga, Order order, String reason) {
+        CheckoutSaga current = saga;
+        if (current.getState() != SagaState.COMPENSATING) {
+            current.setState(SagaState.COMPENSATING);
+            current.setFailureReason(reason);
+            current = save(current);
+        }
+
+        releaseStock(order);
+
+        if ("SUCCESS".equals(current.getPaymentStatus()) || "PENDING".equals(current.getPaymentStatus())) {
+            paymentClient.refund(current.getPaymentId()).block();
+            current.setPaymentStatus("REFUNDED");
+        }
+
+        CheckoutSaga compensated = current;
+        return transactionTemplate.execute(status -> {
+            Order latest = findOrder(compensated.getOrderId());
+            if (latest.getStatus() == OrderStatus.PAYMENT_PENDING) {
+                latest.setStatus(OrderStatus.CANCELLED);
+                latest.setPaymentId(compensated.getPaymentId());
+                latest.setCancellationReason(compensated.getFailureReason());
+                latest = orderRepository.save(latest);
+                dashboardTotals.statusChanged(latest, OrderStatus.PAYMENT_PENDING);
+                AfterCommit.run(orderMetrics::paymentFailed);
+            }
+
+            compensated.setState(SagaState.COMPENSATED);
+            sagaRepository.save(compensated);
+            return new OrderResponse(latest);
+        });
+    }
+
+    private void releaseStock(Order order) {
+        // Releasing a line that was never deducted is a no-op on the inventory side
+        List<OrderItem> items = order.getItems();
+        Flux.range(0, items.size())
+                .flatMap(line -> inventoryClient.release(items.get(line).getProductSku(),
+                        items.get(line).getQuantity(), reservationId(order.getId(), line)))
+                .then()
+                .block();
+    }
+
+    private PaymentResponse findPaymentForOrder(String orderId) {
+        return paymentClient.getPaymentByOrderId(orderId).block();
+    }
+
+    private void recordFailure(String orderId, RuntimeException failure) {
+        logger.warn("Checkout saga for order {} interrupted, leaving it for recovery: {}",
+                orderId, failure.getMessage());
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    sagaRepository.findById(orderId).ifPresent(saga -> {
+                        saga.setLastError(failure.getMessage());
+                        sagaRepository.save(saga);
+                    }));
+        } catch (RuntimeException e) {
+            logger.error("Could not record failure for checkout saga {}: {}", orderId, e.getMessage());
+        }
+    }
+
+    private CheckoutSaga save(CheckoutSaga saga) {
+        return transactionTemplate.execute(status -> sagaRepository.save(saga));
+    }
+
+    private Order findOrder(String orderId) {
+        return OrderIds.parse(orderId)
+                .flatMap(orderRepository::findById)
+                .orElseThrow(() -> new InvalidOrderException("Order not found: " + orderId));
+    }
+
+    private static String reservationId(String orderId, int line) {
+        return orderId + ":" + line;
+    }
+}
@@ -0,0 +1,56 @@
+package com.microservices.order.service;
+
+import com.microservices.order.entity.CheckoutSaga;
+import com.microservices.order.entity.SagaState;
+import com.microservices.order.repository.CheckoutSagaRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Periodically resumes checkout sagas that have made no progress for a while,
+ * e.g. because the instance driving them crashed or a downstream service was
+ * unavailable.
+ */
+@Component
+public class CheckoutSagaRecoveryWorker {
+
+    private static final Logger logger = LoggerFactory.getLogger(CheckoutSagaRecoveryWorker.class);
+    private static final Set<SagaState> IN_FLIGHT =
+            EnumSet.of(SagaState.STARTED, SagaState.CHARGING, SagaState.COMPENSATING);
+
+    private final CheckoutSagaRepository sagaRepository;
+    private final CheckoutSagaOrchestrator orchestrator;
+    private final long stallThresholdMs;
+
+    public CheckoutSagaRecoveryWorker(CheckoutSagaRepository sagaRepository, CheckoutSagaOrchestrator orchestrator,
+                                      @Value("${order.checkout-saga.stall-threshold-ms:60000}") long stallThresholdMs) {
+        this.sagaRepository = sagaRepository;
+        this.orchestrator = orchestrator;
+        this.stallThresholdMs = stallThresholdMs;
+    }
+
+    @Scheduled(fixedDelayString = "${order.checkout-saga.recovery-interval-ms:30000}")
+    public void resumeStalledSagas() {
+        Instant cutoff = Instant.now().minusMillis(stallThresholdMs);
+        List<CheckoutSaga> stalled =
+                sagaRepository.findTop50ByStateInAndUpdatedAtBeforeOrderByUpdatedAtAsc(IN_FLIGHT, cutoff);
+
+        for (CheckoutSaga saga : stalled) {
+            try {
+                if (orchestrator.resume(saga)) {
+                    logger.info("Resumed checkout saga for order {} (state was {})", saga.getOrderId(), saga.getState());
+                }
+            } catch (RuntimeException e) {
+                logger.warn("Checkout saga for order {} still failing: {}", saga.getOrderId(), e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package com.microservices.order.service;
+
+import com.microservices.order.dto.DashboardData;
+import com.microservices.order.dto.DashboardDelta;
+import com.microservices.order.dto.DashboardDelta.RankChange;
+import com.microservices.order.dto.LowStockItem;
+import com.microservices.order.dto.OrderStatusCount;
+import com.microservices.order.dto.ProductOrderCount;
+import com.microservices.order.dto.ThroughputMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Pushes dashboard changes to open dashboards over server-sent events.
+ *
+ * A viewer first gets a "snapshot" event with the full data, then "delta"
+ * events holding only what changed since the data it last received. Deltas
+ * are computed here, once per distinct starting point, so viewers that are
+ * in step share one diff. Each viewer gets at most one event per
+ * clientMinIntervalMs; changes arriving in between are folded into its
+ * next delta rather than queued.
+ *
+ * Events are written on the bounded dashboardPushExecutor, at most one at a
+ * time per viewer, so a slow connection only delays its own updates. A
+ * viewer still busy with its last event is skipped, and dropped once that
+ * event has taken longer than sendTimeoutMs.
+ */
+@Service
+public class DashboardPublisher {
+
+    private static final Logger logger = LoggerFactory.getLogger(DashboardPublisher.class);
+
+    private final DashboardService dashboardService;
+    private final Executor pushExecutor;
+    private final int maxSubscribers;
+    private final long streamTimeoutMs;
+    private final long clientMinIntervalNanos;
+    private final long sendTimeoutNanos;
+    private final LongSupplier clock;
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    // Reserved before a viewer is added, so concurrent subscribes cannot overshoot the limit
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+
+    @Autowired
+    public DashboardPublisher(DashboardService dashboardService,
+                              @Qualifier("dashboardPushExecutor") Executor pushExecutor,
+                              @Value("${order.dashboard.max-subscribers:500}") int maxSubscribers,
+                              @Value("${order.dashboard.stream-timeout-ms:1800000}") long streamTimeoutMs,
+                              @Value("${order.dashboard.client-min-interval-ms:1000}") long clientMinIntervalMs,
+                              @Value("${order.dashboard.send-timeout-ms:10000}") long sendTimeoutMs) {
+        this(dashboardService, pushExecutor, maxSubscribers, streamTimeoutMs, clientMinIntervalMs, sendTimeoutMs,
+                System::nanoTime);
+    }
+
+    DashboardPublisher(DashboardService dashboardService, Executor pushExecutor, int maxSubscribers,
+                       long streamTimeoutMs, long clientMinIntervalMs, long sendTimeoutMs, LongSupplier clock) {
+        this.dashboardService = dashboardService;
+        this.pushExecutor = pushExecutor;
+        this.maxSubscribers = maxSubscribers;
+        this.streamTimeoutMs = streamTimeoutMs;
+        this.clientMinIntervalNanos = TimeUnit.MILLISECONDS.toNanos(clientMinIntervalMs);
+        this.sendTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeoutMs);
+        this.clock = clock;
+    }
+
+    /**
+     * Opens a stream for a new viewer.
+     *
+     * @throws IllegalStateException when maxSubscribers streams are open
+     */
+    public SseEmitter subscribe() {
+        return subscribe(new SseEmitter(streamTimeoutMs));
+    }
+
+    SseEmitter subscribe(SseEmitter emitter) {
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            throw new IllegalStateException("Too many dashboard subscribers");
+        }
+        Subscriber subscriber = new Subscriber(emitter);
+        subscribers.add(subscriber);
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(() -> remove(subscriber));
+        emitter.onError(e -> remove(subscriber));
+
+        dashboardService.getDashboardData().thenAccept(data -> {
+            if (!subscriber.sending.compareAndSet(false, true)) {
+                return;
+            }
+            if (subscriber.lastSent == null) {
+                dispatch(subscriber, "snapshot", data, data);
+            } else {
+                // A push round got there first
+                subscriber.sending.set(false);
+            }
+        });
+        return emitter;
+    }
+
+    int subscriberCount() {
+        return subscriberCount.get();
+    }
+
+    /**
+     * Sends pending changes to every viewer whose rate limit allows it. The
+     * data comes from DashboardService's cache, so this does not add to the
+     * backend load however often it runs.
+     */
+    @Scheduled(fixedDelayString = "${order.dashboard.push-interval-ms:1000}")
+    public void publish() {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        dashboardService.getDashboardData().thenAccept(this::broadcast);
+    }
+
+    private void broadcast(DashboardData current) {
+        long now = clock.getAsLong();
+        Map<DashboardData, DashboardDelta> deltas = new IdentityHashMap<>();
+        for (Subscriber subscriber : subscribers) {
+            if (!subscriber.sending.compareAndSet(false, true)) {
+                // Still writing its last event; a viewer that stays stuck is let go
+                if (now - subscriber.sendStartedAt > sendTimeoutNanos) {
+                    drop(subscriber, new IOException("Dashboard event not written within send timeout"));
+                }
+                continue;
+            }
+            if (subscriber.lastSent == null) {
+                // Its snapshot could not be sent yet
+                dispatch(subscriber, "snapshot", current, current);
+                continue;
+            }
+            // Already up to date, or inside its interval
+            if (subscriber.lastSent == current || now - subscriber.lastSentAt < clientMinIntervalNanos) {
+                subscriber.sending.set(false);
+                continue;
+            }
+            DashboardDelta delta = deltas.computeIfAbsent(subscriber.lastSent, base -> diff(base, current));
+            if (delta.hasChanges()) {
+                dispatch(subscriber, "delta", delta, current);
+            } else {
+                subscriber.lastSent = current;
+                subscriber.sending.set(false);
+            }
+        }
+    }
+
+    // Called with the subscriber's sending flag claimed; the write releases it
+    private void dispatch(Subscriber subscriber, String event, Object payload, DashboardData data) {
+        subscriber.sendStartedAt = clock.getAsLong();
+        try {
+            pushExecutor.execute(() -> send(subscriber, event, payload, data));
+        } catch (RejectedExecutionException e) {
+            // Every writer is busy; the changes go out in a later round
+            logger.debug("Dashboard push workers saturated, deferring event for a subscriber");
+            subscriber.sending.set(false);
+        }
+    }
+
+    private void send(Subscriber subscriber, String event, Object payload, DashboardData data) {
+        try {
+            if (subscriber.removed.get()) {
+                return;
+            }
+            subscriber.emitter.send(SseEmitter.event().name(event).data(payload));
+            subscriber.lastSent = data;
+            subscriber.lastSentAt = clock.getAsLong();
+        } catch (IOException | IllegalStateException e) {
+            // The viewer went away; the emitter callbacks may not have fired yet
+            drop(subscriber, e);
+        } finally {
+            subscriber.sending.set(false);
+        }
+    }
+
+    private void drop(Subscriber subscriber, Exception reason) {
+        logger.debug("Dropping dashboard subscriber: {}", reason.getMessage());
+        if (remove(subscriber)) {
+            subscriber.emitter.completeWithError(reason);
+        }
+    }
+
+    private boolean remove(Subscriber subscriber) {
+        if (!subscriber.removed.compareAndSet(false, true)) {
+            return false;
+        }
+        subscribers.remove(subscriber);
+        subscriberCount.decrementAndGet();
+        return true;
+    }
+
+    static DashboardDelta diff(DashboardData previous, DashboardData current) {
+        DashboardDelta delta = new DashboardDelta();
+
+        Map<String, OrderStatusCount> previousStatuses = new LinkedHashMap<>();
+        previous.getOrdersByStatus().forEach(status -> previousStatuses.put(status.getStatus(), status));
+        for (OrderStatusCount status : current.getOrdersByStatus()) {
+            OrderStatusCount before = previousStatuses.remove(status.getStatus());
+            if (before == null || !Objects.equals(before.getCount(), status.getCount())
+                    || !Objects.equals(before.getRevenue(), status.getRevenue())) {
+                delta.getStatusChanges().add(status);
+            }
+        }
+        delta.getStatusRemovals().addAll(previousStatuses.keySet());
+
+        List<ProductOrderCount> previousTop = previous.getTopProducts();
+        List<ProductOrderCount> currentTop = current.getTopProducts();
+        for (int i = 0; i < currentTop.size(); i++) {
+            ProductOrderCount product = currentTop.get(i);
+            if (i >= previousTop.size() || !sameFigures(previousTop.get(i), product)) {
+                delta.getRankChanges().add(new RankChange(i + 1, product));
+            }
+        }
+        if (currentTop.size() != previousTop.size()) {
+            delta.setTopProductCount(currentTop.size());
+        }
+
+        Map<String, LowStockItem> previousLowStock = new LinkedHashMap<>();
+        previous.getLowStockItems().forEach(item -> previousLowStock.put(item.getProductSku(), item));
+        for (LowStockItem item : current.getLowStockItems()) {
+            LowStockItem before = previousLowStock.remove(item.getProductSku());
+            if (before == null || !Objects.equals(before.getAvailable(), item.getAvailable())
+                    || !Objects.equals(before.getThreshold(), item.getThreshold())
+                    || !Objects.equals(before.getLastUpdated(), item.getLastUpdated())) {
+                delta.getLowStockUpserts().add(item);
+            }
+        }
+        delta.getLowStockRemovals().addAll(previousLowStock.keySet());
+
+        if (!sameThroughput(previous.getThroughput(), current.getThroughput())) {
+            delta.setThroughput(current.getThroughput());
+        }
+        return delta;
+    }
+
+    private static boolean sameThroughput(List<ThroughputMetrics> a, List<ThroughputMetrics> b) {
+        if (a == null || b == null || a.size() != b.size()) {
+            return a == b;
+        }
+        for (int i = 0; i < a.size(); i++) {
+            ThroughputMetrics x = a.get(i);
+            ThroughputMetrics y = b.get(i);
+            if (x.getOrders() != y.getOrders() || !Objects.equals(x.getRevenue(), y.getRevenue())
+                    || x.getPaymentsSucceeded() != y.getPaymentsSucceeded()
+                    || x.getPaymentsFailed() != y.getPaymentsFailed()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean sameFigures(ProductOrderCount a, ProductOrderCount b) {
+        return Objects.equals(a.getProductSku(), b.getProductSku())
+                && Objects.equals(a.getOrderCount(), b.getOrderCount())
+                && Objects.equals(a.getTotalQuantity(), b.getTotalQuantity());
+    }
+
+    private static final class Subscriber {
+        private final SseEmitter emitter;
+        private final AtomicBoolean sending = new AtomicBoolean();
+        private final AtomicBoolean removed = new AtomicBoolean();
+        private volatile DashboardData lastSent;
+        private volatile long lastSentAt;
+        private volatile long sendStartedAt;
+
+        private Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+    }
+}
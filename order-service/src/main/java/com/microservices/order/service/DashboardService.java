@@ -1,98 +1,170 @@
 package com.microservices.order.service;
 
+import com.microservices.order.client.InventoryClient;
 import com.microservices.order.dto.DashboardData;
 import com.microservices.order.dto.LowStockItem;
 import com.microservices.order.dto.OrderStatusCount;
 import com.microservices.order.dto.ProductOrderCount;
-import com.microservices.order.repository.OrderRepository;
+import com.microservices.order.entity.MinorUnits;
+import com.microservices.order.metrics.OrderMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
-import reactor.util.retry.Retry;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
 import java.util.stream.Collectors;
 
+/**
+ * Assembles the dashboard from the order totals and inventory-service's low
+ * stock list, fetched concurrently under one deadline, plus the recent
+ * throughput from {@link OrderMetrics}. A source that fails or misses the
+ * deadline is shown empty rather than failing the page.
+ *
+ * The assembled data is cached for cacheTtlMs. After that the cached copy
+ * is still served for up to maxStaleMs while a single refresh runs in the
+ * background, so however many operators are watching, the sources are
+ * queried at most once per interval. Only when there is no usable copy do
+ * callers wait, and then all of them share the one in-flight refresh.
+ */
 @Service
 public class DashboardService {
 
     private static final Logger logger = LoggerFactory.getLogger(DashboardService.class);
-    private static final String INVENTORY_SERVICE_URL = "http://inventory-service";
-    
-    private final OrderRepository orderRepository;
-    private final WebClient webClient;
-
-    public DashboardService(OrderRepository orderRepository, WebClient.Builder webClientBuilder) {
-        this.orderRepository = orderRepository;
-        this.webClient = webClientBuilder.baseUrl(INVENTORY_SERVICE_URL).build();
+
+    private final DashboardTotals dashboardTotals;
+    private final TopProducts topProducts;
+    private final InventoryClient inventoryClient;
+    private final OrderMetrics orderMetrics;
+    private final long cacheTtlNanos;
+    private final long maxStaleNanos;
+    private final Duration deadline;
+    private final LongSupplier clock;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private Snapshot snapshot;
+    private CompletableFuture<DashboardData> refresh;
+
+    public DashboardService(DashboardTotals dashboardTotals, TopProducts topProducts,
+                            InventoryClient inventoryClient, OrderMetrics orderMetrics,
+                            @Value("${order.dashboard.cache-ttl-ms:5000}") long cacheTtlMs,
+                            @Value("${order.dashboard.max-stale-ms:60000}") long maxStaleMs,
+                            @Value("${order.dashboard.deadline-ms:2000}") long deadlineMs) {
+        this(dashboardTotals, topProducts, inventoryClient, orderMetrics,
+                cacheTtlMs, maxStaleMs, deadlineMs, System::nanoTime);
     }
 
-    public DashboardData getDashboardData() {
-        DashboardData data = new DashboardData();
-        
-        // Get orders by status
-        data.setOrdersByStatus(getOrdersByStatus());
-        
-        // Get top 10 products
-        data.setTopProducts(getTopProducts());
-        
-        // Get low stock items from inventory service
-        data.setLowStockItems(getLowStockItems());
-        
-        return data;
+    DashboardService(DashboardTotals dashboardTotals, TopProducts topProducts,
+                     InventoryClient inventoryClient, OrderMetrics orderMetrics, long cacheTtlMs, long maxStaleMs, long deadlineMs, LongSupplier clock) {
+        this.dashboardTotals = dashboardTotals;
+        this.topProducts = topProducts;
+        this.inventoryClient = inventoryClient;
+        this.orderMetrics = orderMetrics;
+        this.cacheTtlNanos = TimeUnit.MILLISECONDS.toNanos(cacheTtlMs);
+        this.maxStaleNanos = TimeUnit.MILLISECONDS.toNanos(maxStaleMs);
+        this.deadline = Duration.ofMillis(deadlineMs);
+        this.clock = clock;
     }
 
-    private List<OrderStatusCount> getOrdersByStatus() {
+    /**
+     * Returns the dashboard data, completed at once when a cached copy is
+     * fresh or still within the stale window.
+     */
+    public CompletableFuture<DashboardData> getDashboardData() {
+        CompletableFuture<DashboardData> pending;
+        lock.lock();
         try {
-            List<Object[]> results = orderRepository.countOrdersByStatus();
-            return results.stream()
-                    .map(result -> new OrderStatusCount(
-                            result[0].toString(),
-                            ((Number) result[1]).longValue()
-                    ))
-                    .collect(Collectors.toList());
-        } catch (Exception e) {
-            logger.error("Error fetching orders by status: {}", e.getMessage());
-            return new ArrayList<>();
+            long now = clock.getAsLong();
+            Snapshot current = snapshot;
+            long age = current == null ? Long.MAX_VALUE : now - current.fetchedAt;
+            if (age < cacheTtlNanos) {
+                return CompletableFuture.completedFuture(current.data);
+            }
+            pending = refresh != null ? refresh : startRefresh();
+            if (age - cacheTtlNanos < maxStaleNanos) {
+                return CompletableFuture.completedFuture(current.data);
+            }
+        } finally {
+            lock.unlock();
         }
+        return pending;
     }
 
-    private List<ProductOrderCount> getTopProducts() {
-        try {
-            List<Object[]> results = orderRepository.findTopProductsByOrderCount();
-            return results.stream()
-                    .limit(10)
-                    .map(result -> new ProductOrderCount(
-                            (String) result[0],
-                            ((Number) result[1]).longValue(),
-                            ((Number) result[2]).longValue()
-                    ))
-                    .collect(Collectors.toList());
-        } catch (Exception e) {
-            logger.error("Error fetching top products: {}", e.getMessage());
-            return new ArrayList<>();
-        }
+    // Called with the lock held
+    private CompletableFuture<DashboardData> startRefresh() {
+        CompletableFuture<DashboardData> future = fetch().toFuture();
+        refresh = future;
+        future.whenComplete((data, error) -> {
+            lock.lock();
+            try {
+                if (data != null) {
+                    snapshot = new Snapshot(data, clock.getAsLong());
+                }
+                refresh = null;
+            } finally {
+                lock.unlock();
+            }
+        });
+        return future;
     }
 
-    private List<LowStockItem> getLowStockItems() {
-        try {
-            return webClient.get()
-                    .uri("/api/inventory/low-stock")
-                    .retrieve()
-                    .bodyToMono(new ParameterizedTypeReference<List<LowStockItem>>() {})
-                    .retryWhen(Retry.backoff(2, Duration.ofMillis(300))
-                            .doBeforeRetry(signal -> 
-                                    logger.warn("Retrying low-stock request, attempt: {}", signal.totalRetries() + 1)))
-                    .doOnError(error -> logger.error("Error fetching low stock items: {}", error.getMessage()))
-                    .onErrorReturn(new ArrayList<>())
-                    .block();
-        } catch (Exception e) {
-            logger.error("Unexpected error calling inventory service: {}", e.getMessage());
-            return new ArrayList<>();
+    private Mono<DashboardData> fetch() {
+        // The totals are read from small tables, off the caller's thread
+        Mono<List<OrderStatusCount>> ordersByStatus =
+                Mono.fromCallable(this::getOrdersByStatus).subscribeOn(Schedulers.boundedElastic());
+        Mono<List<ProductOrderCount>> topProductCounts =
+                Mono.fromCallable(topProducts::byOrderCount).subscribeOn(Schedulers.boundedElastic());
+
+        // zip subscribes to all three at once, so one timeout each is one shared deadline
+        return Mono.zip(
+                        withinDeadline(ordersByStatus, "orders by status"),
+                        withinDeadline(topProductCounts, "top products"),
+                        withinDeadline(inventoryClient.getLowStockItems(), "low stock items"))
+                .map(sources -> {
+                    DashboardData data = new DashboardData();
+                    data.setOrdersByStatus(sources.getT1());
+                    data.setTopProducts(sources.getT2());
+                    data.setLowStockItems(sources.getT3());
+                    data.setThroughput(orderMetrics.snapshot());
+                    return data;
+                });
+    }
+
+    private <T> Mono<List<T>> withinDeadline(Mono<List<T>> source, String name) {
+        return source
+                .timeout(deadline)
+                .defaultIfEmpty(new ArrayList<>())
+                .onErrorResume(e -> {
+                    logger.error("Error fetching {}: {}", name, e.getMessage());
+                    return Mono.just(new ArrayList<>());
+                });
+    }
+
+    private List<OrderStatusCount> getOrdersByStatus() {
+        return dashboardTotals.statusTotals().stream()
+                .map(total -> new OrderStatusCount(
+                        total.getStatus().name(),
+                        total.getOrderCount(),
+                        MinorUnits.toAmount(total.getRevenueMinor())
+                ))
+                .collect(Collectors.toList());
+    }
+
+    private static final class Snapshot {
+        private final DashboardData data;
+        private final long fetchedAt;
+
+        private Snapshot(DashboardData data, long fetchedAt) {
+            this.data = data;
+            this.fetchedAt = fetchedAt;
         }
     }
 }
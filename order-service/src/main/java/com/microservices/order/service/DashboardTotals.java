@@ -0,0 +1,234 @@
+package com.microservices.order.service;
+
+import com.microservices.order.entity.Order;
+import com.microservices.order.entity.OrderItem;
+import com.microservices.order.entity.OrderStatus;
+import com.microservices.order.entity.OrderStatusTotal;
+import com.microservices.order.entity.ProductOrderTotal;
+import com.microservices.order.repository.OrderRepository;
+import com.microservices.order.repository.OrderStatusTotalRepository;
+import com.microservices.order.repository.ProductOrderTotalRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Dashboard figures kept as running totals in two small tables, so reading
+ * them costs the same however many orders exist.
+ *
+ * The totals are adjusted in the same transaction as the order change they
+ * reflect, so they commit or roll back together. Status totals are striped
+ * by order id (see {@link OrderStatusTotal}) so concurrent checkouts do not
+ * queue on one row per status, and rows are always updated in a fixed order
+ * (status, then SKU) to keep them from deadlocking. A periodic
+ * reconciliation recomputes both tables from the orders and corrects any
+ * drift, e.g. from orders changed outside this service.
+ *
+ * With order.dashboard.top-products.approximate set, {@link TopProducts}
+ * does not read the product totals, so they are neither kept nor
+ * reconciled.
+ */
+@Service
+public class DashboardTotals {
+
+    private static final Logger logger = LoggerFactory.getLogger(DashboardTotals.class);
+
+    private final OrderRepository orderRepository;
+    private final OrderStatusTotalRepository statusTotals;
+    private final ProductOrderTotalRepository productTotals;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate snapshotTemplate;
+    private final int stripes;
+    private final boolean productTotalsKept;
+
+    public DashboardTotals(OrderRepository orderRepository, OrderStatusTotalRepository statusTotals,
+                           ProductOrderTotalRepository productTotals, TransactionTemplate transactionTemplate,
+                           @Value("${order.dashboard.status-total-stripes:16}") int stripes,
+                           @Value("${order.dashboard.top-products.approximate:false}") boolean approximateTopProducts) {
+        if (stripes < 1) {
+            throw new IllegalArgumentException("order.dashboard.status-total-stripes must be positive");
+        }
+        this.orderRepository = orderRepository;
+        this.statusTotals = statusTotals;
+        this.productTotals = productTotals;
+        this.transactionTemplate = transactionTemplate;
+        this.snapshotTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.snapshotTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.snapshotTemplate.setReadOnly(true);
+        this.stripes = stripes;
+        this.productTotalsKept = !approximateTopProducts;
+    }
+
+    /**
+     * Counts a newly saved order under its status and each of its products.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void orderCreated(Order order) {
+        statusTotals.add(order.getStatus().name(), stripe(order), 1, order.getTotalAmountMinor());
+        if (!productTotalsKept) {
+            return;
+        }
+
+        // A product on several lines still counts as one order
+        Map<String, Long> quantities = new TreeMap<>();
+        for (OrderItem item : order.getItems()) {
+            quantities.merge(item.getProductSku(), item.getQuantity().longValue(), Long::sum);
+        }
+        quantities.forEach((sku, quantity) -> productTotals.add(sku, 1, quantity));
+    }
+
+    /**
+     * Moves an order's count and revenue from its previous status to its
+     * current one.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void statusChanged(Order order, OrderStatus previous) {
+        OrderStatus current = order.getStatus();
+        if (previous == current) {
+            return;
+        }
+        long revenue = order.getTotalAmountMinor();
+        int stripe = stripe(order);
+        if (previous.name().compareTo(current.name()) < 0) {
+            statusTotals.add(previous.name(), stripe, -1, -revenue);
+            statusTotals.add(current.name(), stripe, 1, revenue);
+        } else {
+            statusTotals.add(current.name(), stripe, 1, revenue);
+            statusTotals.add(previous.name(), stripe, -1, -revenue);
+        }
+    }
+
+    private int stripe(Order order) {
+        return Math.floorMod(order.getId().hashCode(), stripes);
+    }
+
+    /**
+     * Statuses with at least one order, by status name.
+     */
+    @Transactional(readOnly = true)
+    public List<OrderStatusTotal> statusTotals() {
+        List<OrderStatusTotal> totals = new ArrayList<>();
+        for (Object[] row : statusTotals.sumByStatus()) {
+            long orders = ((Number) row[1]).longValue();
+            if (orders > 0) {
+                totals.add(new OrderStatusTotal((OrderStatus) row[0], orders, ((Number) row[2]).longValue()));
+            }
+        }
+        return totals;
+    }
+
+    /**
+     * The ten products found in the most orders.
+     */
+    @Transactional(readOnly = true)
+    public List<ProductOrderTotal> topProducts() {
+        return productTotals.findTop10ByOrderByOrderCountDescProductSkuAsc();
+    }
+
+    /**
+     * The ten products ordered in the largest quantity.
+     */
+    @Transactional(readOnly = true)
+    public List<ProductOrderTotal> topProductsByQuantity() {
+        return productTotals.findTop10ByOrderByTotalQuantityDescProductSkuAsc();
+    }
+
+    /**
+     * Recomputes both tables from the orders. The orders and the totals are
+     * read from one snapshot, without locking either, and the difference is
+     * then added to the totals like any other change. Updates committed in
+     * the meantime are neither lost nor counted twice: they are either in the
+     * snapshot on both sides, or in neither and already added to the totals.
+     *
+     * @return the number of totals that had drifted and were corrected
+     */
+    @Scheduled(fixedDelayString = "${order.dashboard.reconcile-interval-ms:3600000}",
+               initialDelayString = "${order.dashboard.reconcile-initial-delay-ms:0}")
+    public int reconcile() {
+        Drift drift = snapshotTemplate.execute(status -> measureDrift());
+        if (drift == null || drift.size() == 0) {
+            return 0;
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            // Same fixed order as the business updates: status, then SKU
+            drift.byStatus.forEach((orderStatus, delta) -> statusTotals.add(orderStatus, 0, delta[0], delta[1]));
+            drift.byProduct.forEach((sku, delta) -> productTotals.add(sku, delta[0], delta[1]));
+            productTotals.deleteEmpty();
+        });
+        logger.warn("Dashboard totals had drifted; corrected {} totals", drift.size());
+        return drift.size();
+    }
+
+    private Drift measureDrift() {
+        Drift drift = new Drift();
+
+        Map<OrderStatus, long[]> storedByStatus = new EnumMap<>(OrderStatus.class);
+        for (Object[] row : statusTotals.sumByStatus()) {
+            storedByStatus.put((OrderStatus) row[0],
+                    new long[] {((Number) row[1]).longValue(), ((Number) row[2]).longValue()});
+        }
+        Map<OrderStatus, long[]> actualByStatus = new EnumMap<>(OrderStatus.class);
+        for (Object[] row : orderRepository.summarizeOrdersByStatus()) {
+            actualByStatus.put((OrderStatus) row[0],
+                    new long[] {((Number) row[1]).longValue(), ((Number) row[2]).longValue()});
+        }
+        for (OrderStatus orderStatus : OrderStatus.values()) {
+            long[] stored = storedByStatus.getOrDefault(orderStatus, new long[] {0, 0});
+            long[] actual = actualByStatus.getOrDefault(orderStatus, new long[] {0, 0});
+            if (stored[0] != actual[0] || stored[1] != actual[1]) {
+                drift.byStatus.put(orderStatus.name(), new long[] {actual[0] - stored[0], actual[1] - stored[1]});
+            }
+        }
+
+        if (!productTotalsKept) {
+            return drift;
+        }
+        Map<String, long[]> storedByProduct = new TreeMap<>();
+        productTotals.findAll().forEach(total -> storedByProduct.put(total.getProductSku(),
+                new long[] {total.getOrderCount(), total.getTotalQuantity()}));
+        for (Object[] row : orderRepository.countOrdersByProduct()) {
+            String sku = (String) row[0];
+            long orders = ((Number) row[1]).longValue();
+            long quantity = ((Number) row[2]).longValue();
+            long[] stored = storedByProduct.remove(sku);
+            if (stored == null) {
+                drift.byProduct.put(sku, new long[] {orders, quantity});
+            } else if (stored[0] != orders || stored[1] != quantity) {
+                drift.byProduct.put(sku, new long[] {orders - stored[0], quantity - stored[1]});
+            }
+        }
+        // Products no order contains any more
+        storedByProduct.forEach((sku, stored) -> {
+            if (stored[0] != 0 || stored[1] != 0) {
+                drift.byProduct.put(sku, new long[] {-stored[0], -stored[1]});
+            }
+        });
+        return drift;
+    }
+
+    /**
+     * What has to be added to the stored totals to match the orders.
+     */
+    private static final class Drift {
+        // By status name, the order status rows are updated in
+        private final Map<String, long[]> byStatus = new TreeMap<>();
+        private final Map<String, long[]> byProduct = new TreeMap<>();
+
+        int size() {
+            return byStatus.size() + byProduct.size();
+        }
+    }
+}
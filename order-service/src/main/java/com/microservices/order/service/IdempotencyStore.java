@@ -0,0 +1,215 @@
+package com.microservices.order.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Remembers the outcome of requests carrying an Idempotency-Key so client
+ * retries replay the first response instead of running the operation again.
+ *
+ * The store is in memory, bounded to maxEntries (the oldest recorded
+ * responses are evicted first) and forgets a response ttlMs after it was
+ * produced. Executions still in flight are never evicted, so a duplicate that
+ * arrives while the first one is running always waits for its result; only
+ * they can take the store past maxEntries, and no further than the number of
+ * requests running at once.
+ * Failures and responses rejected by the caller's predicate are not kept, so
+ * those can be retried with the same key. A key is bound to the fingerprint
+ * of the request that first used it; reusing it for a different request is
+ * rejected rather than answered with the other request's response.
+ */
+@Component
+public class IdempotencyStore {
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final long inFlightWaitMs;
+    private final LongSupplier clock;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    // Every key, in flight or recorded
+    private final HashMap<String, Entry> entries = new HashMap<>();
+    // Recorded responses only, in the order they were recorded; with one ttl
+    // for all of them that is also the order they expire in
+    private final LinkedHashMap<String, Entry> recorded = new LinkedHashMap<>();
+
+    @Autowired
+    public IdempotencyStore(@Value("${order.idempotency.max-entries:10000}") int maxEntries,
+                            @Value("${order.idempotency.ttl-ms:86400000}") long ttlMs,
+                            @Value("${order.idempotency.in-flight-wait-ms:30000}") long inFlightWaitMs) {
+        this(maxEntries, ttlMs, inFlightWaitMs, System::nanoTime);
+    }
+
+    IdempotencyStore(int maxEntries, long ttlMs, long inFlightWaitMs, LongSupplier clock) {
+        this.maxEntries = maxEntries;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+        this.inFlightWaitMs = inFlightWaitMs;
+        this.clock = clock;
+    }
+
+    public <T> T execute(String key, Supplier<T> action, Predicate<T> cacheable) {
+        return execute(key, null, action, cacheable);
+    }
+
+    /**
+     * Runs action once per key and returns its result, or the result of the
+     * execution already recorded or in flight for the key.
+     *
+     * @param fingerprint identifies the request; null if the key alone does
+     * @throws IdempotencyConflictException if an in-flight execution for the
+     *         key does not finish within the configured wait
+     * @throws IdempotencyKeyReusedException if the key was first used with a
+     *         different fingerprint
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String key, String fingerprint, Supplier<T> action, Predicate<T> cacheable) {
+        Entry entry;
+        boolean owner = false;
+
+        lock.lock();
+        try {
+            long now = clock.getAsLong();
+            evictExpired(now);
+            entry = entries.get(key);
+            if (entry == null || entry.isExpired(now)) {
+                entry = new Entry(fingerprint);
+                entries.put(key, entry);
+                owner = true;
+                evictOldest();
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (owner) {
+            return run(key, entry, action, cacheable);
+        }
+        if (!Objects.equals(entry.fingerprint, fingerprint)) {
+            throw new IdempotencyKeyReusedException("Idempotency key was already used for a different request");
+        }
+        return (T) await(entry.result);
+    }
+
+    private <T> T run(String key, Entry entry, Supplier<T> action, Predicate<T> cacheable) {
+        T result;
+        try {
+            result = action.get();
+        } catch (RuntimeException e) {
+            forget(key, entry);
+            entry.result.completeExceptionally(e);
+            throw e;
+        }
+
+        if (cacheable.test(result)) {
+            lock.lock();
+            try {
+                entry.expiresAt = clock.getAsLong() + ttlNanos;
+                recorded.put(key, entry);
+            } finally {
+                lock.unlock();
+            }
+        } else {
+            forget(key, entry);
+        }
+        entry.result.complete(result);
+        return result;
+    }
+
+    private Object await(CompletableFuture<Object> result) {
+        try {
+            return result.get(inFlightWaitMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new IdempotencyConflictException("Request with the same idempotency key is still in progress");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IdempotencyConflictException("Interrupted while waiting for request in progress");
+        }
+    }
+
+    private void forget(String key, Entry entry) {
+        lock.lock();
+        try {
+            entries.remove(key, entry);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void evictExpired(long now) {
+        // Recorded in expiry order, so everything past the first live entry is live too
+        Iterator<Map.Entry<String, Entry>> it = recorded.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Entry> eldest = it.next();
+            if (!eldest.getValue().isExpired(now)) {
+                return;
+            }
+            it.remove();
+            entries.remove(eldest.getKey(), eldest.getValue());
+        }
+    }
+
+    private void evictOldest() {
+        Iterator<Map.Entry<String, Entry>> it = recorded.entrySet().iterator();
+        while (entries.size() > maxEntries && it.hasNext()) {
+            Map.Entry<String, Entry> eldest = it.next();
+            it.remove();
+            entries.remove(eldest.getKey(), eldest.getValue());
+        }
+    }
+
+    int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static final class Entry {
+        private final String fingerprint;
+        private final CompletableFuture<Object> result = new CompletableFuture<>();
+        // In-flight entries never expire; set once the response is recorded
+        private long expiresAt = Long.MAX_VALUE;
+
+        Entry(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+
+        boolean isExpired(long now) {
+            return expiresAt != Long.MAX_VALUE && now - expiresAt >= 0;
+        }
+    }
+
+    public static class IdempotencyConflictException extends RuntimeException {
+        public IdempotencyConflictException(String message) {
+            super(message);
+        }
+    }
+
+    public static class IdempotencyKeyReusedException extends RuntimeException {
+        public IdempotencyKeyReusedException(String message) {
+            super(message);
+        }
+    }
+}
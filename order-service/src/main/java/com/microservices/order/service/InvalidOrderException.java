@@ -0,0 +1,13 @@
+package com.microservices.order.service;
+
+/**
+ * Thrown when a request can never succeed as sent, such as an order for an
+ * unknown product or a payment for an order that is not payable. Any other
+ * failure may be transient and is worth retrying.
+ */
+public class InvalidOrderException extends RuntimeException {
+
+    public InvalidOrderException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,76 @@
+package com.microservices.order.service;
+
+import com.microservices.order.dto.OrderResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Runs order payments in the background on a bounded worker pool.
+ *
+ * At most one payment job runs per order: a pay request for an order that
+ * already has a job in flight joins that job instead of starting another.
+ */
+@Service
+public class OrderPaymentDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderPaymentDispatcher.class);
+
+    private final OrderService orderService;
+    private final Executor paymentExecutor;
+    private final ConcurrentMap<String, CompletableFuture<OrderResponse>> inFlight = new ConcurrentHashMap<>();
+
+    public OrderPaymentDispatcher(OrderService orderService,
+                                  @Qualifier("orderPaymentExecutor") Executor paymentExecutor) {
+        this.orderService = orderService;
+        this.paymentExecutor = paymentExecutor;
+    }
+
+    /**
+     * Enqueues payment of an order, or returns the job already in flight for it.
+     *
+     * @throws RejectedExecutionException if the worker pool is saturated
+     */
+    public CompletableFuture<OrderResponse> submit(String orderId) {
+        CompletableFuture<OrderResponse> job = new CompletableFuture<>();
+        CompletableFuture<OrderResponse> existing = inFlight.putIfAbsent(orderId, job);
+        if (existing != null) {
+            return existing;
+        }
+
+        try {
+            paymentExecutor.execute(() -> run(orderId, job));
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(orderId, job);
+            job.completeExceptionally(e);
+            throw e;
+        }
+        return job;
+    }
+
+    /**
+     * Returns the payment job in flight for an order, or null if there is none.
+     */
+    public CompletableFuture<OrderResponse> inFlight(String orderId) {
+        return inFlight.get(orderId);
+    }
+
+    private void run(String orderId, CompletableFuture<OrderResponse> job) {
+        try {
+            job.complete(orderService.payOrder(orderId));
+        } catch (RuntimeException e) {
+            logger.warn("Asynchronous payment of order {} failed: {}", orderId, e.getMessage());
+            job.completeExceptionally(e);
+        } finally {
+            // A duplicate arriving before this removal just joins the finished job
+            inFlight.remove(orderId, job);
+        }
+    }
+}
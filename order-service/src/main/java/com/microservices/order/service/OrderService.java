@@ -1,175 +1,158 @@
 package com.microservices.order.service;
 
-import com.microservices.order.client.*;
+import com.microservices.order.client.ProductClient;
 import com.microservices.order.dto.CreateOrderRequest;
+import com.microservices.order.dto.OrderCursor;
+import com.microservices.order.dto.OrderFilter;
 import com.microservices.order.dto.OrderItemRequest;
+import com.microservices.order.dto.OrderPage;
 import com.microservices.order.dto.OrderResponse;
+import com.microservices.order.dto.OrderSummary;
 import com.microservices.order.entity.Order;
+import com.microservices.order.entity.OrderIds;
 import com.microservices.order.entity.OrderItem;
-import com.microservices.order.entity.OrderStatus;
+import com.microservices.order.metrics.OrderMetrics;
 import com.microservices.order.repository.OrderRepository;
+import com.microservices.order.resilience.DependencyUnavailableException;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.client.RestTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 public class OrderService {
 
     private final OrderRepository orderRepository;
-    private final RestTemplate restTemplate;
+    private final ProductClient productClient;
+    private final CheckoutSagaOrchestrator checkoutSagaOrchestrator;
+    private final DashboardTotals dashboardTotals;
+    private final OrderMetrics orderMetrics;
+    private final TopProducts topProducts;
 
-    @Value("${product-service.url:http://product-service}")
-    private String productServiceUrl;
+    @Value("${order.product-lookup.max-concurrency:16}")
+    private int productLookupConcurrency = 16;
 
-    @Value("${payment-service.url:http://payment-service}")
-    private String paymentServiceUrl;
+    @Value("${order.product-lookup.timeout-ms:5000}")
+    private long productLookupTimeoutMs = 5000;
 
-    @Value("${inventory-service.url:http://inventory-service}")
-    private String inventoryServiceUrl;
+    @Value("${order.listing.default-page-size:50}")
+    private int defaultPageSize = 50;
 
-    public OrderService(OrderRepository orderRepository, RestTemplate restTemplate) {
+    @Value("${order.listing.max-page-size:500}")
+    private int maxPageSize = 500;
+
+    public OrderService(OrderRepository orderRepository, ProductClient productClient,
+                        CheckoutSagaOrchestrator checkoutSagaOrchestrator, DashboardTotals dashboardTotals,
+                        OrderMetrics orderMetrics, TopProducts topProducts) {
         this.orderRepository = orderRepository;
-        this.restTemplate = restTemplate;
+        this.productClient = productClient;
+        this.checkoutSagaOrchestrator = checkoutSagaOrchestrator;
+        this.dashboardTotals = dashboardTotals;
+        this.orderMetrics = orderMetrics;
+        this.topProducts = topProducts;
     }
 
     @Transactional
     public OrderResponse createOrder(CreateOrderRequest request) {
         // Validate all products exist and get their info
-        List<OrderItem> orderItems = request.getItems().stream()
-                .map(this::validateAndCreateOrderItem)
-                .collect(Collectors.toList());
+        List<OrderItem> orderItems = validateAndCreateOrderItems(request.getItems());
 
         // Create order with CREATED status
         Order order = new Order(orderItems);
         Order savedOrder = orderRepository.save(order);
+        dashboardTotals.orderCreated(savedOrder);
+        AfterCommit.run(() -> {
+            orderMetrics.orderCreated();
+            topProducts.orderCreated(savedOrder);
+        });
 
         return new OrderResponse(savedOrder);
     }
 
-    private OrderItem validateAndCreateOrderItem(OrderItemRequest itemRequest) {
-        try {
-            // Call product-service to validate product exists
-            ProductResponse product = restTemplate.getForObject(
-                    productServiceUrl + "/products/sku/" + itemRequest.getProductSku(),
-                    ProductResponse.class
-            );
-
-            if (product == null) {
-                throw new RuntimeException("Product not found: " + itemRequest.getProductSku());
-            }
-
-            // Use price from product service if not provided
-            BigDecimal price = itemRequest.getPrice() != null ? 
-                    itemRequest.getPrice() : product.getPrice();
-
-            return new OrderItem(itemRequest.getProductSku(), itemRequest.getQuantity(), price);
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to validate product " + itemRequest.getProductSku() + ": " + e.getMessage());
-        }
+    /**
+     * Looks up up to max-concurrency order lines at once without holding a
+     * thread per lookup, and returns the items in request order. The whole
+     * batch shares a single deadline; the first failing line (in request
+     * order) is reported, just as with sequential validation.
+     */
+    private List<OrderItem> validateAndCreateOrderItems(List<OrderItemRequest> itemRequests) {
+        return Flux.fromIterable(itemRequests)
+                .flatMapSequential(this::validateAndCreateOrderItem, productLookupConcurrency)
+                .collectList()
+                .timeout(Duration.ofMillis(productLookupTimeoutMs), Mono.error(() -> new RuntimeException(
+                        "Product validation timed out after " + productLookupTimeoutMs + " ms")))
+                .block();
     }
 
-    @Transactional
-    public OrderResponse payOrder(String orderId) {
-        Order order = orderRepository.findById(orderId)
-                .orElseThrow(() -> new RuntimeException("Order not found: " + orderId));
-
-        if (order.getStatus() != OrderStatus.CREATED) {
-            throw new RuntimeException("Order cannot be paid. Current status: " + order.getStatus());
-        }
-
-        // Process payment
-        PaymentRequest paymentRequest = new PaymentRequest(
-                orderId,
-                order.getTotalAmount(),
-                "CREDIT_CARD"
-        );
-
-        try {
-            PaymentResponse paymentResponse = restTemplate.postForObject(
-                    paymentServiceUrl + "/payments",
-                    paymentRequest,
-                    PaymentResponse.class
-            );
-
-            if (paymentResponse == null) {
-                throw new RuntimeException("Payment processing failed");
-            }
-
-            order.setPaymentId(paymentResponse.getId().toString());
-
-            // Check payment status
-            if ("SUCCESS".equals(paymentResponse.getStatus())) {
-                // Attempt to deduct stock
-                boolean stockDeducted = deductStockForOrder(order);
-
-                if (stockDeducted) {
-                    order.setStatus(OrderStatus.PAID);
-                } else {
-                    // Stock deduction failed - cancel order
-                    order.setStatus(OrderStatus.CANCELLED);
-                    order.setCancellationReason("Insufficient inventory to fulfill order");
-                }
-            } else {
-                // Payment failed - cancel order
-                order.setStatus(OrderStatus.CANCELLED);
-                order.setCancellationReason("Payment failed");
-            }
-
-            Order updatedOrder = orderRepository.save(order);
-            return new OrderResponse(updatedOrder);
-
-        } catch (Exception e) {
-            throw new RuntimeException("Payment processing error: " + e.getMessage());
-        }
+    private Mono<OrderItem> validateAndCreateOrderItem(OrderItemRequest itemRequest) {
+        String sku = itemRequest.getProductSku();
+        return productClient.getProductBySku(sku)
+                .switchIfEmpty(Mono.error(() -> new InvalidOrderException("Product not found: " + sku)))
+                .map(product -> {
+                    // Use price from product service if not provided
+                    BigDecimal price = itemRequest.getPrice() != null ?
+                            itemRequest.getPrice() : product.getPrice();
+                    return new OrderItem(sku, itemRequest.getQuantity(), price);
+                })
+                .onErrorMap(e -> !(e instanceof DependencyUnavailableException), e -> {
+                    String message = "Failed to validate product " + sku + ": " + e.getMessage();
+                    return e instanceof InvalidOrderException || e instanceof IllegalArgumentException
+                            ? new InvalidOrderException(message) : new RuntimeException(message);
+                });
     }
 
-    private boolean deductStockForOrder(Order order) {
-        try {
-            for (OrderItem item : order.getItems()) {
-                // Get current inventory
-                InventoryResponse inventory = restTemplate.getForObject(
-                        inventoryServiceUrl + "/inventory/" + item.getProductSku(),
-                        InventoryResponse.class
-                );
-
-                if (inventory == null) {
-                    throw new RuntimeException("Inventory not found for SKU: " + item.getProductSku());
-                }
-
-                // Check if sufficient stock available
-                if (inventory.getAvailable() < item.getQuantity()) {
-                    return false; // Insufficient stock
-                }
-
-                // Deduct stock
-                restTemplate.put(
-                        inventoryServiceUrl + "/inventory/" + item.getProductSku() + "/deduct?quantity=" + item.getQuantity(),
-                        null
-                );
-            }
-            return true;
-        } catch (Exception e) {
-            // If any stock deduction fails, return false
-            return false;
-        }
+    /**
+     * Pays for an order by running the checkout saga (reserve stock, charge,
+     * confirm, with compensation on failure). No database transaction is held
+     * across the remote calls; see {@link CheckoutSagaOrchestrator}.
+     */
+    public OrderResponse payOrder(String orderId) {
+        return checkoutSagaOrchestrator.checkout(orderId);
     }
 
     @Transactional(readOnly = true)
     public OrderResponse getOrder(String orderId) {
-        Order order = orderRepository.findById(orderId)
+        Order order = OrderIds.parse(orderId)
+                .flatMap(orderRepository::findWithItemsById)
                 .orElseThrow(() -> new RuntimeException("Order not found: " + orderId));
         return new OrderResponse(order);
     }
 
+    /**
+     * Resolves one page of the order listing, newest first. Only the page
+     * boundaries are read here; the orders themselves are streamed by
+     * {@link #forEachOrder}.
+     *
+     * @param cursor the next cursor of the previous page, or null for the first page
+     * @param limit  page size, defaulted when null and capped at the maximum
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
     @Transactional(readOnly = true)
-    public List<OrderResponse> getAllOrders() {
-        return orderRepository.findAll().stream()
-                .map(OrderResponse::new)
-                .collect(Collectors.toList());
+    public OrderPage findOrders(OrderFilter filter, String cursor, Integer limit) {
+        int pageSize = limit == null ? defaultPageSize : Math.min(Math.max(limit, 1), maxPageSize);
+        OrderCursor after = cursor == null ? null : OrderCursor.decode(cursor);
+        OrderCursor next = orderRepository.findPageEnd(filter, after, pageSize).orElse(null);
+        return new OrderPage(filter, after, pageSize, next);
+    }
+
+    /**
+     * Hands summaries of the orders of a page to action one at a time, as
+     * they are read, so no more than one order is held in memory.
+     */
+    @Transactional(readOnly = true)
+    public void forEachOrder(OrderPage page, Consumer<OrderSummary> action) {
+        // Bounded by the page end rather than a row count, so orders created since
+        // findOrders cannot push rows of this page past the next cursor unseen
+        try (Stream<OrderSummary> orders =
+                     orderRepository.streamPage(page.getFilter(), page.getAfter(), page.getNextCursor())) {
+            orders.forEach(action);
+        }
     }
 }
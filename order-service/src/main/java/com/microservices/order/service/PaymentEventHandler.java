@@ -0,0 +1,71 @@
+package com.microservices.order.service;
+
+import com.microservices.order.client.PaymentStatusEvent;
+import com.microservices.order.entity.CheckoutSaga;
+import com.microservices.order.entity.SagaState;
+import com.microservices.order.repository.CheckoutSagaRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Reacts to payment status changes pushed by payment-service. A checkout
+ * that gave up waiting for the gateway is resumed as soon as its charge
+ * settles, rather than on the recovery worker's next pass. Resuming calls
+ * other services, so it runs on the payment worker pool and the delivery
+ * is acknowledged without waiting for it.
+ *
+ * Events arrive at least once, in order per order. Handling one twice is
+ * harmless: resuming skips sagas that have moved on.
+ */
+@Service
+public class PaymentEventHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(PaymentEventHandler.class);
+
+    private final CheckoutSagaRepository sagaRepository;
+    private final CheckoutSagaOrchestrator orchestrator;
+    private final Executor resumeExecutor;
+
+    public PaymentEventHandler(CheckoutSagaRepository sagaRepository, CheckoutSagaOrchestrator orchestrator,
+                               @Qualifier("orderPaymentExecutor") Executor resumeExecutor) {
+        this.sagaRepository = sagaRepository;
+        this.orchestrator = orchestrator;
+        this.resumeExecutor = resumeExecutor;
+    }
+
+    public void handle(List<PaymentStatusEvent> events) {
+        for (PaymentStatusEvent event : events) {
+            if ("PENDING".equals(event.getStatus())) {
+                continue;
+            }
+            CheckoutSaga saga = sagaRepository.findById(event.getOrderId()).orElse(null);
+            // Only sagas left for recovery; one still being driven polls for the outcome itself
+            if (saga == null || saga.getState() != SagaState.CHARGING || saga.getLastError() == null) {
+                continue;
+            }
+            try {
+                resumeExecutor.execute(() -> resume(saga, event));
+            } catch (RejectedExecutionException e) {
+                logger.debug("Payment workers busy; checkout saga for order {} left for recovery", saga.getOrderId());
+            }
+        }
+    }
+
+    private void resume(CheckoutSaga saga, PaymentStatusEvent event) {
+        try {
+            if (orchestrator.resume(saga)) {
+                logger.info("Resumed checkout saga for order {} after payment {} became {}",
+                        saga.getOrderId(), event.getPaymentId(), event.getStatus());
+            }
+        } catch (RuntimeException e) {
+            // The recovery worker tries again later
+            logger.warn("Checkout saga for order {} still failing: {}", saga.getOrderId(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.microservices.order.service;
+
+import com.microservices.order.dto.ProductOrderCount;
+import com.microservices.order.entity.Order;
+import com.microservices.order.entity.OrderItem;
+import com.microservices.order.entity.ProductOrderTotal;
+import com.microservices.order.metrics.SpaceSaving;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * The ten products in the most orders and in the largest quantity.
+ *
+ * By default these are read exactly from the running totals kept by
+ * {@link DashboardTotals}. With order.dashboard.top-products.approximate
+ * set they come from two in-memory {@link SpaceSaving} summaries fed as
+ * orders are created, which needs no database read at all; each count may
+ * then overstate the truth by up to the total seen divided by the
+ * capacity. The summaries cover only orders created by this instance since
+ * it started, and are fed once an order's transaction has committed; the
+ * exact product totals are then not kept at all.
+ */
+@Service
+public class TopProducts {
+
+    private static final int TOP = 10;
+
+    private final DashboardTotals dashboardTotals;
+    private final boolean approximate;
+    private final SpaceSaving<String> byOrderCount;
+    private final SpaceSaving<String> byQuantity;
+
+    public TopProducts(DashboardTotals dashboardTotals,
+                       @Value("${order.dashboard.top-products.approximate:false}") boolean approximate,
+                       @Value("${order.dashboard.top-products.capacity:1000}") int capacity) {
+        this.dashboardTotals = dashboardTotals;
+        this.approximate = approximate;
+        this.byOrderCount = new SpaceSaving<>(capacity);
+        this.byQuantity = new SpaceSaving<>(capacity);
+    }
+
+    public void orderCreated(Order order) {
+        if (!approximate) {
+            return;
+        }
+        // A product on several lines still counts as one order
+        Map<String, Long> quantities = new TreeMap<>();
+        for (OrderItem item : order.getItems()) {
+            quantities.merge(item.getProductSku(), item.getQuantity().longValue(), Long::sum);
+        }
+        quantities.forEach((sku, quantity) -> {
+            byOrderCount.add(sku, 1);
+            byQuantity.add(sku, quantity);
+        });
+    }
+
+    public List<ProductOrderCount> byOrderCount() {
+        if (!approximate) {
+            return toCounts(dashboardTotals.topProducts());
+        }
+        return byOrderCount.top(TOP).stream()
+                .map(entry -> new ProductOrderCount(entry.getKey(), entry.getCount(),
+                        countOf(byQuantity.get(entry.getKey()))))
+                .collect(Collectors.toList());
+    }
+
+    public List<ProductOrderCount> byQuantity() {
+        if (!approximate) {
+            return toCounts(dashboardTotals.topProductsByQuantity());
+        }
+        return byQuantity.top(TOP).stream()
+                .map(entry -> new ProductOrderCount(entry.getKey(),
+                        countOf(byOrderCount.get(entry.getKey())), entry.getCount()))
+                .collect(Collectors.toList());
+    }
+
+    public boolean isApproximate() {
+        return approximate;
+    }
+
+    /**
+     * The most an order count may be overstated by; 0 when exact.
+     */
+    public long maxOrderCountError() {
+        return approximate ? byOrderCount.maxError() : 0;
+    }
+
+    /**
+     * The most a quantity may be overstated by; 0 when exact.
+     */
+    public long maxQuantityError() {
+        return approximate ? byQuantity.maxError() : 0;
+    }
+
+    private static List<ProductOrderCount> toCounts(List<ProductOrderTotal> totals) {
+        return totals.stream()
+                .map(total -> new ProductOrderCount(
+                        total.getProductSku(),
+                        total.getOrderCount(),
+                        total.getTotalQuantity()
+                ))
+                .collect(Collectors.toList());
+    }
+
+    // The other summary may have evicted the product; show its figure as unknown
+    private static Long countOf(SpaceSaving.Entry<String> entry) {
+        return entry == null ? null : entry.getCount();
+    }
+}
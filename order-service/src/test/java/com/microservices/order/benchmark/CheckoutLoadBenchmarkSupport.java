@@ -0,0 +1,137 @@
+package com.microservices.order.benchmark;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import com.microservices.order.entity.Order;
+import com.microservices.order.entity.OrderItem;
+import com.microservices.order.repository.OrderRepository;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Fires a burst of concurrent checkouts (POST /orders/{id}/pay) at a running
+ * order-service whose downstream services answer after a fixed delay, and
+ * reports throughput and latency percentiles. Subclasses pick the thread mode.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+abstract class CheckoutLoadBenchmarkSupport {
+
+    static final int CONCURRENT_CHECKOUTS = 5000;
+    private static final int DOWNSTREAM_LATENCY_MS = 50;
+    private static final String SKU = "LOAD-BENCH-001";
+
+    private static WireMockServer productServiceMock;
+    private static WireMockServer inventoryServiceMock;
+    private static WireMockServer paymentServiceMock;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @BeforeAll
+    static void startDownstreamServices() {
+        productServiceMock = new WireMockServer(WireMockConfiguration.options().dynamicPort());
+        inventoryServiceMock = new WireMockServer(WireMockConfiguration.options().dynamicPort().containerThreads(1000));
+        paymentServiceMock = new WireMockServer(WireMockConfiguration.options().dynamicPort().containerThreads(1000));
+        productServiceMock.start();
+        inventoryServiceMock.start();
+        paymentServiceMock.start();
+
+        System.setProperty("wiremock.product.port", String.valueOf(productServiceMock.port()));
+        System.setProperty("wiremock.inventory.port", String.valueOf(inventoryServiceMock.port()));
+        System.setProperty("wiremock.payment.port", String.valueOf(paymentServiceMock.port()));
+
+        inventoryServiceMock.stubFor(get(urlEqualTo("/inventory/" + SKU))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withFixedDelay(DOWNSTREAM_LATENCY_MS)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{\"productSku\": \"" + SKU + "\", \"available\": 100000000}")));
+        inventoryServiceMock.stubFor(put(urlMatching("/inventory/" + SKU + "/(deduct|release).*"))
+                .willReturn(aResponse().withStatus(200).withFixedDelay(DOWNSTREAM_LATENCY_MS)));
+        paymentServiceMock.stubFor(post(urlEqualTo("/payments/process"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withFixedDelay(DOWNSTREAM_LATENCY_MS)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{\"id\": 1, \"status\": \"SUCCESS\"}")));
+    }
+
+    @AfterAll
+    static void stopDownstreamServices() {
+        productServiceMock.stop();
+        inventoryServiceMock.stop();
+        paymentServiceMock.stop();
+    }
+
+    abstract String mode();
+
+    @Test
+    void concurrentCheckouts() throws Exception {
+        List<Order> orders = new ArrayList<>(CONCURRENT_CHECKOUTS);
+        for (int i = 0; i < CONCURRENT_CHECKOUTS; i++) {
+            orders.add(new Order(new ArrayList<>(List.of(new OrderItem(SKU, 1, new BigDecimal("10.00"))))));
+        }
+        List<Order> saved = orderRepository.saveAll(orders);
+
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(30))
+                .build();
+
+        long start = System.nanoTime();
+        List<CompletableFuture<Long>> latencies = new ArrayList<>(CONCURRENT_CHECKOUTS);
+        for (Order order : saved) {
+            HttpRequest request = HttpRequest.newBuilder(
+                            URI.create("http://localhost:" + port + "/orders/" + order.getId() + "/pay"))
+                    .POST(HttpRequest.BodyPublishers.noBody())
+                    .timeout(Duration.ofMinutes(5))
+                    .build();
+            long sent = System.nanoTime();
+            latencies.add(client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .thenApply(response -> response.statusCode() == 200 ? System.nanoTime() - sent : -1L));
+        }
+
+        long[] samples = new long[CONCURRENT_CHECKOUTS];
+        int succeeded = 0;
+        for (int i = 0; i < CONCURRENT_CHECKOUTS; i++) {
+            samples[i] = latencies.get(i).get(10, TimeUnit.MINUTES);
+            if (samples[i] >= 0) {
+                succeeded++;
+            }
+        }
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        Arrays.sort(samples);
+
+        System.out.printf("%-18s checkouts=%d ok=%d elapsed=%d ms throughput=%.0f/s p50=%d ms p99=%d ms%n",
+                mode(), CONCURRENT_CHECKOUTS, succeeded, elapsedMs,
+                CONCURRENT_CHECKOUTS * 1000.0 / elapsedMs,
+                TimeUnit.NANOSECONDS.toMillis(samples[CONCURRENT_CHECKOUTS / 2]),
+                TimeUnit.NANOSECONDS.toMillis(samples[CONCURRENT_CHECKOUTS * 99 / 100]));
+
+        assertEquals(CONCURRENT_CHECKOUTS, succeeded, "Every checkout should complete");
+    }
+}
@@ -0,0 +1,119 @@
+package com.microservices.order.benchmark;
+
+import com.microservices.order.entity.OrderIds;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Insert throughput and on-disk size of the orders and order_items tables
+ * for three primary key schemes: random UUID strings (the previous scheme),
+ * random UUIDs in a native uuid column, and the time-ordered version 7
+ * UUIDs now issued by OrderIds. Each scheme gets its own file-backed H2
+ * database; every order has one item referencing it.
+ *
+ * Run with: mvn test -Pbenchmark -Dtest=OrderIdStorageBenchmarkTest
+ * (-Dbenchmark.orders=10000000 for the full 10M-order run)
+ */
+@Tag("benchmark")
+class OrderIdStorageBenchmarkTest {
+
+    private static final int ORDERS = Integer.getInteger("benchmark.orders", 1_000_000);
+    private static final int BATCH_SIZE = 1_000;
+
+    @TempDir
+    Path dataDir;
+
+    @Test
+    void insertThroughputAndSizeByIdScheme() throws SQLException {
+        List<Result> results = new ArrayList<>();
+        results.add(run("random-varchar", "VARCHAR(36)", () -> UUID.randomUUID().toString()));
+        results.add(run("random-uuid", "UUID", UUID::randomUUID));
+        results.add(run("uuid-v7", "UUID", OrderIds::next));
+
+        System.out.printf("%-16s %10s %14s %12s%n", "scheme", "orders", "inserts/s", "size (MB)");
+        for (Result result : results) {
+            System.out.printf("%-16s %10d %14.0f %12.1f%n", result.scheme, ORDERS,
+                    ORDERS * 1000.0 / result.elapsedMs, result.sizeBytes / (1024.0 * 1024.0));
+        }
+
+        Result before = results.get(0);
+        Result after = results.get(2);
+        assertTrue(after.sizeBytes < before.sizeBytes,
+                "Time-ordered native UUIDs should take less space than random UUID strings");
+    }
+
+    private Result run(String scheme, String idType, Supplier<Object> ids) throws SQLException {
+        String url = "jdbc:h2:file:" + dataDir.resolve(scheme).toAbsolutePath();
+        try (Connection connection = DriverManager.getConnection(url, "sa", "")) {
+            try (Statement ddl = connection.createStatement()) {
+                ddl.execute("CREATE TABLE orders (id " + idType + " PRIMARY KEY, status VARCHAR(32) NOT NULL, "
+                        + "total_amount_minor BIGINT NOT NULL, created_at TIMESTAMP WITH TIME ZONE NOT NULL)");
+                ddl.execute("CREATE TABLE order_items (order_id " + idType + " NOT NULL REFERENCES orders(id), "
+                        + "product_sku VARCHAR(255) NOT NULL, quantity INT NOT NULL, price NUMERIC(38, 2) NOT NULL, "
+                        + "line_total_minor BIGINT NOT NULL)");
+            }
+            connection.setAutoCommit(false);
+
+            long start = System.nanoTime();
+            try (PreparedStatement order = connection.prepareStatement(
+                         "INSERT INTO orders (id, status, total_amount_minor, created_at) "
+                                 + "VALUES (?, 'CREATED', 1999, CURRENT_TIMESTAMP)");
+                 PreparedStatement item = connection.prepareStatement(
+                         "INSERT INTO order_items (order_id, product_sku, quantity, price, line_total_minor) "
+                                 + "VALUES (?, 'BENCH-001', 1, 19.99, 1999)")) {
+                for (int i = 1; i <= ORDERS; i++) {
+                    Object id = ids.get();
+                    order.setObject(1, id);
+                    order.addBatch();
+                    item.setObject(1, id);
+                    item.addBatch();
+                    if (i % BATCH_SIZE == 0 || i == ORDERS) {
+                        order.executeBatch();
+                        item.executeBatch();
+                        connection.commit();
+                    }
+                }
+            }
+            long elapsedMs = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+            return new Result(scheme, elapsedMs, diskSpaceUsed(connection, "ORDERS")
+                    + diskSpaceUsed(connection, "ORDER_ITEMS"));
+        }
+    }
+
+    private static long diskSpaceUsed(Connection connection, String table) throws SQLException {
+        try (Statement query = connection.createStatement();
+             ResultSet rs = query.executeQuery("SELECT DISK_SPACE_USED('" + table + "')")) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private static final class Result {
+        final String scheme;
+        final long elapsedMs;
+        final long sizeBytes;
+
+        Result(String scheme, long elapsedMs, long sizeBytes) {
+            this.scheme = scheme;
+            this.elapsedMs = elapsedMs;
+            this.sizeBytes = sizeBytes;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.microservices.order.benchmark;
+
+import com.microservices.order.dto.OrderResponse;
+import com.microservices.order.entity.Order;
+import com.microservices.order.entity.OrderItem;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Cost of mapping orders to OrderResponse when the total is read from the
+ * stored minor-unit column, against recomputing it from the items with
+ * BigDecimal arithmetic on every mapping as before.
+ *
+ * Run with: mvn test -Pbenchmark -Dtest=OrderResponseMappingBenchmarkTest
+ */
+@Tag("benchmark")
+class OrderResponseMappingBenchmarkTest {
+
+    private static final int ORDERS = 10_000;
+    private static final int WARMUP_ROUNDS = 20;
+    private static final int MEASURED_ROUNDS = 20;
+
+    // Keeps the JIT from discarding the mapped results
+    private static volatile long sink;
+
+    @Test
+    void responseMappingByLineCount() {
+        System.out.printf("%-8s %20s %20s%n", "lines", "recomputed (ns/op)", "stored (ns/op)");
+        for (int lines : Arrays.asList(1, 10, 50)) {
+            List<Order> orders = ordersWithLines(lines);
+            assertEquals(0, recomputedTotal(orders.get(0)).compareTo(orders.get(0).getTotalAmount()));
+
+            double recomputedNs = nanosPerOrder(orders, true);
+            double storedNs = nanosPerOrder(orders, false);
+            System.out.printf("%-8d %20.1f %20.1f%n", lines, recomputedNs, storedNs);
+
+            if (lines == 50) {
+                assertTrue(storedNs < recomputedNs,
+                        "Reading the stored total should beat recomputing it for 50-line orders");
+            }
+        }
+    }
+
+    private static double nanosPerOrder(List<Order> orders, boolean recompute) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            mapAll(orders, recompute);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            mapAll(orders, recompute);
+        }
+        return (double) (System.nanoTime() - start) / ((long) MEASURED_ROUNDS * orders.size());
+    }
+
+    private static void mapAll(List<Order> orders, boolean recompute) {
+        long checksum = 0;
+        for (Order order : orders) {
+            OrderResponse response = new OrderResponse(order);
+            if (recompute) {
+                response.setTotalAmount(recomputedTotal(order));
+            }
+            checksum += response.getTotalAmount().unscaledValue().longValue();
+        }
+        sink = checksum;
+    }
+
+    // What Order.getTotalAmount() did before totals were stored
+    private static BigDecimal recomputedTotal(Order order) {
+        return order.getItems().stream()
+                .map(item -> item.getPrice().multiply(new BigDecimal(item.getQuantity())))
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    private static List<Order> ordersWithLines(int lines) {
+        List<Order> orders = new ArrayList<>(ORDERS);
+        for (int i = 0; i < ORDERS; i++) {
+            Order order = new Order();
+            for (int line = 0; line < lines; line++) {
+                order.addItem(new OrderItem("BENCH-" + line, 1 + line % 5, new BigDecimal("19.99")));
+            }
+            orders.add(order);
+        }
+        return orders;
+    }
+}
@@ -0,0 +1,176 @@
+package com.microservices.order.benchmark;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import com.microservices.order.entity.Order;
+import com.microservices.order.entity.OrderItem;
+import com.microservices.order.repository.OrderRepository;
+import com.microservices.order.service.OrderService;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Connection pool load test for payOrder against a slow payment-service.
+ *
+ * "Before" reproduces the old behaviour by running payOrder inside an outer
+ * transaction, which pins a pooled connection for the whole payment round trip.
+ * "After" calls payOrder directly, so connections are only borrowed for the
+ * short load and update transactions.
+ *
+ * Run with: mvn test -Pbenchmark -Dtest=PaymentPoolSaturationBenchmarkTest
+ */
+@Tag("benchmark")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("test")
+@TestPropertySource(properties = {
+        "spring.datasource.hikari.maximum-pool-size=4",
+        "spring.datasource.hikari.connection-timeout=60000"
+})
+class PaymentPoolSaturationBenchmarkTest {
+
+    private static final int PAYMENT_LATENCY_MS = 250;
+    private static final int CONCURRENT_PAYMENTS = 32;
+    private static final String SKU = "POOL-BENCH-001";
+
+    private static WireMockServer productServiceMock;
+    private static WireMockServer inventoryServiceMock;
+    private static WireMockServer paymentServiceMock;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @BeforeAll
+    static void startDownstreamServices() {
+        productServiceMock = new WireMockServer(WireMockConfiguration.options().dynamicPort());
+        inventoryServiceMock = new WireMockServer(WireMockConfiguration.options().dynamicPort().containerThreads(100));
+        paymentServiceMock = new WireMockServer(WireMockConfiguration.options().dynamicPort().containerThreads(100));
+        productServiceMock.start();
+        inventoryServiceMock.start();
+        paymentServiceMock.start();
+
+        System.setProperty("wiremock.product.port", String.valueOf(productServiceMock.port()));
+        System.setProperty("wiremock.inventory.port", String.valueOf(inventoryServiceMock.port()));
+        System.setProperty("wiremock.payment.port", String.valueOf(paymentServiceMock.port()));
+
+        paymentServiceMock.stubFor(post(urlEqualTo("/payments/process"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withFixedDelay(PAYMENT_LATENCY_MS)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{\"id\": 1, \"status\": \"SUCCESS\"}")));
+        inventoryServiceMock.stubFor(get(urlEqualTo("/inventory/" + SKU))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{\"productSku\": \"" + SKU + "\", \"available\": 1000000}")));
+        inventoryServiceMock.stubFor(put(urlMatching("/inventory/" + SKU + "/(deduct|release).*"))
+                .willReturn(aResponse().withStatus(200)));
+    }
+
+    @AfterAll
+    static void stopDownstreamServices() {
+        productServiceMock.stop();
+        inventoryServiceMock.stop();
+        paymentServiceMock.stop();
+    }
+
+    @Test
+    void poolSaturationBeforeAndAfter() throws Exception {
+        PoolUsage before = run("before (remote calls inside transaction)",
+                orderId -> transactionTemplate.executeWithoutResult(status -> orderService.payOrder(orderId)));
+        PoolUsage after = run("after (remote calls outside transaction)", orderService::payOrder);
+
+        assertTrue(after.maxThreadsAwaiting <= before.maxThreadsAwaiting,
+                "Callers should wait less for connections once remote calls leave the transaction");
+    }
+
+    private PoolUsage run(String label, Consumer<String> payOrder) throws Exception {
+        List<String> orderIds = new ArrayList<>();
+        for (int i = 0; i < CONCURRENT_PAYMENTS; i++) {
+            Order order = new Order(new ArrayList<>(List.of(new OrderItem(SKU, 1, new BigDecimal("10.00")))));
+            orderIds.add(orderRepository.save(order).getId());
+        }
+
+        HikariPoolMXBean pool = ((HikariDataSource) dataSource).getHikariPoolMXBean();
+        AtomicBoolean sampling = new AtomicBoolean(true);
+        AtomicInteger maxActive = new AtomicInteger();
+        AtomicInteger maxAwaiting = new AtomicInteger();
+        Thread sampler = new Thread(() -> {
+            while (sampling.get()) {
+                maxActive.accumulateAndGet(pool.getActiveConnections(), Math::max);
+                maxAwaiting.accumulateAndGet(pool.getThreadsAwaitingConnection(), Math::max);
+                try {
+                    Thread.sleep(2);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+        sampler.start();
+
+        ExecutorService callers = Executors.newFixedThreadPool(CONCURRENT_PAYMENTS);
+        long start = System.nanoTime();
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (String orderId : orderIds) {
+                results.add(callers.submit(() -> payOrder.accept(orderId)));
+            }
+            for (Future<?> result : results) {
+                result.get(2, TimeUnit.MINUTES);
+            }
+        } finally {
+            callers.shutdownNow();
+            sampling.set(false);
+            sampler.join();
+        }
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        PoolUsage usage = new PoolUsage(maxActive.get(), maxAwaiting.get());
+        System.out.printf("%-42s elapsed=%6d ms  maxActive=%3d  maxThreadsAwaiting=%3d%n",
+                label, elapsedMs, usage.maxActive, usage.maxThreadsAwaiting);
+        return usage;
+    }
+
+    private static class PoolUsage {
+        private final int maxActive;
+        private final int maxThreadsAwaiting;
+
+        PoolUsage(int maxActive, int maxThreadsAwaiting) {
+            this.maxActive = maxActive;
+            this.maxThreadsAwaiting = maxThreadsAwaiting;
+        }
+    }
+}
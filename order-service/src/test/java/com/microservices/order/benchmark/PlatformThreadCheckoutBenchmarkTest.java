@@ -0,0 +1,19 @@
+package com.microservices.order.benchmark;
+
+import org.junit.jupiter.api.Tag;
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Checkout load test with Tomcat's default platform worker pool.
+ *
+ * Run with: mvn test -Pbenchmark -Dtest='*ThreadCheckoutBenchmarkTest'
+ */
+@Tag("benchmark")
+@TestPropertySource(properties = "spring.threads.virtual.enabled=false")
+class PlatformThreadCheckoutBenchmarkTest extends CheckoutLoadBenchmarkSupport {
+
+    @Override
+    String mode() {
+        return "platform threads";
+    }
+}
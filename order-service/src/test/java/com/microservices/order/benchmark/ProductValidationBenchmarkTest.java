@@ -0,0 +1,131 @@
+package com.microservices.order.benchmark;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import com.microservices.order.client.ProductClient;
+import com.microservices.order.config.DownstreamWebClients;
+import com.microservices.order.config.HttpClientProperties;
+import com.microservices.order.dto.CreateOrderRequest;
+import com.microservices.order.dto.OrderItemRequest;
+import com.microservices.order.entity.Order;
+import com.microservices.order.metrics.OrderMetrics;
+import com.microservices.order.repository.OrderRepository;
+import com.microservices.order.resilience.DependencyGuards;
+import com.microservices.order.resilience.ResilienceProperties;
+import com.microservices.order.service.CheckoutSagaOrchestrator;
+import com.microservices.order.service.DashboardTotals;
+import com.microservices.order.service.OrderService;
+import com.microservices.order.service.TopProducts;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Order creation latency against a stubbed product-service that answers
+ * every SKU lookup after a fixed delay. Compares sequential validation
+ * (one lookup at a time) with the concurrent fan-out.
+ *
+ * Run with: mvn test -Pbenchmark -Dtest=ProductValidationBenchmarkTest
+ */
+@Tag("benchmark")
+class ProductValidationBenchmarkTest {
+
+    private static final int PRODUCT_LATENCY_MS = 20;
+    private static final int ITERATIONS = 10;
+
+    private static WireMockServer productServiceMock;
+    private static DownstreamWebClients webClients;
+
+    @BeforeAll
+    static void startProductService() {
+        productServiceMock = new WireMockServer(WireMockConfiguration.options()
+                .dynamicPort()
+                .containerThreads(150));
+        productServiceMock.start();
+        productServiceMock.stubFor(get(urlPathMatching("/products/sku/.*"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withFixedDelay(PRODUCT_LATENCY_MS)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{\"id\": 1, \"sku\": \"BENCH\", \"price\": 10.00}")));
+
+        webClients = new DownstreamWebClients(WebClient.builder(), new HttpClientProperties());
+    }
+
+    @AfterAll
+    static void stopProductService() {
+        webClients.destroy();
+        productServiceMock.stop();
+    }
+
+    @Test
+    void orderCreationLatencyByLineCount() {
+        OrderService sequential = newOrderService(1);
+        OrderService concurrent = newOrderService(16);
+
+        System.out.printf("%-8s %16s %16s%n", "lines", "sequential (ms)", "concurrent (ms)");
+        long sequentialLargest = 0;
+        long concurrentLargest = 0;
+        for (int lines : Arrays.asList(1, 10, 100)) {
+            CreateOrderRequest request = orderWithLines(lines);
+            long sequentialMs = medianLatencyMs(sequential, request);
+            long concurrentMs = medianLatencyMs(concurrent, request);
+            System.out.printf("%-8d %16d %16d%n", lines, sequentialMs, concurrentMs);
+            sequentialLargest = sequentialMs;
+            concurrentLargest = concurrentMs;
+        }
+
+        assertTrue(concurrentLargest < sequentialLargest,
+                "Concurrent validation should beat sequential validation for 100-line orders");
+    }
+
+    private OrderService newOrderService(int maxConcurrency) {
+        OrderRepository orderRepository = mock(OrderRepository.class);
+        when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        ProductClient productClient = new ProductClient(webClients,
+                new DependencyGuards(new ResilienceProperties(), new SimpleMeterRegistry()),
+                productServiceMock.baseUrl());
+        OrderService orderService = new OrderService(orderRepository, productClient,
+                mock(CheckoutSagaOrchestrator.class), mock(DashboardTotals.class), new OrderMetrics(),
+                mock(TopProducts.class));
+        ReflectionTestUtils.setField(orderService, "productLookupConcurrency", maxConcurrency);
+        ReflectionTestUtils.setField(orderService, "productLookupTimeoutMs", 30_000L);
+        return orderService;
+    }
+
+    private static CreateOrderRequest orderWithLines(int lines) {
+        List<OrderItemRequest> items = new ArrayList<>(lines);
+        for (int i = 0; i < lines; i++) {
+            items.add(new OrderItemRequest("BENCH-" + i, 1, null));
+        }
+        return new CreateOrderRequest(items);
+    }
+
+    private static long medianLatencyMs(OrderService orderService, CreateOrderRequest request) {
+        orderService.createOrder(request); // warm-up
+        long[] samples = new long[ITERATIONS];
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = System.nanoTime();
+            orderService.createOrder(request);
+            samples[i] = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        }
+        Arrays.sort(samples);
+        return samples[ITERATIONS / 2];
+    }
+}
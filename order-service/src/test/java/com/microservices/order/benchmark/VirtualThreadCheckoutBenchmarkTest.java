@@ -0,0 +1,25 @@
+package com.microservices.order.benchmark;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Checkout load test with requests served on virtual threads; needs Java 21.
+ *
+ * Run with: mvn test -Pbenchmark -Dtest='*ThreadCheckoutBenchmarkTest'
+ */
+@Tag("benchmark")
+@EnabledIf("virtualThreadsSupported")
+@TestPropertySource(properties = "spring.threads.virtual.enabled=true")
+class VirtualThreadCheckoutBenchmarkTest extends CheckoutLoadBenchmarkSupport {
+
+    static boolean virtualThreadsSupported() {
+        return Runtime.version().feature() >= 21;
+    }
+
+    @Override
+    String mode() {
+        return "virtual threads";
+    }
+}
@@ -2,29 +2,51 @@ package com.microservices.order.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.microservices.order.dto.CreateOrderRequest;
+import com.microservices.order.dto.OrderCursor;
+import com.microservices.order.dto.OrderFilter;
 import com.microservices.order.dto.OrderItemRequest;
+import com.microservices.order.dto.OrderPage;
 import com.microservices.order.dto.OrderResponse;
+import com.microservices.order.dto.OrderSummary;
 import com.microservices.order.entity.OrderStatus;
+import com.microservices.order.service.IdempotencyStore;
+import com.microservices.order.service.InvalidOrderException;
+import com.microservices.order.service.OrderPaymentDispatcher;
 import com.microservices.order.service.OrderService;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.math.BigDecimal;
 import java.time.Instant;
 import java.util.Arrays;
-import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
 
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.endsWith;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(OrderController.class)
+@Import(IdempotencyStore.class)
 class OrderControllerTest {
 
     @Autowired
@@ -36,6 +58,9 @@ class OrderControllerTest {
     @MockBean
     private OrderService orderService;
 
+    @MockBean
+    private OrderPaymentDispatcher paymentDispatcher;
+
     @Test
     void testCreateOrder_Success() throws Exception {
         // Arrange
@@ -68,7 +93,7 @@ class OrderControllerTest {
         CreateOrderRequest request = new CreateOrderRequest(Arrays.asList(itemRequest));
 
         when(orderService.createOrder(any(CreateOrderRequest.class)))
-                .thenThrow(new RuntimeException("Product not found"));
+                .thenThrow(new InvalidOrderException("Product not found"));
 
         // Act & Assert
         mockMvc.perform(post("/orders")
@@ -77,6 +102,95 @@ class OrderControllerTest {
                 .andExpect(status().isBadRequest());
     }
 
+    @Test
+    void testCreateOrder_RetryWithSameIdempotencyKey_ReplaysResponse() throws Exception {
+        // Arrange
+        CreateOrderRequest request = new CreateOrderRequest(Arrays.asList(
+                new OrderItemRequest("LAPTOP-001", 1, new BigDecimal("1000.00"))));
+        when(orderService.createOrder(any(CreateOrderRequest.class)))
+                .thenReturn(orderWithStatus("order-1", OrderStatus.CREATED))
+                .thenReturn(orderWithStatus("order-2", OrderStatus.CREATED));
+
+        // Act & Assert
+        for (int attempt = 0; attempt < 2; attempt++) {
+            mockMvc.perform(post("/orders")
+                            .header("Idempotency-Key", "create-key-1")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(request)))
+                    .andExpect(status().isCreated())
+                    .andExpect(jsonPath("$.id").value("order-1"));
+        }
+        verify(orderService, times(1)).createOrder(any(CreateOrderRequest.class));
+
+        // A different key creates a new order
+        mockMvc.perform(post("/orders")
+                        .header("Idempotency-Key", "create-key-2")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(jsonPath("$.id").value("order-2"));
+    }
+
+    @Test
+    void testCreateOrder_TransientFailure_ServerErrorAndNotReplayed() throws Exception {
+        // Arrange
+        CreateOrderRequest request = new CreateOrderRequest(Arrays.asList(
+                new OrderItemRequest("LAPTOP-001", 1, new BigDecimal("1000.00"))));
+        when(orderService.createOrder(any(CreateOrderRequest.class)))
+                .thenThrow(new RuntimeException("Product validation timed out after 5000 ms"))
+                .thenReturn(orderWithStatus("order-1", OrderStatus.CREATED));
+
+        // Act & Assert
+        mockMvc.perform(post("/orders")
+                        .header("Idempotency-Key", "create-key-transient")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isInternalServerError());
+        mockMvc.perform(post("/orders")
+                        .header("Idempotency-Key", "create-key-transient")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.id").value("order-1"));
+    }
+
+    @Test
+    void testCreateOrder_KeyReusedForDifferentOrder_Unprocessable() throws Exception {
+        // Arrange
+        CreateOrderRequest first = new CreateOrderRequest(Arrays.asList(
+                new OrderItemRequest("LAPTOP-001", 1, new BigDecimal("1000.00"))));
+        CreateOrderRequest second = new CreateOrderRequest(Arrays.asList(
+                new OrderItemRequest("LAPTOP-001", 2, new BigDecimal("1000.00"))));
+        when(orderService.createOrder(any(CreateOrderRequest.class)))
+                .thenReturn(orderWithStatus("order-1", OrderStatus.CREATED));
+
+        // Act & Assert
+        mockMvc.perform(post("/orders")
+                        .header("Idempotency-Key", "create-key-reused")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(first)))
+                .andExpect(status().isCreated());
+        mockMvc.perform(post("/orders")
+                        .header("Idempotency-Key", "create-key-reused")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(second)))
+                .andExpect(status().isUnprocessableEntity());
+        verify(orderService, times(1)).createOrder(any(CreateOrderRequest.class));
+    }
+
+    @Test
+    void testPayOrder_RetryWithSameIdempotencyKey_NotChargedTwice() throws Exception {
+        // Arrange
+        when(orderService.payOrder(eq("order-123"))).thenReturn(orderWithStatus("order-123", OrderStatus.PAID));
+
+        // Act & Assert
+        for (int attempt = 0; attempt < 2; attempt++) {
+            mockMvc.perform(post("/orders/order-123/pay").header("Idempotency-Key", "pay-key-1"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.status").value("PAID"));
+        }
+        verify(orderService, times(1)).payOrder("order-123");
+    }
+
     @Test
     void testPayOrder_Success() throws Exception {
         // Arrange
@@ -102,13 +216,104 @@ class OrderControllerTest {
     void testPayOrder_BadRequest() throws Exception {
         // Arrange
         when(orderService.payOrder(eq("order-invalid")))
-                .thenThrow(new RuntimeException("Order not found"));
+                .thenThrow(new InvalidOrderException("Order not found"));
 
         // Act & Assert
         mockMvc.perform(post("/orders/order-invalid/pay"))
                 .andExpect(status().isBadRequest());
     }
 
+    @Test
+    void testPayOrder_SagaFailed_ServerError() throws Exception {
+        // Arrange
+        when(orderService.payOrder(eq("order-123")))
+                .thenThrow(new RuntimeException("Payment processing error: Connection reset"));
+
+        // Act & Assert
+        mockMvc.perform(post("/orders/order-123/pay").header("Idempotency-Key", "pay-key-failed"))
+                .andExpect(status().isInternalServerError());
+    }
+
+    @Test
+    void testPayOrder_RetryAfterServerError_AcceptedWhileRecoveryPays() throws Exception {
+        // Arrange - the first checkout fails midway and leaves the order being paid by recovery
+        when(orderService.payOrder(eq("order-123")))
+                .thenThrow(new RuntimeException("Payment processing error: Connection reset"))
+                .thenThrow(new InvalidOrderException("Order cannot be paid. Current status: PAYMENT_PENDING"));
+        when(orderService.getOrder(eq("order-123")))
+                .thenReturn(orderWithStatus("order-123", OrderStatus.PAYMENT_PENDING));
+
+        // Act & Assert
+        mockMvc.perform(post("/orders/order-123/pay").header("Idempotency-Key", "pay-key-retried"))
+                .andExpect(status().isInternalServerError());
+        for (int retry = 0; retry < 2; retry++) {
+            mockMvc.perform(post("/orders/order-123/pay").header("Idempotency-Key", "pay-key-retried"))
+                    .andExpect(status().isAccepted())
+                    .andExpect(header().string("Location", "/orders/order-123"))
+                    .andExpect(jsonPath("$.status").value("PAYMENT_PENDING"));
+        }
+        // Neither answer was replayed
+        verify(orderService, times(3)).payOrder("order-123");
+    }
+
+    @Test
+    void testPayOrderAsync_Accepted() throws Exception {
+        // Arrange
+        when(orderService.getOrder(eq("order-123"))).thenReturn(orderWithStatus("order-123", OrderStatus.CREATED));
+        when(paymentDispatcher.submit(eq("order-123"))).thenReturn(new CompletableFuture<>());
+
+        // Act & Assert
+        mockMvc.perform(post("/orders/order-123/pay").param("async", "true"))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "/orders/order-123"))
+                .andExpect(jsonPath("$.id").value("order-123"));
+        verify(paymentDispatcher).submit("order-123");
+        verify(orderService, never()).payOrder(any());
+    }
+
+    @Test
+    void testPayOrderAsync_AlreadyPending_NotResubmitted() throws Exception {
+        // Arrange
+        when(orderService.getOrder(eq("order-123"))).thenReturn(orderWithStatus("order-123", OrderStatus.PAYMENT_PENDING));
+
+        // Act & Assert
+        mockMvc.perform(post("/orders/order-123/pay").param("async", "true"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.status").value("PAYMENT_PENDING"));
+        verify(paymentDispatcher, never()).submit(any());
+    }
+
+    @Test
+    void testPayOrderAsync_WorkersSaturated() throws Exception {
+        // Arrange
+        when(orderService.getOrder(eq("order-123"))).thenReturn(orderWithStatus("order-123", OrderStatus.CREATED));
+        when(paymentDispatcher.submit(eq("order-123"))).thenThrow(new RejectedExecutionException("full"));
+
+        // Act & Assert
+        mockMvc.perform(post("/orders/order-123/pay").param("async", "true"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().exists("Retry-After"));
+    }
+
+    @Test
+    void testAwaitPayment_CompletesWithOrder() throws Exception {
+        // Arrange
+        CompletableFuture<OrderResponse> job = new CompletableFuture<>();
+        when(paymentDispatcher.inFlight(eq("order-123"))).thenReturn(job);
+        when(orderService.getOrder(eq("order-123"))).thenReturn(orderWithStatus("order-123", OrderStatus.PAID));
+
+        // Act
+        MvcResult pending = mockMvc.perform(get("/orders/order-123/payment"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        job.complete(orderWithStatus("order-123", OrderStatus.PAID));
+
+        // Assert
+        mockMvc.perform(asyncDispatch(pending))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("PAID"));
+    }
+
     @Test
     void testGetOrder_Success() throws Exception {
         // Arrange
@@ -140,23 +345,74 @@ class OrderControllerTest {
     @Test
     void testGetAllOrders() throws Exception {
         // Arrange
-        OrderResponse order1 = new OrderResponse();
-        order1.setId("order-1");
-        order1.setStatus(OrderStatus.CREATED);
-
-        OrderResponse order2 = new OrderResponse();
-        order2.setId("order-2");
-        order2.setStatus(OrderStatus.PAID);
-
-        List<OrderResponse> orders = Arrays.asList(order1, order2);
-
-        when(orderService.getAllOrders()).thenReturn(orders);
+        OrderPage page = new OrderPage(OrderFilter.none(), null, 50, null);
+        when(orderService.findOrders(any(OrderFilter.class), isNull(), isNull())).thenReturn(page);
+        streamOrders(page, summary("order-1", OrderStatus.CREATED), summary("order-2", OrderStatus.PAID));
 
         // Act & Assert
-        mockMvc.perform(get("/orders"))
+        MvcResult result = mockMvc.perform(get("/orders"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
                 .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.LINK))
                 .andExpect(jsonPath("$.length()").value(2))
                 .andExpect(jsonPath("$[0].id").value("order-1"))
+                .andExpect(jsonPath("$[0].itemCount").value(1))
+                .andExpect(jsonPath("$[0].items").doesNotExist())
                 .andExpect(jsonPath("$[1].id").value("order-2"));
     }
+
+    @Test
+    void testGetAllOrders_FilteredWithMorePages_LinksNextPage() throws Exception {
+        // Arrange
+        OrderCursor next = new OrderCursor(Instant.parse("2024-01-01T09:00:00Z"), "order-1");
+        OrderPage page = new OrderPage(new OrderFilter(OrderStatus.PAID, null, null), null, 1, next);
+        when(orderService.findOrders(any(OrderFilter.class), isNull(), eq(1))).thenReturn(page);
+        streamOrders(page, summary("order-1", OrderStatus.PAID));
+
+        // Act & Assert
+        MvcResult result = mockMvc.perform(get("/orders?status=PAID&limit=1"))
+                .andExpect(request().asyncStarted())
+                .andExpect(header().string(HttpHeaders.LINK, containsString("cursor=" + next.encode())))
+                .andExpect(header().string(HttpHeaders.LINK, containsString("status=PAID")))
+                .andExpect(header().string(HttpHeaders.LINK, endsWith("rel=\"next\"")))
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1));
+
+        ArgumentCaptor<OrderFilter> filter = ArgumentCaptor.forClass(OrderFilter.class);
+        verify(orderService).findOrders(filter.capture(), isNull(), eq(1));
+        assertEquals(OrderStatus.PAID, filter.getValue().getStatus());
+    }
+
+    @Test
+    void testGetAllOrders_MalformedCursor_BadRequest() throws Exception {
+        when(orderService.findOrders(any(OrderFilter.class), eq("bogus"), isNull()))
+                .thenThrow(new IllegalArgumentException("Invalid cursor: bogus"));
+
+        mockMvc.perform(get("/orders").param("cursor", "bogus"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private void streamOrders(OrderPage page, OrderSummary... orders) {
+        doAnswer(invocation -> {
+            Consumer<OrderSummary> action = invocation.getArgument(1);
+            Arrays.stream(orders).forEach(action);
+            return null;
+        }).when(orderService).forEachOrder(eq(page), any());
+    }
+
+    private static OrderResponse orderWithStatus(String id, OrderStatus status) {
+        OrderResponse response = new OrderResponse();
+        response.setId(id);
+        response.setStatus(status);
+        return response;
+    }
+
+    private static OrderSummary summary(String id, OrderStatus status) {
+        Instant now = Instant.parse("2024-01-01T10:00:00Z");
+        return new OrderSummary(id, status, null, null, now, now, 1L, 1000L);
+    }
 }
@@ -4,6 +4,7 @@ import org.junit.jupiter.api.Test;
 
 import java.math.BigDecimal;
 import java.util.Arrays;
+import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -19,6 +20,30 @@ class OrderTest {
         assertNotNull(order.getUpdatedAt());
     }
 
+    @Test
+    void testOrderIds_TimeOrderedVersion7() {
+        UUID previous = OrderIds.next();
+        for (int i = 0; i < 10_000; i++) {
+            UUID next = OrderIds.next();
+            assertEquals(7, next.version());
+            assertEquals(2, next.variant());
+            // Unsigned order of the leading timestamp and sequence, as the database compares them
+            assertTrue(Long.compareUnsigned(next.getMostSignificantBits(), previous.getMostSignificantBits()) > 0);
+            previous = next;
+        }
+        assertTrue(Math.abs((previous.getMostSignificantBits() >>> 16) - System.currentTimeMillis()) < 60_000);
+    }
+
+    @Test
+    void testOrderIds_ParseKeepsStringForm() {
+        Order order = new Order();
+
+        assertEquals(36, order.getId().length());
+        assertEquals(order.getId(), OrderIds.parse(order.getId()).orElseThrow().toString());
+        assertTrue(OrderIds.parse("order-123").isEmpty());
+        assertTrue(OrderIds.parse(null).isEmpty());
+    }
+
     @Test
     void testOrderConstructorWithItems() {
         OrderItem item1 = new OrderItem("LAPTOP-001", 2, new BigDecimal("1000.00"));
@@ -48,10 +73,55 @@ class OrderTest {
         assertEquals(0, BigDecimal.ZERO.compareTo(order.getTotalAmount()));
     }
 
+    @Test
+    void testAddItem_KeepsStoredTotalInMinorUnits() {
+        Order order = new Order();
+
+        order.addItem(new OrderItem("LAPTOP-001", 2, new BigDecimal("999.99")));
+        order.addItem(new OrderItem("MOUSE-001", 3, new BigDecimal("0.10")));
+
+        assertEquals(200_028L, order.getTotalAmountMinor());
+        assertEquals(new BigDecimal("2000.28"), order.getTotalAmount());
+    }
+
+    @Test
+    void testSetItems_ReplacesTotal() {
+        Order order = new Order(Arrays.asList(new OrderItem("LAPTOP-001", 1, new BigDecimal("1000.00"))));
+
+        order.setItems(Arrays.asList(new OrderItem("MOUSE-001", 2, new BigDecimal("50.00"))));
+
+        assertEquals(1, order.getItems().size());
+        assertEquals(10_000L, order.getTotalAmountMinor());
+    }
+
+    @Test
+    void testGetItems_ReadOnly() {
+        Order order = new Order();
+
+        assertThrows(UnsupportedOperationException.class,
+                () -> order.getItems().add(new OrderItem("LAPTOP-001", 1, BigDecimal.ONE)));
+    }
+
+    @Test
+    void testOrderItem_LineTotalFromQuantityAndPrice() {
+        OrderItem item = new OrderItem("LAPTOP-001", 3, new BigDecimal("12.5"));
+
+        assertEquals(3750L, item.getLineTotalMinor());
+        assertEquals(new BigDecimal("37.50"), item.getTotalPrice());
+    }
+
+    @Test
+    void testOrderItem_FractionOfCentPrice_Rejected() {
+        // Rounding first would charge 3 x 0.34 = 1.02 for 3 x 0.335 = 1.005
+        assertThrows(IllegalArgumentException.class, () -> new OrderItem("PEN-001", 3, new BigDecimal("0.335")));
+        assertEquals(100L, new OrderItem("PEN-001", 1, new BigDecimal("1.0000")).getLineTotalMinor());
+    }
+
     @Test
     void testOrderStatusEnum() {
-        assertEquals(4, OrderStatus.values().length);
+        assertEquals(5, OrderStatus.values().length);
         assertNotNull(OrderStatus.valueOf("CREATED"));
+        assertNotNull(OrderStatus.valueOf("PAYMENT_PENDING"));
         assertNotNull(OrderStatus.valueOf("PAID"));
         assertNotNull(OrderStatus.valueOf("FULFILLED"));
         assertNotNull(OrderStatus.valueOf("CANCELLED"));
@@ -11,14 +11,10 @@ import com.microservices.order.entity.OrderStatus;
 import org.junit.jupiter.api.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
-import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.boot.test.web.server.LocalServerPort;
-import org.springframework.context.annotation.Bean;
-import org.springframework.context.annotation.Primary;
 import org.springframework.http.*;
 import org.springframework.test.context.ActiveProfiles;
-import org.springframework.web.client.RestTemplate;
 
 import java.math.BigDecimal;
 import java.util.Arrays;
@@ -105,16 +101,6 @@ public class EndToEndIntegrationTest {
         paymentServiceMock.resetAll();
     }
 
-    @TestConfiguration
-    static class TestConfig {
-        @Bean
-        @Primary
-        public RestTemplate testRestTemplate() {
-            // Create a RestTemplate that doesn't use service discovery
-            return new RestTemplate();
-        }
-    }
-
     /**
      * Test 1: Create Product
      * Verifies that product-service can create a new product
@@ -286,7 +272,7 @@ public class EndToEndIntegrationTest {
             }
             """, totalAmount);
 
-        paymentServiceMock.stubFor(post(urlEqualTo("/payments"))
+        paymentServiceMock.stubFor(post(urlEqualTo("/payments/process"))
                 .willReturn(aResponse()
                         .withStatus(200)
                         .withHeader("Content-Type", "application/json")
@@ -352,7 +338,7 @@ public class EndToEndIntegrationTest {
         // Verify all service interactions
         productServiceMock.verify(getRequestedFor(urlMatching("/products/sku/" + TEST_SKU)));
         inventoryServiceMock.verify(getRequestedFor(urlMatching("/inventory/" + TEST_SKU)));
-        paymentServiceMock.verify(postRequestedFor(urlEqualTo("/payments")));
+        paymentServiceMock.verify(postRequestedFor(urlEqualTo("/payments/process")));
         inventoryServiceMock.verify(putRequestedFor(urlMatching("/inventory/" + TEST_SKU + "/deduct.*")));
 
         System.out.println("✅ All service interactions verified!");
@@ -410,12 +396,16 @@ public class EndToEndIntegrationTest {
             }
             """, totalAmount);
 
-        paymentServiceMock.stubFor(post(urlEqualTo("/payments"))
+        paymentServiceMock.stubFor(post(urlEqualTo("/payments/process"))
                 .willReturn(aResponse()
                         .withStatus(200)
                         .withHeader("Content-Type", "application/json")
                         .withBody(paymentResponseJson)));
 
+        // Compensation releases any reservation for the order
+        inventoryServiceMock.stubFor(put(urlMatching("/inventory/" + TEST_SKU + "/release.*"))
+                .willReturn(aResponse().withStatus(200)));
+
         // Act: Create and pay order
         OrderItemRequest orderItem = new OrderItemRequest();
         orderItem.setProductSku(TEST_SKU);
@@ -446,13 +436,16 @@ public class EndToEndIntegrationTest {
         assertEquals(OrderStatus.CANCELLED, cancelledOrder.getStatus());
         assertTrue(cancelledOrder.getCancellationReason().contains("Insufficient inventory"));
 
+        paymentServiceMock.verify(0, postRequestedFor(urlEqualTo("/payments/process")));
+        inventoryServiceMock.verify(0, putRequestedFor(urlMatching("/inventory/" + TEST_SKU + "/deduct.*")));
+
         System.out.println("✅ Order correctly cancelled due to insufficient stock");
         System.out.println("   Cancellation reason: " + cancelledOrder.getCancellationReason());
     }
 
     /**
      * Test 5: Order with Payment Failure
-     * Verifies that order remains in CREATED status when payment fails
+     * Verifies that the order is cancelled and reserved stock released when payment fails
      */
     @Test
     @Order(5)
@@ -502,12 +495,16 @@ public class EndToEndIntegrationTest {
             }
             """, oddPrice);
 
-        paymentServiceMock.stubFor(post(urlEqualTo("/payments"))
+        paymentServiceMock.stubFor(post(urlEqualTo("/payments/process"))
                 .willReturn(aResponse()
                         .withStatus(200)
                         .withHeader("Content-Type", "application/json")
                         .withBody(paymentResponseJson)));
 
+        // Stock is reserved before charging and released again when the charge fails
+        inventoryServiceMock.stubFor(put(urlMatching("/inventory/" + TEST_SKU_ODD + "/(deduct|release).*"))
+                .willReturn(aResponse().withStatus(200)));
+
         // Act: Create and pay order
         OrderItemRequest orderItem = new OrderItemRequest();
         orderItem.setProductSku(TEST_SKU_ODD);
@@ -541,8 +538,11 @@ public class EndToEndIntegrationTest {
         System.out.println("✅ Order correctly cancelled due to payment failure");
         System.out.println("   Cancellation reason: " + failedOrder.getCancellationReason());
         
-        // Verify inventory was NOT deducted
-        inventoryServiceMock.verify(0, putRequestedFor(urlMatching("/inventory/.*")));
-        System.out.println("✅ Inventory correctly NOT deducted after payment failure");
+        // Verify the reservation was released with the same reservation id it was taken with
+        inventoryServiceMock.verify(1, putRequestedFor(urlMatching("/inventory/" + TEST_SKU_ODD + "/deduct.*"))
+                .withHeader("X-Reservation-Id", equalTo(orderId + ":0")));
+        inventoryServiceMock.verify(1, putRequestedFor(urlMatching("/inventory/" + TEST_SKU_ODD + "/release.*"))
+                .withHeader("X-Reservation-Id", equalTo(orderId + ":0")));
+        System.out.println("✅ Reserved inventory correctly released after payment failure");
     }
 }
@@ -0,0 +1,90 @@
+package com.microservices.order.metrics;
+
+import com.microservices.order.dto.ThroughputMetrics;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderMetricsTest {
+
+    // Start well past zero so the windows have somewhere to look back to
+    private final AtomicLong now = new AtomicLong(TimeUnit.DAYS.toMillis(1));
+    private final OrderMetrics metrics = new OrderMetrics(now::get);
+
+    @Test
+    void testSnapshot_ComputesRatesPerWindow() {
+        for (int i = 0; i < 30; i++) {
+            metrics.orderCreated();
+        }
+        metrics.paymentSucceeded(12_000);
+        metrics.paymentSucceeded(6_000);
+        metrics.paymentSucceeded(6_000);
+        metrics.paymentFailed();
+
+        List<ThroughputMetrics> windows = metrics.snapshot();
+
+        ThroughputMetrics lastMinute = windows.get(0);
+        assertEquals("1m", lastMinute.getWindow());
+        assertEquals(30, lastMinute.getOrders());
+        assertEquals(0.5, lastMinute.getOrdersPerSecond(), 1e-9);
+        assertEquals(new BigDecimal("240.00"), lastMinute.getRevenue());
+        assertEquals(new BigDecimal("240.00"), lastMinute.getRevenuePerMinute());
+        assertEquals(0.25, lastMinute.getPaymentFailureRate(), 1e-9);
+        assertEquals(new BigDecimal("48.00"), windows.get(1).getRevenuePerMinute());
+        assertEquals(30, windows.get(2).getOrders());
+    }
+
+    @Test
+    void testSnapshot_EventsAgeOutOfEachWindow() {
+        metrics.orderCreated();
+        now.addAndGet(TimeUnit.SECONDS.toMillis(61));
+        metrics.orderCreated();
+
+        assertEquals(List.of(1L, 2L, 2L), orders(metrics.snapshot()));
+
+        now.addAndGet(TimeUnit.MINUTES.toMillis(5));
+        assertEquals(List.of(0L, 0L, 2L), orders(metrics.snapshot()));
+
+        // Lapping the rings replaces old buckets rather than adding to them
+        metrics.orderCreated();
+        assertEquals(List.of(1L, 1L, 3L), orders(metrics.snapshot()));
+
+        now.addAndGet(TimeUnit.HOURS.toMillis(1));
+        assertEquals(List.of(0L, 0L, 0L), orders(metrics.snapshot()));
+    }
+
+    @Test
+    void testConcurrentUpdates_NoneLost() throws Exception {
+        OrderMetrics realClock = new OrderMetrics();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            Future<?>[] writers = new Future<?>[8];
+            for (int t = 0; t < writers.length; t++) {
+                writers[t] = pool.submit(() -> {
+                    for (int i = 0; i < 10_000; i++) {
+                        realClock.orderCreated();
+                    }
+                });
+            }
+            for (Future<?> writer : writers) {
+                writer.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(80_000, realClock.snapshot().get(0).getOrders());
+    }
+
+    private static List<Long> orders(List<ThroughputMetrics> windows) {
+        return windows.stream().map(ThroughputMetrics::getOrders).toList();
+    }
+}
@@ -0,0 +1,119 @@
+package com.microservices.order.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpaceSavingTest {
+
+    private static final int PRODUCTS = 10_000;
+    private static final int ORDERS = 100_000;
+    private static final int CAPACITY = 500;
+    private static final int TOP = 10;
+
+    @Test
+    void testAdd_EvictsSmallestAndCarriesItsCountAsError() {
+        SpaceSaving<String> summary = new SpaceSaving<>(2);
+        summary.add("A", 5);
+        summary.add("B", 2);
+        summary.add("C", 1);
+
+        assertNull(summary.get("B"));
+        SpaceSaving.Entry<String> c = summary.get("C");
+        assertEquals(3, c.getCount());
+        assertEquals(2, c.getError());
+        assertEquals(List.of("A", "C"), keys(summary.top(TOP)));
+        assertEquals(4, summary.maxError());
+    }
+
+    @Test
+    void testTop_MatchesExactCountsOnSkewedOrderStream() {
+        ZipfSampler zipf = new ZipfSampler(PRODUCTS, 1.1, new Random(42));
+        Random random = new Random(7);
+        SpaceSaving<String> byOrders = new SpaceSaving<>(CAPACITY);
+        SpaceSaving<String> byQuantity = new SpaceSaving<>(CAPACITY);
+        Map<String, Long> exactOrders = new HashMap<>();
+        Map<String, Long> exactQuantity = new HashMap<>();
+
+        for (int order = 0; order < ORDERS; order++) {
+            Map<String, Long> lines = new TreeMap<>();
+            int lineCount = 1 + random.nextInt(3);
+            for (int line = 0; line < lineCount; line++) {
+                lines.merge("SKU-" + zipf.next(), 1L + random.nextInt(5), Long::sum);
+            }
+            lines.forEach((sku, quantity) -> {
+                byOrders.add(sku, 1);
+                byQuantity.add(sku, quantity);
+                exactOrders.merge(sku, 1L, Long::sum);
+                exactQuantity.merge(sku, quantity, Long::sum);
+            });
+        }
+
+        assertAccurate(byOrders, exactOrders);
+        assertAccurate(byQuantity, exactQuantity);
+    }
+
+    private static void assertAccurate(SpaceSaving<String> summary, Map<String, Long> exact) {
+        List<SpaceSaving.Entry<String>> top = summary.top(TOP);
+        for (SpaceSaving.Entry<String> entry : top) {
+            long actual = exact.get(entry.getKey());
+            assertTrue(entry.getCount() >= actual, "Counts never underestimate");
+            assertTrue(entry.getCount() - actual <= entry.getError(), "Overestimate is within the entry's error");
+            assertTrue(entry.getError() <= summary.maxError(), "Error is within total / capacity");
+        }
+
+        Set<String> exactTop = exact.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(TOP)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toSet());
+        assertEquals(exactTop, Set.copyOf(keys(top)));
+    }
+
+    private static List<String> keys(List<SpaceSaving.Entry<String>> entries) {
+        return entries.stream().map(SpaceSaving.Entry::getKey).collect(Collectors.toList());
+    }
+
+    // Draws ranks 1..n with probability proportional to 1 / rank^exponent
+    private static final class ZipfSampler {
+        private final double[] cumulative;
+        private final Random random;
+
+        ZipfSampler(int n, double exponent, Random random) {
+            this.cumulative = new double[n];
+            this.random = random;
+            double sum = 0;
+            for (int rank = 1; rank <= n; rank++) {
+                sum += 1 / Math.pow(rank, exponent);
+                cumulative[rank - 1] = sum;
+            }
+            for (int i = 0; i < n; i++) {
+                cumulative[i] /= sum;
+            }
+        }
+
+        int next() {
+            double u = random.nextDouble();
+            int low = 0;
+            int high = cumulative.length - 1;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (cumulative[mid] < u) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low + 1;
+        }
+    }
+}
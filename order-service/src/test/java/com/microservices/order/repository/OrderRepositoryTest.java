@@ -0,0 +1,169 @@
+package com.microservices.order.repository;
+
+import com.microservices.order.dto.OrderCursor;
+import com.microservices.order.dto.OrderFilter;
+import com.microservices.order.dto.OrderSummary;
+import com.microservices.order.entity.Order;
+import com.microservices.order.entity.OrderItem;
+import com.microservices.order.entity.OrderStatus;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class OrderRepositoryTest {
+
+    private static final Instant T0 = Instant.parse("2024-01-01T00:00:00Z");
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        // Two orders share each timestamp, so pages must break ties on id;
+        // order i has i % 3 + 1 lines of 2 x 10.00
+        for (int i = 0; i < 10; i++) {
+            Order order = new Order();
+            order.setId(id(i));
+            order.setCreatedAt(T0.plusSeconds(i / 2));
+            order.setStatus(i % 3 == 0 ? OrderStatus.PAID : OrderStatus.CREATED);
+            for (int line = 0; line <= i % 3; line++) {
+                order.addItem(new OrderItem("SKU-" + line, 2, new BigDecimal("10.00")));
+            }
+            orderRepository.save(order);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void testPaging_VisitsEveryOrderOnceNewestFirst() {
+        List<String> seen = new ArrayList<>();
+        OrderCursor after = null;
+        int pages = 0;
+        do {
+            Optional<OrderCursor> next = orderRepository.findPageEnd(OrderFilter.none(), after, 3);
+            seen.addAll(ids(orderRepository.streamPage(OrderFilter.none(), after, next.orElse(null))));
+            after = next.orElse(null);
+            pages++;
+        } while (after != null);
+
+        assertEquals(4, pages);
+        assertEquals(List.of(id(9), id(8), id(7), id(6), id(5),
+                id(4), id(3), id(2), id(1), id(0)), seen);
+    }
+
+    @Test
+    void testPaging_FilteredByStatusAndTime() {
+        OrderFilter paidSinceT1 = new OrderFilter(OrderStatus.PAID, T0.plusSeconds(1), T0.plusSeconds(5));
+
+        Optional<OrderCursor> next = orderRepository.findPageEnd(paidSinceT1, null, 2);
+        assertTrue(next.isPresent());
+        assertEquals(List.of(id(9), id(6)), ids(orderRepository.streamPage(paidSinceT1, null, next.get())));
+
+        assertFalse(orderRepository.findPageEnd(paidSinceT1, next.get(), 2).isPresent());
+        assertEquals(List.of(id(3)), ids(orderRepository.streamPage(paidSinceT1, next.get(), null)));
+    }
+
+    @Test
+    void testStreamPage_SummarizesItems() {
+        List<OrderSummary> page = summaries(orderRepository.streamPage(OrderFilter.none(), null, null));
+
+        OrderSummary order5 = page.stream().filter(o -> o.getId().equals(id(5))).findFirst().orElseThrow();
+        assertEquals(3, order5.getItemCount());
+        assertEquals(0, new BigDecimal("60.00").compareTo(order5.getTotalAmount()));
+        assertEquals(OrderStatus.CREATED, order5.getStatus());
+    }
+
+    @Test
+    void testListingPage_SameStatementCountForAnyPageSize() {
+        for (int pageSize : new int[] {1, 4, 9}) {
+            statistics.clear();
+
+            Optional<OrderCursor> next = orderRepository.findPageEnd(OrderFilter.none(), null, pageSize);
+            List<OrderSummary> page = summaries(orderRepository.streamPage(OrderFilter.none(), null, next.orElseThrow()));
+
+            assertEquals(pageSize, page.size());
+            assertEquals(2, statistics.getPrepareStatementCount(), "page size " + pageSize);
+        }
+    }
+
+    @Test
+    void testFindWithItemsById_SingleStatement() {
+        Order order = orderRepository.findWithItemsById(UUID.fromString(id(5))).orElseThrow();
+
+        assertTrue(isLoaded(order));
+        assertEquals(3, order.getItems().size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void testLazyItems_BatchFetchedAcrossOrders() {
+        List<Order> orders = orderRepository.findAll();
+        assertFalse(isLoaded(orders.get(0)));
+
+        int lines = orders.stream().mapToInt(order -> order.getItems().size()).sum();
+
+        // One statement for the orders and one for every order's items
+        assertEquals(19, lines);
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void testSummarizeOrdersByStatus_RevenueFromStoredTotals() {
+        Map<OrderStatus, Long> revenue = orderRepository.summarizeOrdersByStatus().stream()
+                .collect(Collectors.toMap(row -> (OrderStatus) row[0], row -> ((Number) row[2]).longValue()));
+
+        // PAID: orders 0, 3, 6 and 9 with 1 line each; CREATED: the other six with 2 or 3 lines
+        assertEquals(4 * 2000L, revenue.get(OrderStatus.PAID));
+        assertEquals(15 * 2000L, revenue.get(OrderStatus.CREATED));
+        assertEquals(0, statistics.getCollectionLoadCount());
+    }
+
+    // Ids that sort in the order of i
+    private static String id(int i) {
+        return new UUID(0, i).toString();
+    }
+
+    private boolean isLoaded(Order order) {
+        return entityManagerFactory.getPersistenceUnitUtil().isLoaded(order, "items");
+    }
+
+    private static List<String> ids(Stream<OrderSummary> orders) {
+        return summaries(orders).stream().map(OrderSummary::getId).collect(Collectors.toList());
+    }
+
+    private static List<OrderSummary> summaries(Stream<OrderSummary> orders) {
+        try (orders) {
+            return orders.collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.microservices.order.resilience;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final List<String> transitions = new ArrayList<>();
+    private final CircuitBreaker breaker = new CircuitBreaker(10, 4, 50, 1000, 2,
+            (from, to) -> transitions.add(from + "->" + to), now::get);
+
+    @Test
+    void testOpensOnceFailureRateReachesThresholdOverMinimumCalls() {
+        record(false, false);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState()); // below minimum calls
+
+        record(true, true, true);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState()); // 2 of 5 failed
+
+        record(false);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState()); // 3 of 6 failed
+        assertEquals(CircuitBreaker.NO_PERMISSION, breaker.tryAcquirePermission());
+        assertTrue(breaker.isOpen());
+    }
+
+    @Test
+    void testHalfOpenAfterOpenDuration_LimitsProbesAndClosesOnSuccess() {
+        trip();
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(1000));
+
+        long first = breaker.tryAcquirePermission();
+        long second = breaker.tryAcquirePermission();
+        assertEquals(CircuitBreaker.NO_PERMISSION, breaker.tryAcquirePermission()); // only two probes
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+
+        breaker.onSuccess(first);
+        breaker.onSuccess(second);
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(List.of("CLOSED->OPEN", "OPEN->HALF_OPEN", "HALF_OPEN->CLOSED"), transitions);
+    }
+
+    @Test
+    void testProbeFailure_ReopensCircuit() {
+        trip();
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(1000));
+
+        breaker.onFailure(breaker.tryAcquirePermission());
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(CircuitBreaker.NO_PERMISSION, breaker.tryAcquirePermission());
+    }
+
+    @Test
+    void testCallStartedBeforeTransition_NotCountedAsProbe() {
+        long slowCall = breaker.tryAcquirePermission();
+        trip();
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(1000));
+        long probe = breaker.tryAcquirePermission();
+
+        // Started while closed, answers once half-open: neither a probe success nor a failure
+        breaker.onSuccess(slowCall);
+        breaker.onFailure(slowCall);
+        breaker.onIgnored(slowCall);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+
+        breaker.onSuccess(probe);
+        breaker.onSuccess(breaker.tryAcquirePermission());
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void testOldOutcomesSlideOutOfWindow() {
+        CircuitBreaker small = new CircuitBreaker(4, 4, 50, 1000, 1, (from, to) -> { }, now::get);
+        for (boolean success : new boolean[]{false, true, true, true, true, false, false}) {
+            long permission = small.tryAcquirePermission();
+            assertNotEquals(CircuitBreaker.NO_PERMISSION, permission);
+            if (success) {
+                small.onSuccess(permission);
+            } else {
+                small.onFailure(permission);
+            }
+        }
+        // 3 of 7 calls failed overall, but 2 of the last 4
+        assertEquals(CircuitBreaker.State.OPEN, small.getState());
+    }
+
+    private void trip() {
+        record(false, false, false, false);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    private void record(boolean... successes) {
+        for (boolean success : successes) {
+            long permission = breaker.tryAcquirePermission();
+            assertNotEquals(CircuitBreaker.NO_PERMISSION, permission);
+            if (success) {
+                breaker.onSuccess(permission);
+            } else {
+                breaker.onFailure(permission);
+            }
+        }
+    }
+}
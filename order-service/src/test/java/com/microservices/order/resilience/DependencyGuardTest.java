@@ -0,0 +1,242 @@
+package com.microservices.order.resilience;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DependencyGuardTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void testBulkheadFull_RejectsImmediately() throws Exception {
+        ResilienceProperties.Dependency settings = new ResilienceProperties.Dependency();
+        settings.setMaxConcurrentCalls(1);
+        DependencyGuard guard = new DependencyGuard("payment-service", settings, registry);
+
+        CountDownLatch inCall = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            pool.submit(() -> guard.protect(Mono.fromCallable(() -> {
+                inCall.countDown();
+                await(release);
+                return "slow";
+            })).block());
+            assertTrue(inCall.await(5, TimeUnit.SECONDS));
+
+            DependencyUnavailableException rejected = assertThrows(DependencyUnavailableException.class,
+                    () -> guard.protect(Mono.just("fast")).block());
+            assertEquals("payment-service", rejected.getDependency());
+            assertEquals(1.0, registry.get("resilience.calls.rejected")
+                    .tag("dependency", "payment-service").tag("reason", "bulkhead_full").counter().count());
+        } finally {
+            release.countDown();
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void testConcurrentMultiLineOrders_LookupsWaitForPermits() {
+        ResilienceProperties.Dependency settings = new ResilienceProperties.Dependency();
+        settings.setMaxConcurrentCalls(8);
+        settings.setMaxWaitMs(2000);
+        DependencyGuard guard = new DependencyGuard("product-service", settings, registry);
+
+        // Three orders of eight lines each, every order looking its lines up at once
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        Mono<String> lookup = Mono.defer(() -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            return Mono.just("product").delayElement(Duration.ofMillis(50)).doFinally(signal -> inFlight.decrementAndGet());
+        });
+        List<Integer> linesFound = Flux.range(0, 3)
+                .flatMap(order -> Flux.range(0, 8)
+                        .flatMap(line -> guard.protectRead(lookup), 8)
+                        .count()
+                        .map(Long::intValue))
+                .collectList()
+                .block(Duration.ofSeconds(5));
+
+        // Every order got all its lines, never more than the bulkhead allows at once
+        assertEquals(List.of(8, 8, 8), linesFound);
+        assertTrue(maxInFlight.get() <= 8);
+        assertEquals(0.0, registry.get("resilience.calls.rejected")
+                .tag("dependency", "product-service").tag("reason", "bulkhead_full").counter().count());
+    }
+
+    @Test
+    void testBulkheadFull_GivesUpAfterMaxWait() {
+        ResilienceProperties.Dependency settings = new ResilienceProperties.Dependency();
+        settings.setMaxConcurrentCalls(1);
+        settings.setMaxWaitMs(50);
+        DependencyGuard guard = new DependencyGuard("product-service", settings, registry);
+
+        guard.protect(Mono.never()).subscribe();
+
+        long start = System.nanoTime();
+        assertThrows(DependencyUnavailableException.class,
+                () -> guard.protect(Mono.just("waited")).block(Duration.ofSeconds(5)));
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() >= 50);
+    }
+
+    @Test
+    void testServerErrorsOpenCircuit_ClientErrorsDoNot() {
+        ResilienceProperties.Dependency settings = new ResilienceProperties.Dependency();
+        settings.setMinimumCalls(4);
+        DependencyGuard guard = new DependencyGuard("product-service", settings, registry);
+
+        for (int i = 0; i < 4; i++) {
+            assertThrows(WebClientResponseException.class, () -> guard.protect(Mono.error(
+                    WebClientResponseException.create(404, "Not Found", null, null, null))).block());
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, guard.getState());
+
+        for (int i = 0; i < 4; i++) {
+            assertThrows(WebClientResponseException.class, () -> guard.protect(Mono.error(
+                    WebClientResponseException.create(503, "Service Unavailable", null, null, null))).block());
+        }
+        assertEquals(CircuitBreaker.State.OPEN, guard.getState());
+        assertThrows(DependencyUnavailableException.class, () -> guard.protect(Mono.just("not called")).block());
+        assertEquals(1.0, registry.get("resilience.circuit.state").tag("dependency", "product-service").gauge().value());
+        assertEquals(1.0, registry.get("resilience.circuit.transitions")
+                .tag("dependency", "product-service").tag("to", "OPEN").counter().count());
+    }
+
+    @Test
+    void testRetries_StopWhenBudgetExhausted() {
+        ResilienceProperties.Dependency settings = new ResilienceProperties.Dependency();
+        settings.setMaxRetries(3);
+        settings.setRetryBackoffMs(1);
+        settings.setRetryBudgetRatio(0);
+        settings.setRetryBudgetMaxTokens(1);
+        DependencyGuard guard = new DependencyGuard("inventory-service", settings, registry);
+
+        AtomicInteger attempts = new AtomicInteger();
+        Mono<String> failing = Mono.defer(() -> {
+            attempts.incrementAndGet();
+            return Mono.error(WebClientResponseException.create(503, "Service Unavailable", null, null, null));
+        });
+
+        assertThrows(WebClientResponseException.class, () -> guard.protectWithRetries(failing).block());
+        // One retry paid for by the single token, then the budget refuses
+        assertEquals(2, attempts.get());
+        assertEquals(1.0, registry.get("resilience.retries")
+                .tag("dependency", "inventory-service").tag("outcome", "budget_exhausted").counter().count());
+
+        attempts.set(0);
+        assertThrows(WebClientResponseException.class, () -> guard.protectWithRetries(failing).block());
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    void testClientErrors_NotRetried() {
+        DependencyGuard guard = new DependencyGuard("product-service", new ResilienceProperties.Dependency(), registry);
+
+        AtomicInteger attempts = new AtomicInteger();
+        assertThrows(WebClientResponseException.class, () -> guard.protectWithRetries(Mono.defer(() -> {
+            attempts.incrementAndGet();
+            return Mono.error(WebClientResponseException.create(400, "Bad Request", null, null, null));
+        })).block());
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    void testHedgedRead_SlowFirstAttempt_SecondAnswers() {
+        ResilienceProperties.Dependency settings = new ResilienceProperties.Dependency();
+        settings.setHedgeReads(true);
+        settings.setHedgeMinDelayMs(10);
+        // The hedge shares the first attempt's permit, so one is enough
+        settings.setMaxConcurrentCalls(1);
+        DependencyGuard guard = new DependencyGuard("product-service", settings, registry);
+
+        // Establish a (fast) latency profile so hedging kicks in
+        for (int i = 0; i < 20; i++) {
+            assertEquals("ok", guard.protectRead(Mono.just("ok")).block());
+        }
+        assertEquals(0.0, registry.get("resilience.hedged.requests")
+                .tag("dependency", "product-service").tag("outcome", "sent").counter().count());
+
+        // The first attempt stalls; the hedge answers
+        AtomicInteger attempts = new AtomicInteger();
+        Mono<String> stallsOnce = Mono.defer(() -> attempts.incrementAndGet() == 1 ? Mono.never() : Mono.just("hedged"));
+
+        assertEquals("hedged", guard.protectRead(stallsOnce).block(Duration.ofSeconds(5)));
+        assertEquals(2, attempts.get());
+        assertEquals(1.0, registry.get("resilience.hedged.requests")
+                .tag("dependency", "product-service").tag("outcome", "sent").counter().count());
+        // The permit is given back once the read finishes, which may be just after block() returns
+        assertTrue(eventually(() -> registry.get("resilience.bulkhead.available")
+                .tag("dependency", "product-service").gauge().value() == 1.0));
+    }
+
+    @Test
+    void testHedgedRead_FirstAttemptFailsWhileHedgeRuns_HedgeAnswers() {
+        ResilienceProperties.Dependency settings = new ResilienceProperties.Dependency();
+        settings.setHedgeReads(true);
+        settings.setHedgeMinDelayMs(10);
+        DependencyGuard guard = new DependencyGuard("product-service", settings, registry);
+        for (int i = 0; i < 20; i++) {
+            guard.protectRead(Mono.just("ok")).block();
+        }
+
+        // The first attempt fails (not retryably) after the hedge went out; the hedge still answers
+        AtomicInteger attempts = new AtomicInteger();
+        Mono<String> failsFirst = Mono.defer(() -> attempts.incrementAndGet() == 1
+                ? Mono.delay(Duration.ofMillis(200)).then(Mono.<String>error(
+                        WebClientResponseException.create(500, "Internal Server Error", null, null, null)))
+                : Mono.delay(Duration.ofMillis(400)).thenReturn("hedged"));
+
+        assertEquals("hedged", guard.protectRead(failsFirst).block(Duration.ofSeconds(5)));
+        assertEquals(2, attempts.get());
+    }
+
+    @Test
+    void testHedgedRead_BothAttemptsFail_ErrorPropagated() {
+        ResilienceProperties.Dependency settings = new ResilienceProperties.Dependency();
+        settings.setHedgeReads(true);
+        settings.setHedgeMinDelayMs(10);
+        DependencyGuard guard = new DependencyGuard("product-service", settings, registry);
+        for (int i = 0; i < 20; i++) {
+            guard.protectRead(Mono.just("ok")).block();
+        }
+
+        Mono<String> failsSlowly = Mono.delay(Duration.ofMillis(100)).then(Mono.error(
+                WebClientResponseException.create(500, "Internal Server Error", null, null, null)));
+
+        assertThrows(WebClientResponseException.class,
+                () -> guard.protectRead(failsSlowly).block(Duration.ofSeconds(5)));
+    }
+
+    private static boolean eventually(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                return false;
+            }
+            Thread.onSpinWait();
+        }
+        return true;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
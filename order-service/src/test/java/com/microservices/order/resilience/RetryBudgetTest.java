@@ -0,0 +1,38 @@
+package com.microservices.order.resilience;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RetryBudgetTest {
+
+    @Test
+    void testStartsFull_WithdrawsUntilEmpty() {
+        RetryBudget budget = new RetryBudget(0.1, 2);
+
+        assertTrue(budget.tryWithdraw());
+        assertTrue(budget.tryWithdraw());
+        assertFalse(budget.tryWithdraw());
+        assertEquals(0.0, budget.getAvailableTokens());
+    }
+
+    @Test
+    void testCallsRefillAtRatio_UpToCapacity() {
+        RetryBudget budget = new RetryBudget(0.1, 2);
+        budget.tryWithdraw();
+        budget.tryWithdraw();
+
+        // Ten calls earn one retry
+        for (int i = 0; i < 9; i++) {
+            budget.onCall();
+        }
+        assertFalse(budget.tryWithdraw());
+        budget.onCall();
+        assertTrue(budget.tryWithdraw());
+
+        for (int i = 0; i < 1000; i++) {
+            budget.onCall();
+        }
+        assertEquals(2.0, budget.getAvailableTokens());
+    }
+}
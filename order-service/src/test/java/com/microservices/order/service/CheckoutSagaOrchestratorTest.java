@@ -0,0 +1,231 @@
+package com.microservices.order.service;
+
+import com.microservices.order.client.InventoryClient;
+import com.microservices.order.client.PaymentClient;
+import com.microservices.order.client.PaymentResponse;
+import com.microservices.order.entity.CheckoutSaga;
+import com.microservices.order.entity.Order;
+import com.microservices.order.entity.OrderItem;
+import com.microservices.order.entity.OrderStatus;
+import com.microservices.order.entity.SagaState;
+import com.microservices.order.metrics.OrderMetrics;
+import com.microservices.order.repository.CheckoutSagaRepository;
+import com.microservices.order.repository.OrderRepository;
+import com.microservices.order.resilience.DependencyGuards;
+import com.microservices.order.resilience.ResilienceProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CheckoutSagaOrchestratorTest {
+
+    private static final String ORDER_ID = "0190a8c2-3b00-7000-8000-000000000001";
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    @Mock
+    private CheckoutSagaRepository sagaRepository;
+
+    @Mock
+    private InventoryClient inventoryClient;
+
+    @Mock
+    private PaymentClient paymentClient;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private DashboardTotals dashboardTotals;
+
+    private final OrderMetrics orderMetrics = new OrderMetrics();
+
+    private CheckoutSagaOrchestrator orchestrator;
+
+    private Order order;
+
+    @BeforeEach
+    void setUp() {
+        orchestrator = new CheckoutSagaOrchestrator(orderRepository, sagaRepository, inventoryClient, paymentClient,
+                new TransactionTemplate(transactionManager),
+                new DependencyGuards(new ResilienceProperties(), new SimpleMeterRegistry()), dashboardTotals,
+                orderMetrics);
+        lenient().when(sagaRepository.save(any(CheckoutSaga.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        lenient().when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        order = new Order();
+        order.setId(ORDER_ID);
+        order.addItem(new OrderItem("LAPTOP-001", 1, new BigDecimal("1000.00")));
+        order.setStatus(OrderStatus.PAYMENT_PENDING);
+    }
+
+    @Test
+    void testResume_ChargingSagaWithExistingPayment_NotChargedTwice() {
+        // Arrange: the charge went through but the process died before confirming
+        CheckoutSaga stalled = saga(SagaState.CHARGING);
+        when(sagaRepository.findById(ORDER_ID)).thenReturn(Optional.of(stalled));
+        when(orderRepository.findById(UUID.fromString(ORDER_ID))).thenReturn(Optional.of(order));
+        when(orderRepository.findWithItemsById(UUID.fromString(ORDER_ID))).thenReturn(Optional.of(order));
+
+        PaymentResponse existing = new PaymentResponse();
+        existing.setId(9L);
+        existing.setStatus("SUCCESS");
+        when(paymentClient.getPaymentByOrderId(ORDER_ID)).thenReturn(Mono.just(existing));
+
+        // Act
+        boolean resumed = orchestrator.resume(stalled);
+
+        // Assert
+        assertTrue(resumed);
+        assertEquals(OrderStatus.PAID, order.getStatus());
+        assertEquals("9", order.getPaymentId());
+        assertEquals(SagaState.COMPLETED, stalled.getState());
+        assertEquals(1, stalled.getAttempts());
+        verify(paymentClient, never()).processPayment(any());
+        // Counted when recovery confirms the order, not when the checkout stalled
+        assertEquals(1, orderMetrics.snapshot().get(0).getPaymentsSucceeded());
+    }
+
+    @Test
+    void testResume_ChargingSagaWithPendingPayment_WaitsForGateway() {
+        // Arrange: the gateway had not answered when the process died
+        CheckoutSaga stalled = saga(SagaState.CHARGING);
+        when(sagaRepository.findById(ORDER_ID)).thenReturn(Optional.of(stalled));
+        when(orderRepository.findById(UUID.fromString(ORDER_ID))).thenReturn(Optional.of(order));
+        when(orderRepository.findWithItemsById(UUID.fromString(ORDER_ID))).thenReturn(Optional.of(order));
+
+        PaymentResponse pending = new PaymentResponse();
+        pending.setId(9L);
+        pending.setStatus("PENDING");
+        PaymentResponse settled = new PaymentResponse();
+        settled.setId(9L);
+        settled.setStatus("SUCCESS");
+        when(paymentClient.getPaymentByOrderId(ORDER_ID)).thenReturn(Mono.just(pending));
+        when(paymentClient.awaitSettled(pending)).thenReturn(Mono.just(settled));
+
+        // Act
+        boolean resumed = orchestrator.resume(stalled);
+
+        // Assert
+        assertTrue(resumed);
+        assertEquals(OrderStatus.PAID, order.getStatus());
+        assertEquals(SagaState.COMPLETED, stalled.getState());
+        verify(paymentClient, never()).processPayment(any());
+    }
+
+    @Test
+    void testResume_GatewayStillProcessing_LeftForRecovery() {
+        // Arrange
+        CheckoutSaga stalled = saga(SagaState.CHARGING);
+        when(sagaRepository.findById(ORDER_ID)).thenReturn(Optional.of(stalled));
+        when(orderRepository.findWithItemsById(UUID.fromString(ORDER_ID))).thenReturn(Optional.of(order));
+
+        PaymentResponse pending = new PaymentResponse();
+        pending.setId(9L);
+        pending.setStatus("PENDING");
+        when(paymentClient.getPaymentByOrderId(ORDER_ID)).thenReturn(Mono.just(pending));
+        when(paymentClient.awaitSettled(pending)).thenReturn(Mono.just(pending));
+
+        // Act & Assert - neither confirmed nor compensated
+        assertThrows(RuntimeException.class, () -> orchestrator.resume(stalled));
+        assertEquals(SagaState.CHARGING, stalled.getState());
+        assertEquals(OrderStatus.PAYMENT_PENDING, order.getStatus());
+        assertNotNull(stalled.getLastError());
+        assertEquals(0, orderMetrics.snapshot().get(0).getPaymentsFailed());
+    }
+
+    @Test
+    void testResume_GatewayStillProcessingPastMaxAttempts_VoidsAndCancels() {
+        // Arrange - the last allowed resume still finds the payment unanswered
+        CheckoutSaga stalled = saga(SagaState.CHARGING);
+        stalled.setAttempts(5);
+        when(sagaRepository.findById(ORDER_ID)).thenReturn(Optional.of(stalled));
+        when(orderRepository.findById(UUID.fromString(ORDER_ID))).thenReturn(Optional.of(order));
+        when(orderRepository.findWithItemsById(UUID.fromString(ORDER_ID))).thenReturn(Optional.of(order));
+        when(inventoryClient.release("LAPTOP-001", 1, ORDER_ID + ":0")).thenReturn(Mono.empty());
+
+        PaymentResponse pending = new PaymentResponse();
+        pending.setId(9L);
+        pending.setStatus("PENDING");
+        when(paymentClient.getPaymentByOrderId(ORDER_ID)).thenReturn(Mono.just(pending));
+        when(paymentClient.awaitSettled(pending)).thenReturn(Mono.just(pending));
+        when(paymentClient.refund("9")).thenReturn(Mono.just(new PaymentResponse()));
+
+        // Act
+        boolean resumed = orchestrator.resume(stalled);
+
+        // Assert
+        assertTrue(resumed);
+        assertEquals(OrderStatus.CANCELLED, order.getStatus());
+        assertEquals("Payment was not confirmed in time", order.getCancellationReason());
+        assertEquals(SagaState.COMPENSATED, stalled.getState());
+        assertEquals("REFUNDED", stalled.getPaymentStatus());
+        verify(paymentClient).refund("9");
+        assertEquals(1, orderMetrics.snapshot().get(0).getPaymentsFailed());
+    }
+
+    @Test
+    void testResume_CompensatingSaga_RefundsReleasesAndCancels() {
+        // Arrange: compensation was interrupted after it was recorded
+        CheckoutSaga stalled = saga(SagaState.COMPENSATING);
+        stalled.setFailureReason("Order changed during checkout");
+        stalled.setPaymentId("9");
+        stalled.setPaymentStatus("SUCCESS");
+        when(sagaRepository.findById(ORDER_ID)).thenReturn(Optional.of(stalled));
+        when(orderRepository.findById(UUID.fromString(ORDER_ID))).thenReturn(Optional.of(order));
+        when(orderRepository.findWithItemsById(UUID.fromString(ORDER_ID))).thenReturn(Optional.of(order));
+        when(inventoryClient.release("LAPTOP-001", 1, ORDER_ID + ":0")).thenReturn(Mono.empty());
+        when(paymentClient.refund("9")).thenReturn(Mono.just(new PaymentResponse()));
+
+        // Act
+        boolean resumed = orchestrator.resume(stalled);
+
+        // Assert
+        assertTrue(resumed);
+        assertEquals(OrderStatus.CANCELLED, order.getStatus());
+        assertEquals("Order changed during checkout", order.getCancellationReason());
+        assertEquals(SagaState.COMPENSATED, stalled.getState());
+        verify(inventoryClient).release("LAPTOP-001", 1, ORDER_ID + ":0");
+        verify(paymentClient).refund("9");
+    }
+
+    @Test
+    void testResume_SagaMovedSinceObserved_NotDriven() {
+        // Arrange: another recoverer claimed the saga first
+        CheckoutSaga stalled = saga(SagaState.CHARGING);
+        CheckoutSaga current = saga(SagaState.CHARGING);
+        current.setVersion(stalled.getVersion() + 1);
+        when(sagaRepository.findById(ORDER_ID)).thenReturn(Optional.of(current));
+
+        // Act
+        boolean resumed = orchestrator.resume(stalled);
+
+        // Assert
+        assertFalse(resumed);
+        verify(sagaRepository, never()).save(any(CheckoutSaga.class));
+        verifyNoInteractions(inventoryClient, paymentClient);
+    }
+
+    private static CheckoutSaga saga(SagaState state) {
+        CheckoutSaga saga = new CheckoutSaga(ORDER_ID);
+        saga.setState(state);
+        saga.setVersion(3L);
+        return saga;
+    }
+}
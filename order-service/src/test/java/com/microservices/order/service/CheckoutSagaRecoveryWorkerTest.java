@@ -0,0 +1,193 @@
+package com.microservices.order.service;
+
+import com.microservices.order.client.InventoryClient;
+import com.microservices.order.client.PaymentClient;
+import com.microservices.order.client.PaymentResponse;
+import com.microservices.order.entity.CheckoutSaga;
+import com.microservices.order.entity.Order;
+import com.microservices.order.entity.OrderItem;
+import com.microservices.order.entity.OrderStatus;
+import com.microservices.order.entity.SagaState;
+import com.microservices.order.metrics.OrderMetrics;
+import com.microservices.order.repository.CheckoutSagaRepository;
+import com.microservices.order.repository.OrderRepository;
+import com.microservices.order.resilience.DependencyGuards;
+import com.microservices.order.resilience.ResilienceProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CheckoutSagaRecoveryWorkerTest {
+
+    private static final String ORDER_ID = "0190a8c2-3b00-7000-8000-000000000001";
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    @Mock
+    private CheckoutSagaRepository sagaRepository;
+
+    @Mock
+    private InventoryClient inventoryClient;
+
+    @Mock
+    private PaymentClient paymentClient;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private DashboardTotals dashboardTotals;
+
+    private CheckoutSagaRecoveryWorker worker;
+
+    private Order order;
+
+    @BeforeEach
+    void setUp() {
+        // A real orchestrator, so the attempt cap and compensation are exercised as recovery runs them
+        CheckoutSagaOrchestrator orchestrator = new CheckoutSagaOrchestrator(orderRepository, sagaRepository,
+                inventoryClient, paymentClient, new TransactionTemplate(transactionManager),
+                new DependencyGuards(new ResilienceProperties(), new SimpleMeterRegistry()), dashboardTotals,
+                new OrderMetrics());
+        worker = new CheckoutSagaRecoveryWorker(sagaRepository, orchestrator, 60_000);
+        lenient().when(sagaRepository.save(any(CheckoutSaga.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        lenient().when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        order = new Order();
+        order.setId(ORDER_ID);
+        order.addItem(new OrderItem("LAPTOP-001", 1, new BigDecimal("1000.00")));
+        order.setStatus(OrderStatus.PAYMENT_PENDING);
+    }
+
+    @Test
+    void testResumeStalledSagas_OnlyInFlightSagasPastStallThreshold() {
+        // Arrange
+        when(sagaRepository.findTop50ByStateInAndUpdatedAtBeforeOrderByUpdatedAtAsc(anyCollection(), any(Instant.class)))
+                .thenReturn(List.of());
+
+        // Act
+        Instant before = Instant.now();
+        worker.resumeStalledSagas();
+
+        // Assert
+        verify(sagaRepository).findTop50ByStateInAndUpdatedAtBeforeOrderByUpdatedAtAsc(
+                argThat(states -> states.size() == 3 && states.containsAll(
+                        List.of(SagaState.STARTED, SagaState.CHARGING, SagaState.COMPENSATING))),
+                argThat(cutoff -> !cutoff.isAfter(Instant.now().minusSeconds(60))
+                        && !cutoff.isBefore(before.minusSeconds(60))));
+        verifyNoInteractions(inventoryClient, paymentClient);
+    }
+
+    @Test
+    void testResumeStalledSagas_ChargingSagaUnderAttemptCap_LeftInFlight() {
+        // Arrange: the charge never reached payment-service and payment-service is still failing
+        CheckoutSaga stalled = stalled(SagaState.CHARGING, 1);
+        when(paymentClient.getPaymentByOrderId(ORDER_ID)).thenReturn(Mono.empty());
+        when(paymentClient.processPayment(any())).thenReturn(Mono.error(new RuntimeException("Connection refused")));
+
+        // Act
+        worker.resumeStalledSagas();
+
+        // Assert - claimed and tried again, but not given up on
+        assertEquals(2, stalled.getAttempts());
+        assertEquals(SagaState.CHARGING, stalled.getState());
+        assertEquals(OrderStatus.PAYMENT_PENDING, order.getStatus());
+        assertNotNull(stalled.getLastError());
+        verifyNoInteractions(inventoryClient);
+    }
+
+    @Test
+    void testResumeStalledSagas_ChargingSagaPastAttemptCap_Compensated() {
+        // Arrange: the last allowed resume finds no charge at payment-service
+        CheckoutSaga stalled = stalled(SagaState.CHARGING, 5);
+        when(orderRepository.findById(UUID.fromString(ORDER_ID))).thenReturn(Optional.of(order));
+        when(paymentClient.getPaymentByOrderId(ORDER_ID)).thenReturn(Mono.empty());
+        when(inventoryClient.release("LAPTOP-001", 1, ORDER_ID + ":0")).thenReturn(Mono.empty());
+
+        // Act
+        worker.resumeStalledSagas();
+
+        // Assert - stock returned and the order cancelled without charging
+        assertEquals(6, stalled.getAttempts());
+        assertEquals(SagaState.COMPENSATED, stalled.getState());
+        assertEquals(OrderStatus.CANCELLED, order.getStatus());
+        assertEquals("Payment could not be processed", order.getCancellationReason());
+        verify(inventoryClient).release("LAPTOP-001", 1, ORDER_ID + ":0");
+        verify(paymentClient, never()).processPayment(any());
+        verify(paymentClient, never()).refund(any());
+    }
+
+    @Test
+    void testResumeStalledSagas_ChargingSagaWithFailedPayment_Compensated() {
+        // Arrange: the gateway declined the charge before the process died
+        CheckoutSaga stalled = stalled(SagaState.CHARGING, 1);
+        when(orderRepository.findById(UUID.fromString(ORDER_ID))).thenReturn(Optional.of(order));
+        PaymentResponse declined = new PaymentResponse();
+        declined.setId(9L);
+        declined.setStatus("FAILED");
+        when(paymentClient.getPaymentByOrderId(ORDER_ID)).thenReturn(Mono.just(declined));
+        when(inventoryClient.release("LAPTOP-001", 1, ORDER_ID + ":0")).thenReturn(Mono.empty());
+
+        // Act
+        worker.resumeStalledSagas();
+
+        // Assert
+        assertEquals(SagaState.COMPENSATED, stalled.getState());
+        assertEquals(OrderStatus.CANCELLED, order.getStatus());
+        assertEquals("Payment failed", order.getCancellationReason());
+        verify(inventoryClient).release("LAPTOP-001", 1, ORDER_ID + ":0");
+        verify(paymentClient, never()).refund(any());
+    }
+
+    @Test
+    void testResumeStalledSagas_OneStillFailing_OthersResumed() {
+        // Arrange
+        CheckoutSaga failing = new CheckoutSaga("0190a8c2-3b00-7000-8000-000000000002");
+        failing.setState(SagaState.CHARGING);
+        failing.setVersion(3L);
+        CheckoutSaga stalled = stalled(SagaState.COMPENSATING, 1);
+        stalled.setFailureReason("Insufficient inventory to fulfill order");
+        when(sagaRepository.findTop50ByStateInAndUpdatedAtBeforeOrderByUpdatedAtAsc(anyCollection(), any(Instant.class)))
+                .thenReturn(List.of(failing, stalled));
+        when(sagaRepository.findById(failing.getOrderId())).thenThrow(new RuntimeException("Lock timeout"));
+        when(orderRepository.findById(UUID.fromString(ORDER_ID))).thenReturn(Optional.of(order));
+        when(inventoryClient.release("LAPTOP-001", 1, ORDER_ID + ":0")).thenReturn(Mono.empty());
+
+        // Act
+        worker.resumeStalledSagas();
+
+        // Assert
+        assertEquals(SagaState.COMPENSATED, stalled.getState());
+        assertEquals(OrderStatus.CANCELLED, order.getStatus());
+    }
+
+    private CheckoutSaga stalled(SagaState state, int attempts) {
+        CheckoutSaga saga = new CheckoutSaga(ORDER_ID);
+        saga.setState(state);
+        saga.setAttempts(attempts);
+        saga.setVersion(3L);
+        lenient().when(sagaRepository.findTop50ByStateInAndUpdatedAtBeforeOrderByUpdatedAtAsc(anyCollection(),
+                any(Instant.class))).thenReturn(List.of(saga));
+        when(sagaRepository.findById(ORDER_ID)).thenReturn(Optional.of(saga));
+        when(orderRepository.findWithItemsById(UUID.fromString(ORDER_ID))).thenReturn(Optional.of(order));
+        return saga;
+    }
+}
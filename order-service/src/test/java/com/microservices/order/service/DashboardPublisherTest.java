@@ -0,0 +1,255 @@
+package com.microservices.order.service;
+
+import com.microservices.order.dto.DashboardData;
+import com.microservices.order.dto.DashboardDelta;
+import com.microservices.order.dto.LowStockItem;
+import com.microservices.order.dto.OrderStatusCount;
+import com.microservices.order.dto.ProductOrderCount;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DashboardPublisherTest {
+
+    @Mock
+    private DashboardService dashboardService;
+
+    private final AtomicLong now = new AtomicLong();
+
+    @Test
+    void testDiff_SendsOnlyChangedEntries() {
+        DashboardData previous = data(
+                List.of(status("CREATED", 2), status("PAID", 1)),
+                List.of(product("LAPTOP-001", 3), product("MOUSE-001", 2), product("CABLE-001", 1)),
+                List.of(lowStock("LAPTOP-001", 1), lowStock("MOUSE-001", 2)));
+        DashboardData current = data(
+                List.of(status("CREATED", 3)),
+                List.of(product("MOUSE-001", 4), product("LAPTOP-001", 3)),
+                List.of(lowStock("LAPTOP-001", 1), lowStock("CABLE-001", 0)));
+
+        DashboardDelta delta = DashboardPublisher.diff(previous, current);
+
+        assertEquals(1, delta.getStatusChanges().size());
+        assertEquals(3L, delta.getStatusChanges().get(0).getCount());
+        assertEquals(List.of("PAID"), delta.getStatusRemovals());
+        assertEquals(2, delta.getRankChanges().size());
+        assertEquals(1, delta.getRankChanges().get(0).getRank());
+        assertEquals("MOUSE-001", delta.getRankChanges().get(0).getProduct().getProductSku());
+        assertEquals(2, delta.getRankChanges().get(1).getRank());
+        assertEquals(2, delta.getTopProductCount());
+        assertEquals(1, delta.getLowStockUpserts().size());
+        assertEquals("CABLE-001", delta.getLowStockUpserts().get(0).getProductSku());
+        assertEquals(List.of("MOUSE-001"), delta.getLowStockRemovals());
+
+        assertFalse(DashboardPublisher.diff(current, current).hasChanges());
+    }
+
+    @Test
+    void testPublish_RateLimitsAndCoalescesPerClient() {
+        DashboardPublisher publisher = new DashboardPublisher(dashboardService, Runnable::run, 10, 60_000, 1_000, 10_000,
+                now::get);
+        DashboardData first = data(List.of(status("CREATED", 1)), List.of(), List.of());
+        DashboardData second = data(List.of(status("CREATED", 2)), List.of(), List.of());
+        DashboardData third = data(List.of(status("CREATED", 2), status("PAID", 1)), List.of(), List.of());
+
+        when(dashboardService.getDashboardData()).thenReturn(CompletableFuture.completedFuture(first));
+        RecordingEmitter emitter = new RecordingEmitter();
+        publisher.subscribe(emitter);
+        assertEquals(List.of("snapshot"), emitter.names);
+
+        // Inside the client's interval nothing is sent
+        now.set(TimeUnit.MILLISECONDS.toNanos(500));
+        when(dashboardService.getDashboardData()).thenReturn(CompletableFuture.completedFuture(second));
+        publisher.publish();
+        assertEquals(1, emitter.names.size());
+
+        // Both changes arrive as one delta once the interval has passed
+        now.set(TimeUnit.MILLISECONDS.toNanos(1_000));
+        when(dashboardService.getDashboardData()).thenReturn(CompletableFuture.completedFuture(third));
+        publisher.publish();
+        assertEquals(List.of("snapshot", "delta"), emitter.names);
+        DashboardDelta delta = (DashboardDelta) emitter.payloads.get(1);
+        assertEquals(2, delta.getStatusChanges().size());
+
+        // Nothing new to send
+        now.set(TimeUnit.MILLISECONDS.toNanos(5_000));
+        publisher.publish();
+        assertEquals(2, emitter.names.size());
+    }
+
+    @Test
+    void testSubscribe_BeyondLimit_Rejected() {
+        DashboardPublisher publisher = new DashboardPublisher(dashboardService, Runnable::run, 1, 60_000, 1_000, 10_000,
+                now::get);
+        when(dashboardService.getDashboardData())
+                .thenReturn(CompletableFuture.completedFuture(data(List.of(), List.of(), List.of())));
+
+        publisher.subscribe(new RecordingEmitter());
+
+        assertThrows(IllegalStateException.class, () -> publisher.subscribe(new RecordingEmitter()));
+        assertEquals(1, publisher.subscriberCount());
+    }
+
+    @Test
+    void testSubscribe_Concurrent_NeverExceedsLimit() throws Exception {
+        DashboardPublisher publisher = new DashboardPublisher(dashboardService, Runnable::run, 5, 60_000, 1_000,
+                10_000, now::get);
+        when(dashboardService.getDashboardData())
+                .thenReturn(CompletableFuture.completedFuture(data(List.of(), List.of(), List.of())));
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        AtomicInteger rejected = new AtomicInteger();
+        try {
+            List<Future<?>> subscribes = new ArrayList<>();
+            for (int i = 0; i < 40; i++) {
+                subscribes.add(pool.submit(() -> {
+                    try {
+                        publisher.subscribe(new RecordingEmitter());
+                    } catch (IllegalStateException e) {
+                        rejected.incrementAndGet();
+                    }
+                }));
+            }
+            for (Future<?> subscribe : subscribes) {
+                subscribe.get(5, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(5, publisher.subscriberCount());
+        assertEquals(35, rejected.get());
+    }
+
+    @Test
+    void testPublish_SlowSubscriber_DoesNotHoldUpOthers() {
+        List<Runnable> writes = new ArrayList<>();
+        DashboardPublisher publisher = new DashboardPublisher(dashboardService, writes::add, 10, 60_000, 1_000,
+                10_000, now::get);
+        DashboardData first = data(List.of(status("CREATED", 1)), List.of(), List.of());
+        DashboardData second = data(List.of(status("CREATED", 2)), List.of(), List.of());
+        when(dashboardService.getDashboardData()).thenReturn(CompletableFuture.completedFuture(first));
+        RecordingEmitter slow = new RecordingEmitter();
+        RecordingEmitter fast = new RecordingEmitter();
+        publisher.subscribe(slow);
+        publisher.subscribe(fast);
+
+        // The fast viewer's snapshot is written; the slow one's is still queued
+        assertEquals(2, writes.size());
+        writes.get(1).run();
+
+        now.set(TimeUnit.MILLISECONDS.toNanos(1_000));
+        when(dashboardService.getDashboardData()).thenReturn(CompletableFuture.completedFuture(second));
+        publisher.publish();
+
+        // Only the fast viewer gets a new event; the slow one is skipped, not queued behind
+        assertEquals(3, writes.size());
+        writes.get(2).run();
+        assertEquals(List.of("snapshot", "delta"), fast.names);
+        assertEquals(List.of(), slow.names);
+        assertEquals(2, publisher.subscriberCount());
+    }
+
+    @Test
+    void testPublish_SubscriberStuckPastSendTimeout_Dropped() {
+        List<Runnable> writes = new ArrayList<>();
+        DashboardPublisher publisher = new DashboardPublisher(dashboardService, writes::add, 10, 60_000, 1_000,
+                10_000, now::get);
+        when(dashboardService.getDashboardData())
+                .thenReturn(CompletableFuture.completedFuture(data(List.of(status("CREATED", 1)), List.of(), List.of())));
+        RecordingEmitter stuck = new RecordingEmitter();
+        publisher.subscribe(stuck);
+
+        now.set(TimeUnit.MILLISECONDS.toNanos(10_001));
+        publisher.publish();
+
+        // Dropped, and its late write sends nothing
+        assertEquals(0, publisher.subscriberCount());
+        writes.get(0).run();
+        assertEquals(List.of(), stuck.names);
+    }
+
+    @Test
+    void testPublish_WritersSaturated_SnapshotSentNextRound() {
+        AtomicBoolean saturated = new AtomicBoolean(true);
+        DashboardPublisher publisher = new DashboardPublisher(dashboardService, task -> {
+            if (saturated.get()) {
+                throw new RejectedExecutionException("Queue full");
+            }
+            task.run();
+        }, 10, 60_000, 1_000, 10_000, now::get);
+        when(dashboardService.getDashboardData())
+                .thenReturn(CompletableFuture.completedFuture(data(List.of(status("CREATED", 1)), List.of(), List.of())));
+        RecordingEmitter emitter = new RecordingEmitter();
+        publisher.subscribe(emitter);
+        assertEquals(List.of(), emitter.names);
+
+        saturated.set(false);
+        publisher.publish();
+
+        assertEquals(List.of("snapshot"), emitter.names);
+    }
+
+    private static DashboardData data(List<OrderStatusCount> statuses, List<ProductOrderCount> products,
+                                      List<LowStockItem> lowStock) {
+        DashboardData data = new DashboardData();
+        data.setOrdersByStatus(statuses);
+        data.setTopProducts(products);
+        data.setLowStockItems(lowStock);
+        return data;
+    }
+
+    private static OrderStatusCount status(String status, long count) {
+        return new OrderStatusCount(status, count, new BigDecimal("10.00").multiply(BigDecimal.valueOf(count)));
+    }
+
+    private static ProductOrderCount product(String sku, long orders) {
+        return new ProductOrderCount(sku, orders, orders);
+    }
+
+    private static LowStockItem lowStock(String sku, int available) {
+        LowStockItem item = new LowStockItem();
+        item.setProductSku(sku);
+        item.setAvailable(available);
+        item.setThreshold(5);
+        return item;
+    }
+
+    // Records events instead of writing them to a response
+    private static class RecordingEmitter extends SseEmitter {
+        private final List<String> names = new ArrayList<>();
+        private final List<Object> payloads = new ArrayList<>();
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            for (ResponseBodyEmitter.DataWithMediaType item : builder.build()) {
+                Object data = item.getData();
+                if (data instanceof String && ((String) data).startsWith("event:")) {
+                    String text = (String) data;
+                    names.add(text.substring("event:".length(), text.indexOf('\n')));
+                } else if (!(data instanceof String)) {
+                    payloads.add(data);
+                }
+            }
+        }
+    }
+}
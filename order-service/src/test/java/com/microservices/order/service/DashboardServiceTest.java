@@ -0,0 +1,143 @@
+package com.microservices.order.service;
+
+import com.microservices.order.client.InventoryClient;
+import com.microservices.order.dto.DashboardData;
+import com.microservices.order.dto.LowStockItem;
+import com.microservices.order.entity.OrderStatus;
+import com.microservices.order.entity.OrderStatusTotal;
+import com.microservices.order.entity.ProductOrderTotal;
+import com.microservices.order.metrics.OrderMetrics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DashboardServiceTest {
+
+    private static final long TTL_MS = 5_000;
+    private static final long MAX_STALE_MS = 60_000;
+
+    @Mock
+    private DashboardTotals dashboardTotals;
+
+    @Mock
+    private InventoryClient inventoryClient;
+
+    private final AtomicLong now = new AtomicLong();
+
+    @Test
+    void testGetDashboardData_ConcurrentCallers_ShareOneRefresh() throws Exception {
+        DashboardService service = service(2_000);
+        CompletableFuture<List<LowStockItem>> gate = new CompletableFuture<>();
+        stubTotals(1);
+        when(inventoryClient.getLowStockItems()).thenReturn(Mono.fromFuture(gate));
+
+        List<CompletableFuture<DashboardData>> calls = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            calls.add(service.getDashboardData());
+        }
+        gate.complete(List.of(new LowStockItem()));
+
+        DashboardData first = calls.get(0).get(5, TimeUnit.SECONDS);
+        for (CompletableFuture<DashboardData> call : calls) {
+            assertSame(first, call.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, first.getLowStockItems().size());
+        verify(dashboardTotals, times(1)).statusTotals();
+        verify(inventoryClient, times(1)).getLowStockItems();
+
+        // Within the TTL the cached copy is served without another fetch
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(TTL_MS - 1));
+        assertSame(first, service.getDashboardData().getNow(null));
+        verify(dashboardTotals, times(1)).statusTotals();
+    }
+
+    @Test
+    void testGetDashboardData_Stale_ServedWhileRefreshing() throws Exception {
+        DashboardService service = service(2_000);
+        stubTotals(1);
+        when(inventoryClient.getLowStockItems()).thenReturn(Mono.just(List.of()));
+        DashboardData initial = service.getDashboardData().get(5, TimeUnit.SECONDS);
+
+        CompletableFuture<List<LowStockItem>> gate = new CompletableFuture<>();
+        when(inventoryClient.getLowStockItems()).thenReturn(Mono.fromFuture(gate));
+        stubTotals(7);
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(TTL_MS + 1));
+
+        // Both callers get the stale copy at once; only one refresh starts
+        assertSame(initial, service.getDashboardData().getNow(null));
+        assertSame(initial, service.getDashboardData().getNow(null));
+        verify(inventoryClient, times(2)).getLowStockItems();
+
+        gate.complete(List.of());
+        DashboardData refreshed = awaitRefresh(service, initial);
+        assertEquals(7, refreshed.getOrdersByStatus().get(0).getCount());
+    }
+
+    @Test
+    void testGetDashboardData_BeyondMaxStale_WaitsForRefresh() throws Exception {
+        DashboardService service = service(2_000);
+        stubTotals(1);
+        when(inventoryClient.getLowStockItems()).thenReturn(Mono.just(List.of()));
+        DashboardData initial = service.getDashboardData().get(5, TimeUnit.SECONDS);
+
+        CompletableFuture<List<LowStockItem>> gate = new CompletableFuture<>();
+        when(inventoryClient.getLowStockItems()).thenReturn(Mono.fromFuture(gate));
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(TTL_MS + MAX_STALE_MS));
+
+        CompletableFuture<DashboardData> pending = service.getDashboardData();
+        assertFalse(pending.isDone());
+        gate.complete(List.of());
+        assertNotSame(initial, pending.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testGetDashboardData_SourceMissesDeadline_RendersOtherSections() throws Exception {
+        DashboardService service = service(100);
+        stubTotals(3);
+        when(inventoryClient.getLowStockItems()).thenReturn(Mono.never());
+
+        DashboardData data = service.getDashboardData().get(5, TimeUnit.SECONDS);
+
+        assertTrue(data.getLowStockItems().isEmpty());
+        assertEquals(3, data.getOrdersByStatus().get(0).getCount());
+        assertEquals("LAPTOP-001", data.getTopProducts().get(0).getProductSku());
+    }
+
+    private DashboardService service(long deadlineMs) {
+        return new DashboardService(dashboardTotals, new TopProducts(dashboardTotals, false, 100),
+                inventoryClient, new OrderMetrics(), TTL_MS, MAX_STALE_MS, deadlineMs, now::get);
+    }
+
+    private void stubTotals(long createdOrders) {
+        when(dashboardTotals.statusTotals())
+                .thenReturn(List.of(new OrderStatusTotal(OrderStatus.CREATED, createdOrders, 10_000)));
+        when(dashboardTotals.topProducts())
+                .thenReturn(List.of(new ProductOrderTotal("LAPTOP-001", createdOrders, createdOrders)));
+    }
+
+    // The background refresh completes on another thread
+    private static DashboardData awaitRefresh(DashboardService service, DashboardData stale) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            DashboardData data = service.getDashboardData().getNow(null);
+            if (data != stale) {
+                return data;
+            }
+            Thread.sleep(10);
+        }
+        fail("Refresh did not complete");
+        return null;
+    }
+}
@@ -0,0 +1,133 @@
+package com.microservices.order.service;
+
+import com.microservices.order.entity.Order;
+import com.microservices.order.entity.OrderItem;
+import com.microservices.order.entity.OrderStatus;
+import com.microservices.order.entity.OrderStatusTotal;
+import com.microservices.order.entity.ProductOrderTotal;
+import com.microservices.order.repository.OrderRepository;
+import com.microservices.order.repository.OrderStatusTotalRepository;
+import com.microservices.order.repository.ProductOrderTotalRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import(DashboardTotals.class)
+class DashboardTotalsTest {
+
+    @Autowired
+    private DashboardTotals dashboardTotals;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderStatusTotalRepository statusTotals;
+
+    @Autowired
+    private ProductOrderTotalRepository productTotals;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void testOrderCreatedAndStatusChanged_UpdateRunningTotals() {
+        Order first = createOrder(new OrderItem("LAPTOP-001", 1, new BigDecimal("1000.00")),
+                new OrderItem("MOUSE-001", 2, new BigDecimal("25.00")));
+        createOrder(new OrderItem("MOUSE-001", 1, new BigDecimal("25.00")),
+                new OrderItem("MOUSE-001", 3, new BigDecimal("25.00")));
+
+        first.setStatus(OrderStatus.PAID);
+        orderRepository.save(first);
+        dashboardTotals.statusChanged(first, OrderStatus.CREATED);
+        entityManager.clear();
+
+        Map<OrderStatus, OrderStatusTotal> byStatus = dashboardTotals.statusTotals().stream()
+                .collect(Collectors.toMap(OrderStatusTotal::getStatus, total -> total));
+        assertEquals(1, byStatus.get(OrderStatus.CREATED).getOrderCount());
+        assertEquals(10_000, byStatus.get(OrderStatus.CREATED).getRevenueMinor());
+        assertEquals(1, byStatus.get(OrderStatus.PAID).getOrderCount());
+        assertEquals(105_000, byStatus.get(OrderStatus.PAID).getRevenueMinor());
+
+        // MOUSE-001 appears on two lines of the second order but counts once for it
+        List<ProductOrderTotal> top = dashboardTotals.topProducts();
+        assertEquals("MOUSE-001", top.get(0).getProductSku());
+        assertEquals(2, top.get(0).getOrderCount());
+        assertEquals(6, top.get(0).getTotalQuantity());
+        assertEquals("LAPTOP-001", top.get(1).getProductSku());
+        assertEquals(1, top.get(1).getOrderCount());
+    }
+
+    @Test
+    void testStatusTotals_SummedOverStripes() {
+        statusTotals.add(OrderStatus.PAID.name(), 1, 1, 100);
+        statusTotals.add(OrderStatus.PAID.name(), 7, 2, 300);
+        statusTotals.add(OrderStatus.CANCELLED.name(), 2, 0, 0);
+        entityManager.clear();
+
+        List<OrderStatusTotal> totals = dashboardTotals.statusTotals();
+        assertEquals(1, totals.size());
+        assertEquals(OrderStatus.PAID, totals.get(0).getStatus());
+        assertEquals(3, totals.get(0).getOrderCount());
+        assertEquals(400, totals.get(0).getRevenueMinor());
+    }
+
+    @Test
+    void testReconcile_CorrectsDrift() {
+        createOrder(new OrderItem("LAPTOP-001", 1, new BigDecimal("1000.00")));
+        createOrder(new OrderItem("MOUSE-001", 4, new BigDecimal("25.00")));
+        assertEquals(0, dashboardTotals.reconcile());
+
+        // Totals knocked out of step, e.g. by orders edited directly in the database
+        statusTotals.add(OrderStatus.CREATED.name(), 3, 5, 1);
+        productTotals.add("LAPTOP-001", 3, 3);
+        productTotals.add("RETIRED-001", 1, 1);
+        entityManager.clear();
+
+        assertEquals(3, dashboardTotals.reconcile());
+        entityManager.flush();
+        entityManager.clear();
+
+        OrderStatusTotal created = dashboardTotals.statusTotals().get(0);
+        assertEquals(OrderStatus.CREATED, created.getStatus());
+        assertEquals(2, created.getOrderCount());
+        assertEquals(110_000, created.getRevenueMinor());
+        assertEquals(1, productTotals.findById("LAPTOP-001").orElseThrow().getOrderCount());
+        assertFalse(productTotals.existsById("RETIRED-001"));
+        assertEquals(0, dashboardTotals.reconcile());
+    }
+
+    @Test
+    void testApproximateTopProducts_ProductTotalsNotKept() {
+        DashboardTotals approximate =
+                new DashboardTotals(orderRepository, statusTotals, productTotals, transactionTemplate, 16, true);
+        Order order = orderRepository.save(new Order(List.of(new OrderItem("LAPTOP-001", 1, new BigDecimal("1000.00")))));
+
+        approximate.orderCreated(order);
+        assertEquals(0, approximate.reconcile());
+        entityManager.clear();
+
+        assertEquals(1, approximate.statusTotals().get(0).getOrderCount());
+        assertEquals(0, productTotals.count());
+    }
+
+    private Order createOrder(OrderItem... items) {
+        Order order = orderRepository.save(new Order(List.of(items)));
+        dashboardTotals.orderCreated(order);
+        return order;
+    }
+}
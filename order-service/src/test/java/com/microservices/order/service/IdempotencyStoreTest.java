@@ -0,0 +1,191 @@
+package com.microservices.order.service;
+
+import com.microservices.order.service.IdempotencyStore.IdempotencyConflictException;
+import com.microservices.order.service.IdempotencyStore.IdempotencyKeyReusedException;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdempotencyStoreTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    @Test
+    void testExecute_SameKey_RunsOnceAndReplays() {
+        IdempotencyStore store = new IdempotencyStore(100, 1000, 1000, now::get);
+        AtomicInteger runs = new AtomicInteger();
+
+        String first = store.execute("key", () -> "result-" + runs.incrementAndGet(), r -> true);
+        String second = store.execute("key", () -> "result-" + runs.incrementAndGet(), r -> true);
+
+        assertEquals("result-1", first);
+        assertEquals("result-1", second);
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void testExecute_InFlightDuplicate_WaitsForFirstExecution() throws Exception {
+        IdempotencyStore store = new IdempotencyStore(100, 1000, 5000, now::get);
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> first = pool.submit(() -> store.execute("key", () -> {
+                runs.incrementAndGet();
+                started.countDown();
+                await(release);
+                return "first";
+            }, r -> true));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            Future<String> duplicate = pool.submit(() -> store.execute("key", () -> {
+                runs.incrementAndGet();
+                return "duplicate";
+            }, r -> true));
+            release.countDown();
+
+            assertEquals("first", first.get(5, TimeUnit.SECONDS));
+            assertEquals("first", duplicate.get(5, TimeUnit.SECONDS));
+            assertEquals(1, runs.get());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void testExecute_InFlightTooLong_Conflict() throws Exception {
+        IdempotencyStore store = new IdempotencyStore(100, 1000, 50, now::get);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            pool.submit(() -> store.execute("key", () -> {
+                started.countDown();
+                await(release);
+                return "first";
+            }, r -> true));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            assertThrows(IdempotencyConflictException.class,
+                    () -> store.execute("key", () -> "duplicate", r -> true));
+        } finally {
+            release.countDown();
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void testExecute_FailureOrUncacheableResult_NotKept() {
+        IdempotencyStore store = new IdempotencyStore(100, 1000, 1000, now::get);
+
+        assertThrows(RuntimeException.class, () -> store.execute("key", () -> {
+            throw new RuntimeException("downstream down");
+        }, r -> true));
+        assertEquals("503", store.execute("key", () -> "503", r -> !r.equals("503")));
+        assertEquals("retried", store.execute("key", () -> "retried", r -> true));
+        assertEquals("retried", store.execute("key", () -> "again", r -> true));
+    }
+
+    @Test
+    void testExecute_ExpiredOrEvicted_RunsAgain() {
+        IdempotencyStore store = new IdempotencyStore(2, 1000, 1000, now::get);
+
+        store.execute("a", () -> "a1", r -> true);
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(1000));
+        assertEquals("a2", store.execute("a", () -> "a2", r -> true));
+
+        store.execute("b", () -> "b1", r -> true);
+        store.execute("c", () -> "c1", r -> true);
+        assertEquals(2, store.size());
+        assertEquals("a3", store.execute("a", () -> "a3", r -> true));
+    }
+
+    @Test
+    void testExecute_SameKeyDifferentRequest_Rejected() {
+        IdempotencyStore store = new IdempotencyStore(100, 1000, 1000, now::get);
+
+        assertEquals("first", store.execute("key", "request-1", () -> "first", r -> true));
+        assertEquals("first", store.execute("key", "request-1", () -> "again", r -> true));
+        assertThrows(IdempotencyKeyReusedException.class,
+                () -> store.execute("key", "request-2", () -> "second", r -> true));
+    }
+
+    @Test
+    void testExecute_StoreFull_InFlightEntryNotEvicted() throws Exception {
+        IdempotencyStore store = new IdempotencyStore(1, 1000, 5000, now::get);
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> first = pool.submit(() -> store.execute("slow", () -> {
+                runs.incrementAndGet();
+                started.countDown();
+                await(release);
+                return "first";
+            }, r -> true));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            store.execute("other", () -> "other", r -> true);
+
+            Future<String> duplicate = pool.submit(() -> store.execute("slow", () -> {
+                runs.incrementAndGet();
+                return "duplicate";
+            }, r -> true));
+            release.countDown();
+
+            assertEquals("first", first.get(5, TimeUnit.SECONDS));
+            assertEquals("first", duplicate.get(5, TimeUnit.SECONDS));
+            assertEquals(1, runs.get());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void testExecute_OlderKeyStillInFlight_RecordedResponsesStillExpire() throws Exception {
+        IdempotencyStore store = new IdempotencyStore(100, 1000, 5000, now::get);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            pool.submit(() -> store.execute("slow", () -> {
+                started.countDown();
+                await(release);
+                return "slow";
+            }, r -> true));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            store.execute("a", () -> "a1", r -> true);
+            store.execute("b", () -> "b1", r -> true);
+
+            now.addAndGet(TimeUnit.MILLISECONDS.toNanos(1000));
+            store.execute("c", () -> "c1", r -> true);
+
+            // Only the in-flight key and the new one are left
+            assertEquals(2, store.size());
+        } finally {
+            release.countDown();
+            pool.shutdownNow();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
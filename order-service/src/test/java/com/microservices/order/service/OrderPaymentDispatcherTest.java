@@ -0,0 +1,80 @@
+package com.microservices.order.service;
+
+import com.microservices.order.dto.OrderResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OrderPaymentDispatcherTest {
+
+    @Mock
+    private OrderService orderService;
+
+    // Holds submitted jobs until the test runs them
+    private final Queue<Runnable> queued = new ArrayDeque<>();
+
+    private OrderPaymentDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        dispatcher = new OrderPaymentDispatcher(orderService, queued::add);
+    }
+
+    @Test
+    void testSubmit_DuplicateWhileInFlight_JoinsSameJob() {
+        // Arrange
+        OrderResponse paid = new OrderResponse();
+        paid.setId("order-1");
+        when(orderService.payOrder("order-1")).thenReturn(paid);
+
+        // Act
+        CompletableFuture<OrderResponse> first = dispatcher.submit("order-1");
+        CompletableFuture<OrderResponse> second = dispatcher.submit("order-1");
+        queued.poll().run();
+
+        // Assert
+        assertSame(first, second);
+        assertTrue(queued.isEmpty());
+        assertSame(paid, first.join());
+        assertNull(dispatcher.inFlight("order-1"));
+        verify(orderService, times(1)).payOrder("order-1");
+    }
+
+    @Test
+    void testSubmit_PaymentFails_JobCompletesExceptionally() {
+        // Arrange
+        when(orderService.payOrder("order-1")).thenThrow(new RuntimeException("Payment processing error"));
+
+        // Act
+        CompletableFuture<OrderResponse> job = dispatcher.submit("order-1");
+        queued.poll().run();
+
+        // Assert
+        assertTrue(job.isCompletedExceptionally());
+        assertNull(dispatcher.inFlight("order-1"));
+    }
+
+    @Test
+    void testSubmit_PoolSaturated_RejectedAndNotTracked() {
+        // Arrange
+        dispatcher = new OrderPaymentDispatcher(orderService, task -> {
+            throw new RejectedExecutionException("full");
+        });
+
+        // Act & Assert
+        assertThrows(RejectedExecutionException.class, () -> dispatcher.submit("order-1"));
+        assertNull(dispatcher.inFlight("order-1"));
+        verifyNoInteractions(orderService);
+    }
+}
@@ -2,25 +2,53 @@ package com.microservices.order.service;
 
 import com.microservices.order.client.*;
 import com.microservices.order.dto.CreateOrderRequest;
+import com.microservices.order.dto.OrderCursor;
+import com.microservices.order.dto.OrderFilter;
 import com.microservices.order.dto.OrderItemRequest;
+import com.microservices.order.dto.OrderPage;
 import com.microservices.order.dto.OrderResponse;
+import com.microservices.order.dto.OrderSummary;
+import com.microservices.order.entity.CheckoutSaga;
 import com.microservices.order.entity.Order;
 import com.microservices.order.entity.OrderItem;
 import com.microservices.order.entity.OrderStatus;
+import com.microservices.order.entity.SagaState;
+import com.microservices.order.metrics.OrderMetrics;
+import com.microservices.order.repository.CheckoutSagaRepository;
 import com.microservices.order.repository.OrderRepository;
+import com.microservices.order.resilience.DependencyGuards;
+import com.microservices.order.resilience.DependencyUnavailableException;
+import com.microservices.order.resilience.ResilienceProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
 
 import java.math.BigDecimal;
+import java.net.ConnectException;
+import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -29,13 +57,44 @@ import static org.mockito.Mockito.*;
 @ExtendWith(MockitoExtension.class)
 class OrderServiceTest {
 
+    private static final String ORDER_123 = "0190a8c2-3b00-7000-8000-000000000123";
+    private static final String ORDER_456 = "0190a8c2-3b00-7000-8000-000000000456";
+    private static final String ORDER_789 = "0190a8c2-3b00-7000-8000-000000000789";
+    private static final String PAID_ORDER = "0190a8c2-3b00-7000-8000-0000000000a1";
+    private static final String RACED_ORDER = "0190a8c2-3b00-7000-8000-0000000000a2";
+    private static final String STALLED_ORDER = "0190a8c2-3b00-7000-8000-0000000000a3";
+    private static final String MULTI_ITEM_ORDER = "0190a8c2-3b00-7000-8000-0000000000a4";
+    private static final String MISSING_ORDER = "0190a8c2-3b00-7000-8000-0000000000ff";
+
     @Mock
     private OrderRepository orderRepository;
 
     @Mock
-    private RestTemplate restTemplate;
+    private ProductClient productClient;
+
+    @Mock
+    private InventoryClient inventoryClient;
+
+    @Mock
+    private PaymentClient paymentClient;
+
+    @Mock
+    private CheckoutSagaRepository sagaRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private DashboardTotals dashboardTotals;
+
+    @Mock
+    private TopProducts topProducts;
+
+    private final OrderMetrics orderMetrics = new OrderMetrics();
+
+    private final DependencyGuards dependencyGuards =
+            new DependencyGuards(new ResilienceProperties(), new SimpleMeterRegistry());
 
-    @InjectMocks
     private OrderService orderService;
 
     private ProductResponse testProduct;
@@ -43,6 +102,13 @@ class OrderServiceTest {
 
     @BeforeEach
     void setUp() {
+        orderService = new OrderService(orderRepository, productClient, newOrchestrator(), dashboardTotals, orderMetrics,
+                topProducts);
+        lenient().when(sagaRepository.save(any(CheckoutSaga.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        lenient().when(inventoryClient.deduct(anyString(), anyInt(), anyString())).thenReturn(Mono.empty());
+        lenient().when(inventoryClient.release(anyString(), anyInt(), anyString())).thenReturn(Mono.empty());
+        lenient().when(paymentClient.refund(anyString())).thenReturn(Mono.just(new PaymentResponse()));
+
         testProduct = new ProductResponse();
         testProduct.setId(1L);
         testProduct.setSku("LAPTOP-001");
@@ -62,12 +128,11 @@ class OrderServiceTest {
         OrderItemRequest itemRequest = new OrderItemRequest("LAPTOP-001", 2, new BigDecimal("1000.00"));
         CreateOrderRequest request = new CreateOrderRequest(Arrays.asList(itemRequest));
 
-        when(restTemplate.getForObject(anyString(), eq(ProductResponse.class)))
-                .thenReturn(testProduct);
+        when(productClient.getProductBySku("LAPTOP-001")).thenReturn(Mono.just(testProduct));
 
         Order savedOrder = new Order();
-        savedOrder.setId("test-order-id");
-        savedOrder.getItems().add(new OrderItem("LAPTOP-001", 2, new BigDecimal("1000.00")));
+        savedOrder.setId(ORDER_123);
+        savedOrder.addItem(new OrderItem("LAPTOP-001", 2, new BigDecimal("1000.00")));
         savedOrder.setStatus(OrderStatus.CREATED);
 
         when(orderRepository.save(any(Order.class))).thenReturn(savedOrder);
@@ -77,11 +142,36 @@ class OrderServiceTest {
 
         // Assert
         assertNotNull(response);
-        assertEquals("test-order-id", response.getId());
+        assertEquals(ORDER_123, response.getId());
         assertEquals(OrderStatus.CREATED, response.getStatus());
         assertEquals(1, response.getItems().size());
-        verify(restTemplate, times(1)).getForObject(anyString(), eq(ProductResponse.class));
+        verify(productClient, times(1)).getProductBySku("LAPTOP-001");
         verify(orderRepository, times(1)).save(any(Order.class));
+        verify(dashboardTotals).orderCreated(savedOrder);
+        verify(topProducts).orderCreated(savedOrder);
+        assertEquals(1, orderMetrics.snapshot().get(0).getOrders());
+    }
+
+    @Test
+    void testCreateOrder_CountedOnlyOnceCommitted() {
+        // Arrange
+        CreateOrderRequest request = new CreateOrderRequest(Arrays.asList(
+                new OrderItemRequest("LAPTOP-001", 1, new BigDecimal("1000.00"))));
+        when(productClient.getProductBySku("LAPTOP-001")).thenReturn(Mono.just(testProduct));
+        when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            // Act
+            orderService.createOrder(request);
+
+            // Assert - nothing counted until the transaction commits
+            assertEquals(0, orderMetrics.snapshot().get(0).getOrders());
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            assertEquals(1, orderMetrics.snapshot().get(0).getOrders());
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
     }
 
     @Test
@@ -90,8 +180,7 @@ class OrderServiceTest {
         OrderItemRequest itemRequest = new OrderItemRequest("INVALID-SKU", 1, new BigDecimal("100.00"));
         CreateOrderRequest request = new CreateOrderRequest(Arrays.asList(itemRequest));
 
-        when(restTemplate.getForObject(anyString(), eq(ProductResponse.class)))
-                .thenReturn(null);
+        when(productClient.getProductBySku("INVALID-SKU")).thenReturn(Mono.empty());
 
         // Act & Assert
         assertThrows(RuntimeException.class, () -> {
@@ -100,132 +189,240 @@ class OrderServiceTest {
         verify(orderRepository, never()).save(any(Order.class));
     }
 
+    @Test
+    void testCreateOrder_FractionOfCentPrice_Rejected() {
+        // Arrange
+        CreateOrderRequest request = new CreateOrderRequest(Arrays.asList(
+                new OrderItemRequest("LAPTOP-001", 3, new BigDecimal("0.335"))));
+        when(productClient.getProductBySku("LAPTOP-001")).thenReturn(Mono.just(testProduct));
+
+        // Act & Assert
+        assertThrows(InvalidOrderException.class, () -> orderService.createOrder(request));
+        verify(orderRepository, never()).save(any(Order.class));
+    }
+
+    @Test
+    void testCreateOrder_MultipleItems_LookedUpConcurrentlyInLineOrder() {
+        // Arrange: laptop lookups answer last, so items only stay in line order
+        // if results are reassembled by position rather than by completion
+        ProductResponse mouse = new ProductResponse();
+        mouse.setSku("MOUSE-001");
+        mouse.setPrice(new BigDecimal("25.00"));
+
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        when(productClient.getProductBySku("LAPTOP-001"))
+                .thenReturn(trackedLookup(testProduct, Duration.ofMillis(100), inFlight, maxInFlight));
+        when(productClient.getProductBySku("MOUSE-001"))
+                .thenReturn(trackedLookup(mouse, Duration.ofMillis(10), inFlight, maxInFlight));
+        when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        CreateOrderRequest request = new CreateOrderRequest(Arrays.asList(
+                new OrderItemRequest("LAPTOP-001", 1, null),
+                new OrderItemRequest("MOUSE-001", 2, null),
+                new OrderItemRequest("LAPTOP-001", 3, null)));
+
+        // Act
+        OrderResponse response = orderService.createOrder(request);
+
+        // Assert
+        assertEquals(3, response.getItems().size());
+        assertEquals("LAPTOP-001", response.getItems().get(0).getProductSku());
+        assertEquals("MOUSE-001", response.getItems().get(1).getProductSku());
+        assertEquals(new BigDecimal("25.00"), response.getItems().get(1).getPrice());
+        assertEquals(3, response.getItems().get(2).getQuantity());
+        assertEquals(3, maxInFlight.get());
+        verify(productClient, times(3)).getProductBySku(anyString());
+    }
+
+    @Test
+    void testCreateOrder_MultipleItems_OneProductMissing() {
+        // Arrange
+        when(productClient.getProductBySku("LAPTOP-001")).thenReturn(Mono.just(testProduct));
+        when(productClient.getProductBySku("INVALID-SKU")).thenReturn(Mono.empty());
+
+        CreateOrderRequest request = new CreateOrderRequest(Arrays.asList(
+                new OrderItemRequest("LAPTOP-001", 1, null),
+                new OrderItemRequest("INVALID-SKU", 1, null)));
+
+        // Act & Assert
+        RuntimeException exception = assertThrows(RuntimeException.class, () -> orderService.createOrder(request));
+        assertTrue(exception.getMessage().contains("INVALID-SKU"));
+        verify(orderRepository, never()).save(any(Order.class));
+    }
+
     @Test
     void testPayOrder_HappyPath_PaymentSuccessAndStockDeducted() {
         // Arrange
         Order order = new Order();
-        order.setId("order-123");
-        order.getItems().add(new OrderItem("LAPTOP-001", 2, new BigDecimal("1000.00")));
+        order.setId(ORDER_123);
+        order.addItem(new OrderItem("LAPTOP-001", 2, new BigDecimal("1000.00")));
         order.setStatus(OrderStatus.CREATED);
 
-        when(orderRepository.findById("order-123")).thenReturn(Optional.of(order));
+        when(orderRepository.findById(UUID.fromString(ORDER_123))).thenReturn(Optional.of(order));
+        when(orderRepository.findWithItemsById(UUID.fromString(ORDER_123))).thenReturn(Optional.of(order));
 
         PaymentResponse paymentResponse = new PaymentResponse();
         paymentResponse.setId(1L);
         paymentResponse.setStatus("SUCCESS");
 
-        when(restTemplate.postForObject(anyString(), any(PaymentRequest.class), eq(PaymentResponse.class)))
-                .thenReturn(paymentResponse);
-
-        when(restTemplate.getForObject(anyString(), eq(InventoryResponse.class)))
-                .thenReturn(testInventory);
-
-        doNothing().when(restTemplate).put(anyString(), any());
+        when(paymentClient.processPayment(any(PaymentRequest.class))).thenReturn(Mono.just(paymentResponse));
+        when(inventoryClient.getInventory("LAPTOP-001")).thenReturn(Mono.just(testInventory));
 
         Order paidOrder = new Order();
-        paidOrder.setId("order-123");
+        paidOrder.setId(ORDER_123);
         paidOrder.setStatus(OrderStatus.PAID);
         paidOrder.setPaymentId("1");
 
         when(orderRepository.save(any(Order.class))).thenReturn(paidOrder);
 
         // Act
-        OrderResponse response = orderService.payOrder("order-123");
+        OrderResponse response = orderService.payOrder(ORDER_123);
 
         // Assert
         assertNotNull(response);
         assertEquals(OrderStatus.PAID, response.getStatus());
         assertEquals("1", response.getPaymentId());
-        verify(restTemplate, times(1)).postForObject(anyString(), any(), eq(PaymentResponse.class));
-        verify(restTemplate, times(1)).getForObject(anyString(), eq(InventoryResponse.class));
-        verify(restTemplate, times(1)).put(anyString(), any());
+        verify(paymentClient, times(1)).processPayment(any(PaymentRequest.class));
+        verify(inventoryClient, times(1)).getInventory("LAPTOP-001");
+        verify(inventoryClient, times(1)).deduct("LAPTOP-001", 2, ORDER_123 + ":0");
+        verify(inventoryClient, never()).release(anyString(), anyInt(), anyString());
+        assertEquals(SagaState.COMPLETED, lastSavedSaga().getState());
+        verify(dashboardTotals).statusChanged(order, OrderStatus.CREATED);
+        verify(dashboardTotals).statusChanged(paidOrder, OrderStatus.PAYMENT_PENDING);
+        assertEquals(1, orderMetrics.snapshot().get(0).getPaymentsSucceeded());
     }
 
     @Test
     void testPayOrder_InsufficientStock_OrderCancelled() {
         // Arrange
         Order order = new Order();
-        order.setId("order-456");
-        order.getItems().add(new OrderItem("LAPTOP-001", 200, new BigDecimal("1000.00")));
+        order.setId(ORDER_456);
+        order.addItem(new OrderItem("LAPTOP-001", 200, new BigDecimal("1000.00")));
         order.setStatus(OrderStatus.CREATED);
 
-        when(orderRepository.findById("order-456")).thenReturn(Optional.of(order));
-
-        PaymentResponse paymentResponse = new PaymentResponse();
-        paymentResponse.setId(2L);
-        paymentResponse.setStatus("SUCCESS");
-
-        when(restTemplate.postForObject(anyString(), any(PaymentRequest.class), eq(PaymentResponse.class)))
-                .thenReturn(paymentResponse);
+        when(orderRepository.findById(UUID.fromString(ORDER_456))).thenReturn(Optional.of(order));
+        when(orderRepository.findWithItemsById(UUID.fromString(ORDER_456))).thenReturn(Optional.of(order));
 
         // Inventory only has 100 available, but order needs 200
-        when(restTemplate.getForObject(anyString(), eq(InventoryResponse.class)))
-                .thenReturn(testInventory);
+        when(inventoryClient.getInventory("LAPTOP-001")).thenReturn(Mono.just(testInventory));
 
         Order cancelledOrder = new Order();
-        cancelledOrder.setId("order-456");
+        cancelledOrder.setId(ORDER_456);
         cancelledOrder.setStatus(OrderStatus.CANCELLED);
-        cancelledOrder.setPaymentId("2");
         cancelledOrder.setCancellationReason("Insufficient inventory to fulfill order");
 
         when(orderRepository.save(any(Order.class))).thenReturn(cancelledOrder);
 
         // Act
-        OrderResponse response = orderService.payOrder("order-456");
+        OrderResponse response = orderService.payOrder(ORDER_456);
 
         // Assert
         assertNotNull(response);
         assertEquals(OrderStatus.CANCELLED, response.getStatus());
         assertEquals("Insufficient inventory to fulfill order", response.getCancellationReason());
-        verify(restTemplate, times(1)).postForObject(anyString(), any(), eq(PaymentResponse.class));
-        verify(restTemplate, times(1)).getForObject(anyString(), eq(InventoryResponse.class));
-        verify(restTemplate, never()).put(anyString(), any()); // Stock not deducted
+        verify(inventoryClient, times(1)).getInventory("LAPTOP-001");
+        verify(inventoryClient, never()).deduct(anyString(), anyInt(), anyString());
+        verify(paymentClient, never()).processPayment(any()); // Never charged
+        assertEquals(SagaState.COMPENSATED, lastSavedSaga().getState());
+        verify(dashboardTotals).statusChanged(cancelledOrder, OrderStatus.PAYMENT_PENDING);
+        assertEquals(1, orderMetrics.snapshot().get(0).getPaymentsFailed());
     }
 
     @Test
-    void testPayOrder_PaymentFailed() {
+    void testPayOrder_StockRanOutBeforeDeduct_OrderCancelled() {
+        // Arrange - stock was there at the pre-check but another order took it
+        Order order = new Order();
+        order.setId(ORDER_456);
+        order.addItem(new OrderItem("LAPTOP-001", 2, new BigDecimal("1000.00")));
+        order.setStatus(OrderStatus.CREATED);
+
+        when(orderRepository.findById(UUID.fromString(ORDER_456))).thenReturn(Optional.of(order));
+        when(orderRepository.findWithItemsById(UUID.fromString(ORDER_456))).thenReturn(Optional.of(order));
+        when(inventoryClient.getInventory("LAPTOP-001")).thenReturn(Mono.just(testInventory));
+        when(inventoryClient.deduct("LAPTOP-001", 2, ORDER_456 + ":0")).thenReturn(Mono.error(
+                WebClientResponseException.create(409, "Conflict", null, null, null)));
+        when(inventoryClient.release("LAPTOP-001", 2, ORDER_456 + ":0")).thenReturn(Mono.empty());
+        when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        orderService.payOrder(ORDER_456);
+
+        // Assert
+        assertEquals(OrderStatus.CANCELLED, order.getStatus());
+        assertEquals("Insufficient inventory to fulfill order", order.getCancellationReason());
+        verify(paymentClient, never()).processPayment(any());
+    }
+
+    @Test
+    void testPayOrder_InventoryErrorAtDeduct_SagaLeftForRecovery() {
+        // Arrange - a lock timeout in inventory-service says nothing about stock
+        Order order = new Order();
+        order.setId(STALLED_ORDER);
+        order.addItem(new OrderItem("LAPTOP-001", 1, new BigDecimal("1000.00")));
+
+        when(orderRepository.findById(UUID.fromString(STALLED_ORDER))).thenReturn(Optional.of(order));
+        when(orderRepository.findWithItemsById(UUID.fromString(STALLED_ORDER))).thenReturn(Optional.of(order));
+        when(inventoryClient.getInventory("LAPTOP-001")).thenReturn(Mono.just(testInventory));
+        when(inventoryClient.deduct("LAPTOP-001", 1, STALLED_ORDER + ":0")).thenReturn(Mono.error(
+                WebClientResponseException.create(500, "Internal Server Error", null, null, null)));
+
+        // Act & Assert - not cancelled as if out of stock
+        assertThrows(RuntimeException.class, () -> orderService.payOrder(STALLED_ORDER));
+        assertEquals(OrderStatus.PAYMENT_PENDING, order.getStatus());
+        assertEquals(SagaState.STARTED, lastSavedSaga().getState());
+        verify(paymentClient, never()).processPayment(any());
+        verify(inventoryClient, never()).release(anyString(), anyInt(), anyString());
+    }
+
+    @Test
+    void testPayOrder_PaymentFailed_StockReleased() {
         // Arrange
         Order order = new Order();
-        order.setId("order-789");
-        order.getItems().add(new OrderItem("LAPTOP-001", 1, new BigDecimal("999.99")));
+        order.setId(ORDER_789);
+        order.addItem(new OrderItem("LAPTOP-001", 1, new BigDecimal("999.99")));
         order.setStatus(OrderStatus.CREATED);
 
-        when(orderRepository.findById("order-789")).thenReturn(Optional.of(order));
+        when(orderRepository.findById(UUID.fromString(ORDER_789))).thenReturn(Optional.of(order));
+        when(orderRepository.findWithItemsById(UUID.fromString(ORDER_789))).thenReturn(Optional.of(order));
+
+        when(inventoryClient.getInventory("LAPTOP-001")).thenReturn(Mono.just(testInventory));
 
         PaymentResponse paymentResponse = new PaymentResponse();
         paymentResponse.setId(3L);
         paymentResponse.setStatus("FAILED");
 
-        when(restTemplate.postForObject(anyString(), any(PaymentRequest.class), eq(PaymentResponse.class)))
-                .thenReturn(paymentResponse);
+        when(paymentClient.processPayment(any(PaymentRequest.class))).thenReturn(Mono.just(paymentResponse));
 
         Order failedOrder = new Order();
-        failedOrder.setId("order-789");
-        failedOrder.setStatus(OrderStatus.CREATED);
+        failedOrder.setId(ORDER_789);
+        failedOrder.setStatus(OrderStatus.CANCELLED);
         failedOrder.setPaymentId("3");
         failedOrder.setCancellationReason("Payment failed");
 
         when(orderRepository.save(any(Order.class))).thenReturn(failedOrder);
 
         // Act
-        OrderResponse response = orderService.payOrder("order-789");
+        OrderResponse response = orderService.payOrder(ORDER_789);
 
         // Assert
         assertNotNull(response);
-        assertEquals(OrderStatus.CREATED, response.getStatus());
+        assertEquals(OrderStatus.CANCELLED, response.getStatus());
         assertEquals("Payment failed", response.getCancellationReason());
-        verify(restTemplate, times(1)).postForObject(anyString(), any(), eq(PaymentResponse.class));
-        verify(restTemplate, never()).getForObject(anyString(), eq(InventoryResponse.class));
+        verify(paymentClient, times(1)).processPayment(any(PaymentRequest.class));
+        verify(inventoryClient, times(1)).deduct("LAPTOP-001", 1, ORDER_789 + ":0");
+        verify(inventoryClient, times(1)).release("LAPTOP-001", 1, ORDER_789 + ":0");
+        verify(paymentClient, never()).refund(anyString());
     }
 
     @Test
     void testPayOrder_OrderNotFound() {
         // Arrange
-        when(orderRepository.findById("non-existent")).thenReturn(Optional.empty());
+        when(orderRepository.findById(UUID.fromString(MISSING_ORDER))).thenReturn(Optional.empty());
 
         // Act & Assert
         assertThrows(RuntimeException.class, () -> {
-            orderService.payOrder("non-existent");
+            orderService.payOrder(MISSING_ORDER);
         });
     }
 
@@ -233,82 +430,189 @@ class OrderServiceTest {
     void testPayOrder_OrderAlreadyPaid() {
         // Arrange
         Order order = new Order();
-        order.setId("order-paid");
+        order.setId(PAID_ORDER);
         order.setStatus(OrderStatus.PAID);
 
-        when(orderRepository.findById("order-paid")).thenReturn(Optional.of(order));
+        when(orderRepository.findById(UUID.fromString(PAID_ORDER))).thenReturn(Optional.of(order));
 
         // Act & Assert
         assertThrows(RuntimeException.class, () -> {
-            orderService.payOrder("order-paid");
+            orderService.payOrder(PAID_ORDER);
         });
+        verify(sagaRepository, never()).save(any(CheckoutSaga.class));
+    }
+
+    @Test
+    void testPayOrder_OrderChangedDuringCheckout_PaymentRefunded() {
+        // Arrange
+        Order order = new Order();
+        order.setId(RACED_ORDER);
+        order.addItem(new OrderItem("LAPTOP-001", 1, new BigDecimal("1000.00")));
+
+        // An operator cancelled the order while the payment was in flight
+        Order changed = new Order();
+        changed.setId(RACED_ORDER);
+        changed.setStatus(OrderStatus.CANCELLED);
+
+        when(orderRepository.findWithItemsById(UUID.fromString(RACED_ORDER))).thenReturn(Optional.of(order));
+        when(orderRepository.findById(UUID.fromString(RACED_ORDER))).thenReturn(Optional.of(order), Optional.of(changed));
+        when(inventoryClient.getInventory("LAPTOP-001")).thenReturn(Mono.just(testInventory));
+
+        PaymentResponse paymentResponse = new PaymentResponse();
+        paymentResponse.setId(6L);
+        paymentResponse.setStatus("SUCCESS");
+
+        when(paymentClient.processPayment(any(PaymentRequest.class))).thenReturn(Mono.just(paymentResponse));
+
+        // Act
+        OrderResponse response = orderService.payOrder(RACED_ORDER);
+
+        // Assert
+        assertEquals(OrderStatus.CANCELLED, response.getStatus());
+        verify(paymentClient, times(1)).refund("6");
+        verify(inventoryClient, times(1)).release("LAPTOP-001", 1, RACED_ORDER + ":0");
+        assertEquals(SagaState.COMPENSATED, lastSavedSaga().getState());
+        assertEquals("REFUNDED", lastSavedSaga().getPaymentStatus());
+    }
+
+    @Test
+    void testPayOrder_PaymentServiceDown_SagaLeftForRecovery() {
+        // Arrange
+        Order order = new Order();
+        order.setId(STALLED_ORDER);
+        order.addItem(new OrderItem("LAPTOP-001", 1, new BigDecimal("1000.00")));
+
+        when(orderRepository.findById(UUID.fromString(STALLED_ORDER))).thenReturn(Optional.of(order));
+        when(orderRepository.findWithItemsById(UUID.fromString(STALLED_ORDER))).thenReturn(Optional.of(order));
+        when(inventoryClient.getInventory("LAPTOP-001")).thenReturn(Mono.just(testInventory));
+        when(paymentClient.processPayment(any(PaymentRequest.class))).thenReturn(Mono.error(
+                new WebClientRequestException(new ConnectException("Connection refused"), HttpMethod.POST,
+                        URI.create("http://payment-service/payments/process"), new HttpHeaders())));
+
+        // Act & Assert
+        RuntimeException exception = assertThrows(RuntimeException.class, () -> orderService.payOrder(STALLED_ORDER));
+        assertTrue(exception.getMessage().contains("Payment processing error"));
+        assertEquals(OrderStatus.PAYMENT_PENDING, order.getStatus());
+        assertEquals(SagaState.CHARGING, lastSavedSaga().getState());
+        // Not an outcome yet; recovery counts it when it finishes the saga
+        assertEquals(0, orderMetrics.snapshot().get(0).getPaymentsFailed());
+        verify(inventoryClient, never()).release(anyString(), anyInt(), anyString());
     }
 
     @Test
     void testGetOrder_Success() {
         // Arrange
         Order order = new Order();
-        order.setId("order-123");
+        order.setId(ORDER_123);
         order.setStatus(OrderStatus.CREATED);
 
-        when(orderRepository.findById("order-123")).thenReturn(Optional.of(order));
+        when(orderRepository.findWithItemsById(UUID.fromString(ORDER_123))).thenReturn(Optional.of(order));
 
         // Act
-        OrderResponse response = orderService.getOrder("order-123");
+        OrderResponse response = orderService.getOrder(ORDER_123);
 
         // Assert
         assertNotNull(response);
-        assertEquals("order-123", response.getId());
+        assertEquals(ORDER_123, response.getId());
         assertEquals(OrderStatus.CREATED, response.getStatus());
     }
 
     @Test
     void testGetOrder_NotFound() {
         // Arrange
-        when(orderRepository.findById("non-existent")).thenReturn(Optional.empty());
+        when(orderRepository.findWithItemsById(UUID.fromString(MISSING_ORDER))).thenReturn(Optional.empty());
 
         // Act & Assert
         assertThrows(RuntimeException.class, () -> {
-            orderService.getOrder("non-existent");
+            orderService.getOrder(MISSING_ORDER);
         });
     }
 
     @Test
-    void testGetAllOrders() {
+    void testGetOrder_MalformedId_NotFoundWithoutQuery() {
+        assertThrows(RuntimeException.class, () -> orderService.getOrder("not-an-order-id"));
+        verifyNoInteractions(orderRepository);
+    }
+
+    @Test
+    void testFindOrders_PageSizeBoundedAndCursorDecoded() {
         // Arrange
-        Order order1 = new Order();
-        order1.setId("order-1");
-        Order order2 = new Order();
-        order2.setId("order-2");
+        OrderCursor after = new OrderCursor(Instant.parse("2024-01-01T10:00:00Z"), ORDER_789);
+        OrderCursor pageEnd = new OrderCursor(Instant.parse("2024-01-01T09:00:00Z"), "order-4");
+        OrderFilter filter = new OrderFilter(OrderStatus.PAID, null, null);
+        // Without a limit the default page size applies
+        assertEquals(50, orderService.findOrders(filter, null, null).getSize());
+        when(orderRepository.findPageEnd(filter, after, 500)).thenReturn(Optional.of(pageEnd));
+
+        // Act
+        OrderPage page = orderService.findOrders(filter, after.encode(), 100_000);
 
-        when(orderRepository.findAll()).thenReturn(Arrays.asList(order1, order2));
+        // Assert
+        assertEquals(500, page.getSize());
+        assertEquals(after, page.getAfter());
+        assertEquals(pageEnd, page.getNextCursor());
+    }
+
+    @Test
+    void testFindOrders_MalformedCursor_Rejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> orderService.findOrders(OrderFilter.none(), "not-a-cursor", null));
+        verify(orderRepository, never()).findPageEnd(any(), any(), anyInt());
+    }
+
+    @Test
+    void testForEachOrder_StreamsPageUpToNextCursor() {
+        // Arrange
+        Instant now = Instant.parse("2024-01-01T10:00:00Z");
+        OrderSummary order1 = new OrderSummary("order-1", OrderStatus.CREATED, null, null, now, now,
+                1L, 1000L);
+        OrderSummary order2 = new OrderSummary("order-2", OrderStatus.PAID, "7", null, now, now,
+                2L, 2500L);
+        OrderCursor pageEnd = new OrderCursor(now, "order-2");
+        OrderPage page = new OrderPage(OrderFilter.none(), null, 2, pageEnd);
+
+        when(orderRepository.streamPage(page.getFilter(), null, pageEnd)).thenReturn(Stream.of(order1, order2));
 
         // Act
-        List<OrderResponse> responses = orderService.getAllOrders();
+        List<String> seen = new ArrayList<>();
+        orderService.forEachOrder(page, order -> seen.add(order.getId()));
 
         // Assert
-        assertNotNull(responses);
-        assertEquals(2, responses.size());
-        verify(orderRepository, times(1)).findAll();
+        assertEquals(List.of("order-1", "order-2"), seen);
+        verify(orderRepository, never()).findAll();
+    }
+
+    @Test
+    void testPayOrder_PaymentCircuitOpen_FailsFastWithoutTouchingOrder() {
+        // Arrange: enough consecutive payment-service failures to open its circuit
+        for (int i = 0; i < 10; i++) {
+            assertThrows(RuntimeException.class, () -> dependencyGuards.payment()
+                    .protect(Mono.error(new TimeoutException("Read timed out"))).block());
+        }
+
+        // Act & Assert
+        assertThrows(DependencyUnavailableException.class, () -> orderService.payOrder(ORDER_123));
+        verify(orderRepository, never()).findById(any(UUID.class));
+        verifyNoInteractions(inventoryClient, paymentClient);
     }
 
     @Test
     void testPayOrder_MultipleItems_AllStockAvailable() {
         // Arrange
         Order order = new Order();
-        order.setId("order-multi");
-        order.getItems().add(new OrderItem("LAPTOP-001", 2, new BigDecimal("1000.00")));
-        order.getItems().add(new OrderItem("MOUSE-001", 5, new BigDecimal("50.00")));
+        order.setId(MULTI_ITEM_ORDER);
+        order.addItem(new OrderItem("LAPTOP-001", 2, new BigDecimal("1000.00")));
+        order.addItem(new OrderItem("MOUSE-001", 5, new BigDecimal("50.00")));
         order.setStatus(OrderStatus.CREATED);
 
-        when(orderRepository.findById("order-multi")).thenReturn(Optional.of(order));
+        when(orderRepository.findById(UUID.fromString(MULTI_ITEM_ORDER))).thenReturn(Optional.of(order));
+        when(orderRepository.findWithItemsById(UUID.fromString(MULTI_ITEM_ORDER))).thenReturn(Optional.of(order));
 
         PaymentResponse paymentResponse = new PaymentResponse();
         paymentResponse.setId(4L);
         paymentResponse.setStatus("SUCCESS");
 
-        when(restTemplate.postForObject(anyString(), any(PaymentRequest.class), eq(PaymentResponse.class)))
-                .thenReturn(paymentResponse);
+        when(paymentClient.processPayment(any(PaymentRequest.class))).thenReturn(Mono.just(paymentResponse));
 
         InventoryResponse inventory1 = new InventoryResponse();
         inventory1.setProductSku("LAPTOP-001");
@@ -318,26 +622,42 @@ class OrderServiceTest {
         inventory2.setProductSku("MOUSE-001");
         inventory2.setAvailable(50);
 
-        when(restTemplate.getForObject(contains("LAPTOP-001"), eq(InventoryResponse.class)))
-                .thenReturn(inventory1);
-        when(restTemplate.getForObject(contains("MOUSE-001"), eq(InventoryResponse.class)))
-                .thenReturn(inventory2);
-
-        doNothing().when(restTemplate).put(anyString(), any());
+        when(inventoryClient.getInventory("LAPTOP-001")).thenReturn(Mono.just(inventory1));
+        when(inventoryClient.getInventory("MOUSE-001")).thenReturn(Mono.just(inventory2));
 
         Order paidOrder = new Order();
-        paidOrder.setId("order-multi");
+        paidOrder.setId(MULTI_ITEM_ORDER);
         paidOrder.setStatus(OrderStatus.PAID);
         paidOrder.setPaymentId("4");
 
         when(orderRepository.save(any(Order.class))).thenReturn(paidOrder);
 
         // Act
-        OrderResponse response = orderService.payOrder("order-multi");
+        OrderResponse response = orderService.payOrder(MULTI_ITEM_ORDER);
 
         // Assert
         assertEquals(OrderStatus.PAID, response.getStatus());
-        verify(restTemplate, times(2)).getForObject(anyString(), eq(InventoryResponse.class));
-        verify(restTemplate, times(2)).put(anyString(), any());
+        verify(inventoryClient, times(2)).getInventory(anyString());
+        verify(inventoryClient).deduct("LAPTOP-001", 2, MULTI_ITEM_ORDER + ":0");
+        verify(inventoryClient).deduct("MOUSE-001", 5, MULTI_ITEM_ORDER + ":1");
+    }
+
+    private static Mono<ProductResponse> trackedLookup(ProductResponse product, Duration latency,
+                                                       AtomicInteger inFlight, AtomicInteger maxInFlight) {
+        return Mono.defer(() -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            return Mono.just(product).delayElement(latency).doFinally(signal -> inFlight.decrementAndGet());
+        });
+    }
+
+    private CheckoutSagaOrchestrator newOrchestrator() {
+        return new CheckoutSagaOrchestrator(orderRepository, sagaRepository, inventoryClient, paymentClient,
+                new TransactionTemplate(transactionManager), dependencyGuards, dashboardTotals, orderMetrics);
+    }
+
+    private CheckoutSaga lastSavedSaga() {
+        ArgumentCaptor<CheckoutSaga> captor = ArgumentCaptor.forClass(CheckoutSaga.class);
+        verify(sagaRepository, atLeastOnce()).save(captor.capture());
+        return captor.getValue();
     }
 }
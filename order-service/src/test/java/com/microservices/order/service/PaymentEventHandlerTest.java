@@ -0,0 +1,148 @@
+package com.microservices.order.service;
+
+import com.microservices.order.client.PaymentStatusEvent;
+import com.microservices.order.entity.CheckoutSaga;
+import com.microservices.order.entity.SagaState;
+import com.microservices.order.repository.CheckoutSagaRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PaymentEventHandlerTest {
+
+    private static final String ORDER_ID = "11111111-2222-3333-4444-555555555555";
+
+    @Mock
+    private CheckoutSagaRepository sagaRepository;
+
+    @Mock
+    private CheckoutSagaOrchestrator orchestrator;
+
+    private PaymentEventHandler handler;
+
+    @BeforeEach
+    void setUp() {
+        // Runs resumes inline so they can be verified
+        handler = new PaymentEventHandler(sagaRepository, orchestrator, Runnable::run);
+    }
+
+    @Test
+    void testHandle_SettledPaymentForSagaLeftForRecovery_Resumes() {
+        // Arrange
+        CheckoutSaga saga = saga(SagaState.CHARGING);
+        saga.setLastError("Payment is still being processed by the gateway");
+        when(sagaRepository.findById(ORDER_ID)).thenReturn(Optional.of(saga));
+        when(orchestrator.resume(saga)).thenReturn(true);
+
+        // Act
+        handler.handle(List.of(event("SUCCESS")));
+
+        // Assert
+        verify(orchestrator).resume(saga);
+    }
+
+    @Test
+    void testHandle_SagaStillBeingDriven_LeftAlone() {
+        // Arrange - no error recorded: its driver is still polling for the outcome
+        when(sagaRepository.findById(ORDER_ID)).thenReturn(Optional.of(saga(SagaState.CHARGING)));
+
+        // Act
+        handler.handle(List.of(event("SUCCESS")));
+
+        // Assert
+        verifyNoInteractions(orchestrator);
+    }
+
+    @Test
+    void testHandle_PendingOrDuplicateEvents_Ignored() {
+        // Arrange - the saga already completed when the event is delivered again
+        CheckoutSaga completed = saga(SagaState.COMPLETED);
+        completed.setLastError("Payment is still being processed by the gateway");
+        when(sagaRepository.findById(ORDER_ID)).thenReturn(Optional.of(completed));
+
+        // Act
+        handler.handle(List.of(event("PENDING"), event("SUCCESS")));
+
+        // Assert
+        verify(sagaRepository, times(1)).findById(ORDER_ID);
+        verify(orchestrator, never()).resume(any());
+    }
+
+    @Test
+    void testHandle_ResumeHandedToWorkers_NotRunInline() {
+        // Arrange
+        CheckoutSaga saga = saga(SagaState.CHARGING);
+        saga.setLastError("Payment is still being processed by the gateway");
+        when(sagaRepository.findById(ORDER_ID)).thenReturn(Optional.of(saga));
+        List<Runnable> queued = new ArrayList<>();
+        PaymentEventHandler queueing = new PaymentEventHandler(sagaRepository, orchestrator, queued::add);
+
+        // Act
+        queueing.handle(List.of(event("SUCCESS")));
+
+        // Assert - acknowledged before the saga is driven
+        verifyNoInteractions(orchestrator);
+        assertEquals(1, queued.size());
+        queued.get(0).run();
+        verify(orchestrator).resume(saga);
+    }
+
+    @Test
+    void testHandle_WorkersSaturated_LeftForRecovery() {
+        // Arrange
+        CheckoutSaga saga = saga(SagaState.CHARGING);
+        saga.setLastError("Payment is still being processed by the gateway");
+        when(sagaRepository.findById(ORDER_ID)).thenReturn(Optional.of(saga));
+        PaymentEventHandler saturated = new PaymentEventHandler(sagaRepository, orchestrator, task -> {
+            throw new RejectedExecutionException("Queue full");
+        });
+
+        // Act & Assert - no failure reaches payment-service
+        assertDoesNotThrow(() -> saturated.handle(List.of(event("SUCCESS"))));
+        verifyNoInteractions(orchestrator);
+    }
+
+    @Test
+    void testHandle_ResumeFails_NextEventsStillHandled() {
+        // Arrange
+        CheckoutSaga saga = saga(SagaState.CHARGING);
+        saga.setLastError("Payment is still being processed by the gateway");
+        when(sagaRepository.findById(ORDER_ID)).thenReturn(Optional.of(saga));
+        when(orchestrator.resume(saga))
+                .thenThrow(new RuntimeException("Payment processing error"))
+                .thenReturn(true);
+
+        // Act
+        handler.handle(List.of(event("FAILED"), event("FAILED")));
+
+        // Assert
+        verify(orchestrator, times(2)).resume(saga);
+    }
+
+    private static CheckoutSaga saga(SagaState state) {
+        CheckoutSaga saga = new CheckoutSaga(ORDER_ID);
+        saga.setState(state);
+        return saga;
+    }
+
+    private static PaymentStatusEvent event(String status) {
+        PaymentStatusEvent event = new PaymentStatusEvent();
+        event.setEventId(1L);
+        event.setPaymentId(9L);
+        event.setOrderId(ORDER_ID);
+        event.setStatus(status);
+        return event;
+    }
+}
@@ -2,8 +2,10 @@ package com.microservices.payment.client;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
 import reactor.core.publisher.Mono;
 import reactor.util.retry.Retry;
@@ -17,9 +19,20 @@ public class OrderClient {
     private static final String ORDER_SERVICE_URL = "http://order-service";
     
     private final WebClient webClient;
+    private final int maxRetries;
+    private final long retryBackoffMs;
+    // Shared by all calls so retries add a bounded share of load to order-service
+    private final RetryBudget retryBudget;
 
-    public OrderClient(WebClient.Builder webClientBuilder) {
+    public OrderClient(WebClient.Builder webClientBuilder,
+                       @Value("${order-service.client.max-retries:2}") int maxRetries,
+                       @Value("${order-service.client.retry-backoff-ms:100}") long retryBackoffMs,
+                       @Value("${order-service.client.retry-budget-ratio:0.1}") double retryBudgetRatio,
+                       @Value("${order-service.client.retry-budget-max-tokens:10}") int retryBudgetMaxTokens) {
         this.webClient = webClientBuilder.baseUrl(ORDER_SERVICE_URL).build();
+        this.maxRetries = maxRetries;
+        this.retryBackoffMs = retryBackoffMs;
+        this.retryBudget = new RetryBudget(retryBudgetRatio, retryBudgetMaxTokens);
     }
 
     /**
@@ -29,16 +42,12 @@ public class OrderClient {
      */
     public OrderResponse getOrderById(Long orderId) {
         try {
+            retryBudget.onCall();
             return webClient.get()
                     .uri("/api/orders/{id}", orderId)
                     .retrieve()
                     .bodyToMono(OrderResponse.class)
-                    .retryWhen(Retry.backoff(3, Duration.ofMillis(500))
-                            .filter(throwable -> throwable instanceof WebClientResponseException.ServiceUnavailable)
-                            .onRetryExhaustedThrow((retryBackoffSpec, retrySignal) -> {
-                                logger.error("Retry exhausted for order lookup: {}", orderId);
-                                return new RuntimeException("Order service unavailable after retries");
-                            }))
+                    .retryWhen(budgetedRetries())
                     .doOnError(error -> logger.error("Error fetching order {}: {}", 
                             orderId, error.getMessage()))
                     .onErrorResume(throwable -> {
@@ -53,4 +62,29 @@ public class OrderClient {
             return null;
         }
     }
+
+    /**
+     * Retries connection errors and 502/503/504 with exponential backoff, as
+     * long as the shared retry budget has a token for it.
+     */
+    private Retry budgetedRetries() {
+        return Retry.from(signals -> signals.concatMap(signal -> {
+            Throwable failure = signal.failure();
+            if (signal.totalRetries() >= maxRetries || !isTransient(failure) || !retryBudget.tryWithdraw()) {
+                return Mono.<Long>error(failure);
+            }
+            return Mono.delay(Duration.ofMillis(retryBackoffMs << signal.totalRetries()));
+        }));
+    }
+
+    private static boolean isTransient(Throwable e) {
+        if (e instanceof WebClientRequestException) {
+            return true;
+        }
+        if (e instanceof WebClientResponseException) {
+            int status = ((WebClientResponseException) e).getStatusCode().value();
+            return status == 502 || status == 503 || status == 504;
+        }
+        return false;
+    }
 }
@@ -0,0 +1,52 @@
+package com.microservices.payment.client;
+
+import com.microservices.payment.dto.PaymentStatusEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Delivers payment status events to the URLs in payment.outbox.subscribers,
+ * which are resolved through service discovery like other calls.
+ */
+@Component
+public class PaymentEventPublisher {
+
+    private final WebClient webClient;
+    private final List<String> subscribers;
+    private final Duration deliveryTimeout;
+
+    public PaymentEventPublisher(WebClient.Builder webClientBuilder,
+                                 @Value("${payment.outbox.subscribers:}") List<String> subscribers,
+                                 @Value("${payment.outbox.delivery-timeout-ms:5000}") long deliveryTimeoutMs) {
+        this.webClient = webClientBuilder.build();
+        this.subscribers = subscribers;
+        this.deliveryTimeout = Duration.ofMillis(deliveryTimeoutMs);
+    }
+
+    /**
+     * The longest one {@link #publish} can take before it gives up.
+     */
+    public Duration maxDeliveryTime() {
+        return deliveryTimeout.multipliedBy(subscribers.size());
+    }
+
+    /**
+     * Posts the events, in order, to every subscriber as one JSON array.
+     *
+     * @throws RuntimeException if a subscriber did not accept them in time
+     */
+    public void publish(List<PaymentStatusEvent> events) {
+        for (String subscriber : subscribers) {
+            webClient.post()
+                    .uri(subscriber)
+                    .bodyValue(events)
+                    .retrieve()
+                    .toBodilessEntity()
+                    .block(deliveryTimeout);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.microservices.payment.client;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket that caps retries to a share of the traffic sent to a
+ * dependency. Every call deposits ratio tokens, every retry (or hedged
+ * request) withdraws a whole one, and the bucket holds at most maxTokens.
+ * With a ratio of 0.1, retries can add at most about 10% on top of normal
+ * load, however many callers are failing at once; the bucket starts full so
+ * a quiet service can still retry a short burst.
+ */
+public class RetryBudget {
+
+    // Tokens are kept in thousandths so deposits stay exact without locking
+    private static final long SCALE = 1000;
+
+    private final long depositPerCall;
+    private final long capacity;
+    private final AtomicLong balance;
+
+    public RetryBudget(double ratio, int maxTokens) {
+        this.depositPerCall = Math.round(ratio * SCALE);
+        this.capacity = maxTokens * SCALE;
+        this.balance = new AtomicLong(capacity);
+    }
+
+    public void onCall() {
+        if (depositPerCall > 0) {
+            balance.accumulateAndGet(depositPerCall, (current, deposit) -> Math.min(current + deposit, capacity));
+        }
+    }
+
+    /**
+     * Takes one token for a retry, if there is one.
+     */
+    public boolean tryWithdraw() {
+        while (true) {
+            long current = balance.get();
+            if (current < SCALE) {
+                return false;
+            }
+            if (balance.compareAndSet(current, current - SCALE)) {
+                return true;
+            }
+        }
+    }
+
+    public double getAvailableTokens() {
+        return (double) balance.get() / SCALE;
+    }
+}
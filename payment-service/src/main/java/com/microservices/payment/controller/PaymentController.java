@@ -1,34 +1,87 @@
 package com.microservices.payment.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.microservices.payment.dto.BatchPaymentResult;
+import com.microservices.payment.dto.PaymentFilter;
+import com.microservices.payment.dto.PaymentPage;
 import com.microservices.payment.dto.PaymentRequest;
 import com.microservices.payment.dto.PaymentResponse;
+import com.microservices.payment.entity.PaymentStatus;
+import com.microservices.payment.service.PaymentBatchService;
 import com.microservices.payment.service.PaymentService;
+import com.microservices.payment.service.PaymentService.GatewayUnavailableException;
+import com.microservices.payment.service.PaymentService.IdempotencyConflictException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.util.List;
 
 @RestController
 @RequestMapping("/payments")
 public class PaymentController {
 
+    private static final MediaType CSV = new MediaType("text", "csv", StandardCharsets.UTF_8);
+    private static final MediaType NDJSON = new MediaType("application", "x-ndjson", StandardCharsets.UTF_8);
+    private static final String CSV_HEADER = "id,orderId,attempt,amount,status,method,createdAt,updatedAt\n";
+
     private final PaymentService paymentService;
+    private final PaymentBatchService paymentBatchService;
+    private final ObjectMapper objectMapper;
 
-    public PaymentController(PaymentService paymentService) {
+    public PaymentController(PaymentService paymentService, PaymentBatchService paymentBatchService,
+                             ObjectMapper objectMapper) {
         this.paymentService = paymentService;
+        this.paymentBatchService = paymentBatchService;
+        this.objectMapper = objectMapper;
     }
 
+    /**
+     * Charges an order. Answers 201 with the outcome when the gateway has
+     * already decided, or 202 with the PENDING payment, whose Location to
+     * poll, while the gateway is still working.
+     */
     @PostMapping("/process")
     public ResponseEntity<PaymentResponse> processPayment(@RequestBody PaymentRequest request) {
         try {
             PaymentResponse response = paymentService.processPayment(request);
+            if (response.getStatus() == PaymentStatus.PENDING) {
+                return ResponseEntity.accepted()
+                        .location(URI.create("/payments/" + response.getId()))
+                        .body(response);
+            }
             return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        } catch (IdempotencyConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
         }
     }
 
+    @PostMapping("/process/batch")
+    public ResponseEntity<?> processBatch(@RequestBody List<PaymentRequest> requests) {
+        try {
+            List<BatchPaymentResult> results = paymentBatchService.processBatch(requests);
+            return ResponseEntity.ok(results);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        }
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<PaymentResponse> getPayment(@PathVariable Long id) {
         try {
@@ -39,10 +92,93 @@ public class PaymentController {
         }
     }
 
+    /**
+     * Lists payments newest first, one page at a time, optionally filtered
+     * by status, method and creation time (from inclusive, to exclusive).
+     * When more payments follow, a Link header with rel="next" carries the
+     * URL of the next page.
+     */
     @GetMapping
-    public ResponseEntity<List<PaymentResponse>> getAllPayments() {
-        List<PaymentResponse> payments = paymentService.getAllPayments();
-        return ResponseEntity.ok(payments);
+    public ResponseEntity<List<PaymentResponse>> getAllPayments(
+            @RequestParam(required = false) PaymentStatus status,
+            @RequestParam(required = false) String method,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        PaymentPage page;
+        try {
+            page = paymentService.findPayments(new PaymentFilter(status, method, from, to), cursor, limit);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            String next = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("cursor", page.getNextCursor().encode())
+                    .toUriString();
+            response.header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+        }
+        return response.body(page.getPayments());
+    }
+
+    /**
+     * Streams every payment matching the same filters as the listing, newest
+     * first, as CSV with a header row (format=csv, the default) or as one
+     * JSON object per line (format=ndjson). Rows are written as they are
+     * read, for reconciliation runs over any number of payments.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportPayments(
+            @RequestParam(required = false) PaymentStatus status,
+            @RequestParam(required = false) String method,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+            @RequestParam(defaultValue = "csv") String format) {
+        PaymentFilter filter = new PaymentFilter(status, method, from, to);
+        if ("csv".equals(format)) {
+            return ResponseEntity.ok()
+                    .contentType(CSV)
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"payments.csv\"")
+                    .body(out -> export(filter, out, true));
+        }
+        if ("ndjson".equals(format)) {
+            return ResponseEntity.ok()
+                    .contentType(NDJSON)
+                    .body(out -> export(filter, out, false));
+        }
+        return ResponseEntity.badRequest().build();
+    }
+
+    private void export(PaymentFilter filter, OutputStream out, boolean csv) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        if (csv) {
+            writer.write(CSV_HEADER);
+        }
+        paymentService.exportPayments(filter, payment -> {
+            try {
+                writer.write(csv ? toCsv(payment) : objectMapper.writeValueAsString(payment));
+                writer.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        writer.flush();
+    }
+
+    private static String toCsv(PaymentResponse payment) {
+        return payment.getId() + "," + csvField(payment.getOrderId()) + "," + payment.getAttempt() + ","
+                + payment.getAmount().toPlainString() + "," + payment.getStatus() + ","
+                + csvField(payment.getMethod()) + "," + payment.getCreatedAt() + "," + payment.getUpdatedAt();
+    }
+
+    // RFC 4180: quote fields holding a separator, quote or line break
+    private static String csvField(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
     }
 
     @GetMapping("/order/{orderId}")
@@ -65,6 +201,19 @@ public class PaymentController {
         }
     }
 
+    @PostMapping("/{id}/refund")
+    public ResponseEntity<?> refundPayment(@PathVariable Long id) {
+        try {
+            PaymentResponse response = paymentService.refundPayment(id);
+            return ResponseEntity.ok(response);
+        } catch (GatewayUnavailableException e) {
+            // Nothing changed; callers retry 503s
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(e.getMessage());
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        }
+    }
+
     @DeleteMapping("/{id}")
     public ResponseEntity<?> deletePayment(@PathVariable Long id) {
         try {
@@ -0,0 +1,75 @@
+package com.microservices.payment.dto;
+
+/**
+ * Outcome of one request in a batch, at the same position as the request.
+ */
+public class BatchPaymentResult {
+
+    public enum Outcome {
+        // A new payment was made
+        CREATED,
+        // The attempt was already charged; payment is the original
+        EXISTING,
+        // The attempt was already charged with a different amount
+        CONFLICT,
+        // The request was incomplete and nothing was charged
+        INVALID
+    }
+
+    private int index;
+    private Outcome outcome;
+    private PaymentResponse payment;
+    private String error;
+
+    public BatchPaymentResult() {
+    }
+
+    public static BatchPaymentResult of(int index, Outcome outcome, PaymentResponse payment) {
+        BatchPaymentResult result = new BatchPaymentResult();
+        result.index = index;
+        result.outcome = outcome;
+        result.payment = payment;
+        return result;
+    }
+
+    public static BatchPaymentResult rejected(int index, Outcome outcome, String error) {
+        BatchPaymentResult result = new BatchPaymentResult();
+        result.index = index;
+        result.outcome = outcome;
+        result.error = error;
+        return result;
+    }
+
+    // Getters and Setters
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public Outcome getOutcome() {
+        return outcome;
+    }
+
+    public void setOutcome(Outcome outcome) {
+        this.outcome = outcome;
+    }
+
+    public PaymentResponse getPayment() {
+        return payment;
+    }
+
+    public void setPayment(PaymentResponse payment) {
+        this.payment = payment;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
@@ -0,0 +1,80 @@
+package com.microservices.payment.dto;
+
+import com.microservices.payment.entity.Payment;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.Objects;
+
+/**
+ * Position in the payment listing, which is sorted newest first by
+ * (createdAt, id). The next page starts strictly after it, so payments made
+ * while a client pages through the list never shift later pages.
+ *
+ * Clients see it as an opaque URL-safe token.
+ */
+public final class PaymentCursor {
+
+    private static final char SEPARATOR = '|';
+
+    private final Instant createdAt;
+    private final long id;
+
+    public PaymentCursor(Instant createdAt, long id) {
+        this.createdAt = Objects.requireNonNull(createdAt);
+        this.id = id;
+    }
+
+    public static PaymentCursor of(Payment payment) {
+        return new PaymentCursor(payment.getCreatedAt(), payment.getId());
+    }
+
+    public String encode() {
+        String raw = createdAt.toString() + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the token was not produced by {@link #encode()}
+     */
+    public static PaymentCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(SEPARATOR);
+            if (separator < 0) {
+                throw new IllegalArgumentException("Invalid cursor: " + token);
+            }
+            return new PaymentCursor(Instant.parse(raw.substring(0, separator)),
+                    Long.parseLong(raw.substring(separator + 1)));
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + token);
+        }
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof PaymentCursor)) {
+            return false;
+        }
+        PaymentCursor other = (PaymentCursor) o;
+        return createdAt.equals(other.createdAt) && id == other.id;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(createdAt, id);
+    }
+}
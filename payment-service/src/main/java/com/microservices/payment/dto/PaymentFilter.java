@@ -0,0 +1,47 @@
+package com.microservices.payment.dto;
+
+import com.microservices.payment.entity.PaymentStatus;
+
+import java.time.Instant;
+
+/**
+ * Optional criteria for listing and exporting payments. Any field left null
+ * matches every payment; the creation time range includes from and
+ * excludes to.
+ */
+public class PaymentFilter {
+
+    private static final PaymentFilter NONE = new PaymentFilter(null, null, null, null);
+
+    private final PaymentStatus status;
+    private final String method;
+    private final Instant from;
+    private final Instant to;
+
+    public PaymentFilter(PaymentStatus status, String method, Instant from, Instant to) {
+        this.status = status;
+        this.method = method;
+        this.from = from;
+        this.to = to;
+    }
+
+    public static PaymentFilter none() {
+        return NONE;
+    }
+
+    public PaymentStatus getStatus() {
+        return status;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public Instant getFrom() {
+        return from;
+    }
+
+    public Instant getTo() {
+        return to;
+    }
+}
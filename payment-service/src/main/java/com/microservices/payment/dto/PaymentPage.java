@@ -0,0 +1,28 @@
+package com.microservices.payment.dto;
+
+import java.util.List;
+
+/**
+ * One page of the payment listing and where the next one starts.
+ */
+public class PaymentPage {
+
+    private final List<PaymentResponse> payments;
+    private final PaymentCursor nextCursor;
+
+    public PaymentPage(List<PaymentResponse> payments, PaymentCursor nextCursor) {
+        this.payments = payments;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<PaymentResponse> getPayments() {
+        return payments;
+    }
+
+    /**
+     * The last payment of this page, or null on the last page.
+     */
+    public PaymentCursor getNextCursor() {
+        return nextCursor;
+    }
+}
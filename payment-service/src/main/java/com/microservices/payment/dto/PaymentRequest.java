@@ -5,6 +5,8 @@ import java.math.BigDecimal;
 public class PaymentRequest {
 
     private String orderId;
+    // Charge attempt for the order, from 1; repeating an attempt returns its payment
+    private Integer attempt;
     private BigDecimal amount;
     private String method;
 
@@ -17,6 +19,11 @@ public class PaymentRequest {
         this.method = method;
     }
 
+    public PaymentRequest(String orderId, Integer attempt, BigDecimal amount, String method) {
+        this(orderId, amount, method);
+        this.attempt = attempt;
+    }
+
     // Getters and Setters
     public String getOrderId() {
         return orderId;
@@ -26,6 +33,14 @@ public class PaymentRequest {
         this.orderId = orderId;
     }
 
+    public Integer getAttempt() {
+        return attempt;
+    }
+
+    public void setAttempt(Integer attempt) {
+        this.attempt = attempt;
+    }
+
     public BigDecimal getAmount() {
         return amount;
     }
@@ -10,6 +10,7 @@ public class PaymentResponse {
 
     private Long id;
     private String orderId;
+    private int attempt;
     private BigDecimal amount;
     private PaymentStatus status;
     private String method;
@@ -22,6 +23,7 @@ public class PaymentResponse {
     public PaymentResponse(Payment payment) {
         this.id = payment.getId();
         this.orderId = payment.getOrderId();
+        this.attempt = payment.getAttempt();
         this.amount = payment.getAmount();
         this.status = payment.getStatus();
         this.method = payment.getMethod();
@@ -46,6 +48,14 @@ public class PaymentResponse {
         this.orderId = orderId;
     }
 
+    public int getAttempt() {
+        return attempt;
+    }
+
+    public void setAttempt(int attempt) {
+        this.attempt = attempt;
+    }
+
     public BigDecimal getAmount() {
         return amount;
     }
@@ -0,0 +1,92 @@
+package com.microservices.payment.dto;
+
+import com.microservices.payment.entity.PaymentOutboxEvent;
+import com.microservices.payment.entity.PaymentStatus;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * A payment status change as delivered to subscribers. Delivery is at least
+ * once, so subscribers skip an eventId they have already handled.
+ */
+public class PaymentStatusEvent {
+
+    private Long eventId;
+    private Long paymentId;
+    private String orderId;
+    private int attempt;
+    private BigDecimal amount;
+    private PaymentStatus status;
+    private Instant occurredAt;
+
+    public PaymentStatusEvent() {
+    }
+
+    public PaymentStatusEvent(PaymentOutboxEvent event) {
+        this.eventId = event.getId();
+        this.paymentId = event.getPaymentId();
+        this.orderId = event.getOrderId();
+        this.attempt = event.getAttempt();
+        this.amount = event.getAmount();
+        this.status = event.getStatus();
+        this.occurredAt = event.getOccurredAt();
+    }
+
+    // Getters and Setters
+    public Long getEventId() {
+        return eventId;
+    }
+
+    public void setEventId(Long eventId) {
+        this.eventId = eventId;
+    }
+
+    public Long getPaymentId() {
+        return paymentId;
+    }
+
+    public void setPaymentId(Long paymentId) {
+        this.paymentId = paymentId;
+    }
+
+    public String getOrderId() {
+        return orderId;
+    }
+
+    public void setOrderId(String orderId) {
+        this.orderId = orderId;
+    }
+
+    public int getAttempt() {
+        return attempt;
+    }
+
+    public void setAttempt(int attempt) {
+        this.attempt = attempt;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public void setAmount(BigDecimal amount) {
+        this.amount = amount;
+    }
+
+    public PaymentStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(PaymentStatus status) {
+        this.status = status;
+    }
+
+    public Instant getOccurredAt() {
+        return occurredAt;
+    }
+
+    public void setOccurredAt(Instant occurredAt) {
+        this.occurredAt = occurredAt;
+    }
+}
@@ -0,0 +1,68 @@
+package com.microservices.payment.entity;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+/**
+ * Which instance may relay the payment outbox, until when. Only the holder
+ * delivers, so events for an order cannot overtake each other.
+ */
+@Entity
+@Table(name = "payment_outbox_lease")
+public class OutboxRelayLease {
+
+    @Id
+    private String name;
+
+    @Column(nullable = false)
+    private String owner;
+
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+
+    // Also makes save() insert a new lease rather than merge over one another instance created
+    @Version
+    private Long version;
+
+    public OutboxRelayLease() {
+    }
+
+    public OutboxRelayLease(String name, String owner, Instant expiresAt) {
+        this.name = name;
+        this.owner = owner;
+        this.expiresAt = expiresAt;
+    }
+
+    // Getters and Setters
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public void setOwner(String owner) {
+        this.owner = owner;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(Instant expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+}
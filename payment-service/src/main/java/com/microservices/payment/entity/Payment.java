@@ -5,16 +5,33 @@ import java.math.BigDecimal;
 import java.time.Instant;
 
 @Entity
-@Table(name = "payments")
+@Table(name = "payments", uniqueConstraints = {
+        // One payment per charge attempt: a repeated request finds it instead of charging again
+        @UniqueConstraint(name = "uk_payments_order_attempt", columnNames = {"order_id", "attempt"})
+}, indexes = {
+        // Latest payment for an order is a single index seek
+        @Index(name = "idx_payments_order_created_at", columnList = "order_id, created_at DESC, id DESC"),
+        // Keyset pagination and export of the history, unfiltered, by status and by method
+        @Index(name = "idx_payments_created_at_id", columnList = "created_at, id"),
+        @Index(name = "idx_payments_status_created_at_id", columnList = "status, created_at, id"),
+        @Index(name = "idx_payments_method_created_at_id", columnList = "method, created_at, id"),
+        // Payments left PENDING, for the sweeper
+        @Index(name = "idx_payments_status_updated_at", columnList = "status, updated_at, id")
+})
 public class Payment {
 
+    // Sequence ids, fetched 50 at a time, let Hibernate batch inserts; IDENTITY cannot
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "payments_seq")
+    @SequenceGenerator(name = "payments_seq", sequenceName = "payments_seq", allocationSize = 50)
     private Long id;
 
-    @Column(nullable = false)
+    @Column(name = "order_id", nullable = false)
     private String orderId;
 
+    @Column(nullable = false)
+    private int attempt = 1;
+
     @Column(nullable = false)
     private BigDecimal amount;
 
@@ -25,10 +42,14 @@ public class Payment {
     @Column(nullable = false)
     private String method;
 
-    @Column(nullable = false)
+    // Identifies the charge to the gateway, which answers a repeated reference with the same charge
+    @Column(name = "gateway_reference")
+    private String gatewayReference;
+
+    @Column(name = "created_at", nullable = false)
     private Instant createdAt;
 
-    @Column(nullable = false)
+    @Column(name = "updated_at", nullable = false)
     private Instant updatedAt;
 
     public Payment() {
@@ -37,9 +58,15 @@ public class Payment {
     }
 
     public Payment(String orderId, BigDecimal amount, String method) {
+        this(orderId, 1, amount, method);
+    }
+
+    public Payment(String orderId, int attempt, BigDecimal amount, String method) {
         this.orderId = orderId;
+        this.attempt = attempt;
         this.amount = amount;
         this.method = method;
+        this.gatewayReference = orderId + ":" + attempt;
         this.status = PaymentStatus.PENDING;
         this.createdAt = Instant.now();
         this.updatedAt = Instant.now();
@@ -67,6 +94,14 @@ public class Payment {
         this.orderId = orderId;
     }
 
+    public int getAttempt() {
+        return attempt;
+    }
+
+    public void setAttempt(int attempt) {
+        this.attempt = attempt;
+    }
+
     public BigDecimal getAmount() {
         return amount;
     }
@@ -91,6 +126,14 @@ public class Payment {
         this.method = method;
     }
 
+    public String getGatewayReference() {
+        return gatewayReference;
+    }
+
+    public void setGatewayReference(String gatewayReference) {
+        this.gatewayReference = gatewayReference;
+    }
+
     public Instant getCreatedAt() {
         return createdAt;
     }
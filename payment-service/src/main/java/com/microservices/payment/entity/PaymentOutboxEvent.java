@@ -0,0 +1,109 @@
+package com.microservices.payment.entity;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * A payment status change waiting to be delivered to subscribers. Written in
+ * the transaction that changes the payment and deleted once delivered.
+ */
+@Entity
+@Table(name = "payment_outbox")
+public class PaymentOutboxEvent {
+
+    // The relay delivers in id order, so ids must follow the order changes are made
+    // in on every instance; a pooled sequence would give each instance its own block
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "payment_outbox_seq")
+    @SequenceGenerator(name = "payment_outbox_seq", sequenceName = "payment_outbox_seq", allocationSize = 1)
+    private Long id;
+
+    @Column(name = "payment_id", nullable = false)
+    private Long paymentId;
+
+    @Column(name = "order_id", nullable = false)
+    private String orderId;
+
+    @Column(nullable = false)
+    private int attempt;
+
+    @Column(nullable = false)
+    private BigDecimal amount;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private PaymentStatus status;
+
+    @Column(name = "occurred_at", nullable = false)
+    private Instant occurredAt;
+
+    public PaymentOutboxEvent() {
+    }
+
+    public PaymentOutboxEvent(Payment payment) {
+        this.paymentId = payment.getId();
+        this.orderId = payment.getOrderId();
+        this.attempt = payment.getAttempt();
+        this.amount = payment.getAmount();
+        this.status = payment.getStatus();
+        this.occurredAt = Instant.now();
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getPaymentId() {
+        return paymentId;
+    }
+
+    public void setPaymentId(Long paymentId) {
+        this.paymentId = paymentId;
+    }
+
+    public String getOrderId() {
+        return orderId;
+    }
+
+    public void setOrderId(String orderId) {
+        this.orderId = orderId;
+    }
+
+    public int getAttempt() {
+        return attempt;
+    }
+
+    public void setAttempt(int attempt) {
+        this.attempt = attempt;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public void setAmount(BigDecimal amount) {
+        this.amount = amount;
+    }
+
+    public PaymentStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(PaymentStatus status) {
+        this.status = status;
+    }
+
+    public Instant getOccurredAt() {
+        return occurredAt;
+    }
+
+    public void setOccurredAt(Instant occurredAt) {
+        this.occurredAt = occurredAt;
+    }
+}
@@ -3,5 +3,6 @@ package com.microservices.payment.entity;
 public enum PaymentStatus {
     PENDING,
     SUCCESS,
-    FAILED
+    FAILED,
+    REFUNDED
 }
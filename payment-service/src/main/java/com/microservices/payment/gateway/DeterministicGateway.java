@@ -0,0 +1,52 @@
+package com.microservices.payment.gateway;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Answers at once with a fixed rule, the default:
+ * - If amount (in cents/smallest unit) is even -> approved
+ * - If amount (in cents/smallest unit) is odd -> declined
+ * Voids and refunds follow from it: an approved charge is already captured
+ * and can only be refunded, a declined one took nothing.
+ */
+@Component
+@ConditionalOnProperty(name = "payment.gateway.type", havingValue = "deterministic", matchIfMissing = true)
+public class DeterministicGateway implements PaymentGateway {
+
+    @Override
+    public CompletableFuture<GatewayResult> authorize(String reference, BigDecimal amount, String method) {
+        return CompletableFuture.completedFuture(approves(amount)
+                ? GatewayResult.approved(reference)
+                : GatewayResult.declined(reference, "Declined"));
+    }
+
+    @Override
+    public CompletableFuture<GatewayResult> capture(GatewayResult authorization, BigDecimal amount) {
+        return CompletableFuture.completedFuture(GatewayResult.approved(authorization.getReference()));
+    }
+
+    @Override
+    public CompletableFuture<GatewayResult> voidCharge(String reference, BigDecimal amount) {
+        // Charges are settled at once, so an approved one has always been captured by now
+        return CompletableFuture.completedFuture(approves(amount)
+                ? GatewayResult.declined(reference, "Already captured")
+                : GatewayResult.approved(reference));
+    }
+
+    @Override
+    public CompletableFuture<GatewayResult> refund(String reference, BigDecimal amount) {
+        return CompletableFuture.completedFuture(approves(amount)
+                ? GatewayResult.approved(reference)
+                : GatewayResult.declined(reference, "Nothing captured"));
+    }
+
+    private static boolean approves(BigDecimal amount) {
+        // Convert to cents to avoid floating point issues
+        long amountInCents = amount.multiply(new BigDecimal("100")).longValue();
+        return amountInCents % 2 == 0;
+    }
+}
@@ -0,0 +1,40 @@
+package com.microservices.payment.gateway;
+
+/**
+ * A gateway's answer to one step of a charge.
+ */
+public class GatewayResult {
+
+    private final String reference;
+    private final boolean approved;
+    private final String reason;
+
+    private GatewayResult(String reference, boolean approved, String reason) {
+        this.reference = reference;
+        this.approved = approved;
+        this.reason = reason;
+    }
+
+    public static GatewayResult approved(String reference) {
+        return new GatewayResult(reference, true, null);
+    }
+
+    public static GatewayResult declined(String reference, String reason) {
+        return new GatewayResult(reference, false, reason);
+    }
+
+    public String getReference() {
+        return reference;
+    }
+
+    public boolean isApproved() {
+        return approved;
+    }
+
+    /**
+     * Why the step was declined, or null when approved.
+     */
+    public String getReason() {
+        return reason;
+    }
+}
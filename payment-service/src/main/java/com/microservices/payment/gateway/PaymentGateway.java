@@ -0,0 +1,52 @@
+package com.microservices.payment.gateway;
+
+import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The processor that actually moves the money. Every step answers
+ * asynchronously: the returned future is completed by the gateway's
+ * callback, so no thread waits while a charge is in progress. The reference
+ * identifies the charge to the gateway, which treats a repeated reference as
+ * the same charge.
+ *
+ * Select an implementation with payment.gateway.type.
+ */
+public interface PaymentGateway {
+
+    /**
+     * Reserves the amount. A decline completes normally with a result that
+     * is not approved; only a failure to get an answer completes
+     * exceptionally.
+     */
+    CompletableFuture<GatewayResult> authorize(String reference, BigDecimal amount, String method);
+
+    /**
+     * Takes the money reserved by an approved authorization.
+     */
+    CompletableFuture<GatewayResult> capture(GatewayResult authorization, BigDecimal amount);
+
+    /**
+     * Cancels a charge that has not been captured, so it never will be.
+     * Approved once no money can be taken under the reference, including
+     * when the authorization was declined; declined if the charge was
+     * already captured, which then needs a {@link #refund}.
+     */
+    CompletableFuture<GatewayResult> voidCharge(String reference, BigDecimal amount);
+
+    /**
+     * Returns the money taken by a captured charge. Declined if nothing was
+     * captured under the reference.
+     */
+    CompletableFuture<GatewayResult> refund(String reference, BigDecimal amount);
+
+    /**
+     * Authorizes and, when approved, captures.
+     */
+    default CompletableFuture<GatewayResult> charge(String reference, BigDecimal amount, String method) {
+        return authorize(reference, amount, method)
+                .thenCompose(authorization -> authorization.isApproved()
+                        ? capture(authorization, amount)
+                        : CompletableFuture.completedFuture(authorization));
+    }
+}
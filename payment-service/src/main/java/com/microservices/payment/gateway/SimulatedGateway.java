@@ -0,0 +1,192 @@
+package com.microservices.payment.gateway;
+
+import com.microservices.payment.gateway.SimulatorProperties.Distribution;
+import com.microservices.payment.gateway.SimulatorProperties.Latency;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Stands in for a remote gateway in load tests: every step is answered by a
+ * timer after a latency drawn from the configured distribution, and
+ * authorizations are declined or steps fail at the configured rates. The
+ * caller gets its future straight away and no thread waits for the answer,
+ * so thousands of charges can be in flight on a couple of timer threads.
+ * Like a real gateway it remembers each reference, for
+ * reference-retention-ms: sending a reference again returns the first
+ * answer rather than charging again, unless that step failed to answer.
+ * Whichever of a capture and a void reaches the gateway first settles the
+ * charge: a capture answered after a void is declined, and a void answered
+ * after a capture is declined and leaves the charge to be refunded.
+ *
+ * Enabled with payment.gateway.type=simulator.
+ */
+@Component
+@ConditionalOnProperty(name = "payment.gateway.type", havingValue = "simulator")
+@EnableConfigurationProperties(SimulatorProperties.class)
+public class SimulatedGateway implements PaymentGateway {
+
+    // Standard normal quantile of the 99th percentile: max is taken as the p99
+    private static final double Z_99 = 2.326;
+
+    private final SimulatorProperties properties;
+    private final ScheduledExecutorService timer;
+    private final Random random;
+    private final ConcurrentMap<String, CompletableFuture<GatewayResult>> authorizations = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, CompletableFuture<GatewayResult>> captures = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, CompletableFuture<GatewayResult>> voids = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, CompletableFuture<GatewayResult>> refunds = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Settlement> settlements = new ConcurrentHashMap<>();
+
+    @Autowired
+    public SimulatedGateway(SimulatorProperties properties) {
+        this(properties, Executors.newScheduledThreadPool(properties.getThreads(), new TimerThreads()),
+                properties.getSeed() == 0 ? new Random() : new Random(properties.getSeed()));
+    }
+
+    SimulatedGateway(SimulatorProperties properties, ScheduledExecutorService timer, Random random) {
+        this.properties = properties;
+        this.timer = timer;
+        this.random = random;
+    }
+
+    @Override
+    public CompletableFuture<GatewayResult> authorize(String reference, BigDecimal amount, String method) {
+        return once(authorizations, reference, () -> {
+            GatewayResult answer = random.nextDouble() < properties.getDeclineRate()
+                    ? GatewayResult.declined(reference, "Declined by issuer")
+                    : GatewayResult.approved(reference);
+            return answerLater(answer, properties.getAuthorize());
+        });
+    }
+
+    @Override
+    public CompletableFuture<GatewayResult> capture(GatewayResult authorization, BigDecimal amount) {
+        String reference = authorization.getReference();
+        return once(captures, reference,
+                () -> answerLater(GatewayResult.approved(reference), properties.getCapture())
+                        .thenApply(answer -> settle(reference, Settlement.CAPTURED)
+                                ? answer
+                                : GatewayResult.declined(reference, "Voided")));
+    }
+
+    @Override
+    public CompletableFuture<GatewayResult> voidCharge(String reference, BigDecimal amount) {
+        return once(voids, reference,
+                () -> answerLater(GatewayResult.approved(reference), properties.getRefund())
+                        .thenApply(answer -> settle(reference, Settlement.VOIDED)
+                                ? answer
+                                : GatewayResult.declined(reference, "Already captured")));
+    }
+
+    @Override
+    public CompletableFuture<GatewayResult> refund(String reference, BigDecimal amount) {
+        return once(refunds, reference,
+                () -> answerLater(GatewayResult.approved(reference), properties.getRefund())
+                        .thenApply(answer -> settlements.get(reference) == Settlement.CAPTURED
+                                ? answer
+                                : GatewayResult.declined(reference, "Nothing captured")));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        timer.shutdownNow();
+    }
+
+    private CompletableFuture<GatewayResult> once(ConcurrentMap<String, CompletableFuture<GatewayResult>> answers,
+                                                  String reference, Supplier<CompletableFuture<GatewayResult>> step) {
+        CompletableFuture<GatewayResult> created = new CompletableFuture<>();
+        CompletableFuture<GatewayResult> known = answers.putIfAbsent(reference, created);
+        if (known != null) {
+            return known;
+        }
+        step.get().whenComplete((answer, error) -> {
+            if (error != null) {
+                // Nothing was done, so the step may be tried again
+                answers.remove(reference, created);
+                created.completeExceptionally(error);
+            } else {
+                timer.schedule(() -> answers.remove(reference, created),
+                        properties.getReferenceRetentionMs(), TimeUnit.MILLISECONDS);
+                created.complete(answer);
+            }
+        });
+        return created;
+    }
+
+    /**
+     * Records how the charge under reference ended, unless that is already
+     * decided. Returns true if it ends as given.
+     */
+    private boolean settle(String reference, Settlement settlement) {
+        Settlement first = settlements.putIfAbsent(reference, settlement);
+        if (first == null) {
+            timer.schedule(() -> settlements.remove(reference, settlement),
+                    properties.getReferenceRetentionMs(), TimeUnit.MILLISECONDS);
+            return true;
+        }
+        return first == settlement;
+    }
+
+    private CompletableFuture<GatewayResult> answerLater(GatewayResult answer, Latency latency) {
+        boolean fails = random.nextDouble() < properties.getErrorRate();
+        CompletableFuture<GatewayResult> result = new CompletableFuture<>();
+        timer.schedule(() -> {
+            if (fails) {
+                result.completeExceptionally(new GatewayException("Gateway did not answer for " + answer.getReference()));
+            } else {
+                result.complete(answer);
+            }
+        }, latencyMs(latency), TimeUnit.MILLISECONDS);
+        return result;
+    }
+
+    long latencyMs(Latency latency) {
+        double sample;
+        if (properties.getDistribution() == Distribution.UNIFORM) {
+            sample = latency.getMinMs() + random.nextDouble() * (latency.getMaxMs() - latency.getMinMs());
+        } else {
+            // Log-normal around the median, spread so that max is the 99th percentile
+            double median = Math.max(latency.getMedianMs(), 1);
+            double sigma = Math.log(Math.max(latency.getMaxMs(), median) / median) / Z_99;
+            sample = median * Math.exp(sigma * random.nextGaussian());
+        }
+        return Math.round(Math.min(Math.max(sample, latency.getMinMs()), latency.getMaxMs()));
+    }
+
+    private enum Settlement {
+        CAPTURED,
+        VOIDED
+    }
+
+    public static class GatewayException extends RuntimeException {
+        public GatewayException(String message) {
+            super(message);
+        }
+    }
+
+    private static final class TimerThreads implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable task) {
+            Thread thread = new Thread(task, "gateway-simulator-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.microservices.payment.gateway;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Behaviour of {@link SimulatedGateway}, under payment.gateway.simulator.
+ * Each step's latency is drawn between its min and max, around its median.
+ */
+@ConfigurationProperties(prefix = "payment.gateway.simulator")
+public class SimulatorProperties {
+
+    public enum Distribution {
+        // Most answers near the median with a long tail towards max, like real gateways
+        LOG_NORMAL,
+        UNIFORM
+    }
+
+    private Distribution distribution = Distribution.LOG_NORMAL;
+    private Latency authorize = new Latency(150, 400, 1500);
+    private Latency capture = new Latency(50, 100, 500);
+    // Voids and refunds
+    private Latency refund = new Latency(50, 100, 500);
+    // Share of authorizations declined
+    private double declineRate = 0.05;
+    // Share of steps the gateway fails to answer
+    private double errorRate = 0.0;
+    // Timer threads firing the callbacks; nothing sleeps on them
+    private int threads = 2;
+    // Fixes the random sequence for repeatable runs; 0 picks one at startup
+    private long seed = 0;
+    // How long a reference is remembered and answered with its first result
+    private long referenceRetentionMs = 3_600_000;
+
+    public Distribution getDistribution() {
+        return distribution;
+    }
+
+    public void setDistribution(Distribution distribution) {
+        this.distribution = distribution;
+    }
+
+    public Latency getAuthorize() {
+        return authorize;
+    }
+
+    public void setAuthorize(Latency authorize) {
+        this.authorize = authorize;
+    }
+
+    public Latency getCapture() {
+        return capture;
+    }
+
+    public void setCapture(Latency capture) {
+        this.capture = capture;
+    }
+
+    public Latency getRefund() {
+        return refund;
+    }
+
+    public void setRefund(Latency refund) {
+        this.refund = refund;
+    }
+
+    public double getDeclineRate() {
+        return declineRate;
+    }
+
+    public void setDeclineRate(double declineRate) {
+        this.declineRate = declineRate;
+    }
+
+    public double getErrorRate() {
+        return errorRate;
+    }
+
+    public void setErrorRate(double errorRate) {
+        this.errorRate = errorRate;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public long getReferenceRetentionMs() {
+        return referenceRetentionMs;
+    }
+
+    public void setReferenceRetentionMs(long referenceRetentionMs) {
+        this.referenceRetentionMs = referenceRetentionMs;
+    }
+
+    public static class Latency {
+        private long minMs;
+        private long medianMs;
+        private long maxMs;
+
+        public Latency() {
+        }
+
+        public Latency(long minMs, long medianMs, long maxMs) {
+            this.minMs = minMs;
+            this.medianMs = medianMs;
+            this.maxMs = maxMs;
+        }
+
+        public long getMinMs() {
+            return minMs;
+        }
+
+        public void setMinMs(long minMs) {
+            this.minMs = minMs;
+        }
+
+        public long getMedianMs() {
+            return medianMs;
+        }
+
+        public void setMedianMs(long medianMs) {
+            this.medianMs = medianMs;
+        }
+
+        public long getMaxMs() {
+            return maxMs;
+        }
+
+        public void setMaxMs(long maxMs) {
+            this.maxMs = maxMs;
+        }
+    }
+}
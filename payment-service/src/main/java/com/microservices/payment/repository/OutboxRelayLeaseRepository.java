@@ -0,0 +1,27 @@
+package com.microservices.payment.repository;
+
+import com.microservices.payment.entity.OutboxRelayLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+
+@Repository
+public interface OutboxRelayLeaseRepository extends JpaRepository<OutboxRelayLease, String> {
+
+    /**
+     * Takes the lease if it has expired, or extends it if owner already holds
+     * it, in one statement. Returns 0 if another owner holds it or it does
+     * not exist yet.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE OutboxRelayLease l SET l.owner = :owner, l.expiresAt = :expiresAt, l.version = l.version + 1 "
+            + "WHERE l.name = :name AND (l.owner = :owner OR l.expiresAt < :now)")
+    int tryAcquire(@Param("name") String name, @Param("owner") String owner,
+                   @Param("now") Instant now, @Param("expiresAt") Instant expiresAt);
+}
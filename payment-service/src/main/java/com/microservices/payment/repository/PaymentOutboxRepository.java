@@ -0,0 +1,18 @@
+package com.microservices.payment.repository;
+
+import com.microservices.payment.entity.PaymentOutboxEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface PaymentOutboxRepository extends JpaRepository<PaymentOutboxEvent, Long> {
+
+    /**
+     * The oldest undelivered events. Only the holder of the relay lease reads
+     * them, so no lock is taken.
+     */
+    List<PaymentOutboxEvent> findAllByOrderByIdAsc(Pageable page);
+}
@@ -2,15 +2,48 @@ package com.microservices.payment.repository;
 
 import com.microservices.payment.entity.Payment;
 import com.microservices.payment.entity.PaymentStatus;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface PaymentRepository extends JpaRepository<Payment, Long> {
+public interface PaymentRepository extends JpaRepository<Payment, Long>, PaymentRepositoryCustom {
 
-    List<Payment> findByOrderId(String orderId);
+    /**
+     * The most recent payment for an order, newest id first on equal
+     * timestamps. Served by idx_payments_order_created_at.
+     */
+    Optional<Payment> findFirstByOrderIdOrderByCreatedAtDescIdDesc(String orderId);
+
+    Optional<Payment> findByOrderIdAndAttempt(String orderId, int attempt);
+
+    List<Payment> findByOrderIdIn(Collection<String> orderIds);
 
     List<Payment> findByStatus(PaymentStatus status);
+
+    /**
+     * Payments in status last changed before the given time, oldest first.
+     * Served by idx_payments_status_updated_at.
+     */
+    List<Payment> findByStatusAndUpdatedAtBeforeOrderByUpdatedAtAscIdAsc(PaymentStatus status, Instant before,
+                                                                         Pageable pageable);
+
+    /**
+     * Records the gateway's answer for a payment that is still PENDING, in
+     * one statement. Returns 0 if the payment was already settled or is gone.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE Payment p SET p.status = :status, p.updatedAt = :updatedAt "
+            + "WHERE p.id = :id AND p.status = com.microservices.payment.entity.PaymentStatus.PENDING")
+    int settle(@Param("id") Long id, @Param("status") PaymentStatus status, @Param("updatedAt") Instant updatedAt);
 }
@@ -0,0 +1,28 @@
+package com.microservices.payment.repository;
+
+import com.microservices.payment.dto.PaymentCursor;
+import com.microservices.payment.dto.PaymentFilter;
+import com.microservices.payment.dto.PaymentResponse;
+import com.microservices.payment.entity.Payment;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Payment history, newest first by (createdAt, id).
+ */
+public interface PaymentRepositoryCustom {
+
+    /**
+     * Up to limit payments after the given cursor, or from the newest when
+     * after is null.
+     */
+    List<Payment> findPage(PaymentFilter filter, PaymentCursor after, int limit);
+
+    /**
+     * Hands every matching payment to action as its row is read from a
+     * forward-only cursor, so memory use does not grow with the result. Must
+     * be called inside a transaction for the driver to honour the fetch size.
+     */
+    void forEachPayment(PaymentFilter filter, Consumer<PaymentResponse> action);
+}
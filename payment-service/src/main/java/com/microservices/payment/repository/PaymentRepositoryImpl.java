@@ -0,0 +1,133 @@
+package com.microservices.payment.repository;
+
+import com.microservices.payment.dto.PaymentCursor;
+import com.microservices.payment.dto.PaymentFilter;
+import com.microservices.payment.dto.PaymentResponse;
+import com.microservices.payment.entity.Payment;
+import com.microservices.payment.entity.PaymentStatus;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Builds the history queries with only the conditions that apply, so each
+ * one can be served from the (created_at, id), (status, created_at, id) or
+ * (method, created_at, id) index rather than a scan behind
+ * "param IS NULL OR ..." predicates. Pages go through JPA; the export reads
+ * plain JDBC rows so no entity is ever managed while it runs.
+ */
+class PaymentRepositoryImpl implements PaymentRepositoryCustom {
+
+    private static final Columns ENTITY = new Columns("p.status", "p.method", "p.createdAt", "p.id");
+    private static final Columns TABLE = new Columns("status", "method", "created_at", "id");
+
+    private static final String EXPORT_SELECT =
+            "SELECT id, order_id, attempt, amount, status, method, created_at, updated_at FROM payments";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    PaymentRepositoryImpl(DataSource dataSource, @Value("${payment.export.fetch-size:500}") int fetchSize) {
+        JdbcTemplate template = new JdbcTemplate(dataSource);
+        template.setFetchSize(fetchSize);
+        this.jdbcTemplate = new NamedParameterJdbcTemplate(template);
+    }
+
+    @Override
+    public List<Payment> findPage(PaymentFilter filter, PaymentCursor after, int limit) {
+        Map<String, Object> parameters = new HashMap<>();
+        String jpql = "SELECT p FROM Payment p" + where(filter, after, parameters, ENTITY)
+                + " ORDER BY p.createdAt DESC, p.id DESC";
+
+        TypedQuery<Payment> query = entityManager.createQuery(jpql, Payment.class).setMaxResults(limit);
+        parameters.forEach(query::setParameter);
+        return query.getResultList();
+    }
+
+    @Override
+    public void forEachPayment(PaymentFilter filter, Consumer<PaymentResponse> action) {
+        Map<String, Object> parameters = new HashMap<>();
+        String sql = EXPORT_SELECT + where(filter, null, parameters, TABLE) + " ORDER BY created_at DESC, id DESC";
+
+        jdbcTemplate.query(sql, parameters, (RowCallbackHandler) rs -> action.accept(toResponse(rs)));
+    }
+
+    private static String where(PaymentFilter filter, PaymentCursor after, Map<String, Object> parameters,
+                                Columns columns) {
+        boolean sql = columns == TABLE;
+        List<String> conditions = new ArrayList<>();
+
+        if (filter.getStatus() != null) {
+            conditions.add(columns.status + " = :status");
+            parameters.put("status", sql ? filter.getStatus().name() : filter.getStatus());
+        }
+        if (filter.getMethod() != null) {
+            conditions.add(columns.method + " = :method");
+            parameters.put("method", filter.getMethod());
+        }
+        if (filter.getFrom() != null) {
+            conditions.add(columns.createdAt + " >= :from");
+            parameters.put("from", sql ? Timestamp.from(filter.getFrom()) : filter.getFrom());
+        }
+        if (filter.getTo() != null) {
+            conditions.add(columns.createdAt + " < :to");
+            parameters.put("to", sql ? Timestamp.from(filter.getTo()) : filter.getTo());
+        }
+        if (after != null) {
+            conditions.add("(" + columns.createdAt + " < :afterCreatedAt OR (" + columns.createdAt
+                    + " = :afterCreatedAt AND " + columns.id + " < :afterId))");
+            parameters.put("afterCreatedAt", sql ? Timestamp.from(after.getCreatedAt()) : after.getCreatedAt());
+            parameters.put("afterId", after.getId());
+        }
+        return conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
+    }
+
+    private static PaymentResponse toResponse(ResultSet rs) throws SQLException {
+        PaymentResponse payment = new PaymentResponse();
+        payment.setId(rs.getLong("id"));
+        payment.setOrderId(rs.getString("order_id"));
+        payment.setAttempt(rs.getInt("attempt"));
+        payment.setAmount(rs.getBigDecimal("amount"));
+        payment.setStatus(PaymentStatus.valueOf(rs.getString("status")));
+        payment.setMethod(rs.getString("method"));
+        payment.setCreatedAt(toInstant(rs.getTimestamp("created_at")));
+        payment.setUpdatedAt(toInstant(rs.getTimestamp("updated_at")));
+        return payment;
+    }
+
+    private static Instant toInstant(Timestamp timestamp) {
+        return timestamp == null ? null : timestamp.toInstant();
+    }
+
+    // Names of the filtered columns in JPQL or SQL
+    private static final class Columns {
+        private final String status;
+        private final String method;
+        private final String createdAt;
+        private final String id;
+
+        private Columns(String status, String method, String createdAt, String id) {
+            this.status = status;
+            this.method = method;
+            this.createdAt = createdAt;
+            this.id = id;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.microservices.payment.service;
+
+import com.microservices.payment.dto.BatchPaymentResult;
+import com.microservices.payment.dto.BatchPaymentResult.Outcome;
+import com.microservices.payment.dto.PaymentRequest;
+import com.microservices.payment.dto.PaymentResponse;
+import com.microservices.payment.entity.Payment;
+import com.microservices.payment.repository.PaymentRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Processes many payments per request, for bulk runs such as invoicing.
+ *
+ * Requests are taken in chunks of payment.batch.chunk-size, each in its own
+ * transaction: one query finds the attempts already charged, the rest are
+ * inserted together as PENDING, which Hibernate sends as JDBC batches, and
+ * recorded in the {@link PaymentOutbox}. Only once the chunk has committed
+ * are its new payments sent to the gateway, and settled by its callback.
+ * The same rules as {@link PaymentService#processPayment} apply per item,
+ * so repeating a batch, or a chunk after a failure, charges nothing twice.
+ */
+@Service
+public class PaymentBatchService {
+
+    private final PaymentRepository paymentRepository;
+    private final PaymentService paymentService;
+    private final PaymentOutbox paymentOutbox;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final int maxSize;
+
+    public PaymentBatchService(PaymentRepository paymentRepository, PaymentService paymentService,
+                               PaymentOutbox paymentOutbox, TransactionTemplate transactionTemplate,
+                               @Value("${payment.batch.chunk-size:500}") int chunkSize,
+                               @Value("${payment.batch.max-size:50000}") int maxSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("payment.batch.chunk-size must be positive");
+        }
+        this.paymentRepository = paymentRepository;
+        this.paymentService = paymentService;
+        this.paymentOutbox = paymentOutbox;
+        this.transactionTemplate = transactionTemplate;
+        this.chunkSize = chunkSize;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * One result per request, in request order. Chunks already committed stay
+     * committed if a later one fails.
+     *
+     * @throws IllegalArgumentException if there are more than
+     *         payment.batch.max-size requests
+     */
+    public List<BatchPaymentResult> processBatch(List<PaymentRequest> requests) {
+        if (requests.size() > maxSize) {
+            throw new IllegalArgumentException("At most " + maxSize + " payments per batch");
+        }
+        List<BatchPaymentResult> results = new ArrayList<>(requests.size());
+        for (int from = 0; from < requests.size(); from += chunkSize) {
+            List<PaymentRequest> chunk = requests.subList(from, Math.min(from + chunkSize, requests.size()));
+            results.addAll(processChunk(chunk, from));
+        }
+        return results;
+    }
+
+    private List<BatchPaymentResult> processChunk(List<PaymentRequest> chunk, int offset) {
+        Payment[] payments = new Payment[chunk.size()];
+        BatchPaymentResult[] results;
+        try {
+            results = transactionTemplate.execute(status -> store(chunk, offset, payments));
+        } catch (DataIntegrityViolationException e) {
+            // Another request charged one of these attempts meanwhile; redoing the chunk finds it
+            results = transactionTemplate.execute(status -> store(chunk, offset, payments));
+        }
+
+        // Committed, so each charge the gateway sees has its payment row
+        for (int i = 0; i < chunk.size(); i++) {
+            if (results[i].getOutcome() == Outcome.CREATED) {
+                paymentService.chargeAfterCommit(payments[i]);
+            }
+        }
+        for (int i = 0; i < chunk.size(); i++) {
+            if (payments[i] != null) {
+                results[i].setPayment(new PaymentResponse(payments[i]));
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Inserts the chunk's new payments as PENDING, filling payments with the
+     * payment each result refers to.
+     */
+    private BatchPaymentResult[] store(List<PaymentRequest> chunk, int offset, Payment[] payments) {
+        Arrays.fill(payments, null);
+        BatchPaymentResult[] results = new BatchPaymentResult[chunk.size()];
+        Set<String> orderIds = new HashSet<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            String invalid = validate(chunk.get(i));
+            if (invalid != null) {
+                results[i] = BatchPaymentResult.rejected(offset + i, Outcome.INVALID, invalid);
+            } else {
+                orderIds.add(chunk.get(i).getOrderId());
+            }
+        }
+
+        Map<String, Payment> charged = new HashMap<>();
+        if (!orderIds.isEmpty()) {
+            for (Payment payment : paymentRepository.findByOrderIdIn(orderIds)) {
+                charged.put(key(payment.getOrderId(), payment.getAttempt()), payment);
+            }
+        }
+
+        List<Payment> created = new ArrayList<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            if (results[i] != null) {
+                continue;
+            }
+            PaymentRequest request = chunk.get(i);
+            int attempt = attemptOf(request);
+            Payment existing = charged.get(key(request.getOrderId(), attempt));
+            if (existing == null) {
+                Payment payment = new Payment(request.getOrderId(), attempt, request.getAmount(), request.getMethod());
+                charged.put(key(request.getOrderId(), attempt), payment);
+                created.add(payment);
+                payments[i] = payment;
+            } else if (existing.getAmount().compareTo(request.getAmount()) != 0) {
+                results[i] = BatchPaymentResult.rejected(offset + i, Outcome.CONFLICT, "Attempt " + attempt
+                        + " for order " + request.getOrderId() + " was already charged with amount "
+                        + existing.getAmount());
+            } else {
+                results[i] = BatchPaymentResult.of(offset + i, Outcome.EXISTING, null);
+                payments[i] = existing;
+            }
+        }
+        paymentRepository.saveAllAndFlush(created);
+        paymentOutbox.recordAll(created);
+
+        for (int i = 0; i < chunk.size(); i++) {
+            if (results[i] == null) {
+                results[i] = BatchPaymentResult.of(offset + i, Outcome.CREATED, null);
+            }
+        }
+        return results;
+    }
+
+    private static String validate(PaymentRequest request) {
+        if (request == null) {
+            return "Request is empty";
+        }
+        if (request.getOrderId() == null || request.getAmount() == null || request.getMethod() == null) {
+            return "orderId, amount and method are required";
+        }
+        if (attemptOf(request) < 1) {
+            return "attempt must be at least 1";
+        }
+        return null;
+    }
+
+    private static int attemptOf(PaymentRequest request) {
+        return request.getAttempt() != null ? request.getAttempt() : 1;
+    }
+
+    private static String key(String orderId, int attempt) {
+        return orderId + ":" + attempt;
+    }
+}
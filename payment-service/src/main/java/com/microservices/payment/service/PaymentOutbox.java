@@ -0,0 +1,38 @@
+package com.microservices.payment.service;
+
+import com.microservices.payment.entity.Payment;
+import com.microservices.payment.entity.PaymentOutboxEvent;
+import com.microservices.payment.repository.PaymentOutboxRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+
+/**
+ * Records payment status changes for {@link PaymentOutboxRelay} to deliver.
+ * Must be called in the transaction that saves the change, so an event
+ * exists exactly when the change was committed.
+ */
+@Service
+public class PaymentOutbox {
+
+    private final PaymentOutboxRepository outboxRepository;
+
+    public PaymentOutbox(PaymentOutboxRepository outboxRepository) {
+        this.outboxRepository = outboxRepository;
+    }
+
+    /**
+     * Records the payment's current status.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(Payment payment) {
+        outboxRepository.save(new PaymentOutboxEvent(payment));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordAll(Collection<Payment> payments) {
+        outboxRepository.saveAll(payments.stream().map(PaymentOutboxEvent::new).toList());
+    }
+}
@@ -0,0 +1,112 @@
+package com.microservices.payment.service;
+
+import com.microservices.payment.client.PaymentEventPublisher;
+import com.microservices.payment.dto.PaymentStatusEvent;
+import com.microservices.payment.entity.OutboxRelayLease;
+import com.microservices.payment.entity.PaymentOutboxEvent;
+import com.microservices.payment.repository.OutboxRelayLeaseRepository;
+import com.microservices.payment.repository.PaymentOutboxRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Delivers the outbox to subscribers in batches of payment.outbox.batch-size,
+ * oldest first, and deletes each batch once every subscriber has accepted it.
+ *
+ * Delivery is at least once: a batch that fails, or whose delete does not
+ * commit, is delivered again in full on the next run. Events keep their
+ * order per orderId because only the instance holding the relay lease
+ * delivers, and a batch is only removed after delivery. No transaction or
+ * lock is held while subscribers are called: the lease is renewed, the
+ * batch read and the batch deleted in short transactions of their own.
+ */
+@Component
+public class PaymentOutboxRelay {
+
+    private static final Logger logger = LoggerFactory.getLogger(PaymentOutboxRelay.class);
+    private static final String LEASE = "payment-outbox";
+
+    private final PaymentOutboxRepository outboxRepository;
+    private final OutboxRelayLeaseRepository leaseRepository;
+    private final PaymentEventPublisher publisher;
+    private final int batchSize;
+    private final Duration leaseDuration;
+    private final String owner = UUID.randomUUID().toString();
+
+    public PaymentOutboxRelay(PaymentOutboxRepository outboxRepository, OutboxRelayLeaseRepository leaseRepository,
+                              PaymentEventPublisher publisher,
+                              @Value("${payment.outbox.batch-size:100}") int batchSize,
+                              @Value("${payment.outbox.lease-ms:30000}") long leaseMs) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("payment.outbox.batch-size must be positive");
+        }
+        // Renewed before every batch; expiring mid-delivery would let another instance overtake it
+        if (Duration.ofMillis(leaseMs).compareTo(publisher.maxDeliveryTime()) <= 0) {
+            throw new IllegalArgumentException("payment.outbox.lease-ms must exceed delivery-timeout-ms "
+                    + "times the number of subscribers");
+        }
+        this.outboxRepository = outboxRepository;
+        this.leaseRepository = leaseRepository;
+        this.publisher = publisher;
+        this.batchSize = batchSize;
+        this.leaseDuration = Duration.ofMillis(leaseMs);
+    }
+
+    /**
+     * Delivers batches until the outbox is drained, a delivery fails or
+     * another instance holds the lease.
+     */
+    @Scheduled(fixedDelayString = "${payment.outbox.relay-interval-ms:500}")
+    public void relay() {
+        try {
+            int delivered;
+            do {
+                if (!acquireLease()) {
+                    logger.debug("Payment outbox is being relayed by another instance");
+                    return;
+                }
+                delivered = deliverBatch();
+            } while (delivered == batchSize);
+        } catch (RuntimeException e) {
+            logger.warn("Could not deliver payment events, retrying on the next run: {}", e.getMessage());
+        }
+    }
+
+    private boolean acquireLease() {
+        Instant now = Instant.now();
+        Instant expiresAt = now.plus(leaseDuration);
+        if (leaseRepository.tryAcquire(LEASE, owner, now, expiresAt) == 1) {
+            return true;
+        }
+        if (leaseRepository.existsById(LEASE)) {
+            return false;
+        }
+        try {
+            // First relay run anywhere
+            leaseRepository.save(new OutboxRelayLease(LEASE, owner, expiresAt));
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            return false;
+        }
+    }
+
+    private int deliverBatch() {
+        List<PaymentOutboxEvent> batch = outboxRepository.findAllByOrderByIdAsc(PageRequest.of(0, batchSize));
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        publisher.publish(batch.stream().map(PaymentStatusEvent::new).toList());
+        outboxRepository.deleteAllInBatch(batch);
+        return batch.size();
+    }
+}
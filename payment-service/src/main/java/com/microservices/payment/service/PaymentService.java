@@ -1,61 +1,276 @@
 package com.microservices.payment.service;
 
+import com.microservices.payment.dto.PaymentCursor;
+import com.microservices.payment.dto.PaymentFilter;
+import com.microservices.payment.dto.PaymentPage;
 import com.microservices.payment.dto.PaymentRequest;
 import com.microservices.payment.dto.PaymentResponse;
 import com.microservices.payment.entity.Payment;
 import com.microservices.payment.entity.PaymentStatus;
+import com.microservices.payment.gateway.GatewayResult;
+import com.microservices.payment.gateway.PaymentGateway;
 import com.microservices.payment.repository.PaymentRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.math.BigDecimal;
+import java.time.Instant;
 import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
 
 @Service
 public class PaymentService {
 
+    private static final Logger logger = LoggerFactory.getLogger(PaymentService.class);
+
     private final PaymentRepository paymentRepository;
+    private final PaymentGateway gateway;
+    private final PaymentOutbox paymentOutbox;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${payment.listing.default-page-size:50}")
+    private int defaultPageSize = 50;
+
+    @Value("${payment.listing.max-page-size:500}")
+    private int maxPageSize = 500;
 
-    public PaymentService(PaymentRepository paymentRepository) {
+    @Value("${payment.gateway.refund-timeout-ms:10000}")
+    private long refundTimeoutMs = 10000;
+
+    // Requests being processed, by orderId:attempt
+    private final ConcurrentMap<String, CompletableFuture<PaymentResponse>> inFlight = new ConcurrentHashMap<>();
+
+    public PaymentService(PaymentRepository paymentRepository, PaymentGateway gateway,
+                          PaymentOutbox paymentOutbox, TransactionTemplate transactionTemplate) {
         this.paymentRepository = paymentRepository;
+        this.gateway = gateway;
+        this.paymentOutbox = paymentOutbox;
+        this.transactionTemplate = transactionTemplate;
     }
 
     /**
-     * Process payment with deterministic logic:
-     * - If amount (in cents/smallest unit) is even -> SUCCESS
-     * - If amount (in cents/smallest unit) is odd -> FAILED
+     * Charges through the {@link PaymentGateway}. The payment is stored as
+     * PENDING and the gateway asked only once that has committed. When the
+     * gateway answers at once the payment is returned as SUCCESS or FAILED;
+     * otherwise it is returned as PENDING and moves on when the gateway calls
+     * back, without any thread waiting for it. Every status the payment
+     * takes is also recorded in the {@link PaymentOutbox}.
+     *
+     * A charge is identified by orderId and attempt (1 if not given) and is
+     * made at most once: repeating it returns the original payment, and
+     * identical requests arriving together share one processing. Not
+     * transactional itself, so that losing the insert race to another
+     * instance leaves a clean transaction for reading the winner.
+     *
+     * @throws IdempotencyConflictException if the attempt was already charged
+     *         with a different amount
      */
-    @Transactional
     public PaymentResponse processPayment(PaymentRequest request) {
-        // Create payment entity
+        int attempt = request.getAttempt() != null ? request.getAttempt() : 1;
+        if (attempt < 1) {
+            throw new IllegalArgumentException("attempt must be at least 1");
+        }
+        String key = request.getOrderId() + ":" + attempt;
+
+        CompletableFuture<PaymentResponse> ours = new CompletableFuture<>();
+        CompletableFuture<PaymentResponse> running = inFlight.putIfAbsent(key, ours);
+        if (running != null) {
+            return checkSameCharge(await(running), request);
+        }
+        try {
+            PaymentResponse response = insertOrGet(request, attempt);
+            ours.complete(response);
+            return response;
+        } catch (RuntimeException e) {
+            ours.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, ours);
+        }
+    }
+
+    private PaymentResponse insertOrGet(PaymentRequest request, int attempt) {
+        // A retry is a lookup
+        Payment existing = paymentRepository.findByOrderIdAndAttempt(request.getOrderId(), attempt).orElse(null);
+        if (existing != null) {
+            return checkSameCharge(new PaymentResponse(existing), request);
+        }
+
+        // Create payment entity, PENDING until the gateway answers
         Payment payment = new Payment(
                 request.getOrderId(),
+                attempt,
                 request.getAmount(),
                 request.getMethod()
         );
 
-        // Simulate payment processing with deterministic logic
-        PaymentStatus resultStatus = determinePaymentStatus(request.getAmount());
-        payment.setStatus(resultStatus);
+        try {
+            Payment saved = transactionTemplate.execute(status -> {
+                Payment inserted = paymentRepository.save(payment);
+                paymentOutbox.record(inserted);
+                return inserted;
+            });
+            chargeAfterCommit(saved);
+            return new PaymentResponse(saved);
+        } catch (DataIntegrityViolationException e) {
+            // Another instance inserted the same attempt first
+            return paymentRepository.findByOrderIdAndAttempt(request.getOrderId(), attempt)
+                    .map(winner -> checkSameCharge(new PaymentResponse(winner), request))
+                    .orElseThrow(() -> e);
+        }
+    }
+
+    private static PaymentResponse checkSameCharge(PaymentResponse payment, PaymentRequest request) {
+        if (request.getAmount() == null || payment.getAmount().compareTo(request.getAmount()) != 0) {
+            throw new IdempotencyConflictException("Attempt " + payment.getAttempt() + " for order "
+                    + payment.getOrderId() + " was already charged with amount " + payment.getAmount());
+        }
+        return payment;
+    }
+
+    private static PaymentResponse await(CompletableFuture<PaymentResponse> running) {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
 
-        // Save payment
-        Payment savedPayment = paymentRepository.save(payment);
+    /**
+     * Sends a payment stored as PENDING to the gateway once the transaction
+     * that saved it has committed, so every charge the gateway sees has a
+     * payment row recording it, and a rolled back or repeated insert charges
+     * nothing. Called outside a transaction, it charges straight away.
+     */
+    void chargeAfterCommit(Payment saved) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    charge(saved);
+                }
+            });
+        } else {
+            charge(saved);
+        }
+    }
+
+    /**
+     * Asks the gateway for the charge under the payment's gateway reference,
+     * which the gateway treats as one charge however often it is sent, and
+     * records the answer when it arrives. An answer that is already there is
+     * also set on saved, for the response.
+     */
+    private void charge(Payment saved) {
+        Long id = saved.getId();
+        CompletableFuture<GatewayResult> charge;
+        try {
+            charge = gateway.charge(saved.getGatewayReference(), saved.getAmount(), saved.getMethod());
+        } catch (RuntimeException e) {
+            charge = CompletableFuture.failedFuture(e);
+        }
+        charge.whenComplete((result, error) -> {
+            if (error != null) {
+                logger.warn("Gateway failed to charge payment {}: {}", id, error.getMessage());
+            }
+            settle(id, outcome(result, error));
+        });
+        saved.setStatus(charge.handle(PaymentService::outcome).getNow(PaymentStatus.PENDING));
+    }
+
+    /**
+     * Asks the gateway again about a payment still PENDING, by its reference,
+     * for when the answer was lost, e.g. to a restart. The gateway replays
+     * the charge's answer rather than charging again.
+     */
+    void resubmitPending(Payment pending) {
+        charge(pending);
+    }
+
+    /**
+     * Gives up on a payment the gateway never answered for by voiding the
+     * charge. It is failed once the gateway confirms nothing will be taken,
+     * and recorded as SUCCESS if the gateway reports it already captured. If
+     * the void goes unanswered the payment stays PENDING for the next sweep.
+     */
+    void failPending(Payment pending) {
+        Long id = pending.getId();
+        logger.warn("No answer from the gateway for payment {} since {}, voiding it", id, pending.getUpdatedAt());
+        gateway.voidCharge(gatewayReference(pending), pending.getAmount()).whenComplete((voided, error) -> {
+            if (error != null) {
+                logger.warn("Gateway failed to void payment {}: {}", id, error.getMessage());
+                return;
+            }
+            settle(id, voided.isApproved() ? PaymentStatus.FAILED : PaymentStatus.SUCCESS);
+        });
+    }
+
+    private void settle(Long id, PaymentStatus outcome) {
+        Payment overtaken;
+        try {
+            overtaken = transactionTemplate.execute(status -> {
+                if (paymentRepository.settle(id, outcome, Instant.now()) == 1) {
+                    paymentRepository.findById(id).ifPresent(paymentOutbox::record);
+                    return null;
+                }
+                return outcome == PaymentStatus.SUCCESS
+                        ? paymentRepository.findById(id).filter(PaymentService::keepsNoMoney).orElse(null)
+                        : null;
+            });
+        } catch (RuntimeException e) {
+            logger.error("Could not record the gateway's answer for payment {}", id, e);
+            return;
+        }
+        if (overtaken != null) {
+            refundLateCharge(overtaken);
+        }
+    }
 
-        return new PaymentResponse(savedPayment);
+    private static boolean keepsNoMoney(Payment payment) {
+        return payment.getStatus() == PaymentStatus.REFUNDED || payment.getStatus() == PaymentStatus.FAILED;
     }
 
     /**
-     * Deterministic payment logic:
-     * - Convert amount to cents (multiply by 100)
-     * - If even -> SUCCESS
-     * - If odd -> FAILED
+     * A charge approved after its payment was voided or failed would keep
+     * money for an order that was cancelled, so it is refunded. The gateway
+     * refunds a reference once, however often this runs.
      */
-    private PaymentStatus determinePaymentStatus(BigDecimal amount) {
-        // Convert to cents to avoid floating point issues
-        long amountInCents = amount.multiply(new BigDecimal("100")).longValue();
-        
-        // Even amount -> SUCCESS, Odd amount -> FAILED
-        return (amountInCents % 2 == 0) ? PaymentStatus.SUCCESS : PaymentStatus.FAILED;
+    private void refundLateCharge(Payment payment) {
+        Long id = payment.getId();
+        logger.warn("Gateway approved payment {} after it was {}, refunding the charge", id, payment.getStatus());
+        CompletableFuture<GatewayResult> refund;
+        try {
+            refund = gateway.refund(gatewayReference(payment), payment.getAmount());
+        } catch (RuntimeException e) {
+            refund = CompletableFuture.failedFuture(e);
+        }
+        refund.whenComplete((result, error) -> {
+            if (error != null || !result.isApproved()) {
+                logger.error("Could not refund the late charge for payment {}: {}", id,
+                        error != null ? error.getMessage() : result.getReason());
+            }
+        });
+    }
+
+    private static PaymentStatus outcome(GatewayResult result, Throwable error) {
+        return error == null && result.isApproved() ? PaymentStatus.SUCCESS : PaymentStatus.FAILED;
     }
 
     @Transactional(readOnly = true)
@@ -65,42 +280,138 @@ public class PaymentService {
         return new PaymentResponse(payment);
     }
 
+    /**
+     * One page of the payment history, newest first.
+     *
+     * @param cursor the next cursor of the previous page, or null for the first page
+     * @param limit  page size, defaulted when null and capped at the maximum
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    @Transactional(readOnly = true)
+    public PaymentPage findPayments(PaymentFilter filter, String cursor, Integer limit) {
+        int pageSize = limit == null ? defaultPageSize : Math.min(Math.max(limit, 1), maxPageSize);
+        PaymentCursor after = cursor == null ? null : PaymentCursor.decode(cursor);
+
+        // One extra row tells whether another page follows
+        List<Payment> payments = paymentRepository.findPage(filter, after, pageSize + 1);
+        PaymentCursor next = null;
+        if (payments.size() > pageSize) {
+            payments = payments.subList(0, pageSize);
+            next = PaymentCursor.of(payments.get(pageSize - 1));
+        }
+        return new PaymentPage(payments.stream().map(PaymentResponse::new).toList(), next);
+    }
+
+    /**
+     * Hands every matching payment to action, newest first, as it is read,
+     * so an export of any size holds one payment at a time.
+     */
     @Transactional(readOnly = true)
-    public List<PaymentResponse> getAllPayments() {
-        return paymentRepository.findAll().stream()
-                .map(PaymentResponse::new)
-                .collect(java.util.stream.Collectors.toList());
+    public void exportPayments(PaymentFilter filter, Consumer<PaymentResponse> action) {
+        paymentRepository.forEachPayment(filter, action);
     }
 
     @Transactional(readOnly = true)
     public PaymentResponse getPaymentByOrderId(String orderId) {
-        List<Payment> payments = paymentRepository.findByOrderId(orderId);
-        if (payments.isEmpty()) {
-            throw new RuntimeException("Payment not found for order: " + orderId);
-        }
-        // Return the most recent payment for the order
-        return new PaymentResponse(payments.get(payments.size() - 1));
+        Payment payment = paymentRepository.findFirstByOrderIdOrderByCreatedAtDescIdDesc(orderId)
+                .orElseThrow(() -> new RuntimeException("Payment not found for order: " + orderId));
+        return new PaymentResponse(payment);
     }
 
-    @Transactional
+    /**
+     * Changes a failed payment and charges it again, as a new charge to the
+     * gateway. Not transactional itself: the change commits before the
+     * gateway is asked.
+     */
     public PaymentResponse updatePayment(Long id, PaymentRequest request) {
+        Payment updatedPayment = transactionTemplate.execute(status -> {
+            Payment payment = paymentRepository.findById(id)
+                    .orElseThrow(() -> new RuntimeException("Payment not found with id: " + id));
+
+            if (payment.getStatus() == PaymentStatus.SUCCESS) {
+                throw new RuntimeException("Cannot update successful payment");
+            }
+            if (payment.getStatus() == PaymentStatus.PENDING) {
+                throw new RuntimeException("Cannot update payment while the gateway is processing it");
+            }
+
+            payment.setOrderId(request.getOrderId());
+            payment.setAmount(request.getAmount());
+            payment.setMethod(request.getMethod());
+
+            // Re-process with new amount; the earlier declined charge keeps its reference
+            payment.setStatus(PaymentStatus.PENDING);
+            payment.setGatewayReference(payment.getOrderId() + ":" + payment.getAttempt() + ":" + UUID.randomUUID());
+
+            Payment saved = paymentRepository.save(payment);
+            paymentOutbox.record(saved);
+            return saved;
+        });
+        chargeAfterCommit(updatedPayment);
+        return new PaymentResponse(updatedPayment);
+    }
+
+    /**
+     * Refunds a successful payment, or voids one still PENDING, at the
+     * gateway, and records REFUNDED once the gateway has confirmed it. A
+     * PENDING charge the gateway reports as already captured is refunded
+     * instead. Refunding an already refunded payment is a no-op so
+     * compensating callers can safely retry. Not transactional itself, so no
+     * transaction is held while the gateway answers.
+     *
+     * @throws GatewayUnavailableException if the gateway did not answer in
+     *         time; the payment is unchanged and the refund may be retried
+     */
+    public PaymentResponse refundPayment(Long id) {
         Payment payment = paymentRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Payment not found with id: " + id));
 
-        if (payment.getStatus() == PaymentStatus.SUCCESS) {
-            throw new RuntimeException("Cannot update successful payment");
+        if (payment.getStatus() == PaymentStatus.REFUNDED) {
+            return new PaymentResponse(payment);
+        }
+        if (payment.getStatus() != PaymentStatus.SUCCESS && payment.getStatus() != PaymentStatus.PENDING) {
+            throw new RuntimeException("Only successful or pending payments can be refunded");
         }
 
-        payment.setOrderId(request.getOrderId());
-        payment.setAmount(request.getAmount());
-        payment.setMethod(request.getMethod());
+        String reference = gatewayReference(payment);
+        boolean voided = false;
+        if (payment.getStatus() == PaymentStatus.PENDING) {
+            // Once voided, the gateway declines the capture and the charge settles as FAILED
+            voided = awaitGateway(gateway.voidCharge(reference, payment.getAmount()), id).isApproved();
+        }
+        if (!voided) {
+            GatewayResult refund = awaitGateway(gateway.refund(reference, payment.getAmount()), id);
+            if (!refund.isApproved()) {
+                throw new RuntimeException("Gateway declined the refund of payment " + id + ": " + refund.getReason());
+            }
+        }
 
-        // Re-process with new amount
-        PaymentStatus resultStatus = determinePaymentStatus(request.getAmount());
-        payment.setStatus(resultStatus);
+        return transactionTemplate.execute(status -> {
+            // Whatever the charge's own answer set meanwhile, the gateway now keeps no money
+            Payment current = paymentRepository.findById(id).orElse(payment);
+            current.setStatus(PaymentStatus.REFUNDED);
+            Payment refundedPayment = paymentRepository.save(current);
+            paymentOutbox.record(refundedPayment);
+            return new PaymentResponse(refundedPayment);
+        });
+    }
 
-        Payment updatedPayment = paymentRepository.save(payment);
-        return new PaymentResponse(updatedPayment);
+    private static String gatewayReference(Payment payment) {
+        // Stored before references were kept; this is the one it was charged under
+        return payment.getGatewayReference() != null
+                ? payment.getGatewayReference()
+                : payment.getOrderId() + ":" + payment.getAttempt();
+    }
+
+    private GatewayResult awaitGateway(CompletableFuture<GatewayResult> step, Long id) {
+        try {
+            return step.get(refundTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GatewayUnavailableException("Interrupted waiting for the gateway about payment " + id);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new GatewayUnavailableException("Gateway did not answer about payment " + id);
+        }
     }
 
     @Transactional
@@ -114,4 +425,20 @@ public class PaymentService {
 
         paymentRepository.delete(payment);
     }
+
+    /**
+     * The gateway did not answer a refund or void in time. Nothing was
+     * recorded, so the call may be repeated.
+     */
+    public static class GatewayUnavailableException extends RuntimeException {
+        public GatewayUnavailableException(String message) {
+            super(message);
+        }
+    }
+
+    public static class IdempotencyConflictException extends RuntimeException {
+        public IdempotencyConflictException(String message) {
+            super(message);
+        }
+    }
 }
@@ -0,0 +1,84 @@
+package com.microservices.payment.service;
+
+import com.microservices.payment.entity.Payment;
+import com.microservices.payment.entity.PaymentStatus;
+import com.microservices.payment.repository.PaymentRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Settles payments whose gateway answer never arrived. The answer is only
+ * awaited in memory, so a restart, or a callback that failed to record it,
+ * would leave the payment PENDING for good.
+ *
+ * A payment PENDING for longer than payment.pending.stale-after-ms is sent
+ * to the gateway again under its reference, which the gateway answers with
+ * the original charge's outcome; one still PENDING after
+ * payment.pending.fail-after-ms is voided at the gateway and failed once
+ * the gateway confirms it. Both only change a payment that is still
+ * PENDING, so every instance may sweep.
+ */
+@Component
+public class PendingPaymentSweeper {
+
+    private static final Logger logger = LoggerFactory.getLogger(PendingPaymentSweeper.class);
+
+    private final PaymentRepository paymentRepository;
+    private final PaymentService paymentService;
+    private final Duration staleAfter;
+    private final Duration failAfter;
+    private final int batchSize;
+
+    public PendingPaymentSweeper(PaymentRepository paymentRepository, PaymentService paymentService,
+                                 @Value("${payment.pending.stale-after-ms:60000}") long staleAfterMs,
+                                 @Value("${payment.pending.fail-after-ms:900000}") long failAfterMs,
+                                 @Value("${payment.pending.batch-size:100}") int batchSize) {
+        if (failAfterMs <= staleAfterMs) {
+            throw new IllegalArgumentException("payment.pending.fail-after-ms must exceed stale-after-ms");
+        }
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("payment.pending.batch-size must be positive");
+        }
+        this.paymentRepository = paymentRepository;
+        this.paymentService = paymentService;
+        this.staleAfter = Duration.ofMillis(staleAfterMs);
+        this.failAfter = Duration.ofMillis(failAfterMs);
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${payment.pending.sweep-interval-ms:30000}")
+    public void sweep() {
+        Instant now = Instant.now();
+        List<Payment> stale;
+        try {
+            stale = paymentRepository.findByStatusAndUpdatedAtBeforeOrderByUpdatedAtAscIdAsc(
+                    PaymentStatus.PENDING, now.minus(staleAfter), PageRequest.of(0, batchSize));
+        } catch (RuntimeException e) {
+            logger.warn("Could not look up pending payments, retrying on the next run: {}", e.getMessage());
+            return;
+        }
+        for (Payment payment : stale) {
+            try {
+                if (payment.getUpdatedAt().isBefore(now.minus(failAfter))) {
+                    paymentService.failPending(payment);
+                } else {
+                    if (payment.getGatewayReference() == null) {
+                        // Stored before references were kept; this is the one it was charged under
+                        payment.setGatewayReference(payment.getOrderId() + ":" + payment.getAttempt());
+                    }
+                    paymentService.resubmitPending(payment);
+                }
+            } catch (RuntimeException e) {
+                logger.warn("Could not settle pending payment {}: {}", payment.getId(), e.getMessage());
+            }
+        }
+    }
+}
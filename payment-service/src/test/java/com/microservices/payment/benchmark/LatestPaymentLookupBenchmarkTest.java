@@ -0,0 +1,162 @@
+package com.microservices.payment.benchmark;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Latency of GET /payments/order/{orderId} against a large payments table:
+ * the previous unindexed lookup of every payment for the order, then the
+ * limit 1 query behind findFirstByOrderIdOrderByCreatedAtDescIdDesc once
+ * idx_payments_order_created_at exists. Orders have two attempts each and
+ * the table lives in a file-backed H2 database.
+ *
+ * Run with: mvn test -Pbenchmark -Dtest=LatestPaymentLookupBenchmarkTest
+ * (-Dbenchmark.payments=10000000 for the full 10M-payment run)
+ */
+@Tag("benchmark")
+class LatestPaymentLookupBenchmarkTest {
+
+    private static final int PAYMENTS = Integer.getInteger("benchmark.payments", 1_000_000);
+    private static final int ATTEMPTS_PER_ORDER = 2;
+    private static final int BATCH_SIZE = 1_000;
+    private static final int UNINDEXED_LOOKUPS = 20;
+    private static final int WARMUP_LOOKUPS = 10_000;
+    private static final int LOOKUPS = 100_000;
+
+    // As generated by Hibernate for the derived query
+    private static final String LATEST = "SELECT id, order_id, attempt, amount, status, method, created_at, updated_at "
+            + "FROM payments WHERE order_id = ? ORDER BY created_at DESC, id DESC FETCH FIRST 1 ROWS ONLY";
+    private static final String ALL_FOR_ORDER = "SELECT id, order_id, attempt, amount, status, method, created_at, "
+            + "updated_at FROM payments WHERE order_id = ?";
+
+    @TempDir
+    Path dataDir;
+
+    @Test
+    void latestPaymentForOrder() throws SQLException {
+        int orders = PAYMENTS / ATTEMPTS_PER_ORDER;
+        String url = "jdbc:h2:file:" + dataDir.resolve("payments").toAbsolutePath();
+        try (Connection connection = DriverManager.getConnection(url, "sa", "")) {
+            load(connection, orders);
+            Random random = new Random(42);
+
+            long[] unindexed = time(connection, ALL_FOR_ORDER, UNINDEXED_LOOKUPS, orders, random);
+
+            long indexStart = System.nanoTime();
+            try (Statement ddl = connection.createStatement()) {
+                ddl.execute("CREATE INDEX idx_payments_order_created_at ON payments (order_id, created_at DESC, id DESC)");
+            }
+            long indexMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - indexStart);
+            assertTrue(plan(connection).contains("IDX_PAYMENTS_ORDER_CREATED_AT"),
+                    "The latest-payment query should use the index");
+
+            time(connection, LATEST, WARMUP_LOOKUPS, orders, random);
+            long[] indexed = time(connection, LATEST, LOOKUPS, orders, random);
+
+            System.out.printf("payments=%d orders=%d index build=%d ms%n", PAYMENTS, orders, indexMs);
+            System.out.printf("%-10s %8s %12s %12s %12s%n", "lookup", "count", "p50 (us)", "p99 (us)", "p99.9 (us)");
+            report("unindexed", unindexed);
+            report("indexed", indexed);
+
+            assertTrue(percentile(indexed, 0.99) < TimeUnit.MILLISECONDS.toNanos(1),
+                    "The indexed lookup should stay under a millisecond at p99");
+        }
+    }
+
+    private static void load(Connection connection, int orders) throws SQLException {
+        try (Statement ddl = connection.createStatement()) {
+            ddl.execute("CREATE TABLE payments (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, "
+                    + "order_id VARCHAR(255) NOT NULL, attempt INT NOT NULL, amount NUMERIC(38, 2) NOT NULL, "
+                    + "status VARCHAR(255) NOT NULL, method VARCHAR(255) NOT NULL, "
+                    + "created_at TIMESTAMP(6) WITH TIME ZONE NOT NULL, updated_at TIMESTAMP(6) WITH TIME ZONE NOT NULL)");
+        }
+        connection.setAutoCommit(false);
+        long epochMs = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(365);
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO payments (order_id, attempt, amount, status, method, created_at, updated_at) "
+                        + "VALUES (?, ?, 100.00, ?, 'CREDIT_CARD', ?, ?)")) {
+            // Retries land later, interleaved with other orders' first attempts
+            int written = 0;
+            for (int attempt = 1; attempt <= ATTEMPTS_PER_ORDER; attempt++) {
+                for (int order = 0; order < orders; order++) {
+                    Timestamp at = new Timestamp(epochMs + written);
+                    insert.setString(1, orderId(order));
+                    insert.setInt(2, attempt);
+                    insert.setString(3, attempt == ATTEMPTS_PER_ORDER ? "SUCCESS" : "FAILED");
+                    insert.setTimestamp(4, at);
+                    insert.setTimestamp(5, at);
+                    insert.addBatch();
+                    if (++written % BATCH_SIZE == 0) {
+                        insert.executeBatch();
+                        connection.commit();
+                    }
+                }
+            }
+            insert.executeBatch();
+            connection.commit();
+        }
+        connection.setAutoCommit(true);
+    }
+
+    private static long[] time(Connection connection, String sql, int lookups, int orders, Random random)
+            throws SQLException {
+        long[] samples = new long[lookups];
+        try (PreparedStatement query = connection.prepareStatement(sql)) {
+            for (int i = 0; i < lookups; i++) {
+                query.setString(1, orderId(random.nextInt(orders)));
+                long start = System.nanoTime();
+                int attempt = 0;
+                try (ResultSet rs = query.executeQuery()) {
+                    while (rs.next()) {
+                        attempt = Math.max(attempt, rs.getInt("attempt"));
+                    }
+                }
+                samples[i] = System.nanoTime() - start;
+                assertEquals(ATTEMPTS_PER_ORDER, attempt, "The latest attempt should be found");
+            }
+        }
+        Arrays.sort(samples);
+        return samples;
+    }
+
+    private static String plan(Connection connection) throws SQLException {
+        try (PreparedStatement explain = connection.prepareStatement("EXPLAIN " + LATEST)) {
+            explain.setString(1, orderId(0));
+            try (ResultSet rs = explain.executeQuery()) {
+                rs.next();
+                return rs.getString(1).toUpperCase();
+            }
+        }
+    }
+
+    private static void report(String lookup, long[] samples) {
+        System.out.printf("%-10s %8d %12d %12d %12d%n", lookup, samples.length,
+                TimeUnit.NANOSECONDS.toMicros(percentile(samples, 0.50)),
+                TimeUnit.NANOSECONDS.toMicros(percentile(samples, 0.99)),
+                TimeUnit.NANOSECONDS.toMicros(percentile(samples, 0.999)));
+    }
+
+    private static long percentile(long[] sorted, double quantile) {
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * quantile))];
+    }
+
+    private static String orderId(int order) {
+        return "ORDER-" + order;
+    }
+}
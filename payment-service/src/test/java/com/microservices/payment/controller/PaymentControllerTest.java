@@ -1,21 +1,41 @@
 package com.microservices.payment.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.microservices.payment.dto.BatchPaymentResult;
+import com.microservices.payment.dto.BatchPaymentResult.Outcome;
+import com.microservices.payment.dto.PaymentCursor;
+import com.microservices.payment.dto.PaymentFilter;
+import com.microservices.payment.dto.PaymentPage;
 import com.microservices.payment.dto.PaymentRequest;
 import com.microservices.payment.dto.PaymentResponse;
 import com.microservices.payment.entity.PaymentStatus;
+import com.microservices.payment.service.PaymentBatchService;
 import com.microservices.payment.service.PaymentService;
+import com.microservices.payment.service.PaymentService.IdempotencyConflictException;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.math.BigDecimal;
 import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
 
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -32,6 +52,9 @@ class PaymentControllerTest {
     @MockBean
     private PaymentService paymentService;
 
+    @MockBean
+    private PaymentBatchService paymentBatchService;
+
     @Test
     void testProcessPayment_EvenAmount_Success() throws Exception {
         // Arrange
@@ -59,6 +82,29 @@ class PaymentControllerTest {
                 .andExpect(jsonPath("$.method").value("CREDIT_CARD"));
     }
 
+    @Test
+    void testProcessPayment_GatewayStillProcessing_Accepted() throws Exception {
+        // Arrange
+        PaymentRequest request = new PaymentRequest("ORDER-003", new BigDecimal("100.00"), "CREDIT_CARD");
+
+        PaymentResponse response = new PaymentResponse();
+        response.setId(3L);
+        response.setOrderId("ORDER-003");
+        response.setAmount(new BigDecimal("100.00"));
+        response.setStatus(PaymentStatus.PENDING);
+        response.setMethod("CREDIT_CARD");
+
+        when(paymentService.processPayment(any(PaymentRequest.class))).thenReturn(response);
+
+        // Act & Assert
+        mockMvc.perform(post("/payments/process")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string(HttpHeaders.LOCATION, "/payments/3"))
+                .andExpect(jsonPath("$.status").value("PENDING"));
+    }
+
     @Test
     void testProcessPayment_OddAmount_Failed() throws Exception {
         // Arrange
@@ -86,6 +132,21 @@ class PaymentControllerTest {
                 .andExpect(jsonPath("$.method").value("DEBIT_CARD"));
     }
 
+    @Test
+    void testProcessPayment_AttemptChargedWithOtherAmount_Conflict() throws Exception {
+        // Arrange
+        PaymentRequest request = new PaymentRequest("ORDER-004", 1, new BigDecimal("50.00"), "CARD");
+
+        when(paymentService.processPayment(any(PaymentRequest.class)))
+                .thenThrow(new IdempotencyConflictException("already charged"));
+
+        // Act & Assert
+        mockMvc.perform(post("/payments/process")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isConflict());
+    }
+
     @Test
     void testProcessPayment_BadRequest() throws Exception {
         // Arrange
@@ -101,6 +162,136 @@ class PaymentControllerTest {
                 .andExpect(status().isBadRequest());
     }
 
+    @Test
+    void testProcessBatch_ResultsInRequestOrder() throws Exception {
+        // Arrange
+        List<PaymentRequest> requests = List.of(
+                new PaymentRequest("ORDER-010", new BigDecimal("100.00"), "INVOICE"),
+                new PaymentRequest("ORDER-011", null, "INVOICE"));
+
+        PaymentResponse payment = new PaymentResponse();
+        payment.setId(10L);
+        payment.setOrderId("ORDER-010");
+        payment.setStatus(PaymentStatus.SUCCESS);
+
+        when(paymentBatchService.processBatch(anyList())).thenReturn(List.of(
+                BatchPaymentResult.of(0, Outcome.CREATED, payment),
+                BatchPaymentResult.rejected(1, Outcome.INVALID, "orderId, amount and method are required")));
+
+        // Act & Assert
+        mockMvc.perform(post("/payments/process/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requests)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].outcome").value("CREATED"))
+                .andExpect(jsonPath("$[0].payment.orderId").value("ORDER-010"))
+                .andExpect(jsonPath("$[1].index").value(1))
+                .andExpect(jsonPath("$[1].outcome").value("INVALID"));
+    }
+
+    @Test
+    void testProcessBatch_TooLarge_BadRequest() throws Exception {
+        // Arrange
+        when(paymentBatchService.processBatch(anyList()))
+                .thenThrow(new IllegalArgumentException("At most 50000 payments per batch"));
+
+        // Act & Assert
+        mockMvc.perform(post("/payments/process/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[]"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testGetAllPayments_MorePages_LinksNextPage() throws Exception {
+        // Arrange
+        PaymentResponse payment = new PaymentResponse();
+        payment.setId(20L);
+        payment.setOrderId("ORDER-020");
+        PaymentCursor next = new PaymentCursor(Instant.parse("2024-01-01T00:00:00Z"), 20L);
+
+        when(paymentService.findPayments(any(PaymentFilter.class), isNull(), eq(1)))
+                .thenReturn(new PaymentPage(List.of(payment), next));
+
+        // Act & Assert
+        mockMvc.perform(get("/payments").param("status", "FAILED").param("method", "INVOICE").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.LINK, containsString("cursor=" + next.encode())))
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].orderId").value("ORDER-020"));
+
+        ArgumentCaptor<PaymentFilter> filter = ArgumentCaptor.forClass(PaymentFilter.class);
+        verify(paymentService).findPayments(filter.capture(), isNull(), eq(1));
+        assertEquals(PaymentStatus.FAILED, filter.getValue().getStatus());
+        assertEquals("INVOICE", filter.getValue().getMethod());
+    }
+
+    @Test
+    void testGetAllPayments_MalformedCursor_BadRequest() throws Exception {
+        when(paymentService.findPayments(any(PaymentFilter.class), eq("bad"), isNull()))
+                .thenThrow(new IllegalArgumentException("Invalid cursor: bad"));
+
+        mockMvc.perform(get("/payments").param("cursor", "bad"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testExportPayments_Csv_QuotesFields() throws Exception {
+        // Arrange
+        PaymentResponse payment = new PaymentResponse();
+        payment.setId(30L);
+        payment.setOrderId("ORDER-030");
+        payment.setAttempt(1);
+        payment.setAmount(new BigDecimal("12.50"));
+        payment.setStatus(PaymentStatus.SUCCESS);
+        payment.setMethod("CARD, \"VISA\"");
+        payment.setCreatedAt(Instant.parse("2024-01-01T00:00:00Z"));
+        payment.setUpdatedAt(Instant.parse("2024-01-01T00:00:01Z"));
+        exportPayments(payment);
+
+        // Act
+        MvcResult result = mockMvc.perform(get("/payments/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Assert
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("text/csv"))
+                .andExpect(content().string("id,orderId,attempt,amount,status,method,createdAt,updatedAt\n"
+                        + "30,ORDER-030,1,12.50,SUCCESS,\"CARD, \"\"VISA\"\"\",2024-01-01T00:00:00Z,2024-01-01T00:00:01Z\n"));
+    }
+
+    @Test
+    void testExportPayments_Ndjson_OneObjectPerLine() throws Exception {
+        // Arrange
+        PaymentResponse first = new PaymentResponse();
+        first.setId(31L);
+        PaymentResponse second = new PaymentResponse();
+        second.setId(32L);
+        exportPayments(first, second);
+
+        // Act
+        MvcResult result = mockMvc.perform(get("/payments/export").param("format", "ndjson"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Assert
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        String[] lines = body.split("\n");
+        assertEquals(2, lines.length);
+        assertEquals(31L, objectMapper.readTree(lines[0]).get("id").asLong());
+        assertEquals(32L, objectMapper.readTree(lines[1]).get("id").asLong());
+    }
+
+    @Test
+    void testExportPayments_UnknownFormat_BadRequest() throws Exception {
+        mockMvc.perform(get("/payments/export").param("format", "xml"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void testGetPayment_Success() throws Exception {
         // Arrange
@@ -133,4 +324,12 @@ class PaymentControllerTest {
         mockMvc.perform(get("/payments/999"))
                 .andExpect(status().isNotFound());
     }
+
+    private void exportPayments(PaymentResponse... payments) {
+        doAnswer(invocation -> {
+            Consumer<PaymentResponse> action = invocation.getArgument(1);
+            Arrays.stream(payments).forEach(action);
+            return null;
+        }).when(paymentService).exportPayments(any(PaymentFilter.class), any());
+    }
 }
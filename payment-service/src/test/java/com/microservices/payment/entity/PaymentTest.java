@@ -22,10 +22,11 @@ class PaymentTest {
 
     @Test
     void testPaymentStatusEnum() {
-        assertEquals(3, PaymentStatus.values().length);
+        assertEquals(4, PaymentStatus.values().length);
         assertNotNull(PaymentStatus.valueOf("PENDING"));
         assertNotNull(PaymentStatus.valueOf("SUCCESS"));
         assertNotNull(PaymentStatus.valueOf("FAILED"));
+        assertNotNull(PaymentStatus.valueOf("REFUNDED"));
     }
 
     @Test
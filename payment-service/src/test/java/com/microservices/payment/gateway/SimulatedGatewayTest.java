@@ -0,0 +1,217 @@
+package com.microservices.payment.gateway;
+
+import com.microservices.payment.gateway.SimulatorProperties.Distribution;
+import com.microservices.payment.gateway.SimulatorProperties.Latency;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SimulatedGatewayTest {
+
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+
+    @AfterEach
+    void tearDown() {
+        timer.shutdownNow();
+    }
+
+    @Test
+    void testLatencyMs_LogNormal_CentredOnMedianWithinBounds() {
+        // Arrange
+        SimulatorProperties properties = new SimulatorProperties();
+        SimulatedGateway gateway = new SimulatedGateway(properties, timer, new Random(42));
+        Latency latency = new Latency(150, 400, 1500);
+
+        // Act
+        long[] samples = new long[10_000];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = gateway.latencyMs(latency);
+        }
+        Arrays.sort(samples);
+
+        // Assert
+        assertTrue(samples[0] >= 150);
+        assertTrue(samples[samples.length - 1] <= 1500);
+        long median = samples[samples.length / 2];
+        assertTrue(median > 360 && median < 440, "median was " + median);
+        long p99 = samples[(int) (samples.length * 0.99)];
+        assertTrue(p99 > 1000, "p99 was " + p99);
+    }
+
+    @Test
+    void testLatencyMs_Uniform_SpreadBetweenMinAndMax() {
+        // Arrange
+        SimulatorProperties properties = new SimulatorProperties();
+        properties.setDistribution(Distribution.UNIFORM);
+        SimulatedGateway gateway = new SimulatedGateway(properties, timer, new Random(42));
+        Latency latency = new Latency(50, 100, 500);
+
+        // Act
+        long sum = 0;
+        for (int i = 0; i < 10_000; i++) {
+            long sample = gateway.latencyMs(latency);
+            assertTrue(sample >= 50 && sample <= 500);
+            sum += sample;
+        }
+
+        // Assert
+        long mean = sum / 10_000;
+        assertTrue(mean > 250 && mean < 300, "mean was " + mean);
+    }
+
+    @Test
+    void testCharge_AnswersLaterOnTimer() throws Exception {
+        // Arrange
+        SimulatorProperties properties = new SimulatorProperties();
+        properties.setAuthorize(new Latency(50, 50, 50));
+        properties.setCapture(new Latency(20, 20, 20));
+        properties.setDeclineRate(0.0);
+        SimulatedGateway gateway = new SimulatedGateway(properties, timer, new Random(42));
+
+        // Act
+        long start = System.nanoTime();
+        CompletableFuture<GatewayResult> charge = gateway.charge("ORDER-001:1", new BigDecimal("100.00"), "CREDIT_CARD");
+
+        // Assert - returned at once, answered after authorize and capture
+        assertFalse(charge.isDone());
+        GatewayResult result = charge.get(5, TimeUnit.SECONDS);
+        assertTrue(result.isApproved());
+        assertEquals("ORDER-001:1", result.getReference());
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 70);
+    }
+
+    @Test
+    void testCharge_DeclineAndErrorRates() throws Exception {
+        // Arrange
+        SimulatorProperties properties = new SimulatorProperties();
+        properties.setAuthorize(new Latency(0, 0, 0));
+        properties.setCapture(new Latency(0, 0, 0));
+        properties.setDeclineRate(0.2);
+        properties.setErrorRate(0.1);
+        SimulatedGateway gateway = new SimulatedGateway(properties, timer, new Random(42));
+
+        // Act
+        List<CompletableFuture<GatewayResult>> charges = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            charges.add(gateway.charge("ORDER-" + i + ":1", new BigDecimal("10.00"), "CREDIT_CARD"));
+        }
+        int declined = 0;
+        int failed = 0;
+        for (CompletableFuture<GatewayResult> charge : charges) {
+            try {
+                if (!charge.get(5, TimeUnit.SECONDS).isApproved()) {
+                    declined++;
+                }
+            } catch (ExecutionException e) {
+                assertInstanceOf(SimulatedGateway.GatewayException.class, e.getCause());
+                failed++;
+            }
+        }
+
+        // Assert - about 10% fail at authorize, 20% of the rest are declined and
+        // about 10% of the approved then fail at capture
+        assertTrue(failed > 800 && failed < 1150, "failed was " + failed);
+        assertTrue(declined > 700 && declined < 1100, "declined was " + declined);
+    }
+
+    @Test
+    void testCharge_SameReference_AnsweredOnce() throws Exception {
+        // Arrange
+        SimulatorProperties properties = new SimulatorProperties();
+        properties.setAuthorize(new Latency(0, 0, 0));
+        properties.setCapture(new Latency(0, 0, 0));
+        properties.setDeclineRate(0.5);
+        SimulatedGateway gateway = new SimulatedGateway(properties, timer, new Random(42));
+
+        // Act
+        List<Boolean> first = new ArrayList<>();
+        List<Boolean> repeated = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            first.add(gateway.charge("ORDER-" + i + ":1", new BigDecimal("10.00"), "CREDIT_CARD")
+                    .get(5, TimeUnit.SECONDS).isApproved());
+        }
+        for (int i = 0; i < 50; i++) {
+            repeated.add(gateway.charge("ORDER-" + i + ":1", new BigDecimal("10.00"), "CREDIT_CARD")
+                    .get(5, TimeUnit.SECONDS).isApproved());
+        }
+
+        // Assert - a retried reference replays its answer instead of charging again
+        assertEquals(first, repeated);
+        assertTrue(first.contains(true) && first.contains(false));
+    }
+
+    @Test
+    void testCharge_StepFailedToAnswer_TriedAgain() throws Exception {
+        // Arrange
+        SimulatorProperties properties = new SimulatorProperties();
+        properties.setAuthorize(new Latency(0, 0, 0));
+        properties.setCapture(new Latency(0, 0, 0));
+        properties.setDeclineRate(0.0);
+        properties.setErrorRate(1.0);
+        SimulatedGateway gateway = new SimulatedGateway(properties, timer, new Random(42));
+        CompletableFuture<GatewayResult> failed = gateway.charge("ORDER-001:1", new BigDecimal("10.00"), "CREDIT_CARD");
+        assertThrows(ExecutionException.class, () -> failed.get(5, TimeUnit.SECONDS));
+
+        // Act
+        properties.setErrorRate(0.0);
+        GatewayResult retried = gateway.charge("ORDER-001:1", new BigDecimal("10.00"), "CREDIT_CARD")
+                .get(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertTrue(retried.isApproved());
+    }
+
+    @Test
+    void testVoidCharge_BeforeCapture_ChargeDeclined() throws Exception {
+        // Arrange
+        SimulatorProperties properties = new SimulatorProperties();
+        properties.setAuthorize(new Latency(100, 100, 100));
+        properties.setCapture(new Latency(0, 0, 0));
+        properties.setRefund(new Latency(0, 0, 0));
+        properties.setDeclineRate(0.0);
+        SimulatedGateway gateway = new SimulatedGateway(properties, timer, new Random(42));
+
+        // Act
+        CompletableFuture<GatewayResult> charge = gateway.charge("ORDER-001:1", new BigDecimal("10.00"), "CREDIT_CARD");
+        GatewayResult voided = gateway.voidCharge("ORDER-001:1", new BigDecimal("10.00")).get(5, TimeUnit.SECONDS);
+
+        // Assert - nothing is taken, so there is nothing to refund
+        assertTrue(voided.isApproved());
+        assertFalse(charge.get(5, TimeUnit.SECONDS).isApproved());
+        assertFalse(gateway.refund("ORDER-001:1", new BigDecimal("10.00")).get(5, TimeUnit.SECONDS).isApproved());
+    }
+
+    @Test
+    void testVoidCharge_AfterCapture_DeclinedAndRefundable() throws Exception {
+        // Arrange
+        SimulatorProperties properties = new SimulatorProperties();
+        properties.setAuthorize(new Latency(0, 0, 0));
+        properties.setCapture(new Latency(0, 0, 0));
+        properties.setRefund(new Latency(0, 0, 0));
+        properties.setDeclineRate(0.0);
+        SimulatedGateway gateway = new SimulatedGateway(properties, timer, new Random(42));
+        assertTrue(gateway.charge("ORDER-001:1", new BigDecimal("10.00"), "CREDIT_CARD")
+                .get(5, TimeUnit.SECONDS).isApproved());
+
+        // Act
+        GatewayResult voided = gateway.voidCharge("ORDER-001:1", new BigDecimal("10.00")).get(5, TimeUnit.SECONDS);
+        GatewayResult refunded = gateway.refund("ORDER-001:1", new BigDecimal("10.00")).get(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertFalse(voided.isApproved());
+        assertEquals("Already captured", voided.getReason());
+        assertTrue(refunded.isApproved());
+    }
+}
@@ -0,0 +1,37 @@
+package com.microservices.payment.repository;
+
+import com.microservices.payment.entity.OutboxRelayLease;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+class OutboxRelayLeaseRepositoryTest {
+
+    private static final Instant T0 = Instant.parse("2024-01-01T00:00:00Z");
+
+    @Autowired
+    private OutboxRelayLeaseRepository leaseRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Test
+    void testTryAcquire_OnlyOwnerOrAfterExpiry() {
+        // Arrange
+        leaseRepository.save(new OutboxRelayLease("payment-outbox", "a", T0.plusSeconds(30)));
+        entityManager.flush();
+
+        // Act & Assert
+        assertEquals(0, leaseRepository.tryAcquire("payment-outbox", "b", T0.plusSeconds(10), T0.plusSeconds(40)));
+        assertEquals(1, leaseRepository.tryAcquire("payment-outbox", "a", T0.plusSeconds(10), T0.plusSeconds(40)));
+        assertEquals(1, leaseRepository.tryAcquire("payment-outbox", "b", T0.plusSeconds(41), T0.plusSeconds(71)));
+        entityManager.clear();
+        assertEquals("b", leaseRepository.findById("payment-outbox").orElseThrow().getOwner());
+    }
+}
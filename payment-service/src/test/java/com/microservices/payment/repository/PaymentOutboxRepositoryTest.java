@@ -0,0 +1,49 @@
+package com.microservices.payment.repository;
+
+import com.microservices.payment.entity.Payment;
+import com.microservices.payment.entity.PaymentOutboxEvent;
+import com.microservices.payment.entity.PaymentStatus;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+class PaymentOutboxRepositoryTest {
+
+    @Autowired
+    private PaymentOutboxRepository outboxRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Test
+    void testFindAllByOrderByIdAsc_OldestBatchFirst() {
+        // Arrange - ORDER-1 changes twice, interleaved with the others
+        for (int i = 0; i < 5; i++) {
+            Payment payment = new Payment("ORDER-" + (i % 3), new BigDecimal("10.00"), "CREDIT_CARD");
+            payment.setId((long) i);
+            payment.setStatus(i < 3 ? PaymentStatus.PENDING : PaymentStatus.SUCCESS);
+            outboxRepository.save(new PaymentOutboxEvent(payment));
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        // Act
+        List<PaymentOutboxEvent> first = outboxRepository.findAllByOrderByIdAsc(PageRequest.of(0, 3));
+        outboxRepository.deleteAllInBatch(first);
+        List<PaymentOutboxEvent> rest = outboxRepository.findAllByOrderByIdAsc(PageRequest.of(0, 3));
+
+        // Assert
+        assertEquals(List.of("ORDER-0", "ORDER-1", "ORDER-2"), first.stream().map(PaymentOutboxEvent::getOrderId).toList());
+        assertEquals(List.of("ORDER-0", "ORDER-1"), rest.stream().map(PaymentOutboxEvent::getOrderId).toList());
+        assertTrue(rest.stream().allMatch(event -> event.getStatus() == PaymentStatus.SUCCESS));
+        assertTrue(first.get(2).getId() < rest.get(0).getId());
+    }
+}
@@ -0,0 +1,108 @@
+package com.microservices.payment.repository;
+
+import com.microservices.payment.dto.PaymentCursor;
+import com.microservices.payment.dto.PaymentFilter;
+import com.microservices.payment.dto.PaymentResponse;
+import com.microservices.payment.entity.Payment;
+import com.microservices.payment.entity.PaymentStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "payment.export.fetch-size=2")
+class PaymentRepositoryTest {
+
+    private static final Instant T0 = Instant.parse("2024-01-01T00:00:00Z");
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @BeforeEach
+    void setUp() {
+        // Two payments share each timestamp, so pages must break ties on id;
+        // even payments succeeded and every third one was made by card
+        for (int i = 0; i < 10; i++) {
+            Payment payment = new Payment(orderId(i), new BigDecimal("10.00"), i % 3 == 0 ? "CARD" : "INVOICE");
+            payment.setStatus(i % 2 == 0 ? PaymentStatus.SUCCESS : PaymentStatus.FAILED);
+            payment.setCreatedAt(T0.plusSeconds(i / 2));
+            paymentRepository.save(payment);
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void testFindPage_VisitsEveryPaymentOnceNewestFirst() {
+        List<String> seen = new ArrayList<>();
+        PaymentCursor after = null;
+        List<Payment> page;
+        while (!(page = paymentRepository.findPage(PaymentFilter.none(), after, 3)).isEmpty()) {
+            page.forEach(payment -> seen.add(payment.getOrderId()));
+            after = PaymentCursor.of(page.get(page.size() - 1));
+        }
+
+        assertEquals(List.of(orderId(9), orderId(8), orderId(7), orderId(6), orderId(5),
+                orderId(4), orderId(3), orderId(2), orderId(1), orderId(0)), seen);
+    }
+
+    @Test
+    void testFindPage_AppliesEveryFilter() {
+        PaymentFilter successfulCardSinceT1 =
+                new PaymentFilter(PaymentStatus.SUCCESS, "CARD", T0.plusSeconds(1), T0.plusSeconds(5));
+
+        List<Payment> page = paymentRepository.findPage(successfulCardSinceT1, null, 10);
+
+        // Of 6 and 3 (card), only 6 succeeded; 0 is before from
+        assertEquals(List.of(orderId(6)), page.stream().map(Payment::getOrderId).collect(Collectors.toList()));
+    }
+
+    @Test
+    void testForEachPayment_StreamsSameRowsAsListing() {
+        PaymentFilter failed = new PaymentFilter(PaymentStatus.FAILED, null, null, null);
+        List<PaymentResponse> exported = new ArrayList<>();
+
+        paymentRepository.forEachPayment(failed, exported::add);
+
+        assertEquals(paymentRepository.findPage(failed, null, 10).stream()
+                        .map(Payment::getId).collect(Collectors.toList()),
+                exported.stream().map(PaymentResponse::getId).collect(Collectors.toList()));
+        PaymentResponse newest = exported.get(0);
+        assertEquals(orderId(9), newest.getOrderId());
+        assertEquals(0, new BigDecimal("10.00").compareTo(newest.getAmount()));
+        assertEquals(PaymentStatus.FAILED, newest.getStatus());
+        assertEquals(T0.plusSeconds(4), newest.getCreatedAt());
+    }
+
+    @Test
+    void testFindByStatusAndUpdatedAtBefore_StalePendingOldestFirst() {
+        for (int i = 0; i < 3; i++) {
+            Payment pending = new Payment("ORDER-P" + i, new BigDecimal("10.00"), "CARD");
+            pending.setUpdatedAt(T0.plusSeconds(20 - i * 10));
+            paymentRepository.save(pending);
+        }
+        entityManager.flush();
+
+        List<Payment> stale = paymentRepository.findByStatusAndUpdatedAtBeforeOrderByUpdatedAtAscIdAsc(
+                PaymentStatus.PENDING, T0.plusSeconds(15), PageRequest.of(0, 10));
+
+        assertEquals(List.of("ORDER-P2", "ORDER-P1"), stale.stream().map(Payment::getOrderId).toList());
+    }
+
+    private static String orderId(int i) {
+        return "ORDER-" + i;
+    }
+}
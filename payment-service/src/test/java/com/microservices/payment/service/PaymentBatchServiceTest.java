@@ -0,0 +1,165 @@
+package com.microservices.payment.service;
+
+import com.microservices.payment.dto.BatchPaymentResult;
+import com.microservices.payment.dto.BatchPaymentResult.Outcome;
+import com.microservices.payment.dto.PaymentRequest;
+import com.microservices.payment.entity.Payment;
+import com.microservices.payment.entity.PaymentStatus;
+import com.microservices.payment.gateway.DeterministicGateway;
+import com.microservices.payment.gateway.PaymentGateway;
+import com.microservices.payment.repository.PaymentRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PaymentBatchServiceTest {
+
+    @Mock
+    private PaymentRepository paymentRepository;
+
+    @Mock
+    private PaymentOutbox paymentOutbox;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final PaymentGateway gateway = spy(new DeterministicGateway());
+
+    private PaymentService paymentService;
+
+    private PaymentBatchService batchService;
+
+    private final AtomicLong ids = new AtomicLong();
+
+    @BeforeEach
+    void setUp() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        paymentService = new PaymentService(paymentRepository, gateway, paymentOutbox,
+                transactionTemplate);
+        batchService = new PaymentBatchService(paymentRepository, paymentService, paymentOutbox,
+                transactionTemplate, 2, 10);
+    }
+
+    @Test
+    void testProcessBatch_ChunksAndKeepsRequestOrder() {
+        // Arrange
+        List<PaymentRequest> requests = List.of(
+                new PaymentRequest("ORDER-001", new BigDecimal("100.00"), "INVOICE"),
+                new PaymentRequest("ORDER-002", new BigDecimal("99.99"), "INVOICE"),
+                new PaymentRequest("ORDER-003", new BigDecimal("10.00"), "INVOICE"),
+                new PaymentRequest("ORDER-004", new BigDecimal("10.01"), "INVOICE"),
+                new PaymentRequest("ORDER-005", new BigDecimal("0.02"), "INVOICE"));
+
+        when(paymentRepository.findByOrderIdIn(anyCollection())).thenReturn(List.of());
+        when(paymentRepository.saveAllAndFlush(anyList())).thenAnswer(invocation -> assignIds(invocation.getArgument(0)));
+
+        // Act
+        List<BatchPaymentResult> results = batchService.processBatch(requests);
+
+        // Assert - three chunks, one lookup and one batched insert each
+        assertEquals(5, results.size());
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(i, results.get(i).getIndex());
+            assertEquals(Outcome.CREATED, results.get(i).getOutcome());
+            assertEquals(requests.get(i).getOrderId(), results.get(i).getPayment().getOrderId());
+        }
+        assertEquals(PaymentStatus.SUCCESS, results.get(0).getPayment().getStatus());
+        assertEquals(PaymentStatus.FAILED, results.get(1).getPayment().getStatus());
+        assertNotNull(results.get(4).getPayment().getId());
+        verify(paymentRepository, times(3)).findByOrderIdIn(anyCollection());
+        verify(paymentRepository, times(3)).saveAllAndFlush(anyList());
+        verify(paymentOutbox, times(3)).recordAll(anyList());
+        // One commit per chunk, then one per charge the gateway settles
+        verify(transactionManager, times(3 + 5)).commit(any());
+        verify(gateway, times(5)).charge(any(), any(), any());
+    }
+
+    @Test
+    void testProcessBatch_ChargesEachAttemptOnce() {
+        // Arrange
+        PaymentBatchService singleChunk = new PaymentBatchService(paymentRepository, paymentService,
+                paymentOutbox, new TransactionTemplate(transactionManager), 10, 10);
+        Payment charged = new Payment("ORDER-100", 1, new BigDecimal("50.00"), "INVOICE");
+        charged.setId(100L);
+        charged.setStatus(PaymentStatus.SUCCESS);
+
+        List<PaymentRequest> requests = List.of(
+                new PaymentRequest("ORDER-100", new BigDecimal("50.00"), "INVOICE"),
+                new PaymentRequest("ORDER-100", 1, new BigDecimal("60.00"), "INVOICE"),
+                new PaymentRequest("ORDER-101", new BigDecimal("20.00"), "INVOICE"),
+                new PaymentRequest("ORDER-101", new BigDecimal("20.00"), "INVOICE"),
+                new PaymentRequest("ORDER-102", null, "INVOICE"));
+
+        when(paymentRepository.findByOrderIdIn(anyCollection())).thenReturn(List.of(charged));
+        when(paymentRepository.saveAllAndFlush(anyList())).thenAnswer(invocation -> assignIds(invocation.getArgument(0)));
+
+        // Act
+        List<BatchPaymentResult> results = singleChunk.processBatch(requests);
+
+        // Assert
+        assertEquals(Outcome.EXISTING, results.get(0).getOutcome());
+        assertEquals(100L, results.get(0).getPayment().getId());
+        assertEquals(Outcome.CONFLICT, results.get(1).getOutcome());
+        assertNull(results.get(1).getPayment());
+        assertEquals(Outcome.CREATED, results.get(2).getOutcome());
+        assertEquals(Outcome.EXISTING, results.get(3).getOutcome());
+        assertEquals(results.get(2).getPayment().getId(), results.get(3).getPayment().getId());
+        assertEquals(Outcome.INVALID, results.get(4).getOutcome());
+        assertNotNull(results.get(4).getError());
+        assertEquals(1, ids.get(), "Only the first ORDER-101 request is inserted");
+    }
+
+    @Test
+    void testProcessBatch_LostInsertRace_RedoesChunk() {
+        // Arrange
+        PaymentRequest request = new PaymentRequest("ORDER-200", new BigDecimal("100.00"), "INVOICE");
+        Payment winner = new Payment("ORDER-200", 1, new BigDecimal("100.00"), "CREDIT_CARD");
+        winner.setId(200L);
+        winner.setStatus(PaymentStatus.SUCCESS);
+
+        when(paymentRepository.findByOrderIdIn(anyCollection()))
+                .thenReturn(List.of())
+                .thenReturn(List.of(winner));
+        when(paymentRepository.saveAllAndFlush(anyList()))
+                .thenThrow(new DataIntegrityViolationException("uk_payments_order_attempt"))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        List<BatchPaymentResult> results = batchService.processBatch(List.of(request));
+
+        // Assert - the rolled back first try charged nothing
+        assertEquals(Outcome.EXISTING, results.get(0).getOutcome());
+        assertEquals(200L, results.get(0).getPayment().getId());
+        verify(gateway, never()).charge(any(), any(), any());
+    }
+
+    @Test
+    void testProcessBatch_TooLarge_Rejected() {
+        List<PaymentRequest> requests = Collections.nCopies(11,
+                new PaymentRequest("ORDER-300", new BigDecimal("1.00"), "INVOICE"));
+
+        assertThrows(IllegalArgumentException.class, () -> batchService.processBatch(requests));
+        verifyNoInteractions(paymentRepository);
+    }
+
+    private List<Payment> assignIds(List<Payment> payments) {
+        payments.forEach(payment -> payment.setId(ids.incrementAndGet()));
+        return payments;
+    }
+}
@@ -0,0 +1,136 @@
+package com.microservices.payment.service;
+
+import com.microservices.payment.client.PaymentEventPublisher;
+import com.microservices.payment.dto.PaymentStatusEvent;
+import com.microservices.payment.entity.OutboxRelayLease;
+import com.microservices.payment.entity.Payment;
+import com.microservices.payment.entity.PaymentOutboxEvent;
+import com.microservices.payment.entity.PaymentStatus;
+import com.microservices.payment.repository.OutboxRelayLeaseRepository;
+import com.microservices.payment.repository.PaymentOutboxRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PaymentOutboxRelayTest {
+
+    @Mock
+    private PaymentOutboxRepository outboxRepository;
+
+    @Mock
+    private OutboxRelayLeaseRepository leaseRepository;
+
+    @Mock
+    private PaymentEventPublisher publisher;
+
+    private PaymentOutboxRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        when(publisher.maxDeliveryTime()).thenReturn(Duration.ofSeconds(5));
+        relay = new PaymentOutboxRelay(outboxRepository, leaseRepository, publisher, 2, 30000);
+    }
+
+    @Test
+    void testRelay_DeliversBatchesInOrderUntilDrained() {
+        // Arrange
+        List<PaymentOutboxEvent> first = List.of(event(1L, "ORDER-001", PaymentStatus.PENDING),
+                event(2L, "ORDER-002", PaymentStatus.SUCCESS));
+        List<PaymentOutboxEvent> second = List.of(event(3L, "ORDER-001", PaymentStatus.FAILED));
+        when(leaseRepository.tryAcquire(eq("payment-outbox"), anyString(), any(Instant.class), any(Instant.class)))
+                .thenReturn(1);
+        when(outboxRepository.findAllByOrderByIdAsc(any(Pageable.class))).thenReturn(first, second);
+
+        // Act
+        relay.relay();
+
+        // Assert - a short batch means the outbox is drained
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<PaymentStatusEvent>> delivered = ArgumentCaptor.forClass(List.class);
+        verify(publisher, times(2)).publish(delivered.capture());
+        assertEquals(List.of(1L, 2L), delivered.getAllValues().get(0).stream().map(PaymentStatusEvent::getEventId).toList());
+        assertEquals(PaymentStatus.FAILED, delivered.getAllValues().get(1).get(0).getStatus());
+        verify(outboxRepository).deleteAllInBatch(first);
+        verify(outboxRepository).deleteAllInBatch(second);
+        verify(outboxRepository, times(2)).findAllByOrderByIdAsc(any(Pageable.class));
+        // Renewed before each batch
+        verify(leaseRepository, times(2)).tryAcquire(eq("payment-outbox"), anyString(), any(Instant.class),
+                any(Instant.class));
+    }
+
+    @Test
+    void testRelay_DeliveryFails_KeepsEventsForNextRun() {
+        // Arrange
+        List<PaymentOutboxEvent> batch = List.of(event(1L, "ORDER-001", PaymentStatus.SUCCESS));
+        when(leaseRepository.tryAcquire(anyString(), anyString(), any(Instant.class), any(Instant.class))).thenReturn(1);
+        when(outboxRepository.findAllByOrderByIdAsc(any(Pageable.class))).thenReturn(batch);
+        doThrow(new RuntimeException("order-service unavailable")).when(publisher).publish(anyList());
+
+        // Act
+        relay.relay();
+
+        // Assert
+        verify(outboxRepository, never()).deleteAllInBatch(any());
+    }
+
+    @Test
+    void testRelay_LeaseHeldByAnotherInstance_Skipped() {
+        // Arrange
+        when(leaseRepository.tryAcquire(anyString(), anyString(), any(Instant.class), any(Instant.class))).thenReturn(0);
+        when(leaseRepository.existsById("payment-outbox")).thenReturn(true);
+
+        // Act
+        relay.relay();
+
+        // Assert
+        verifyNoInteractions(outboxRepository);
+        verify(publisher, never()).publish(anyList());
+    }
+
+    @Test
+    void testRelay_FirstRun_CreatesLease() {
+        // Arrange
+        when(leaseRepository.tryAcquire(anyString(), anyString(), any(Instant.class), any(Instant.class))).thenReturn(0);
+        when(leaseRepository.existsById("payment-outbox")).thenReturn(false);
+        when(outboxRepository.findAllByOrderByIdAsc(any(Pageable.class))).thenReturn(List.of());
+
+        // Act
+        relay.relay();
+
+        // Assert
+        verify(leaseRepository).save(any(OutboxRelayLease.class));
+        verify(publisher, never()).publish(anyList());
+    }
+
+    @Test
+    void testRelay_LeaseShorterThanDelivery_Rejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new PaymentOutboxRelay(outboxRepository, leaseRepository, publisher, 2, 5000));
+    }
+
+    private static PaymentOutboxEvent event(Long id, String orderId, PaymentStatus status) {
+        Payment payment = new Payment(orderId, new BigDecimal("10.00"), "CREDIT_CARD");
+        payment.setId(100L + id);
+        payment.setStatus(status);
+        PaymentOutboxEvent event = new PaymentOutboxEvent(payment);
+        event.setId(id);
+        return event;
+    }
+}
@@ -1,23 +1,46 @@
 package com.microservices.payment.service;
 
+import com.microservices.payment.dto.PaymentCursor;
+import com.microservices.payment.dto.PaymentFilter;
+import com.microservices.payment.dto.PaymentPage;
 import com.microservices.payment.dto.PaymentRequest;
 import com.microservices.payment.dto.PaymentResponse;
 import com.microservices.payment.entity.Payment;
 import com.microservices.payment.entity.PaymentStatus;
+import com.microservices.payment.gateway.DeterministicGateway;
+import com.microservices.payment.gateway.GatewayResult;
+import com.microservices.payment.gateway.PaymentGateway;
 import com.microservices.payment.repository.PaymentRepository;
+import com.microservices.payment.service.PaymentService.IdempotencyConflictException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -26,6 +49,15 @@ class PaymentServiceTest {
     @Mock
     private PaymentRepository paymentRepository;
 
+    @Spy
+    private PaymentGateway gateway = new DeterministicGateway();
+
+    @Mock
+    private PaymentOutbox paymentOutbox;
+
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+
     @InjectMocks
     private PaymentService paymentService;
 
@@ -58,7 +90,13 @@ class PaymentServiceTest {
         // Verify repository interaction
         ArgumentCaptor<Payment> paymentCaptor = ArgumentCaptor.forClass(Payment.class);
         verify(paymentRepository, times(1)).save(paymentCaptor.capture());
-        assertEquals(PaymentStatus.SUCCESS, paymentCaptor.getValue().getStatus());
+        // Stored PENDING and charged once committed, then settled by the gateway's answer
+        assertEquals(PaymentStatus.PENDING, paymentCaptor.getValue().getStatus());
+        InOrder inOrder = inOrder(paymentRepository, paymentOutbox, gateway);
+        inOrder.verify(paymentRepository).save(any(Payment.class));
+        inOrder.verify(paymentOutbox).record(savedPayment);
+        inOrder.verify(gateway).charge(eq("ORDER-001:1"), eq(new BigDecimal("100.00")), eq("CREDIT_CARD"));
+        inOrder.verify(paymentRepository).settle(eq(1L), eq(PaymentStatus.SUCCESS), any(Instant.class));
     }
 
     @Test
@@ -85,7 +123,8 @@ class PaymentServiceTest {
         // Verify repository interaction
         ArgumentCaptor<Payment> paymentCaptor = ArgumentCaptor.forClass(Payment.class);
         verify(paymentRepository, times(1)).save(paymentCaptor.capture());
-        assertEquals(PaymentStatus.FAILED, paymentCaptor.getValue().getStatus());
+        assertEquals(PaymentStatus.PENDING, paymentCaptor.getValue().getStatus());
+        verify(paymentRepository).settle(eq(2L), eq(PaymentStatus.FAILED), any(Instant.class));
     }
 
     @Test
@@ -231,6 +270,72 @@ class PaymentServiceTest {
         verify(paymentRepository, times(1)).findById(999L);
     }
 
+    @Test
+    void testGetPaymentByOrderId_ReturnsLatest() {
+        // Arrange
+        Payment latest = new Payment("ORDER-200", 2, new BigDecimal("100.00"), "CREDIT_CARD");
+        latest.setId(201L);
+        latest.setStatus(PaymentStatus.SUCCESS);
+
+        when(paymentRepository.findFirstByOrderIdOrderByCreatedAtDescIdDesc("ORDER-200"))
+                .thenReturn(Optional.of(latest));
+
+        // Act
+        PaymentResponse response = paymentService.getPaymentByOrderId("ORDER-200");
+
+        // Assert
+        assertEquals(201L, response.getId());
+        assertEquals(2, response.getAttempt());
+    }
+
+    @Test
+    void testGetPaymentByOrderId_NotFound() {
+        // Arrange
+        when(paymentRepository.findFirstByOrderIdOrderByCreatedAtDescIdDesc("ORDER-404"))
+                .thenReturn(Optional.empty());
+
+        // Act & Assert
+        assertThrows(RuntimeException.class, () -> paymentService.getPaymentByOrderId("ORDER-404"));
+    }
+
+    @Test
+    void testFindPayments_MorePaymentsFollow_ReturnsNextCursor() {
+        // Arrange
+        PaymentFilter filter = new PaymentFilter(PaymentStatus.SUCCESS, null, null, null);
+        List<Payment> rows = List.of(payment(3L, "2024-01-01T00:00:03Z"), payment(2L, "2024-01-01T00:00:02Z"),
+                payment(1L, "2024-01-01T00:00:01Z"));
+        when(paymentRepository.findPage(filter, null, 3)).thenReturn(rows);
+
+        // Act
+        PaymentPage page = paymentService.findPayments(filter, null, 2);
+
+        // Assert - one row beyond the page is read to detect the next one
+        assertEquals(2, page.getPayments().size());
+        assertEquals(new PaymentCursor(Instant.parse("2024-01-01T00:00:02Z"), 2L), page.getNextCursor());
+    }
+
+    @Test
+    void testFindPayments_LastPage_NoCursorAndLimitCapped() {
+        // Arrange
+        PaymentCursor after = new PaymentCursor(Instant.parse("2024-01-01T00:00:02Z"), 2L);
+        when(paymentRepository.findPage(PaymentFilter.none(), after, 501))
+                .thenReturn(List.of(payment(1L, "2024-01-01T00:00:01Z")));
+
+        // Act
+        PaymentPage page = paymentService.findPayments(PaymentFilter.none(), after.encode(), 10_000);
+
+        // Assert
+        assertEquals(1, page.getPayments().size());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void testFindPayments_MalformedCursor_Rejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> paymentService.findPayments(PaymentFilter.none(), "not-a-cursor", null));
+        verifyNoInteractions(paymentRepository);
+    }
+
     @Test
     void testPaymentRequestResponseMapping() {
         // Arrange
@@ -253,4 +358,353 @@ class PaymentServiceTest {
         assertNotNull(response.getCreatedAt());
         assertNotNull(response.getUpdatedAt());
     }
+
+    @Test
+    void testProcessPayment_GatewayAnswersLater_PendingUntilCallback() {
+        // Arrange
+        PaymentRequest request = new PaymentRequest("ORDER-400", new BigDecimal("100.00"), "CREDIT_CARD");
+        CompletableFuture<GatewayResult> answer = new CompletableFuture<>();
+        doReturn(answer).when(gateway).charge("ORDER-400:1", new BigDecimal("100.00"), "CREDIT_CARD");
+        when(paymentRepository.save(any(Payment.class))).thenAnswer(invocation -> {
+            Payment payment = invocation.getArgument(0);
+            payment.setId(400L);
+            return payment;
+        });
+
+        // Act
+        PaymentResponse response = paymentService.processPayment(request);
+
+        // Assert - stored as PENDING, settled only when the gateway calls back
+        assertEquals(PaymentStatus.PENDING, response.getStatus());
+        verify(paymentRepository, never()).settle(anyLong(), any(), any());
+
+        Payment settled = new Payment("ORDER-400", new BigDecimal("100.00"), "CREDIT_CARD");
+        settled.setId(400L);
+        settled.setStatus(PaymentStatus.SUCCESS);
+        when(paymentRepository.settle(eq(400L), eq(PaymentStatus.SUCCESS), any(Instant.class))).thenReturn(1);
+        when(paymentRepository.findById(400L)).thenReturn(Optional.of(settled));
+
+        answer.complete(GatewayResult.approved("ORDER-400:1"));
+        verify(paymentRepository).settle(eq(400L), eq(PaymentStatus.SUCCESS), any(Instant.class));
+        verify(paymentOutbox, times(2)).record(any(Payment.class));
+        verify(paymentOutbox).record(settled);
+    }
+
+    @Test
+    void testProcessPayment_GatewayError_SettlesAsFailed() {
+        // Arrange
+        PaymentRequest request = new PaymentRequest("ORDER-401", new BigDecimal("100.00"), "CREDIT_CARD");
+        CompletableFuture<GatewayResult> answer = new CompletableFuture<>();
+        doReturn(answer).when(gateway).charge("ORDER-401:1", new BigDecimal("100.00"), "CREDIT_CARD");
+        when(paymentRepository.save(any(Payment.class))).thenAnswer(invocation -> {
+            Payment payment = invocation.getArgument(0);
+            payment.setId(401L);
+            return payment;
+        });
+
+        // Act
+        paymentService.processPayment(request);
+        answer.completeExceptionally(new RuntimeException("Gateway timed out"));
+
+        // Assert - settle found nothing to update, so no second event
+        verify(paymentRepository).settle(eq(401L), eq(PaymentStatus.FAILED), any(Instant.class));
+        verify(paymentOutbox, times(1)).record(any(Payment.class));
+    }
+
+    @Test
+    void testResubmitPending_AsksGatewayUnderStoredReference() {
+        // Arrange - the answer to the first charge was lost in a restart
+        Payment pending = new Payment("ORDER-402", 2, new BigDecimal("100.00"), "CREDIT_CARD");
+        pending.setId(402L);
+        when(paymentRepository.settle(eq(402L), eq(PaymentStatus.SUCCESS), any(Instant.class))).thenReturn(1);
+        when(paymentRepository.findById(402L)).thenReturn(Optional.of(pending));
+
+        // Act
+        paymentService.resubmitPending(pending);
+
+        // Assert
+        verify(gateway).charge("ORDER-402:2", new BigDecimal("100.00"), "CREDIT_CARD");
+        verify(paymentOutbox).record(pending);
+    }
+
+    @Test
+    void testFailPending_VoidedAtGateway_SettlesAsFailed() {
+        // Arrange
+        Payment pending = new Payment("ORDER-403", new BigDecimal("100.00"), "CREDIT_CARD");
+        pending.setId(403L);
+        doReturn(CompletableFuture.completedFuture(GatewayResult.approved("ORDER-403:1")))
+                .when(gateway).voidCharge("ORDER-403:1", new BigDecimal("100.00"));
+
+        // Act - already settled meanwhile: nothing to update
+        paymentService.failPending(pending);
+
+        // Assert
+        verify(paymentRepository).settle(eq(403L), eq(PaymentStatus.FAILED), any(Instant.class));
+        verifyNoInteractions(paymentOutbox);
+        verify(gateway, never()).charge(any(), any(), any());
+    }
+
+    @Test
+    void testFailPending_AlreadyCaptured_SettlesAsSuccess() {
+        // Arrange - the deterministic gateway has captured an even amount by now
+        Payment pending = new Payment("ORDER-404", new BigDecimal("100.00"), "CREDIT_CARD");
+        pending.setId(404L);
+
+        // Act
+        paymentService.failPending(pending);
+
+        // Assert - the money was taken, so the payment is not failed
+        verify(paymentRepository).settle(eq(404L), eq(PaymentStatus.SUCCESS), any(Instant.class));
+        verify(paymentRepository, never()).settle(eq(404L), eq(PaymentStatus.FAILED), any(Instant.class));
+    }
+
+    @Test
+    void testFailPending_VoidUnanswered_LeftPending() {
+        // Arrange
+        Payment pending = new Payment("ORDER-405", new BigDecimal("100.00"), "CREDIT_CARD");
+        pending.setId(405L);
+        doReturn(CompletableFuture.failedFuture(new RuntimeException("Gateway timeout")))
+                .when(gateway).voidCharge("ORDER-405:1", new BigDecimal("100.00"));
+
+        // Act
+        paymentService.failPending(pending);
+
+        // Assert - tried again on the next sweep
+        verify(paymentRepository, never()).settle(anyLong(), any(), any());
+    }
+
+    @Test
+    void testProcessPayment_RepeatedAttempt_ReturnsExistingPayment() {
+        // Arrange
+        PaymentRequest request = new PaymentRequest("ORDER-300", 1, new BigDecimal("100.00"), "CREDIT_CARD");
+
+        Payment existing = new Payment("ORDER-300", 1, new BigDecimal("100.00"), "CREDIT_CARD");
+        existing.setId(300L);
+        existing.setStatus(PaymentStatus.SUCCESS);
+
+        when(paymentRepository.findByOrderIdAndAttempt("ORDER-300", 1)).thenReturn(Optional.of(existing));
+
+        // Act
+        PaymentResponse response = paymentService.processPayment(request);
+
+        // Assert
+        assertEquals(300L, response.getId());
+        assertEquals(1, response.getAttempt());
+        verify(paymentRepository, never()).save(any(Payment.class));
+    }
+
+    @Test
+    void testProcessPayment_LostInsertRace_ReturnsWinner() {
+        // Arrange
+        PaymentRequest request = new PaymentRequest("ORDER-301", 2, new BigDecimal("100.00"), "CREDIT_CARD");
+
+        Payment winner = new Payment("ORDER-301", 2, new BigDecimal("100.00"), "CREDIT_CARD");
+        winner.setId(301L);
+        winner.setStatus(PaymentStatus.SUCCESS);
+
+        when(paymentRepository.findByOrderIdAndAttempt("ORDER-301", 2))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(winner));
+        when(paymentRepository.save(any(Payment.class)))
+                .thenThrow(new DataIntegrityViolationException("uk_payments_order_attempt"));
+
+        // Act
+        PaymentResponse response = paymentService.processPayment(request);
+
+        // Assert - the rolled back insert recorded no event and charged nothing
+        assertEquals(301L, response.getId());
+        assertEquals(2, response.getAttempt());
+        verify(paymentOutbox, never()).record(any(Payment.class));
+        verify(gateway, never()).charge(any(), any(), any());
+    }
+
+    @Test
+    void testProcessPayment_RepeatedAttemptWithOtherAmount_Conflict() {
+        // Arrange
+        PaymentRequest request = new PaymentRequest("ORDER-302", 1, new BigDecimal("150.00"), "CREDIT_CARD");
+
+        Payment existing = new Payment("ORDER-302", 1, new BigDecimal("100.00"), "CREDIT_CARD");
+        existing.setId(302L);
+        existing.setStatus(PaymentStatus.SUCCESS);
+
+        when(paymentRepository.findByOrderIdAndAttempt("ORDER-302", 1)).thenReturn(Optional.of(existing));
+
+        // Act & Assert
+        assertThrows(IdempotencyConflictException.class, () -> paymentService.processPayment(request));
+        verify(paymentRepository, never()).save(any(Payment.class));
+    }
+
+    @Test
+    void testProcessPayment_ConcurrentIdenticalRequests_ProcessedOnce() throws Exception {
+        // Arrange
+        PaymentRequest request = new PaymentRequest("ORDER-303", 1, new BigDecimal("100.00"), "CREDIT_CARD");
+        CountDownLatch saving = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicReference<Payment> saved = new AtomicReference<>();
+
+        // A duplicate arriving after the first has finished finds its payment instead
+        when(paymentRepository.findByOrderIdAndAttempt("ORDER-303", 1))
+                .thenAnswer(invocation -> Optional.ofNullable(saved.get()));
+        when(paymentRepository.save(any(Payment.class))).thenAnswer(invocation -> {
+            saving.countDown();
+            assertTrue(release.await(5, TimeUnit.SECONDS));
+            Payment payment = invocation.getArgument(0);
+            payment.setId(303L);
+            saved.set(payment);
+            return payment;
+        });
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            // Act
+            Future<PaymentResponse> first = pool.submit(() -> paymentService.processPayment(request));
+            assertTrue(saving.await(5, TimeUnit.SECONDS));
+            Future<PaymentResponse> duplicate = pool.submit(() -> paymentService.processPayment(request));
+            Thread.sleep(100);
+            release.countDown();
+
+            // Assert
+            assertEquals(303L, first.get(5, TimeUnit.SECONDS).getId());
+            assertEquals(303L, duplicate.get(5, TimeUnit.SECONDS).getId());
+            verify(paymentRepository, times(1)).save(any(Payment.class));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void testRefundPayment_Success() {
+        // Arrange
+        Payment payment = new Payment("ORDER-200", new BigDecimal("100.00"), "CREDIT_CARD");
+        payment.setId(200L);
+        payment.setStatus(PaymentStatus.SUCCESS);
+
+        when(paymentRepository.findById(200L)).thenReturn(Optional.of(payment));
+        when(paymentRepository.save(any(Payment.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        PaymentResponse response = paymentService.refundPayment(200L);
+
+        // Assert
+        assertEquals(PaymentStatus.REFUNDED, response.getStatus());
+        verify(paymentOutbox).record(payment);
+    }
+
+    @Test
+    void testRefundPayment_AlreadyRefunded_IsNoOp() {
+        // Arrange
+        Payment payment = new Payment("ORDER-201", new BigDecimal("100.00"), "CREDIT_CARD");
+        payment.setId(201L);
+        payment.setStatus(PaymentStatus.REFUNDED);
+
+        when(paymentRepository.findById(201L)).thenReturn(Optional.of(payment));
+
+        // Act
+        PaymentResponse response = paymentService.refundPayment(201L);
+
+        // Assert
+        assertEquals(PaymentStatus.REFUNDED, response.getStatus());
+        verify(paymentRepository, never()).save(any(Payment.class));
+    }
+
+    @Test
+    void testRefundPayment_PendingPayment_VoidedAtGateway() {
+        // Arrange - the checkout gave up waiting for the gateway
+        Payment payment = new Payment("ORDER-203", new BigDecimal("100.00"), "CREDIT_CARD");
+        payment.setId(203L);
+        doReturn(CompletableFuture.completedFuture(GatewayResult.approved("ORDER-203:1")))
+                .when(gateway).voidCharge("ORDER-203:1", new BigDecimal("100.00"));
+
+        when(paymentRepository.findById(203L)).thenReturn(Optional.of(payment));
+        when(paymentRepository.save(any(Payment.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        PaymentResponse response = paymentService.refundPayment(203L);
+
+        // Assert - nothing was captured, so nothing to refund
+        assertEquals(PaymentStatus.REFUNDED, response.getStatus());
+        verify(gateway, never()).refund(any(), any());
+        verify(paymentOutbox).record(payment);
+    }
+
+    @Test
+    void testRefundPayment_PendingPaymentAlreadyCaptured_Refunded() {
+        // Arrange - the deterministic gateway has captured an even amount by now
+        Payment payment = new Payment("ORDER-204", new BigDecimal("100.00"), "CREDIT_CARD");
+        payment.setId(204L);
+
+        when(paymentRepository.findById(204L)).thenReturn(Optional.of(payment));
+        when(paymentRepository.save(any(Payment.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        PaymentResponse response = paymentService.refundPayment(204L);
+
+        // Assert
+        assertEquals(PaymentStatus.REFUNDED, response.getStatus());
+        InOrder inOrder = inOrder(gateway);
+        inOrder.verify(gateway).voidCharge("ORDER-204:1", new BigDecimal("100.00"));
+        inOrder.verify(gateway).refund("ORDER-204:1", new BigDecimal("100.00"));
+    }
+
+    @Test
+    void testRefundPayment_GatewayApprovesChargeAfterVoid_ChargeRefunded() {
+        // Arrange - the charge is still with the gateway when the checkout gives up on it
+        Payment payment = new Payment("ORDER-205", new BigDecimal("100.00"), "CREDIT_CARD");
+        payment.setId(205L);
+        CompletableFuture<GatewayResult> charge = new CompletableFuture<>();
+        doReturn(charge).when(gateway).charge("ORDER-205:1", new BigDecimal("100.00"), "CREDIT_CARD");
+        doReturn(CompletableFuture.completedFuture(GatewayResult.approved("ORDER-205:1")))
+                .when(gateway).voidCharge("ORDER-205:1", new BigDecimal("100.00"));
+        when(paymentRepository.findById(205L)).thenReturn(Optional.of(payment));
+        when(paymentRepository.save(any(Payment.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        paymentService.resubmitPending(payment);
+
+        // Act - voided, and then the gateway approves the charge anyway
+        assertEquals(PaymentStatus.REFUNDED, paymentService.refundPayment(205L).getStatus());
+        charge.complete(GatewayResult.approved("ORDER-205:1"));
+
+        // Assert - the late approval does not keep the money
+        verify(paymentRepository).settle(eq(205L), eq(PaymentStatus.SUCCESS), any(Instant.class));
+        verify(gateway).refund("ORDER-205:1", new BigDecimal("100.00"));
+        assertEquals(PaymentStatus.REFUNDED, payment.getStatus());
+    }
+
+    @Test
+    void testRefundPayment_GatewayDoesNotAnswer_PaymentUnchanged() {
+        // Arrange
+        Payment payment = new Payment("ORDER-206", new BigDecimal("100.00"), "CREDIT_CARD");
+        payment.setId(206L);
+        payment.setStatus(PaymentStatus.SUCCESS);
+        doReturn(CompletableFuture.failedFuture(new RuntimeException("Gateway timeout")))
+                .when(gateway).refund("ORDER-206:1", new BigDecimal("100.00"));
+        when(paymentRepository.findById(206L)).thenReturn(Optional.of(payment));
+
+        // Act & Assert
+        assertThrows(PaymentService.GatewayUnavailableException.class, () -> paymentService.refundPayment(206L));
+        assertEquals(PaymentStatus.SUCCESS, payment.getStatus());
+        verify(paymentRepository, never()).save(any(Payment.class));
+        verifyNoInteractions(paymentOutbox);
+    }
+
+    @Test
+    void testRefundPayment_FailedPayment_Rejected() {
+        // Arrange
+        Payment payment = new Payment("ORDER-202", new BigDecimal("99.99"), "CREDIT_CARD");
+        payment.setId(202L);
+        payment.setStatus(PaymentStatus.FAILED);
+
+        when(paymentRepository.findById(202L)).thenReturn(Optional.of(payment));
+
+        // Act & Assert
+        assertThrows(RuntimeException.class, () -> paymentService.refundPayment(202L));
+        verify(paymentRepository, never()).save(any(Payment.class));
+    }
+
+    private static Payment payment(Long id, String createdAt) {
+        Payment payment = new Payment("ORDER-" + id, new BigDecimal("10.00"), "CREDIT_CARD");
+        payment.setId(id);
+        payment.setStatus(PaymentStatus.SUCCESS);
+        payment.setCreatedAt(Instant.parse(createdAt));
+        return payment;
+    }
 }
@@ -0,0 +1,131 @@
+package com.microservices.payment.service;
+
+import com.microservices.payment.entity.Payment;
+import com.microservices.payment.entity.PaymentStatus;
+import com.microservices.payment.repository.PaymentRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PendingPaymentSweeperTest {
+
+    @Mock
+    private PaymentRepository paymentRepository;
+
+    @Mock
+    private PaymentService paymentService;
+
+    private PendingPaymentSweeper sweeper;
+
+    @BeforeEach
+    void setUp() {
+        sweeper = new PendingPaymentSweeper(paymentRepository, paymentService, 60_000, 900_000, 100);
+    }
+
+    @Test
+    void testSweep_StalePayment_ResubmittedUnderItsReference() {
+        // Arrange
+        Payment stale = pending(1L, Instant.now().minusSeconds(120));
+        when(paymentRepository.findByStatusAndUpdatedAtBeforeOrderByUpdatedAtAscIdAsc(eq(PaymentStatus.PENDING),
+                any(Instant.class), any(Pageable.class))).thenReturn(List.of(stale));
+
+        // Act
+        sweeper.sweep();
+
+        // Assert
+        verify(paymentService).resubmitPending(stale);
+        verify(paymentService, never()).failPending(any());
+    }
+
+    @Test
+    void testSweep_NeverAnswered_Failed() {
+        // Arrange
+        Payment abandoned = pending(2L, Instant.now().minusSeconds(3600));
+        when(paymentRepository.findByStatusAndUpdatedAtBeforeOrderByUpdatedAtAscIdAsc(eq(PaymentStatus.PENDING),
+                any(Instant.class), any(Pageable.class))).thenReturn(List.of(abandoned));
+
+        // Act
+        sweeper.sweep();
+
+        // Assert
+        verify(paymentService).failPending(abandoned);
+        verify(paymentService, never()).resubmitPending(any());
+    }
+
+    @Test
+    void testSweep_OnlyPaymentsPastStaleAfter() {
+        // Arrange
+        when(paymentRepository.findByStatusAndUpdatedAtBeforeOrderByUpdatedAtAscIdAsc(eq(PaymentStatus.PENDING),
+                any(Instant.class), any(Pageable.class))).thenReturn(List.of());
+
+        // Act
+        Instant before = Instant.now();
+        sweeper.sweep();
+
+        // Assert
+        verify(paymentRepository).findByStatusAndUpdatedAtBeforeOrderByUpdatedAtAscIdAsc(eq(PaymentStatus.PENDING),
+                argThat(cutoff -> !cutoff.isAfter(Instant.now().minusSeconds(60))
+                        && !cutoff.isBefore(before.minusSeconds(60))),
+                argThat(page -> page.getPageSize() == 100));
+        verifyNoInteractions(paymentService);
+    }
+
+    @Test
+    void testSweep_OneFailure_OthersStillSettled() {
+        // Arrange
+        Payment first = pending(3L, Instant.now().minusSeconds(120));
+        Payment second = pending(4L, Instant.now().minusSeconds(120));
+        when(paymentRepository.findByStatusAndUpdatedAtBeforeOrderByUpdatedAtAscIdAsc(eq(PaymentStatus.PENDING),
+                any(Instant.class), any(Pageable.class))).thenReturn(List.of(first, second));
+        doThrow(new RuntimeException("Gateway unavailable")).when(paymentService).resubmitPending(first);
+
+        // Act
+        sweeper.sweep();
+
+        // Assert
+        verify(paymentService).resubmitPending(second);
+    }
+
+    @Test
+    void testSweep_PaymentStoredWithoutReference_UsesOrderAndAttempt() {
+        // Arrange
+        Payment legacy = pending(5L, Instant.now().minusSeconds(120));
+        legacy.setGatewayReference(null);
+        when(paymentRepository.findByStatusAndUpdatedAtBeforeOrderByUpdatedAtAscIdAsc(eq(PaymentStatus.PENDING),
+                any(Instant.class), any(Pageable.class))).thenReturn(List.of(legacy));
+
+        // Act
+        sweeper.sweep();
+
+        // Assert
+        assertEquals("ORDER-5:1", legacy.getGatewayReference());
+        verify(paymentService).resubmitPending(legacy);
+    }
+
+    @Test
+    void testConstructor_FailBeforeStale_Rejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new PendingPaymentSweeper(paymentRepository, paymentService, 60_000, 60_000, 100));
+    }
+
+    private static Payment pending(Long id, Instant updatedAt) {
+        Payment payment = new Payment("ORDER-" + id, 1, new BigDecimal("10.00"), "CREDIT_CARD");
+        payment.setId(id);
+        payment.setUpdatedAt(updatedAt);
+        return payment;
+    }
+}